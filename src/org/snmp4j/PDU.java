@@ -29,6 +29,7 @@ import java.io.OutputStream;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.ListIterator;
 
 import org.snmp4j.smi.Integer32;
 import org.snmp4j.mp.SnmpConstants;
@@ -206,7 +207,12 @@ public class PDU implements BERSerializable, Serializable {
     public static final int inconsistentName =
             SnmpConstants.SNMP_ERROR_INCONSISTENT_NAME;
 
-    protected ArrayList<VariableBinding> variableBindings = new ArrayList<>();
+    /**
+     * The variable bindings of this PDU. Since 3.6.0 this field is declared as {@link List} instead of
+     * {@link ArrayList}, because received PDUs may hold a {@link org.snmp4j.smi.LazyVariableBindingList}.
+     * Subclasses that relied on the {@code ArrayList} type need to be adapted.
+     */
+    protected List<VariableBinding> variableBindings = new ArrayList<>();
     protected Integer32 errorStatus = new Integer32();
     protected Integer32 errorIndex = new Integer32();
     protected Integer32 requestID = new Integer32();
@@ -290,7 +296,9 @@ public class PDU implements BERSerializable, Serializable {
      *            PDU.
      */
     public void addAll(VariableBinding[] vbs) {
-        variableBindings.ensureCapacity(variableBindings.size() + vbs.length);
+        if (variableBindings instanceof ArrayList) {
+            ((ArrayList<VariableBinding>) variableBindings).ensureCapacity(variableBindings.size() + vbs.length);
+        }
         for (VariableBinding vb : vbs) {
             add(vb);
         }
@@ -321,7 +329,9 @@ public class PDU implements BERSerializable, Serializable {
      * @since 1.8
      */
     public void addAllOIDs(VariableBinding[] vbs) {
-        variableBindings.ensureCapacity(variableBindings.size() + vbs.length);
+        if (variableBindings instanceof ArrayList) {
+            ((ArrayList<VariableBinding>) variableBindings).ensureCapacity(variableBindings.size() + vbs.length);
+        }
         for (VariableBinding vb : vbs) {
             addOID(vb);
         }
@@ -602,7 +612,12 @@ public class PDU implements BERSerializable, Serializable {
         errorStatus.decodeBER(inputStream);
         errorIndex.decodeBER(inputStream);
 
-        variableBindings = decodeVariableBindings(inputStream);
+        if (SNMP4JSettings.isLazyVariableBindingDecoding()) {
+            variableBindings = LazyVariableBindingList.decode(inputStream);
+        }
+        else {
+            variableBindings = decodeVariableBindings(inputStream);
+        }
         if (BER.isCheckSequenceLength()) {
             BER.checkSequenceLength(length, (int) inputStream.getPosition() - pduStartPos, this);
         }
@@ -640,6 +655,9 @@ public class PDU implements BERSerializable, Serializable {
      * @return the length in bytes of the BER encoded VB list.
      */
     public static int getBERLength(List<? extends VariableBinding> variableBindings) {
+        if (variableBindings instanceof LazyVariableBindingList) {
+            return ((LazyVariableBindingList) variableBindings).getBERPayloadLength();
+        }
         int length = 0;
         // length for all vbs
         for (VariableBinding variableBinding : variableBindings) {
@@ -673,8 +691,48 @@ public class PDU implements BERSerializable, Serializable {
         encodeVariableBindings(outputStream, variableBindings);
     }
 
+    @Override
+    public void encodeBERReverse(BERReverseEncoder encoder) throws IOException {
+        int mark = encoder.getLength();
+        encodeVariableBindings(encoder, variableBindings);
+        errorIndex.encodeBERReverse(encoder);
+        errorStatus.encodeBERReverse(encoder);
+        requestID.encodeBERReverse(encoder);
+        encoder.encodeHeader(type, mark);
+    }
+
+    /**
+     * Encodes the supplied variable bindings as BER SEQUENCE back-to-front with the given encoder.
+     *
+     * @param encoder
+     *         the {@link BERReverseEncoder} to prepend the variable bindings sequence to.
+     * @param variableBindings
+     *         the variable bindings to encode.
+     *
+     * @throws IOException
+     *         if a variable binding cannot be encoded.
+     * @since 3.6.0
+     */
+    public static void encodeVariableBindings(BERReverseEncoder encoder,
+                                              List<? extends VariableBinding> variableBindings) throws IOException {
+        if (variableBindings instanceof LazyVariableBindingList) {
+            ((LazyVariableBindingList) variableBindings).encodeBERReverse(encoder);
+            return;
+        }
+        int mark = encoder.getLength();
+        for (ListIterator<? extends VariableBinding> it = variableBindings.listIterator(variableBindings.size());
+             it.hasPrevious(); ) {
+            it.previous().encodeBERReverse(encoder);
+        }
+        encoder.encodeHeader(BER.SEQUENCE, mark);
+    }
+
     public static void encodeVariableBindings(OutputStream outputStream,
                                               List<VariableBinding> variableBindings) throws IOException {
+        if (variableBindings instanceof LazyVariableBindingList) {
+            ((LazyVariableBindingList) variableBindings).encodeBER(outputStream);
+            return;
+        }
         int vbLength = 0;
         for (VariableBinding vb : variableBindings) {
             vbLength += vb.getBERLength();
@@ -240,6 +240,30 @@ public class PDUv1 extends PDU {
       }
   }
 
+  @Override
+  public void encodeBERReverse(BERReverseEncoder encoder) throws IOException {
+    for (VariableBinding vb : variableBindings) {
+      if (!isVariableV1(vb.getVariable())) {
+        throw new IOException("Cannot encode Counter64 into a SNMPv1 PDU");
+      }
+    }
+    int mark = encoder.getLength();
+    encodeVariableBindings(encoder, variableBindings);
+    if (type == PDU.V1TRAP) {
+      timestamp.encodeBERReverse(encoder);
+      specificTrap.encodeBERReverse(encoder);
+      genericTrap.encodeBERReverse(encoder);
+      agentAddress.encodeBERReverse(encoder);
+      enterprise.encodeBERReverse(encoder);
+    }
+    else {
+      errorIndex.encodeBERReverse(encoder);
+      errorStatus.encodeBERReverse(encoder);
+      requestID.encodeBERReverse(encoder);
+    }
+    encoder.encodeHeader(type, mark);
+  }
+
   /**
    * Check if the given variable can be encoded into a SNMPv1 PDU.
    * @param v
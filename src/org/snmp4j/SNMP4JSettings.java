@@ -214,6 +214,13 @@ public final class SNMP4JSettings {
      */
     private static int maxSizeRequestPDU = 65535;
 
+    /**
+     * Specifies whether {@link PDU#decodeBER(org.snmp4j.asn1.BERInputStream)} decodes variable bindings lazily.
+     * Default is {@code false}.
+     * @since 3.6.0
+     */
+    private static volatile boolean lazyVariableBindingDecoding = false;
+
     public static int getMaxSizeRequestPDU() {
         return maxSizeRequestPDU;
     }
@@ -560,4 +567,31 @@ public final class SNMP4JSettings {
     public static void setDefaultTimeoutMillis(long defaultTimeoutMillis) {
         SNMP4JSettings.defaultTimeoutMillis = defaultTimeoutMillis;
     }
+
+    /**
+     * Checks whether variable bindings of received {@link PDU}s are decoded lazily.
+     * @return
+     *    {@code true} if {@link PDU#decodeBER(org.snmp4j.asn1.BERInputStream)} creates a
+     *    {@link org.snmp4j.smi.LazyVariableBindingList} instead of decoding all variable bindings.
+     * @since 3.6.0
+     */
+    public static boolean isLazyVariableBindingDecoding() {
+        return lazyVariableBindingDecoding;
+    }
+
+    /**
+     * Enables or disables lazy decoding of variable bindings in {@link PDU#decodeBER(org.snmp4j.asn1.BERInputStream)}
+     * and {@link ScopedPDU#decodeBER(org.snmp4j.asn1.BERInputStream)}. If enabled, only the positions of the variable
+     * bindings within the received message are determined on decoding and each {@link org.snmp4j.smi.VariableBinding}
+     * is created on its first access (see {@link org.snmp4j.smi.LazyVariableBindingList}). Variable bindings that are
+     * never accessed, for example when a proxy forwards them, are never decoded.
+     * Since values are then decoded on access, an invalid value encoding causes an {@link IllegalStateException}
+     * on access instead of an {@link java.io.IOException} while decoding the message.
+     * @param lazyVariableBindingDecoding
+     *    {@code true} to decode variable bindings lazily, {@code false} (the default) to decode them immediately.
+     * @since 3.6.0
+     */
+    public static void setLazyVariableBindingDecoding(boolean lazyVariableBindingDecoding) {
+        SNMP4JSettings.lazyVariableBindingDecoding = lazyVariableBindingDecoding;
+    }
 }
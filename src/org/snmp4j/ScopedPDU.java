@@ -25,6 +25,7 @@ import org.snmp4j.asn1.BER;
 import java.io.OutputStream;
 import java.io.IOException;
 import org.snmp4j.asn1.BERInputStream;
+import org.snmp4j.asn1.BERReverseEncoder;
 import org.snmp4j.asn1.BER.MutableByte;
 
 /**
@@ -122,6 +123,15 @@ public class ScopedPDU extends PDU {
         super.encodeBER(outputStream);
     }
 
+    @Override
+    public void encodeBERReverse(BERReverseEncoder encoder) throws IOException {
+        int mark = encoder.getLength();
+        super.encodeBERReverse(encoder);
+        contextName.encodeBERReverse(encoder);
+        contextEngineID.encodeBERReverse(encoder);
+        encoder.encodeHeader(BER.SEQUENCE, mark);
+    }
+
 
 
     public Object clone() {
@@ -29,10 +29,12 @@ import org.snmp4j.security.*;
 import org.snmp4j.smi.*;
 import org.snmp4j.transport.ConnectionOrientedTransportMapping;
 import org.snmp4j.transport.TransportMappings;
+import org.snmp4j.util.CancellableTimerTask;
 import org.snmp4j.util.CommonTimer;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The {@code Snmp} class is the core of SNMP4J. It provides functions to send and receive SNMP PDUs. All SNMP PDU types
@@ -149,15 +151,16 @@ public class Snmp implements Session, CommandResponder {
     private MessageDispatcher messageDispatcher;
 
     /**
-     * The {@code pendingRequests} table contains pending requests accessed trough the key {@code PduHandle}
+     * The {@code pendingRequests} table contains pending requests accessed trough the key {@code PduHandle}.
+     * It is a concurrent map, so that responses and timeouts of different requests can be matched in parallel
+     * without a global lock.
      */
-    private final Map<PduHandle, PendingRequest<?>> pendingRequests =
-            Collections.synchronizedMap(new HashMap<>(50));
+    private final Map<PduHandle, PendingRequest<?>> pendingRequests = new ConcurrentHashMap<>(64);
 
     /**
      * The {@code asyncRequests} table contains pending requests accessed trough the key userObject
      */
-    private final Map<Object, PduHandle> asyncRequests = Collections.synchronizedMap(new HashMap<>(50));
+    private final Map<Object, PduHandle> asyncRequests = new ConcurrentHashMap<>(64);
 
     // Timer for retrying pending requests
     private CommonTimer timer;
@@ -583,10 +586,7 @@ public class Snmp implements Session, CommandResponder {
         if (notificationDispatcher != null) {
             notificationDispatcher.closeAll();
         }
-        List<PendingRequest<?>> pr;
-        synchronized (pendingRequests) {
-            pr = new ArrayList<>(pendingRequests.values());
-        }
+        List<PendingRequest<?>> pr = new ArrayList<>(pendingRequests.values());
         for (PendingRequest<?> pending : pr) {
             pending.cancel();
             ResponseEvent<Address> e =
@@ -964,7 +964,7 @@ public class Snmp implements Session, CommandResponder {
                         ((waitMillis = (stopTime - System.nanoTime()) / SnmpConstants.MILLISECOND_TO_NANOSECOND) > 0)) {
                     syncResponse.wait(waitMillis);
                 }
-                retryRequest = pendingRequests.remove(handle);
+                retryRequest = removePendingRequest(handle);
                 if (logger.isDebugEnabled()) {
                     logger.debug("Removed pending request with handle: " + handle);
                 }
@@ -975,7 +975,7 @@ public class Snmp implements Session, CommandResponder {
                 // cleanup request
                 request.setFinished();
                 request.cancel();
-                retryRequest = pendingRequests.remove(handle);
+                retryRequest = removePendingRequest(handle);
                 if (retryRequest != null) {
                     retryRequest.setFinished();
                     retryRequest.cancel();
@@ -984,7 +984,7 @@ public class Snmp implements Session, CommandResponder {
             } finally {
                 if (!request.finished) {
                     // free resources
-                    retryRequest = pendingRequests.remove(handle);
+                    retryRequest = removePendingRequest(handle);
                     if (retryRequest != null) {
                         retryRequest.setFinished();
                         retryRequest.cancel();
@@ -1078,7 +1078,7 @@ public class Snmp implements Session, CommandResponder {
             logger.debug("Cancelling pending request with handle " + pending);
         }
         if (pending != null) {
-            PendingRequest<?> pendingRequest = pendingRequests.remove(pending);
+            PendingRequest<?> pendingRequest = removePendingRequest(pending);
             if (pendingRequest != null) {
                 synchronized (pendingRequest) {
                     pendingRequest.setFinished();
@@ -1248,9 +1248,9 @@ public class Snmp implements Session, CommandResponder {
             if (logger.isDebugEnabled()) {
                 logger.debug("Looking up pending request with handle " + handle);
             }
-            synchronized (pendingRequests) {
-                request = pendingRequests.get(handle);
-                if (request != null) {
+            request = getPendingRequest(handle);
+            if (request != null) {
+                synchronized (request.retryLock) {
                     request.responseReceived();
                 }
             }
@@ -1299,11 +1299,19 @@ public class Snmp implements Session, CommandResponder {
         this.contextEngineIdDiscoveryDisabled = contextEngineIdDiscoveryDisabled;
     }
 
+    private PendingRequest<?> getPendingRequest(PduHandle handle) {
+        return (handle == null) ? null : pendingRequests.get(handle);
+    }
+
+    private PendingRequest<?> removePendingRequest(PduHandle handle) {
+        return (handle == null) ? null : pendingRequests.remove(handle);
+    }
+
     protected <A extends Address> boolean resendRequest(PendingRequest<A> request, PDU response) {
         if (request.useNextPDU()) {
             request.responseReceived = false;
-            synchronized (pendingRequests) {
-                pendingRequests.remove(request.key);
+            synchronized (request) {
+                removePendingRequest(request.key);
                 PduHandle holdKeyUntilResendDone = request.key;
                 request.key = null;
                 handleInternalResponse(response, request.pdu, request.target.getAddress());
@@ -1343,7 +1351,7 @@ public class Snmp implements Session, CommandResponder {
             PDU pdu = e.getPDU();
             logger.debug("Searching pending request with handle" + handle);
             @SuppressWarnings("unchecked")
-            PendingRequest<A> request = (PendingRequest<A>) pendingRequests.get(handle);
+            PendingRequest<A> request = (PendingRequest<A>) getPendingRequest(handle);
 
             VariableBinding vb = checkReport(e, pdu, request);
             if (vb == null) return;
@@ -1395,7 +1403,7 @@ public class Snmp implements Session, CommandResponder {
                 }
                 // remove pending request
                 // (sync is not needed as request is already canceled)
-                pendingRequests.remove(handle);
+                removePendingRequest(handle);
                 if (intime && (reqListener != null)) {
                     // return report
                     reqListener.onResponse(new ResponseEvent<A>(Snmp.this, e.getPeerAddress(), reqPDU, pdu,
@@ -1692,7 +1700,7 @@ public class Snmp implements Session, CommandResponder {
         return securityLevel;
     }
 
-    protected class PendingRequest<A extends Address> extends TimerTask implements PduHandleCallback<PDU>, Cloneable {
+    protected class PendingRequest<A extends Address> extends CancellableTimerTask implements PduHandleCallback<PDU>, Cloneable {
 
         private PduHandle key;
         protected int retryCount;
@@ -1712,6 +1720,7 @@ public class Snmp implements Session, CommandResponder {
         private volatile boolean responseReceived = false;
         private volatile boolean pendingRetry = false;
         private volatile boolean cancelled = false;
+        private final Object retryLock = new Object();
 
         private CounterEvent waitTime;
         private CounterEvent waitTimeTarget;
@@ -1862,7 +1871,7 @@ public class Snmp implements Session, CommandResponder {
                             // ignore
                         }
                     } else {
-                        pendingRequests.remove(handle);
+                        removePendingRequest(handle);
                     }
                 }
             }
@@ -1890,7 +1899,7 @@ public class Snmp implements Session, CommandResponder {
             }
 
             try {
-                synchronized (pendingRequests) {
+                synchronized (retryLock) {
                     this.pendingRetry = (!finished) && (retryCount > 0) && (!responseReceived);
                 }
                 if (this.pendingRetry) {
@@ -1921,7 +1930,7 @@ public class Snmp implements Session, CommandResponder {
                     }
                 } else if (!finished) {
                     finished = true;
-                    pendingRequests.remove(m_key);
+                    removePendingRequest(m_key);
                     if (!cancelled) {
                         // request timed out
                         if (logger.isDebugEnabled()) {
@@ -1934,7 +1943,7 @@ public class Snmp implements Session, CommandResponder {
                 } else {
                     // make sure pending request is removed even if response listener
                     // failed to call Snmp.cancel
-                    pendingRequests.remove(m_key);
+                    removePendingRequest(m_key);
                 }
             } catch (RuntimeException ex) {
                 logger.error("Failed to process pending request " + m_key +
@@ -99,7 +99,7 @@ public abstract class BaseAgent implements Runnable {
 
     /**
      * Creates a base agent with a {@link DefaultMOServer} as {@link MOServer}.
-     * To use a different server implementation, modify the {@link #server} member
+     * To use a different server implementation, like {@link ConcurrentMOServer}, modify the {@link #server} member
      * after construction.
      *
      * @param configURI
@@ -0,0 +1,64 @@
+/*_############################################################################
+  _##
+  _##  SNMP4J-Agent 3 - BulkManagedObject.java
+  _##
+  _##  Copyright (C) 2005-2021  Frank Fock (SNMP4J.org)
+  _##
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##
+  _##########################################################################*/
+
+package org.snmp4j.agent;
+
+import org.snmp4j.agent.request.SubRequest;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.VariableBinding;
+
+/**
+ * A {@code BulkManagedObject} is a {@link ManagedObject} that can return several successor instances of a GETBULK
+ * repetition chain with a single call. The {@link CommandProcessor} uses this interface to answer the repetitions
+ * of the repeaters of a GETBULK request that have been answered by the same managed object without looking up the
+ * managed object again for each variable binding.
+ * <p>
+ * The returned chains must contain exactly the instances and values that consecutive calls of
+ * {@link #next(SubRequest)} would have returned for the same scopes.
+ *
+ * @param <SR>
+ *         the sub-request type.
+ *
+ * @author Frank Fock
+ * @version 3.6.0
+ * @since 3.6.0
+ */
+public interface BulkManagedObject<SR extends SubRequest<?>> extends ManagedObject<SR> {
+
+    /**
+     * Gets the successor instances of the supplied lower bounds within the scope of this managed object.
+     *
+     * @param request
+     *         the sub-request on whose behalf the instances are retrieved. It is only used to provide the request
+     *         context (for example for value retrieval and updates) and it is not modified.
+     * @param lowerBounds
+     *         the (exclusive) lower bounds of the repetition chains, i.e. the OIDs of the last instances returned
+     *         for each repeater.
+     * @param maxRepetitions
+     *         the maximum number of successors to return for each lower bound.
+     *
+     * @return an array with one chain per lower bound. Each chain contains up to {@code maxRepetitions} variable
+     * bindings in lexicographic order where the first is the successor of the lower bound and each other is the
+     * successor of its predecessor in the chain. A chain is shorter than {@code maxRepetitions} if the scope of this
+     * managed object has been exhausted. If this managed object cannot process the chains in bulk, {@code null} is
+     * returned and the repetitions have to be processed by {@link #next(SubRequest)}.
+     */
+    VariableBinding[][] nextBulk(SR request, OID[] lowerBounds, int maxRepetitions);
+}
@@ -21,6 +21,7 @@
 package org.snmp4j.agent;
 
 import java.util.*;
+import java.util.function.Function;
 
 import org.snmp4j.*;
 import org.snmp4j.agent.mo.GenericManagedObject;
@@ -201,6 +202,81 @@ public class CommandProcessor implements CommandResponder, NotificationOriginato
         this.threadPool = threadPool;
     }
 
+    /**
+     * Creates a {@link WorkerTaskRejectionHandler} that answers confirmed requests rejected by a saturated
+     * {@link QueuedWorkerPool} with an error response instead of silently dropping them. This lets the command
+     * generator fail fast instead of waiting for its timeout and retrying, which would increase the load further.
+     * <p>
+     * Usage: {@code pool.setRejectionHandler(commandProcessor.createErrorResponseRejectionHandler(PDU.genErr,
+     * QueuedWorkerPool.DISCARD))}.
+     *
+     * @param errorStatus
+     *         the error status of the response, typically {@link PDU#genErr} or {@link PDU#tooBig}. For
+     *         {@link PDU#tooBig} the variable bindings are removed from the response.
+     * @param otherTasksHandler
+     *         the handler for rejected tasks that are not requests of this command processor, for example
+     *         notification tasks or unconfirmed PDUs.
+     *
+     * @return a new rejection handler.
+     * @since 3.6.0
+     */
+    public WorkerTaskRejectionHandler createErrorResponseRejectionHandler(int errorStatus,
+                                                                          WorkerTaskRejectionHandler otherTasksHandler) {
+        return (task, workerPool) -> {
+            CommandResponderEvent<?> event = null;
+            if (task instanceof Command) {
+                event = ((Command<?>) task).request;
+            } else if (task instanceof ProxyCommand) {
+                event = ((ProxyCommand<?>) task).request.getCommandEvent();
+            }
+            if ((event != null) && event.getPDU().isConfirmedPdu()) {
+                sendRejectionResponse(event, errorStatus);
+            } else {
+                otherTasksHandler.rejectedExecution(task, workerPool);
+            }
+        };
+    }
+
+    /**
+     * Returns a task classifier for {@link VirtualThreadWorkerPool#setTaskClassifier(Function)} that groups the
+     * tasks of this command processor by the context they address. Requests processed locally are keyed by their
+     * context name, proxied requests by their context engine ID and context name, and all other tasks by their class.
+     * With a per-key concurrency limit, slow proxy targets or slow instrumentation of one context then cannot
+     * starve the requests for other contexts.
+     *
+     * @return a task classifier function.
+     * @since 3.6.0
+     */
+    public Function<WorkerTask, Object> createContextTaskClassifier() {
+        return task -> {
+            if (task instanceof Command) {
+                CoexistenceInfo cinfo = ((Command<?>) task).cinfo;
+                return (cinfo != null) ? cinfo.getContextName() : new OctetString();
+            } else if (task instanceof ProxyCommand) {
+                ProxyForwardRequest<?> request = ((ProxyCommand<?>) task).request;
+                return Arrays.asList(request.getContextEngineID(), request.getContext());
+            }
+            return task.getClass();
+        };
+    }
+
+    private <A extends Address> void sendRejectionResponse(CommandResponderEvent<A> event, int errorStatus) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Worker pool saturated, responding " + PDU.toErrorStatusText(errorStatus) +
+                    " to request " + event);
+        }
+        PDU response = (PDU) event.getPDU().clone();
+        response.setType(PDU.RESPONSE);
+        if (errorStatus == PDU.tooBig) {
+            response.clear();
+            response.setRequestID(event.getPDU().getRequestID());
+        }
+        response.setErrorStatus(errorStatus);
+        response.setErrorIndex(0);
+        event.setProcessed(true);
+        sendResponse(event, response);
+    }
+
     public VACM getVacm() {
         return vacm;
     }
@@ -414,6 +490,8 @@ public class CommandProcessor implements CommandResponder, NotificationOriginato
                                                        MOServer server) {
         if (req.isComplete()) {
             requestList.remove(req);
+            // let managed objects keep state for follow-up requests before the response triggers them
+            req.fireRequestCompleted();
             // send response
             sendResponse(command, req.getResponse());
             if (server != null) {
@@ -596,7 +674,12 @@ public class CommandProcessor implements CommandResponder, NotificationOriginato
         }
 
         public void run() {
-            if (forwarder.forward(request)) {
+            // the callback may be called later by the thread receiving the response, releasing this worker
+            forwarder.forward(request, this::forwardCompleted);
+        }
+
+        private void forwardCompleted(ProxyForwardRequest<A> request, boolean forwarded) {
+            if (forwarded) {
                 PDU response = request.getResponsePDU();
                 if (response != null) {
                     sendResponse(request.getCommandEvent(), response);
@@ -640,6 +723,33 @@ public class CommandProcessor implements CommandResponder, NotificationOriginato
 
     protected void processNextSubRequest(SnmpRequest request, MOServer server, OctetString context, SubRequest<?> sreq)
             throws NoSuchElementException {
+        processNextSubRequest(request, server, context, sreq, new LockRequest(request, requestList.getTimeout()));
+    }
+
+    /**
+     * Processes a GETNEXT sub-request like {@link #processNextSubRequest(SnmpRequest, MOServer, OctetString,
+     * SubRequest)} and returns the managed object that provided the answer.
+     *
+     * @param request
+     *         the request containing the sub-request.
+     * @param server
+     *         the {@link MOServer} to look up managed objects.
+     * @param context
+     *         the context of the request.
+     * @param sreq
+     *         the sub-request to process.
+     * @param lockRequest
+     *         the lock request used for looking up the managed objects. After the call, its status reflects the lock
+     *         status of the lookup of the managed object that provided the answer.
+     *
+     * @return the {@link ManagedObject} that returned the value of the sub-request, or {@code null} if the
+     * sub-request has been answered with an exception or an error.
+     * @since 3.6.0
+     */
+    protected ManagedObject<?> processNextSubRequest(SnmpRequest request, MOServer server, OctetString context,
+                                                     SubRequest<?> sreq, LockRequest lockRequest)
+            throws NoSuchElementException {
+        ManagedObject<?> answeringMO = null;
         // We can be sure to have a default context scope here because
         // the inner class SnmpSubRequest creates it!
         DefaultMOContextScope scope = (DefaultMOContextScope) sreq.getScope();
@@ -656,7 +766,6 @@ public class CommandProcessor implements CommandResponder, NotificationOriginato
             sreq.setQuery(query);
         }
         ManagedObject<SubRequest<?>> mo;
-        LockRequest lockRequest = new LockRequest(request, requestList.getTimeout());
         MOServerLookupEvent lookupEvent = new MOServerLookupEvent(this, null,
                 query, MOServerLookupEvent.IntendedUse.getNext, true);
         while (!sreq.getStatus().isProcessed()) {
@@ -689,6 +798,8 @@ public class CommandProcessor implements CommandResponder, NotificationOriginato
                         // don't forget to update VACM query:
                         query.substractScope(mo.getScope());
                     }
+                } else if (sreq.getStatus().getErrorStatus() == PDU.noError) {
+                    answeringMO = mo;
                 }
             } catch (Exception moex) {
                 if (logger.isDebugEnabled()) {
@@ -706,6 +817,7 @@ public class CommandProcessor implements CommandResponder, NotificationOriginato
                 unlockManagedObjectIfLockedByLookup(server, mo, lockRequest);
             }
         }
+        return answeringMO;
     }
 
     /**
@@ -1129,12 +1241,109 @@ public class CommandProcessor implements CommandResponder, NotificationOriginato
 
     }
 
+    /**
+     * The {@code GetBulkHandler} processes GETBULK requests repetition by repetition. When a repeater has been
+     * answered by a {@link BulkManagedObject}, the remaining repetitions of that repeater are retrieved with a single
+     * {@link BulkManagedObject#nextBulk(SubRequest, OID[], int)} call. Repeaters of the same repetition that were
+     * answered by the same managed object share that call. The prefetched values are then assigned to the
+     * repetitions as they are appended to the response, so the response size limit and the end of MIB view handling
+     * are unchanged. A repetition falls back to a regular lookup when its chain is exhausted, or its value is not
+     * accessible for the view of the request.
+     */
     class GetBulkHandler implements RequestHandler<SnmpRequest> {
 
         public boolean isSupported(int pduType) {
             return (pduType == PDU.GETBULK);
         }
 
+        private void processRepetition(SnmpRequest request, MOServer server, OctetString context,
+                                       SnmpRequest.SnmpSubRequest sreq, BulkRepeater[] repeaters) {
+            int position = sreq.getIndex() - request.getNonRepeaters();
+            int column = position % repeaters.length;
+            int repetition = position / repeaters.length;
+            BulkRepeater repeater = repeaters[column];
+            if ((repeater != null) && (repeater.chain == null)) {
+                // the previous repetition is complete, prefetch all repeaters that have been answered by lookup
+                prefetchRepetitions(request, server, repeaters, repetition - 1);
+                repeater = repeaters[column];
+            }
+            if ((repeater != null) && repeater.answer(request, sreq)) {
+                return;
+            }
+            LockRequest lockRequest = new LockRequest(request, requestList.getTimeout());
+            ManagedObject<?> mo = processNextSubRequest(request, server, context, sreq, lockRequest);
+            if ((mo instanceof BulkManagedObject) && (!sreq.getVariableBinding().isException())) {
+                boolean locked = (lockRequest.getLockRequestStatus() == LockRequest.LockStatus.locked) ||
+                        (lockRequest.getLockRequestStatus() == LockRequest.LockStatus.lockedAfterTimeout);
+                repeaters[column] = new BulkRepeater(mo, locked, sreq.getVariableBinding().getOid());
+            } else {
+                repeaters[column] = null;
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void prefetchRepetitions(SnmpRequest request, MOServer server, BulkRepeater[] repeaters,
+                                         int repetition) {
+            int maxRepetitions = estimateRemainingRepetitions(request, repeaters.length, repetition);
+            if (maxRepetitions <= 0) {
+                return;
+            }
+            for (int start = 0; start < repeaters.length; ) {
+                BulkRepeater first = repeaters[start];
+                if ((first == null) || (first.chain != null)) {
+                    start++;
+                    continue;
+                }
+                // group consecutive repeaters that need a prefetch from the same managed object
+                int end = start + 1;
+                boolean lockNeeded = first.locked;
+                while ((end < repeaters.length) && (repeaters[end] != null) && (repeaters[end].chain == null) &&
+                        (repeaters[end].mo == first.mo)) {
+                    lockNeeded |= repeaters[end].locked;
+                    end++;
+                }
+                OID[] lowerBounds = new OID[end - start];
+                for (int i = start; i < end; i++) {
+                    lowerBounds[i - start] = repeaters[i].lastOID;
+                }
+                VariableBinding[][] chains = null;
+                if ((!lockNeeded) || server.lock(request, first.mo, requestList.getTimeout())) {
+                    try {
+                        chains = ((BulkManagedObject<SubRequest<?>>) first.mo).nextBulk(
+                                request.get(request.getNonRepeaters() + start), lowerBounds, maxRepetitions);
+                    } catch (Exception ex) {
+                        logger.warn("Bulk processing by " + first.mo + " failed, " +
+                                "falling back to single repetitions: " + ex.getMessage());
+                    } finally {
+                        if (lockNeeded) {
+                            server.unlock(request, first.mo);
+                        }
+                    }
+                }
+                for (int i = start; i < end; i++) {
+                    if ((chains == null) || (chains.length <= i - start) || (chains[i - start] == null)) {
+                        repeaters[i] = null;
+                    } else {
+                        repeaters[i].chain = chains[i - start];
+                    }
+                }
+                start = end;
+            }
+        }
+
+        private int estimateRemainingRepetitions(SnmpRequest request, int repeaterCount, int repetition) {
+            int remaining = request.getMaxRepetitions() - repetition - 1;
+            PDU response = request.getResponse();
+            if ((remaining > 0) && (response != null) && (response.size() > 0)) {
+                // avoid retrieving cells that would not fit into the response anyway
+                int length = response.getBERLength();
+                int bytesPerRepetition = Math.max(1, (length / response.size()) * repeaterCount);
+                int freeBytes = request.getSource().getMaxSizeResponsePDU() - length;
+                remaining = Math.min(remaining, Math.max(freeBytes, 0) / bytesPerRepetition + 1);
+            }
+            return remaining;
+        }
+
         public void processPdu(SnmpRequest request, MOServer server) {
             initRequestPhase(request);
             OctetString context = request.getContext();
@@ -1151,10 +1360,11 @@ public class CommandProcessor implements CommandResponder, NotificationOriginato
                 }
                 // repetitions
                 if (request.getMaxRepetitions() > 0) {
+                    BulkRepeater[] repeaters = new BulkRepeater[Math.max(request.getRepeaterCount(), 1)];
                     for (; it.hasNext(); i++) {
                         SnmpRequest.SnmpSubRequest sreq = it.next();
                         if (!sreq.isComplete()) {
-                            processNextSubRequest(request, server, context, sreq);
+                            processRepetition(request, server, context, sreq, repeaters);
                             sreq.updateNextRepetition();
                         }
                     }
@@ -1172,6 +1382,56 @@ public class CommandProcessor implements CommandResponder, NotificationOriginato
         }
     }
 
+    /**
+     * The prefetched repetition chain of a GETBULK repeater.
+     */
+    private class BulkRepeater {
+
+        private final ManagedObject<?> mo;
+        private final boolean locked;
+        private OID lastOID;
+        private VariableBinding[] chain;
+        private int next;
+
+        BulkRepeater(ManagedObject<?> mo, boolean locked, OID lastOID) {
+            this.mo = mo;
+            this.locked = locked;
+            this.lastOID = lastOID;
+        }
+
+        /**
+         * Assigns the next prefetched cell to the supplied repetition if it directly follows the last answered one.
+         *
+         * @param request
+         *         the GETBULK request.
+         * @param sreq
+         *         the repetition sub-request.
+         *
+         * @return {@code true} if the sub-request has been answered, {@code false} if it has to be processed by a
+         * lookup.
+         */
+        boolean answer(SnmpRequest request, SubRequest<?> sreq) {
+            if ((chain == null) || (next >= chain.length)) {
+                return false;
+            }
+            VariableBinding vb = sreq.getVariableBinding();
+            VariableBinding cell = chain[next];
+            if ((!lastOID.equals(vb.getOid())) ||
+                    ((request.getMessageProcessingModel() == MPv1.ID) &&
+                            (cell.getSyntax() == SMIConstants.SYNTAX_COUNTER64)) ||
+                    (vacm.isAccessAllowed(request.getViewName(), cell.getOid()) != VACM.VACM_OK)) {
+                next = chain.length;
+                return false;
+            }
+            next++;
+            vb.setOid(cell.getOid());
+            vb.setVariable(cell.getVariable());
+            sreq.completed();
+            lastOID = cell.getOid();
+            return true;
+        }
+    }
+
     class VACMQuery extends MOQueryWithSource {
 
         private OctetString viewName;
@@ -0,0 +1,260 @@
+/*_############################################################################
+  _##
+  _##  SNMP4J-Agent 3 - ConcurrentMOServer.java
+  _##
+  _##  Copyright (C) 2005-2021  Frank Fock (SNMP4J.org)
+  _##
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##
+  _##########################################################################*/
+
+package org.snmp4j.agent;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import org.snmp4j.agent.mo.MOFilter;
+import org.snmp4j.log.LogAdapter;
+import org.snmp4j.log.LogFactory;
+import org.snmp4j.mp.SnmpConstants;
+import org.snmp4j.smi.OctetString;
+
+/**
+ * The {@code ConcurrentMOServer} is a {@link DefaultMOServer} that is optimized for many concurrent
+ * lookups from different worker threads. The managed object registry is a {@link ConcurrentSkipListMap}
+ * ordered by {@link MOScopeComparator}, thus lookups are processed without any server wide lock.
+ * Locks requested by {@link #lock(Object, ManagedObject, long)} are maintained per managed object,
+ * so that waiting for a locked object does not block requests on other objects.
+ * <p>
+ * Registrations and unregistrations are serialized among each other, but do not block lookups.
+ * Lookup semantics, including context matching, {@link UpdateStrategy} and lookup events, are the same as
+ * for {@link DefaultMOServer}.
+ *
+ * @author Frank Fock
+ * @version 3.6.0
+ * @since 3.6.0
+ */
+public class ConcurrentMOServer extends DefaultMOServer {
+
+    private static final LogAdapter logger = LogFactory.getLogger(ConcurrentMOServer.class);
+
+    /**
+     * Key used for lookup listeners that are registered for all managed objects, because the
+     * {@link ConcurrentHashMap} does not support {@code null} keys.
+     */
+    private static final Object ANY_MANAGED_OBJECT = new Object();
+
+    private final ConcurrentMap<ManagedObject<?>, MOLock> moLocks = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Object, List<MOServerLookupListener>> lookupListeners = new ConcurrentHashMap<>();
+    private final Object registrationLock = new Object();
+
+    public ConcurrentMOServer() {
+        super(new ConcurrentSkipListMap<>(new MOScopeComparator()), new CopyOnWriteArraySet<>());
+    }
+
+    @Override
+    public void register(ManagedObject<?> mo, OctetString context) throws DuplicateRegistrationException {
+        synchronized (registrationLock) {
+            super.register(mo, context);
+        }
+    }
+
+    @Override
+    public ManagedObject<?> unregister(ManagedObject<?> mo, OctetString context) {
+        ManagedObject<?> r;
+        synchronized (registrationLock) {
+            r = super.unregister(mo, context);
+        }
+        if (r != null) {
+            // an unregistered object cannot be looked up anymore, thus an idle lock can be dropped
+            // (atomically, so that it cannot be acquired between the check and the removal)
+            moLocks.computeIfPresent(r, (k, lock) -> lock.isFree() ? null : lock);
+        }
+        return r;
+    }
+
+    @Override
+    public boolean lock(Object owner, ManagedObject<?> managedObject) {
+        return lock(owner, managedObject, 0);
+    }
+
+    @Override
+    public boolean lock(Object owner, ManagedObject<?> managedObject, long timeoutMillis) {
+        long deadline = System.nanoTime() + timeoutMillis * SnmpConstants.MILLISECOND_TO_NANOSECOND;
+        try {
+            while (true) {
+                MOLock lock = moLocks.computeIfAbsent(managedObject, k -> new MOLock());
+                long remaining = timeoutMillis;
+                if (timeoutMillis > 0) {
+                    remaining = (deadline - System.nanoTime()) / SnmpConstants.MILLISECOND_TO_NANOSECOND;
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                }
+                if (!lock.acquire(owner, remaining)) {
+                    return false;
+                }
+                if (moLocks.get(managedObject) == lock) {
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("Acquired lock on " + managedObject + " for " + owner);
+                    }
+                    return true;
+                }
+                // the free lock has been dropped by unregister before it has been acquired, thus another
+                // owner could acquire a new lock for the same object
+                lock.release(owner);
+            }
+        } catch (InterruptedException ex) {
+            logger.warn("Waiting for lock on " + managedObject + " has been interrupted!");
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    @Override
+    public boolean unlock(Object owner, ManagedObject<?> managedObject) {
+        if (managedObject != null) {
+            MOLock lock = moLocks.get(managedObject);
+            if (lock != null) {
+                if (lock.release(owner)) {
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("Removed lock on " + managedObject + " by " + owner);
+                    }
+                    return true;
+                }
+                else if (logger.isDebugEnabled()) {
+                    logger.debug("Object '" + owner + "' did not release lock: " + lock);
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Iterator<Map.Entry<MOScope, ManagedObject<?>>> iterator(Comparator<MOScope> comparator, MOFilter moFilter) {
+        SortedMap<MOScope, ManagedObject<?>> r = new TreeMap<>(comparator);
+        // the iteration over the concurrent registry is weakly consistent and needs no lock
+        for (Map.Entry<MOScope, ManagedObject<?>> entry : getRegistry().entrySet()) {
+            if ((moFilter == null) || moFilter.passesFilter(entry.getValue())) {
+                r.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return r.entrySet().iterator();
+    }
+
+    @Override
+    public void addLookupListener(MOServerLookupListener listener, ManagedObject<?> mo) {
+        lookupListeners.computeIfAbsent(listenerKey(mo), k -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    @Override
+    public boolean removeLookupListener(MOServerLookupListener listener, ManagedObject<?> mo) {
+        List<MOServerLookupListener> l = lookupListeners.get(listenerKey(mo));
+        return (l != null) && l.remove(listener);
+    }
+
+    @Override
+    protected void fireLookupEvent(ManagedObject<?> mo, MOServerLookupEvent event) {
+        List<MOServerLookupListener> l = lookupListeners.get(listenerKey(mo));
+        if (l != null) {
+            for (MOServerLookupListener item : l) {
+                item.lookupEvent(event);
+            }
+        }
+        l = lookupListeners.get(ANY_MANAGED_OBJECT);
+        if (l != null) {
+            for (MOServerLookupListener item : l) {
+                item.lookupEvent(event);
+            }
+        }
+    }
+
+    @Override
+    protected void fireQueryEvent(ManagedObject<?> mo, MOServerLookupEvent event) {
+        List<MOServerLookupListener> l = lookupListeners.get(listenerKey(mo));
+        if (l != null) {
+            for (MOServerLookupListener item : l) {
+                item.queryEvent(event);
+            }
+        }
+    }
+
+    private static Object listenerKey(ManagedObject<?> mo) {
+        return (mo == null) ? ANY_MANAGED_OBJECT : mo;
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + "[moLocks=" + moLocks + ",lookupListeners=" + lookupListeners + "]";
+    }
+
+    /**
+     * A reentrant lock for a single managed object. In contrast to {@link java.util.concurrent.locks.ReentrantLock}
+     * the owner of the lock is an arbitrary object (typically a request) and not a thread, because a request
+     * may be processed by different threads during its lifetime.
+     */
+    static final class MOLock {
+        private Object owner;
+        private int count;
+        private final long creationTime = System.currentTimeMillis();
+
+        synchronized boolean acquire(Object owner, long timeoutMillis) throws InterruptedException {
+            long start = System.nanoTime();
+            while ((count > 0) && (this.owner != owner)) {
+                if (timeoutMillis <= 0) {
+                    wait();
+                }
+                else {
+                    long remaining =
+                            timeoutMillis - (System.nanoTime() - start) / SnmpConstants.MILLISECOND_TO_NANOSECOND;
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    wait(remaining);
+                }
+            }
+            this.owner = owner;
+            count++;
+            return true;
+        }
+
+        synchronized boolean release(Object owner) {
+            if ((this.owner != owner) || (count <= 0)) {
+                return false;
+            }
+            if (--count == 0) {
+                this.owner = null;
+                notifyAll();
+                return true;
+            }
+            return false;
+        }
+
+        synchronized boolean isFree() {
+            return count <= 0;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return "MOLock[" +
+                    "owner=" + owner +
+                    ", creationTime=" + creationTime +
+                    ", count=" + count +
+                    ']';
+        }
+    }
+}
@@ -54,8 +54,23 @@ public class DefaultMOServer implements MOServer {
 
 
     public DefaultMOServer() {
-        this.registry = new TreeMap<>(new MOScopeComparator());
-        this.contexts = new LinkedHashSet<>(10);
+        this(new TreeMap<>(new MOScopeComparator()), new LinkedHashSet<>(10));
+    }
+
+    /**
+     * Creates a MO server with the supplied (empty) registry and context set. Subclasses can use this
+     * constructor to provide thread-safe collections that allow lookups without server wide synchronization.
+     *
+     * @param registry
+     *         an empty sorted map that uses a {@link MOScopeComparator} to order its keys.
+     * @param contexts
+     *         an empty set that holds the contexts supported by this server.
+     *
+     * @since 3.6.0
+     */
+    protected DefaultMOServer(SortedMap<MOScope, ManagedObject<?>> registry, Set<OctetString> contexts) {
+        this.registry = registry;
+        this.contexts = contexts;
         this.lockList = new Hashtable<>(10);
     }
 
@@ -0,0 +1,51 @@
+/*_############################################################################
+  _## 
+  _##  SNMP4J-Agent 3 - ProxyForwardCallback.java  
+  _## 
+  _##  Copyright (C) 2005-2021  Frank Fock (SNMP4J.org)
+  _##  
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##  
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##  
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##  
+  _##########################################################################*/
+
+package org.snmp4j.agent;
+
+import org.snmp4j.smi.Address;
+
+/**
+ * The {@code ProxyForwardCallback} is informed by a {@link ProxyForwarder} when the forwarding of a
+ * {@link ProxyForwardRequest} has been completed by
+ * {@link ProxyForwarder#forward(ProxyForwardRequest, ProxyForwardCallback)}.
+ *
+ * @param <A>
+ *         type of the peer {@link Address}.
+ *
+ * @author Frank Fock
+ * @version 3.6.0
+ * @since 3.6.0
+ */
+@FunctionalInterface
+public interface ProxyForwardCallback<A extends Address> {
+
+    /**
+     * Forwarding of a request has been completed.
+     *
+     * @param request
+     *         the forwarded request. If the request has been forwarded successfully to a single target, then its
+     *         {@link ProxyForwardRequest#getResponsePDU()} returns the translated response PDU.
+     * @param forwarded
+     *         {@code true} if the request has been forwarded, {@code false} otherwise (i.e. the request has to be
+     *         counted as proxy drop).
+     */
+    void forwardCompleted(ProxyForwardRequest<A> request, boolean forwarded);
+}
@@ -27,7 +27,7 @@ import org.snmp4j.smi.Address;
  * The <code>ProxyForwarder</code> class represents a proxy forwarder instance as defined by RFC 3413.
  *
  * @author Frank Fock
- * @version 1.0
+ * @version 3.6.0
  */
 public interface ProxyForwarder {
 
@@ -51,4 +51,25 @@ public interface ProxyForwarder {
      */
     <A extends Address> boolean forward(ProxyForwardRequest<A> request);
 
+    /**
+     * Forwards a {@code Request} like {@link #forward(ProxyForwardRequest)} but without waiting for the response of
+     * the target entity. The supplied callback is called exactly once when forwarding has been completed, either
+     * from the calling thread before this method returns or later from the thread that receives the response.
+     * <p>
+     * The default implementation calls {@link #forward(ProxyForwardRequest)} and thus blocks until it returns.
+     * Implementations that support asynchronous forwarding override this method to release the calling thread
+     * while the request is outstanding.
+     *
+     * @param request
+     *         the proxy forward request.
+     * @param callback
+     *         the callback to be informed when forwarding has been completed.
+     * @param <A> type of the peer {@link Address}.
+     *
+     * @since 3.6.0
+     */
+    default <A extends Address> void forward(ProxyForwardRequest<A> request, ProxyForwardCallback<A> callback) {
+        callback.forwardCompleted(request, forward(request));
+    }
+
 }
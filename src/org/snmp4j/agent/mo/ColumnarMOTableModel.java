@@ -0,0 +1,879 @@
+/*_############################################################################
+  _##
+  _##  SNMP4J-Agent 3 - ColumnarMOTableModel.java
+  _##
+  _##  Copyright (C) 2005-2021  Frank Fock (SNMP4J.org)
+  _##
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##
+  _##########################################################################*/
+
+package org.snmp4j.agent.mo;
+
+import org.snmp4j.smi.*;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The {@code ColumnarMOTableModel} is a {@link MOMutableTableModel} for very large tables that stores its data
+ * column by column in primitive arrays instead of a {@link DefaultMOTableRow} with a {@link Variable} array per row.
+ * <ul>
+ * <li>Integer32, Counter32, Gauge32 (Unsigned32) and TimeTicks columns are stored in an {@code int[]} per column.</li>
+ * <li>Counter64 columns are stored in a {@code long[]} per column.</li>
+ * <li>All other columns are stored in a {@code Variable[]} per column.</li>
+ * <li>The sub-identifiers of all row indexes are packed into a single {@code int[]}.</li>
+ * </ul>
+ * A table with one million rows and ten numeric columns thus consists of a few dozen arrays instead of more than
+ * ten million small objects. {@link ColumnarRow} views and their {@link Variable} values are created only on demand,
+ * for example when a request reads a cell.
+ * <p>
+ * Rows are kept sorted by their index. Adding rows in ascending index order (as typically done when loading a table)
+ * appends them in constant time, while adding a row in the middle of the table shifts the row order array.
+ * Polling threads can update numeric cells without creating any objects through {@link #setLong(OID, int, long)}.
+ * <p>
+ * Read and write access is guarded by a {@link ReentrantReadWriteLock}, so concurrent reads do not block each other.
+ * Iterators do not hold the lock between calls. If the model is modified during an iteration, the iterator
+ * continues with the successor of the last returned index.
+ *
+ * @author Frank Fock
+ * @version 3.6.0
+ * @since 3.6.0
+ */
+public class ColumnarMOTableModel implements MOMutableTableModel<ColumnarMOTableModel.ColumnarRow> {
+
+    private static final int STORAGE_INT = 0;
+    private static final int STORAGE_LONG = 1;
+    private static final int STORAGE_OBJECT = 2;
+
+    private final int[] syntaxes;
+    private final int[] storage;
+    private final int[] storageColumn;
+    private int[][] intColumns;
+    private long[][] longColumns;
+    private Variable[][] objectColumns;
+
+    private int[] indexPool;
+    private int indexPoolSize;
+    private int indexPoolGarbage;
+    private int[] indexOffsets;
+    private int[] indexLengths;
+    private int[] generations;
+
+    private int[] order;
+    private int rowCount;
+    private int[] freeSlots;
+    private int freeSlotCount;
+    private int slotCount;
+    private int modificationCount;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<MOTableModelListener> moTableModelListeners = new CopyOnWriteArrayList<>();
+    private volatile MOTableRowFactory<ColumnarRow> rowFactory;
+
+    /**
+     * Creates a columnar table model.
+     *
+     * @param columnSyntaxes
+     *         the SMI syntax (see {@link SMIConstants}) of each column of the table.
+     */
+    public ColumnarMOTableModel(int[] columnSyntaxes) {
+        this(columnSyntaxes, 64);
+    }
+
+    /**
+     * Creates a columnar table model with an initial row capacity.
+     *
+     * @param columnSyntaxes
+     *         the SMI syntax (see {@link SMIConstants}) of each column of the table.
+     * @param initialCapacity
+     *         the number of rows that can be stored before the column arrays need to grow.
+     */
+    public ColumnarMOTableModel(int[] columnSyntaxes, int initialCapacity) {
+        this.syntaxes = columnSyntaxes.clone();
+        this.storage = new int[syntaxes.length];
+        this.storageColumn = new int[syntaxes.length];
+        int ints = 0, longs = 0, objects = 0;
+        for (int i = 0; i < syntaxes.length; i++) {
+            switch (syntaxes[i]) {
+                case SMIConstants.SYNTAX_INTEGER32:
+                case SMIConstants.SYNTAX_COUNTER32:
+                case SMIConstants.SYNTAX_GAUGE32:
+                case SMIConstants.SYNTAX_TIMETICKS:
+                    storage[i] = STORAGE_INT;
+                    storageColumn[i] = ints++;
+                    break;
+                case SMIConstants.SYNTAX_COUNTER64:
+                    storage[i] = STORAGE_LONG;
+                    storageColumn[i] = longs++;
+                    break;
+                default:
+                    storage[i] = STORAGE_OBJECT;
+                    storageColumn[i] = objects++;
+            }
+        }
+        int capacity = Math.max(initialCapacity, 16);
+        intColumns = new int[ints][capacity];
+        longColumns = new long[longs][capacity];
+        objectColumns = new Variable[objects][capacity];
+        indexOffsets = new int[capacity];
+        indexLengths = new int[capacity];
+        generations = new int[capacity];
+        order = new int[capacity];
+        freeSlots = new int[16];
+        indexPool = new int[capacity * 2];
+    }
+
+    @Override
+    public int getColumnCount() {
+        return syntaxes.length;
+    }
+
+    @Override
+    public int getRowCount() {
+        lock.readLock().lock();
+        try {
+            return rowCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return getRowCount() == 0;
+    }
+
+    @Override
+    public boolean containsRow(OID index) {
+        lock.readLock().lock();
+        try {
+            return search(index.getValue(), index.size()) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public ColumnarRow getRow(OID index) {
+        lock.readLock().lock();
+        try {
+            int pos = search(index.getValue(), index.size());
+            return (pos >= 0) ? new ColumnarRow(order[pos], index) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Iterator<ColumnarRow> iterator() {
+        return new RowIterator(null);
+    }
+
+    @Override
+    public Iterator<ColumnarRow> tailIterator(OID lowerBound) {
+        return new RowIterator(lowerBound);
+    }
+
+    @Override
+    public OID lastIndex() {
+        lock.readLock().lock();
+        try {
+            return (rowCount > 0) ? getIndex(order[rowCount - 1]) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public OID firstIndex() {
+        lock.readLock().lock();
+        try {
+            return (rowCount > 0) ? getIndex(order[0]) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public ColumnarRow firstRow() {
+        lock.readLock().lock();
+        try {
+            return (rowCount > 0) ? new ColumnarRow(order[0], null) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public ColumnarRow lastRow() {
+        lock.readLock().lock();
+        try {
+            return (rowCount > 0) ? new ColumnarRow(order[rowCount - 1], null) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a row to the table by copying the values of the supplied row into the column storage. If a row with the
+     * same index already exists, its values are replaced. A row of this model is bound to the column storage
+     * afterwards, i.e. it is no longer detached and values set on it later are written to the model.
+     *
+     * @param row
+     *         the row to add, typically a detached row created by {@link #createRow(OID, Variable[])}.
+     *
+     * @return a detached copy of the previous row or {@code null} if there was no such row.
+     */
+    @Override
+    public ColumnarRow addRow(ColumnarRow row) {
+        OID index = row.getIndex();
+        ColumnarRow previous = null;
+        ColumnarRow added;
+        lock.writeLock().lock();
+        try {
+            int pos = search(index.getValue(), index.size());
+            int slot;
+            if (pos >= 0) {
+                slot = order[pos];
+                previous = detach(slot, index);
+            }
+            else {
+                slot = insert(-(pos + 1), index);
+            }
+            for (int c = 0; c < syntaxes.length; c++) {
+                store(slot, c, (c < row.size()) ? row.getValue(c) : null);
+            }
+            if (row.model() == this) {
+                row.bind(slot, index);
+                added = row;
+            }
+            else {
+                added = new ColumnarRow(slot, index);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (!moTableModelListeners.isEmpty()) {
+            fireTableModelChanged(new MOTableModelEvent(this, MOTableModelEvent.ROW_ADDED, added));
+        }
+        return previous;
+    }
+
+    /**
+     * Adds a row with all numeric cells set to zero and all other cells set to {@code null}, if there is no row with
+     * the specified index yet.
+     *
+     * @param index
+     *         the index of the new row.
+     *
+     * @return {@code true} if the row has been added, {@code false} if it existed already.
+     */
+    public boolean addRow(OID index) {
+        ColumnarRow added;
+        lock.writeLock().lock();
+        try {
+            int pos = search(index.getValue(), index.size());
+            if (pos >= 0) {
+                return false;
+            }
+            added = new ColumnarRow(insert(-(pos + 1), index), index);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (!moTableModelListeners.isEmpty()) {
+            fireTableModelChanged(new MOTableModelEvent(this, MOTableModelEvent.ROW_ADDED, added));
+        }
+        return true;
+    }
+
+    /**
+     * Sets the value of a numeric cell without creating any objects.
+     *
+     * @param index
+     *         the row index.
+     * @param column
+     *         the zero based column index of an Integer32, Counter32, Gauge32, TimeTicks, or Counter64 column.
+     * @param value
+     *         the new value. For 32bit columns, only the lower 32 bits are stored.
+     *
+     * @return {@code true} if the row exists and the value has been set, {@code false} otherwise.
+     * @throws IllegalArgumentException
+     *         if {@code column} is not a numeric column.
+     */
+    public boolean setLong(OID index, int column, long value) {
+        lock.writeLock().lock();
+        try {
+            int pos = search(index.getValue(), index.size());
+            if (pos < 0) {
+                return false;
+            }
+            storeLong(order[pos], column, value);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the value of a numeric cell without creating any objects.
+     *
+     * @param index
+     *         the row index.
+     * @param column
+     *         the zero based column index of an Integer32, Counter32, Gauge32, TimeTicks, or Counter64 column.
+     * @param defaultValue
+     *         the value returned if there is no such row.
+     *
+     * @return the cell value. Integer32 values are sign extended, the other 32bit values are returned unsigned.
+     * @throws IllegalArgumentException
+     *         if {@code column} is not a numeric column.
+     */
+    public long getLong(OID index, int column, long defaultValue) {
+        lock.readLock().lock();
+        try {
+            int pos = search(index.getValue(), index.size());
+            return (pos < 0) ? defaultValue : loadLong(order[pos], column);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public ColumnarRow removeRow(OID index) {
+        ColumnarRow removed;
+        lock.writeLock().lock();
+        try {
+            int pos = search(index.getValue(), index.size());
+            if (pos < 0) {
+                return null;
+            }
+            removed = removeAt(pos, index);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (!moTableModelListeners.isEmpty()) {
+            fireTableModelChanged(new MOTableModelEvent(this, MOTableModelEvent.ROW_REMOVED, removed));
+        }
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        fireTableModelChanged(new MOTableModelEvent(this, MOTableModelEvent.TABLE_CLEAR));
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < rowCount; i++) {
+                generations[order[i]]++;
+            }
+            for (Variable[] column : objectColumns) {
+                Arrays.fill(column, null);
+            }
+            rowCount = 0;
+            slotCount = 0;
+            freeSlotCount = 0;
+            indexPoolSize = 0;
+            indexPoolGarbage = 0;
+            modificationCount++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<ColumnarRow> clear(MOTableRowFilter<ColumnarRow> filter) {
+        List<ColumnarRow> removedRows = new ArrayList<>();
+        for (Iterator<ColumnarRow> it = iterator(); it.hasNext(); ) {
+            ColumnarRow row = it.next();
+            if (!filter.passesFilter(row)) {
+                ColumnarRow removed = removeRow(row.getIndex());
+                if (removed != null) {
+                    removedRows.add(removed);
+                }
+            }
+        }
+        return removedRows;
+    }
+
+    /**
+     * Creates a detached row that holds its own copy of the supplied values. The model itself is not changed, use
+     * {@link #addRow(ColumnarRow)} to add the row to the model.
+     *
+     * @param index
+     *         the index OID for the new row.
+     * @param values
+     *         the values of the new row.
+     *
+     * @return a detached {@link ColumnarRow}.
+     */
+    @Override
+    public ColumnarRow createRow(OID index, Variable[] values) throws UnsupportedOperationException {
+        MOTableRowFactory<ColumnarRow> factory = rowFactory;
+        if (factory != null) {
+            return factory.createRow(index, values);
+        }
+        Variable[] rowValues = new Variable[syntaxes.length];
+        System.arraycopy(values, 0, rowValues, 0, Math.min(values.length, rowValues.length));
+        return new ColumnarRow(index, rowValues);
+    }
+
+    @Override
+    public void freeRow(ColumnarRow row) {
+        MOTableRowFactory<ColumnarRow> factory = rowFactory;
+        if (factory != null) {
+            factory.freeRow(row);
+        }
+    }
+
+    @Override
+    public void setRowFactory(MOTableRowFactory<ColumnarRow> rowFactory) {
+        this.rowFactory = rowFactory;
+    }
+
+    @Override
+    public MOTableRowFactory<ColumnarRow> getRowFactory() {
+        return rowFactory;
+    }
+
+    public void addMOTableModelListener(MOTableModelListener l) {
+        moTableModelListeners.add(l);
+    }
+
+    public void removeMOTableModelListener(MOTableModelListener l) {
+        moTableModelListeners.remove(l);
+    }
+
+    protected void fireTableModelChanged(MOTableModelEvent event) {
+        for (MOTableModelListener listener : moTableModelListeners) {
+            listener.tableModelChanged(event);
+        }
+    }
+
+    /**
+     * Binary search for the position of an index in the row order.
+     *
+     * @return the position, or {@code -(insertionPoint + 1)} if the index is not present.
+     */
+    private int search(int[] index, int length) {
+        int low = 0;
+        int high = rowCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(order[mid], index, length);
+            if (cmp < 0) {
+                low = mid + 1;
+            }
+            else if (cmp > 0) {
+                high = mid - 1;
+            }
+            else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private int compare(int slot, int[] index, int length) {
+        int offset = indexOffsets[slot];
+        int slotLength = indexLengths[slot];
+        int n = Math.min(slotLength, length);
+        for (int i = 0; i < n; i++) {
+            int a = indexPool[offset + i];
+            int b = index[i];
+            if (a != b) {
+                return Integer.compareUnsigned(a, b);
+            }
+        }
+        return slotLength - length;
+    }
+
+    private OID getIndex(int slot) {
+        return new OID(indexPool, indexOffsets[slot], indexLengths[slot]);
+    }
+
+    private int insert(int pos, OID index) {
+        int slot;
+        if (freeSlotCount > 0) {
+            slot = freeSlots[--freeSlotCount];
+        }
+        else {
+            if (slotCount == order.length) {
+                grow();
+            }
+            slot = slotCount++;
+        }
+        if (rowCount > pos) {
+            System.arraycopy(order, pos, order, pos + 1, rowCount - pos);
+        }
+        order[pos] = slot;
+        rowCount++;
+        int length = index.size();
+        if (indexPoolSize + length > indexPool.length) {
+            compactIndexPool(length);
+        }
+        System.arraycopy(index.getValue(), 0, indexPool, indexPoolSize, length);
+        indexOffsets[slot] = indexPoolSize;
+        indexLengths[slot] = length;
+        indexPoolSize += length;
+        for (int c = 0; c < syntaxes.length; c++) {
+            store(slot, c, null);
+        }
+        modificationCount++;
+        return slot;
+    }
+
+    private ColumnarRow removeAt(int pos, OID index) {
+        int slot = order[pos];
+        ColumnarRow removed = detach(slot, index);
+        System.arraycopy(order, pos + 1, order, pos, rowCount - pos - 1);
+        rowCount--;
+        indexPoolGarbage += indexLengths[slot];
+        for (int c = 0; c < syntaxes.length; c++) {
+            if (storage[c] == STORAGE_OBJECT) {
+                objectColumns[storageColumn[c]][slot] = null;
+            }
+        }
+        generations[slot]++;
+        if (freeSlotCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlotCount * 2);
+        }
+        freeSlots[freeSlotCount++] = slot;
+        modificationCount++;
+        return removed;
+    }
+
+    private void grow() {
+        int capacity = order.length + (order.length >> 1);
+        for (int i = 0; i < intColumns.length; i++) {
+            intColumns[i] = Arrays.copyOf(intColumns[i], capacity);
+        }
+        for (int i = 0; i < longColumns.length; i++) {
+            longColumns[i] = Arrays.copyOf(longColumns[i], capacity);
+        }
+        for (int i = 0; i < objectColumns.length; i++) {
+            objectColumns[i] = Arrays.copyOf(objectColumns[i], capacity);
+        }
+        indexOffsets = Arrays.copyOf(indexOffsets, capacity);
+        indexLengths = Arrays.copyOf(indexLengths, capacity);
+        generations = Arrays.copyOf(generations, capacity);
+        order = Arrays.copyOf(order, capacity);
+    }
+
+    private void compactIndexPool(int additionalLength) {
+        int needed = indexPoolSize - indexPoolGarbage + additionalLength;
+        int[] pool = (needed * 2 > indexPool.length) ?
+                new int[Math.max(indexPool.length + (indexPool.length >> 1), needed * 2)] : new int[indexPool.length];
+        int size = 0;
+        for (int i = 0; i < rowCount; i++) {
+            int slot = order[i];
+            int length = indexLengths[slot];
+            System.arraycopy(indexPool, indexOffsets[slot], pool, size, length);
+            indexOffsets[slot] = size;
+            size += length;
+        }
+        indexPool = pool;
+        indexPoolSize = size;
+        indexPoolGarbage = 0;
+    }
+
+    private ColumnarRow detach(int slot, OID index) {
+        Variable[] values = new Variable[syntaxes.length];
+        for (int c = 0; c < values.length; c++) {
+            values[c] = load(slot, c);
+        }
+        return new ColumnarRow(index, values);
+    }
+
+    private Variable load(int slot, int column) {
+        int col = storageColumn[column];
+        switch (storage[column]) {
+            case STORAGE_INT: {
+                int value = intColumns[col][slot];
+                switch (syntaxes[column]) {
+                    case SMIConstants.SYNTAX_COUNTER32:
+                        return new Counter32(value & 0xFFFFFFFFL);
+                    case SMIConstants.SYNTAX_GAUGE32:
+                        return new Gauge32(value & 0xFFFFFFFFL);
+                    case SMIConstants.SYNTAX_TIMETICKS:
+                        return new TimeTicks(value & 0xFFFFFFFFL);
+                    default:
+                        return new Integer32(value);
+                }
+            }
+            case STORAGE_LONG:
+                return new Counter64(longColumns[col][slot]);
+            default:
+                return objectColumns[col][slot];
+        }
+    }
+
+    private long loadLong(int slot, int column) {
+        int col = storageColumn[column];
+        switch (storage[column]) {
+            case STORAGE_INT:
+                return (syntaxes[column] == SMIConstants.SYNTAX_INTEGER32) ?
+                        intColumns[col][slot] : (intColumns[col][slot] & 0xFFFFFFFFL);
+            case STORAGE_LONG:
+                return longColumns[col][slot];
+            default:
+                throw new IllegalArgumentException("Column " + column + " is not numeric");
+        }
+    }
+
+    private void store(int slot, int column, Variable value) {
+        if (storage[column] == STORAGE_OBJECT) {
+            objectColumns[storageColumn[column]][slot] = value;
+        }
+        else {
+            storeLong(slot, column, (value == null) ? 0L : value.toLong());
+        }
+    }
+
+    private void storeLong(int slot, int column, long value) {
+        int col = storageColumn[column];
+        switch (storage[column]) {
+            case STORAGE_INT:
+                intColumns[col][slot] = (int) value;
+                break;
+            case STORAGE_LONG:
+                longColumns[col][slot] = value;
+                break;
+            default:
+                throw new IllegalArgumentException("Column " + column + " is not numeric");
+        }
+    }
+
+    /**
+     * A {@code ColumnarRow} is a view on a row of a {@link ColumnarMOTableModel}. Values are created from the column
+     * storage when they are read and written back to it when they are set. A view becomes invalid when its row is
+     * removed from the model; its values are {@code null} then. A {@code ColumnarRow} can also be detached, i.e. hold
+     * its own values without being part of a model (see {@link #isDetached()}) until it is added to the model by
+     * {@link #addRow(ColumnarRow)}.
+     */
+    public final class ColumnarRow implements MOMutableTableRow, Comparable<MOTableRow> {
+
+        private int slot;
+        private int generation;
+        private OID index;
+        private volatile Variable[] values;
+        private MOTableRow baseRow;
+
+        private ColumnarRow(int slot, OID index) {
+            this.slot = slot;
+            this.generation = generations[slot];
+            this.index = index;
+            this.values = null;
+        }
+
+        private ColumnarRow(OID index, Variable[] values) {
+            this.slot = -1;
+            this.generation = 0;
+            this.index = index;
+            this.values = values;
+        }
+
+        /**
+         * Binds this row to a slot of the column storage. Must be called while holding the write lock.
+         *
+         * @param slot
+         *         the slot that holds the values of this row.
+         * @param index
+         *         the row index.
+         */
+        private void bind(int slot, OID index) {
+            this.slot = slot;
+            this.generation = generations[slot];
+            this.index = index;
+            this.values = null;
+        }
+
+        /**
+         * Checks whether this row holds its own values instead of being a view on the model.
+         *
+         * @return {@code true} if this row is not backed by the column storage of the model.
+         */
+        public boolean isDetached() {
+            return values != null;
+        }
+
+        @Override
+        public OID getIndex() {
+            if (index == null) {
+                lock.readLock().lock();
+                try {
+                    if (generations[slot] == generation) {
+                        index = ColumnarMOTableModel.this.getIndex(slot);
+                    }
+                } finally {
+                    lock.readLock().unlock();
+                }
+            }
+            return index;
+        }
+
+        @Override
+        public Variable getValue(int column) {
+            if (values != null) {
+                return values[column];
+            }
+            lock.readLock().lock();
+            try {
+                return (generations[slot] == generation) ? load(slot, column) : null;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public void setValue(int column, Variable value) {
+            if (values != null) {
+                values[column] = value;
+                return;
+            }
+            lock.writeLock().lock();
+            try {
+                if (generations[slot] == generation) {
+                    store(slot, column, value);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        @Override
+        public MOTableRow getBaseRow() {
+            return baseRow;
+        }
+
+        @Override
+        public void setBaseRow(MOTableRow baseRow) {
+            this.baseRow = baseRow;
+        }
+
+        @Override
+        public int size() {
+            return syntaxes.length;
+        }
+
+        @Override
+        public int compareTo(MOTableRow o) {
+            return getIndex().compareTo(o.getIndex());
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof ColumnarRow) {
+                ColumnarRow other = (ColumnarRow) obj;
+                if ((values == null) && (other.values == null)) {
+                    return (slot == other.slot) && (generation == other.generation) && (model() == other.model());
+                }
+                return Objects.equals(getIndex(), other.getIndex()) && Arrays.equals(toArray(), other.toArray());
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            OID rowIndex = getIndex();
+            return (rowIndex == null) ? slot : rowIndex.hashCode();
+        }
+
+        private ColumnarMOTableModel model() {
+            return ColumnarMOTableModel.this;
+        }
+
+        private Variable[] toArray() {
+            Variable[] result = new Variable[size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = getValue(i);
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "ColumnarRow[index=" + getIndex() + ",values=" + Arrays.asList(toArray()) + "]";
+        }
+    }
+
+    /**
+     * Iterates over the rows in index order. If the model is modified between two calls, the iterator continues with
+     * the successor of the last returned row index.
+     */
+    private class RowIterator implements Iterator<ColumnarRow> {
+
+        private int position;
+        private int expectedModificationCount;
+        private OID lastIndex;
+        private ColumnarRow next;
+
+        RowIterator(OID lowerBound) {
+            lock.readLock().lock();
+            try {
+                position = (lowerBound == null) ? 0 : search(lowerBound.getValue(), lowerBound.size());
+                if (position < 0) {
+                    position = -(position + 1);
+                }
+                expectedModificationCount = modificationCount;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                next = fetch();
+            }
+            return next != null;
+        }
+
+        @Override
+        public ColumnarRow next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            ColumnarRow row = next;
+            next = null;
+            lastIndex = row.getIndex();
+            return row;
+        }
+
+        @Override
+        public void remove() {
+            if (lastIndex == null) {
+                throw new IllegalStateException();
+            }
+            removeRow(lastIndex);
+        }
+
+        private ColumnarRow fetch() {
+            lock.readLock().lock();
+            try {
+                if ((expectedModificationCount != modificationCount) && (lastIndex != null)) {
+                    position = search(lastIndex.getValue(), lastIndex.size());
+                    position = (position < 0) ? -(position + 1) : position + 1;
+                }
+                expectedModificationCount = modificationCount;
+                if (position >= rowCount) {
+                    return null;
+                }
+                int slot = order[position++];
+                return new ColumnarRow(slot, getIndex(slot));
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+}
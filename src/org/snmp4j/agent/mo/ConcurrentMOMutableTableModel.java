@@ -0,0 +1,308 @@
+/*_############################################################################
+  _##
+  _##  SNMP4J-Agent 3 - ConcurrentMOMutableTableModel.java
+  _##
+  _##  Copyright (C) 2005-2021  Frank Fock (SNMP4J.org)
+  _##
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##
+  _##########################################################################*/
+
+package org.snmp4j.agent.mo;
+
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.Variable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.*;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The {@code ConcurrentMOMutableTableModel} is a {@link MOMutableTableModel} that stores its rows in a
+ * {@link ConcurrentSkipListMap}. In contrast to {@link DefaultMOMutableTableModel}, none of its methods synchronize
+ * on the model. Reads like {@link #getRow(OID)}, {@link #firstIndex()} and {@link #tailIterator(OID)} are lock-free
+ * and can run in parallel with row additions and removals.
+ * <p>
+ * Iterators are weakly consistent: they never throw {@link ConcurrentModificationException}, return the rows in
+ * index order, and return each row at most once. Rows added or removed after the iterator was created may or may
+ * not be returned. This is sufficient for concurrent GETNEXT/GETBULK walks, which only need an ordered successor
+ * search, and means that walks neither block each other nor block row updates.
+ * <p>
+ * Since {@link DefaultMOTable} synchronizes on the model when committing SET requests, such commits are still
+ * serialized among each other.
+ *
+ * @param <R>
+ *         the row type of the model.
+ *
+ * @author Frank Fock
+ * @version 3.6.0
+ * @since 3.6.0
+ */
+public class ConcurrentMOMutableTableModel<R extends MOTableRow>
+        implements MOMutableTableModel<R>, ConcurrentMOTableModel<R> {
+
+    protected final ConcurrentNavigableMap<OID, R> rows = new ConcurrentSkipListMap<>();
+    private final AtomicInteger columnCount = new AtomicInteger();
+    private final List<MOTableModelListener> moTableModelListeners = new CopyOnWriteArrayList<>();
+    protected volatile MOTableRowFactory<R> rowFactory;
+
+    public ConcurrentMOMutableTableModel() {
+    }
+
+    /**
+     * Creates a concurrent table model that uses the specified row factory.
+     *
+     * @param rowFactory
+     *         the factory for rows created by {@link #createRow(OID, Variable[])}.
+     */
+    public ConcurrentMOMutableTableModel(MOTableRowFactory<R> rowFactory) {
+        this.rowFactory = rowFactory;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnCount.get();
+    }
+
+    public void setColumnCount(int columnCount) {
+        this.columnCount.set(columnCount);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return rows.isEmpty();
+    }
+
+    @Override
+    public boolean containsRow(OID index) {
+        return rows.containsKey(index);
+    }
+
+    @Override
+    public R getRow(OID index) {
+        return rows.get(index);
+    }
+
+    @Override
+    public Iterator<R> iterator() {
+        return rows.values().iterator();
+    }
+
+    @Override
+    public Iterator<R> tailIterator(OID lowerBound) {
+        if (lowerBound == null) {
+            return iterator();
+        }
+        return rows.tailMap(lowerBound, true).values().iterator();
+    }
+
+    @Override
+    public OID lastIndex() {
+        Map.Entry<OID, R> last = rows.lastEntry();
+        return (last == null) ? null : last.getKey();
+    }
+
+    @Override
+    public OID firstIndex() {
+        Map.Entry<OID, R> first = rows.firstEntry();
+        return (first == null) ? null : first.getKey();
+    }
+
+    @Override
+    public R firstRow() {
+        Map.Entry<OID, R> first = rows.firstEntry();
+        return (first == null) ? null : first.getValue();
+    }
+
+    @Override
+    public R lastRow() {
+        Map.Entry<OID, R> last = rows.lastEntry();
+        return (last == null) ? null : last.getValue();
+    }
+
+    @Override
+    public R addRow(R row) {
+        columnCount.accumulateAndGet(row.size(), Math::max);
+        R replacedRow = rows.put(row.getIndex(), row);
+        if (!moTableModelListeners.isEmpty()) {
+            fireTableModelChanged(new MOTableModelEvent(this, MOTableModelEvent.ROW_ADDED, row));
+        }
+        return replacedRow;
+    }
+
+    @Override
+    public R removeRow(OID index) {
+        R row = rows.remove(index);
+        if ((row != null) && !moTableModelListeners.isEmpty()) {
+            fireTableModelChanged(new MOTableModelEvent(this, MOTableModelEvent.ROW_REMOVED, row));
+        }
+        return row;
+    }
+
+    /**
+     * Removes all rows in the specified index range.
+     *
+     * @param lowerBoundIncl
+     *         the lower bound index (inclusive) or {@code null} to remove from the first row.
+     * @param upperBoundExcl
+     *         the upper bound index (exclusive) or {@code null} to remove up to the last row.
+     */
+    public void removeRows(OID lowerBoundIncl, OID upperBoundExcl) {
+        for (Iterator<R> it = getView(lowerBoundIncl, upperBoundExcl).values().iterator(); it.hasNext(); ) {
+            R row = it.next();
+            it.remove();
+            if (!moTableModelListeners.isEmpty()) {
+                fireTableModelChanged(new MOTableModelEvent(this, MOTableModelEvent.ROW_REMOVED, row));
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        fireTableModelChanged(new MOTableModelEvent(this, MOTableModelEvent.TABLE_CLEAR));
+        rows.clear();
+    }
+
+    @Override
+    public List<R> clear(MOTableRowFilter<R> filter) {
+        List<R> removedRows = new ArrayList<>();
+        for (Iterator<R> it = rows.values().iterator(); it.hasNext(); ) {
+            R row = it.next();
+            if (!filter.passesFilter(row)) {
+                if (rows.remove(row.getIndex(), row)) {
+                    if (!moTableModelListeners.isEmpty()) {
+                        fireTableModelChanged(new MOTableModelEvent(this, MOTableModelEvent.ROW_REMOVED, row));
+                    }
+                    removedRows.add(row);
+                }
+            }
+        }
+        return removedRows;
+    }
+
+    /**
+     * Returns a lexicographic ordered list of the rows in the specified index range.
+     *
+     * @param lowerBound
+     *         the lower bound index (inclusive) for the rows in the returned list.
+     * @param upperBoundEx
+     *         the upper bound index (exclusive) for the rows in the returned list.
+     *
+     * @return the possibly empty lexicographically ordered {@code List} of rows of this table model in the
+     * specified index range. Modifications to the list will not affect the underlying table model, although
+     * modifications to the row elements will.
+     */
+    public List<R> getRows(OID lowerBound, OID upperBoundEx) {
+        return new ArrayList<>(getView(lowerBound, upperBoundEx).values());
+    }
+
+    /**
+     * Returns a lexicographic ordered list of the rows in the specified index range that match the supplied filter.
+     *
+     * @param lowerBound
+     *         the lower bound index (inclusive) for the rows in the returned list.
+     * @param upperBoundEx
+     *         the upper bound index (exclusive) for the rows in the returned list.
+     * @param filter
+     *         the filter to exclude rows in the range from the returned list.
+     *
+     * @return the possibly empty lexicographically ordered {@code List} of rows of this table model in the
+     * specified index range.
+     */
+    public List<R> getRows(OID lowerBound, OID upperBoundEx, MOTableRowFilter<R> filter) {
+        List<R> result = new ArrayList<>();
+        for (R row : getView(lowerBound, upperBoundEx).values()) {
+            if (filter.passesFilter(row)) {
+                result.add(row);
+            }
+        }
+        return result;
+    }
+
+    private ConcurrentNavigableMap<OID, R> getView(OID lowerBound, OID upperBoundEx) {
+        if ((lowerBound == null) && (upperBoundEx == null)) {
+            return rows;
+        } else if (lowerBound == null) {
+            return rows.headMap(upperBoundEx, false);
+        } else if (upperBoundEx == null) {
+            return rows.tailMap(lowerBound, true);
+        }
+        return rows.subMap(lowerBound, true, upperBoundEx, false);
+    }
+
+    @Override
+    public R createRow(OID index, Variable[] values) throws UnsupportedOperationException {
+        MOTableRowFactory<R> factory = rowFactory;
+        if (factory == null) {
+            throw new UnsupportedOperationException("No row factory");
+        }
+        return factory.createRow(index, values);
+    }
+
+    @Override
+    public void freeRow(R row) {
+        MOTableRowFactory<R> factory = rowFactory;
+        if (factory != null) {
+            factory.freeRow(row);
+        }
+    }
+
+    @Override
+    public void setRowFactory(MOTableRowFactory<R> rowFactory) {
+        this.rowFactory = rowFactory;
+    }
+
+    @Override
+    public MOTableRowFactory<R> getRowFactory() {
+        return rowFactory;
+    }
+
+    public void addMOTableModelListener(MOTableModelListener l) {
+        moTableModelListeners.add(l);
+    }
+
+    public void removeMOTableModelListener(MOTableModelListener l) {
+        moTableModelListeners.remove(l);
+    }
+
+    protected void fireTableModelChanged(MOTableModelEvent event) {
+        for (MOTableModelListener listener : moTableModelListeners) {
+            listener.tableModelChanged(event);
+        }
+    }
+
+    /**
+     * Dumps a textual representation of the table model content to the specified {@link OutputStream}.
+     *
+     * @param os
+     *         an {@link OutputStream} to write the model content to.
+     *
+     * @throws IOException
+     *         if a write operation on {@code os} fails with an IO exception.
+     */
+    public void dump(OutputStream os) throws IOException {
+        os.write(("Dump of " + getClass().getName() + ":\n").getBytes());
+        for (Map.Entry<OID, R> e : rows.entrySet()) {
+            os.write((e.getKey() + " # " + e.getValue() + "\n").getBytes());
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/*_############################################################################
+  _##
+  _##  SNMP4J-Agent 3 - ConcurrentMOTableModel.java
+  _##
+  _##  Copyright (C) 2005-2021  Frank Fock (SNMP4J.org)
+  _##
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##
+  _##########################################################################*/
+
+package org.snmp4j.agent.mo;
+
+/**
+ * The {@code ConcurrentMOTableModel} marks a {@link MOTableModel} whose read operations and iterators are safe to
+ * use while the model is modified by other threads, without synchronizing on the model instance.
+ * {@link DefaultMOTable} does not lock such a model while searching the next cell of a GETNEXT or GETBULK request.
+ * Iterators of such a model must not throw {@link java.util.ConcurrentModificationException}.
+ *
+ * @param <R>
+ *         the row type of the model.
+ *
+ * @author Frank Fock
+ * @version 3.6.0
+ * @since 3.6.0
+ */
+public interface ConcurrentMOTableModel<R extends MOTableRow> extends MOTableModel<R> {
+
+}
@@ -26,13 +26,17 @@ import org.snmp4j.agent.*;
 import org.snmp4j.agent.io.*;
 import org.snmp4j.agent.mo.snmp.StorageType;
 import org.snmp4j.agent.request.Request;
+import org.snmp4j.agent.request.RequestCompletionListener;
+import org.snmp4j.agent.request.SnmpRequest;
 import org.snmp4j.agent.request.SubRequest;
 import org.snmp4j.agent.util.OIDScope;
 import org.snmp4j.log.LogAdapter;
 import org.snmp4j.log.LogFactory;
 import org.snmp4j.mp.SnmpConstants;
+import org.snmp4j.smi.Address;
 import org.snmp4j.smi.Null;
 import org.snmp4j.smi.OID;
+import org.snmp4j.smi.OctetString;
 import org.snmp4j.smi.Variable;
 import org.snmp4j.smi.VariableBinding;
 
@@ -47,15 +51,20 @@ import java.util.*;
  * The default table model can be used to hold the data of a SNMP conceptual table as real tabular data. If you want to
  * implement a virtual table, you will have to directly implement the interfaces {@link MOTableModel} or {@link
  * MOMutableTableModel} to access the data based on the actual view.
+ * <p>
+ * As a {@link BulkManagedObject}, the table returns the successor cells of several GETBULK repeaters in one call while
+ * holding the model lock only once. Subclasses that override {@link #next(SubRequest)} or
+ * {@link #findCell(MOScope, SubRequest)} are excluded from bulk processing, see {@link #isBulkSupported()}.
  *
  * @author Frank Fock
- * @version 3.0
+ * @version 3.6.0
  */
 
 @SuppressWarnings("rawtypes")
 public class DefaultMOTable<R extends MOTableRow, C extends MOColumn, M extends MOTableModel<R>>
         implements MOTable<R, C, M>, MOScope,
-        SerializableManagedObject<SubRequest<?>>, RandomAccessManagedObject<SubRequest<?>> {
+        SerializableManagedObject<SubRequest<?>>, RandomAccessManagedObject<SubRequest<?>>,
+        BulkManagedObject<SubRequest<?>> {
 
     private static LogAdapter logger =
             LogFactory.getLogger(DefaultMOTable.class);
@@ -73,10 +82,14 @@ public class DefaultMOTable<R extends MOTableRow, C extends MOColumn, M extends
     protected transient List<MOChangeListener> moChangeListeners;
     protected transient List<MOTableRowListener<R>> moTableRowListeners;
 
-    private transient WeakHashMap<Request<?, ?, ?>, RowCacheEntry> walkCache;
+    private final Object walkCursorKey = new Object();
+    private volatile WalkContinuationCache<Position<R>> walkContinuationCache;
+    private MOTableModelListener walkContinuationInvalidator;
 
     protected transient List<RowModificationControlColumn> rowModificationControlColumns;
 
+    private transient volatile Boolean bulkSupported;
+
     @SuppressWarnings("unchecked")
     private static Comparator columnComparator = (o1, o2) -> {
         int id1 = (o1 instanceof MOColumn) ?
@@ -433,15 +446,15 @@ public class DefaultMOTable<R extends MOTableRow, C extends MOColumn, M extends
     }
 
     public OID getCellOID(OID index, int col) {
-        OID retval = new OID(oid);
-        retval.append(columns[col].getColumnID());
-        retval.append(index);
-        return retval;
+        return new OID(oid.getValue(), columns[col].getColumnID(), index.getValue());
     }
 
     private MOTableCellInfo getNextCell(int col,
                                         OID indexLowerBound,
-                                        boolean isLowerBoundIncluded) {
+                                        boolean isLowerBoundIncluded,
+                                        WalkCursor<R> cursor) {
+        OID searchLowerBound = indexLowerBound;
+        boolean searchLowerBoundIncluded = isLowerBoundIncluded;
         for (int i = col; i < columns.length; i++) {
             Iterator<R> it = model.tailIterator(indexLowerBound);
             if (!it.hasNext()) {
@@ -452,9 +465,12 @@ public class DefaultMOTable<R extends MOTableRow, C extends MOColumn, M extends
                 isLowerBoundIncluded = true;
             } else {
                 if ((indexLowerBound != null) && (!isLowerBoundIncluded)) {
-                    MOTableRow row = it.next();
+                    R row = it.next();
                     if (row.getIndex().compareTo(indexLowerBound) > 0) {
                         // the specified index does not exists so we can use this next one:
+                        if (cursor != null) {
+                            cursor.moveTo(searchLowerBound, searchLowerBoundIncluded, row, it);
+                        }
                         return new CellInfo(this, row.getIndex(), i, columns[i].getColumnID(),
                                 row);
                     }
@@ -462,10 +478,18 @@ public class DefaultMOTable<R extends MOTableRow, C extends MOColumn, M extends
                 indexLowerBound = null;
                 isLowerBoundIncluded = true;
                 if (it.hasNext()) {
-                    MOTableRow row = it.next();
+                    R row = it.next();
                     if (row == null) {
                         continue;
                     }
+                    if (cursor != null) {
+                        if (i == col) {
+                            cursor.moveTo(searchLowerBound, searchLowerBoundIncluded, row, it);
+                        } else {
+                            // the search continued with the first row of a following column
+                            cursor.moveTo(null, true, row, it);
+                        }
+                    }
                     return new CellInfo(this, row.getIndex(), i, columns[i].getColumnID(), row);
                 }
             }
@@ -482,70 +506,181 @@ public class DefaultMOTable<R extends MOTableRow, C extends MOColumn, M extends
     }
 
     protected MOTableCellInfo findCell(MOScope range, SubRequest<?> request) {
+        if (model instanceof ConcurrentMOTableModel) {
+            return findNextCell(range, request);
+        }
         synchronized (model) {
-            update(range, request);
-            // determine column
-            if (model.isEmpty()) {
-                return null;
+            return findNextCell(range, request);
+        }
+    }
+
+    private MOTableCellInfo findNextCell(MOScope range, SubRequest<?> request) {
+        update(range, request);
+        // determine column
+        if (model.isEmpty()) {
+            return null;
+        }
+        MOTableCellInfo cellInfo = getCellInfo(range.getLowerBound());
+        int col = cellInfo.getColumn();
+        boolean exactMatch = true;
+        if (col < 0) {
+            col = (-col) - 1;
+            exactMatch = false;
+        }
+        if (col >= columns.length) {
+            return null;
+        }
+        boolean lowerIncluded = (!exactMatch) || range.isLowerIncluded();
+        WalkCursor<R> cursor = getWalkCursor(request);
+        MOTableCellInfo next = null;
+        if (cursor != null) {
+            R row = cursor.next(cellInfo.getIndex(), lowerIncluded);
+            if (row != null) {
+                next = new CellInfo(this, row.getIndex(), col, columns[col].getColumnID(), row);
             }
-            MOTableCellInfo cellInfo = getCellInfo(range.getLowerBound());
-            int col = cellInfo.getColumn();
-            boolean exactMatch = true;
-            if (col < 0) {
-                col = (-col) - 1;
-                exactMatch = false;
+        }
+        if ((next == null) && (cursor != null) && exactMatch && (!lowerIncluded)) {
+            // a new request of a walk that continues where a previous response ended
+            R row = cursor.resume(range.getLowerBound(), cellInfo.getIndex());
+            if (row != null) {
+                next = new CellInfo(this, row.getIndex(), col, columns[col].getColumnID(), row);
             }
-            if (col >= columns.length) {
-                return null;
+        }
+        if (next == null) {
+            next = getNextCell(col, cellInfo.getIndex(), lowerIncluded, cursor);
+        }
+        if (next != null) {
+            OID cellOID = next.getCellOID();
+            if (range.isCovered(new OIDScope(cellOID))) {
+                return next;
             }
-            boolean lowerIncluded = (!exactMatch) || range.isLowerIncluded();
-            RowCacheEntry rowEntry = null;
-            if (request != null) {
-                rowEntry = getWalkCacheEntry(request, cellInfo, lowerIncluded);
+        }
+        return null;
+    }
+
+    /**
+     * Gets the walk cursor of this table for the request of the supplied sub-request. The cursor is attached to the
+     * request as processing user object and is created on demand.
+     *
+     * @param request
+     *         a sub-request or {@code null}.
+     *
+     * @return the walk cursor or {@code null} if {@code request} is {@code null} or does not belong to a request.
+     */
+    @SuppressWarnings("unchecked")
+    private WalkCursor<R> getWalkCursor(SubRequest<?> request) {
+        if ((request == null) || (request.getRequest() == null)) {
+            return null;
+        }
+        Request<?, ?, ?> req = request.getRequest();
+        Object cursor = req.getProcessingUserObject(walkCursorKey);
+        if (cursor == null) {
+            WalkContinuationCache<Position<R>> cache = walkContinuationCache;
+            if ((cache != null) && (req instanceof SnmpRequest)) {
+                SnmpRequest snmpRequest = (SnmpRequest) req;
+                cursor = new WalkCursor<R>(cache, snmpRequest.getContext(),
+                        snmpRequest.getSource().getPeerAddress());
             }
-            MOTableCellInfo next;
-            if (rowEntry != null) {
-                next = new CellInfo(this, rowEntry.row.getIndex(),
-                        col, cellInfo.getColumnID(), rowEntry.row);
-            } else {
-                next = getNextCell(col, cellInfo.getIndex(), lowerIncluded);
-                if ((request != null) && (next != null) && (next.getColumn() == col)) {
-                    addWalkCacheEntry(request, cellInfo.getIndex(), lowerIncluded,
-                            ((CellInfo) next).row);
-                }
+            else {
+                cursor = new WalkCursor<R>(null, null, null);
             }
-            if (next != null) {
-                OID cellOID = next.getCellOID();
-                if (range.isCovered(new OIDScope(cellOID))) {
-                    return next;
+            req.setProcessingUserObject(walkCursorKey, cursor);
+        }
+        return (WalkCursor<R>) cursor;
+    }
+
+    /**
+     * Enables the continuation of walks across requests. When a GETNEXT or GETBULK response has been returned, the
+     * positions of the walks in the table model are parked in a {@link WalkContinuationCache}. A following request
+     * from the same transport address and for the same context that starts with the last OID returned from this
+     * table resumes the parked position instead of searching the model again. The cache is cleared whenever a row
+     * is added to or removed from the model.
+     * <p>
+     * Walk continuation requires a model that fires {@link MOTableModelEvent}s, i.e. a
+     * {@link DefaultMOMutableTableModel}, a {@link ConcurrentMOMutableTableModel}, or a
+     * {@link ColumnarMOTableModel}. It should not be enabled for virtual tables whose rows change without such
+     * events.
+     *
+     * @param maxSize
+     *         the maximum number of parked walk positions.
+     * @param timeToLiveMillis
+     *         the maximum time in milliseconds a walk position stays parked.
+     *
+     * @return {@code true} if walk continuation has been enabled, {@code false} if the table model does not
+     * support model listeners.
+     * @since 3.6.0
+     */
+    public synchronized boolean enableWalkContinuation(int maxSize, long timeToLiveMillis) {
+        WalkContinuationCache<Position<R>> cache = new WalkContinuationCache<>(maxSize, timeToLiveMillis);
+        if (walkContinuationInvalidator == null) {
+            MOTableModelListener invalidator = event -> {
+                if (event.getType() != MOTableModelEvent.ROW_CHANGED) {
+                    WalkContinuationCache<Position<R>> c = walkContinuationCache;
+                    if (c != null) {
+                        c.clear();
+                    }
                 }
+            };
+            if (!addModelListener(invalidator)) {
+                logger.warn("Walk continuation not enabled for " + getOID() + " because its model " +
+                        model.getClass().getName() + " does not support model listeners");
+                return false;
             }
+            walkContinuationInvalidator = invalidator;
         }
-        return null;
+        walkContinuationCache = cache;
+        return true;
     }
 
-    private void addWalkCacheEntry(SubRequest<?> request, OID lowerBound, boolean lowerIncluded, MOTableRow row) {
-        if (walkCache == null) {
-            walkCache = new WeakHashMap<>(4);
+    /**
+     * Disables the continuation of walks across requests and discards all parked walk positions.
+     *
+     * @since 3.6.0
+     */
+    public synchronized void disableWalkContinuation() {
+        walkContinuationCache = null;
+        if (walkContinuationInvalidator != null) {
+            removeModelListener(walkContinuationInvalidator);
+            walkContinuationInvalidator = null;
         }
-        walkCache.put(request.getRequest(),
-                new RowCacheEntry(row, lowerBound, lowerIncluded));
     }
 
-    private RowCacheEntry getWalkCacheEntry(SubRequest<?> request, MOTableCellInfo cellInfo, boolean lowerIncluded) {
-        if (walkCache != null) {
-            RowCacheEntry entry = walkCache.get(request.getRequest());
-            if (entry == null) {
-                return null;
-            }
-            if (((entry.searchLowerBound == null) && (cellInfo.getIndex() == null)) ||
-                    ((entry.searchLowerBound != null) &&
-                            (entry.searchLowerBound.equals(cellInfo.getIndex())) &&
-                            (lowerIncluded == entry.searchLowerBoundIncluded))) {
-                return entry;
-            }
+    /**
+     * Gets the cache of parked walk positions.
+     *
+     * @return the walk continuation cache or {@code null} if walk continuation is not enabled.
+     * @since 3.6.0
+     */
+    public WalkContinuationCache<?> getWalkContinuationCache() {
+        return walkContinuationCache;
+    }
+
+    private boolean addModelListener(MOTableModelListener listener) {
+        if (model instanceof DefaultMOMutableTableModel) {
+            ((DefaultMOMutableTableModel<?>) model).addMOTableModelListener(listener);
+        }
+        else if (model instanceof ConcurrentMOMutableTableModel) {
+            ((ConcurrentMOMutableTableModel<?>) model).addMOTableModelListener(listener);
+        }
+        else if (model instanceof ColumnarMOTableModel) {
+            ((ColumnarMOTableModel) model).addMOTableModelListener(listener);
+        }
+        else {
+            return false;
+        }
+        return true;
+    }
+
+    private void removeModelListener(MOTableModelListener listener) {
+        if (model instanceof DefaultMOMutableTableModel) {
+            ((DefaultMOMutableTableModel<?>) model).removeMOTableModelListener(listener);
+        }
+        else if (model instanceof ConcurrentMOMutableTableModel) {
+            ((ConcurrentMOMutableTableModel<?>) model).removeMOTableModelListener(listener);
+        }
+        else if (model instanceof ColumnarMOTableModel) {
+            ((ColumnarMOTableModel) model).removeMOTableModelListener(listener);
         }
-        return null;
     }
 
     public MOScope getScope() {
@@ -670,15 +805,21 @@ public class DefaultMOTable<R extends MOTableRow, C extends MOColumn, M extends
                     scope.setLowerBound(nextCell.getCellOID());
                     scope.setLowerIncluded(false);
                 } else {
-                    request.getVariableBinding().setOid(nextCell.getCellOID());
+                    OID cellOID = nextCell.getCellOID();
+                    request.getVariableBinding().setOid(cellOID);
                     request.getVariableBinding().setVariable(value);
                     request.completed();
+                    if ((walkContinuationCache != null) && (nextCell instanceof CellInfo)) {
+                        WalkCursor<R> cursor = getWalkCursor(request);
+                        if (cursor != null) {
+                            cursor.returned(((CellInfo) nextCell).getRow(), cellOID);
+                        }
+                    }
                     return true;
                 }
             } else {
                 if (nextCell.getColumn() + 1 < getColumnCount()) {
-                    OID nextColOID = new OID(getOID());
-                    nextColOID.append(columns[nextCell.getColumn() + 1].getColumnID());
+                    OID nextColOID = new OID(getOID().getValue(), columns[nextCell.getColumn() + 1].getColumnID());
                     scope.setLowerBound(nextColOID);
                     scope.setLowerIncluded(false);
                 } else {
@@ -689,6 +830,134 @@ public class DefaultMOTable<R extends MOTableRow, C extends MOColumn, M extends
         return false;
     }
 
+    /**
+     * Gets the successor cells of the supplied lower bounds. All chains are computed while holding the lock of the
+     * table model once (if the model is not a {@link ConcurrentMOTableModel}). Each chain walks the rows of a column
+     * with a single model iterator and continues with the first row of the next readable column, skipping cells
+     * without value exactly like {@link #next(SubRequest)}.
+     *
+     * @param request
+     *         the sub-request on whose behalf the cells are retrieved.
+     * @param lowerBounds
+     *         the (exclusive) lower bounds of the chains.
+     * @param maxRepetitions
+     *         the maximum number of cells per chain.
+     *
+     * @return the cell chains or {@code null} if {@link #isBulkSupported()} returns {@code false}.
+     * @since 3.6.0
+     */
+    @Override
+    public VariableBinding[][] nextBulk(SubRequest<?> request, OID[] lowerBounds, int maxRepetitions) {
+        if (!isBulkSupported()) {
+            return null;
+        }
+        if (model instanceof ConcurrentMOTableModel) {
+            return nextCellChains(request, lowerBounds, maxRepetitions);
+        }
+        synchronized (model) {
+            return nextCellChains(request, lowerBounds, maxRepetitions);
+        }
+    }
+
+    /**
+     * Checks whether this table can process GETBULK repetitions by {@link #nextBulk(SubRequest, OID[], int)}.
+     * By default, this is the case unless a subclass overrides {@link #next(SubRequest)} or
+     * {@link #findCell(MOScope, SubRequest)}, because bulk processing would bypass those methods. Subclasses
+     * may override this method to return {@code true} if their overrides do not change the returned instances.
+     *
+     * @return {@code true} if bulk processing is supported.
+     * @since 3.6.0
+     */
+    protected boolean isBulkSupported() {
+        Boolean supported = bulkSupported;
+        if (supported == null) {
+            supported = isDeclaredByDefaultMOTable("next", SubRequest.class) &&
+                    isDeclaredByDefaultMOTable("findCell", MOScope.class, SubRequest.class);
+            bulkSupported = supported;
+        }
+        return supported;
+    }
+
+    private boolean isDeclaredByDefaultMOTable(String methodName, Class<?>... parameterTypes) {
+        for (Class<?> c = getClass(); (c != null) && (c != DefaultMOTable.class); c = c.getSuperclass()) {
+            try {
+                c.getDeclaredMethod(methodName, parameterTypes);
+                return false;
+            } catch (NoSuchMethodException nsmex) {
+                // not overridden by this class
+            }
+        }
+        return true;
+    }
+
+    private VariableBinding[][] nextCellChains(SubRequest<?> request, OID[] lowerBounds, int maxRepetitions) {
+        VariableBinding[][] chains = new VariableBinding[lowerBounds.length][];
+        WalkCursor<R> cursor = getWalkCursor(request);
+        for (int i = 0; i < lowerBounds.length; i++) {
+            OID lowerBound = lowerBounds[i];
+            if ((lowerBound == null) || (maxRepetitions <= 0) || (!lowerBound.startsWith(oid))) {
+                chains[i] = new VariableBinding[0];
+                continue;
+            }
+            update(new DefaultMOScope(lowerBound, false, null, false), request);
+            List<VariableBinding> chain = new ArrayList<>(Math.min(maxRepetitions, 64));
+            MOTableCellInfo cellInfo = getCellInfo(lowerBound);
+            int col = cellInfo.getColumn();
+            OID index = cellInfo.getIndex();
+            boolean lowerIncluded = false;
+            if (col < 0) {
+                col = (-col) - 1;
+                lowerIncluded = true;
+            }
+            // continue with the iterator of the cursor position that returned the lower bound row, if any
+            Iterator<R> it = ((cursor != null) && (!lowerIncluded)) ? cursor.takeIterator(index) : null;
+            R lastRow = null;
+            while ((chain.size() < maxRepetitions) && (col < columns.length)) {
+                if (columns[col].getAccess().isAccessibleForRead()) {
+                    if (it == null) {
+                        it = model.tailIterator(index);
+                    }
+                    OID visitedIndex = index;
+                    try {
+                        while ((chain.size() < maxRepetitions) && it.hasNext()) {
+                            R row = it.next();
+                            if ((row == null) ||
+                                    ((index != null) && (!lowerIncluded) && (row.getIndex().compareTo(index) <= 0))) {
+                                continue;
+                            }
+                            visitedIndex = row.getIndex();
+                            Variable value = getValue(row, col, request);
+                            if (value != null) {
+                                chain.add(new VariableBinding(getCellOID(row.getIndex(), col), value));
+                                lastRow = row;
+                            }
+                        }
+                    } catch (ConcurrentModificationException cmex) {
+                        // the iterator of the cursor is outdated, search the model again behind the last row
+                        index = visitedIndex;
+                        lowerIncluded = (index == null);
+                        it = null;
+                        continue;
+                    }
+                    if (chain.size() >= maxRepetitions) {
+                        break;
+                    }
+                }
+                it = null;
+                col++;
+                index = null;
+                lowerIncluded = true;
+            }
+            if ((cursor != null) && (lastRow != null) && (it != null) && (chain.size() >= maxRepetitions)) {
+                // keep the position behind the end of the chain for the next request of the walk
+                cursor.moveTo(lastRow.getIndex(), true, lastRow, it);
+                cursor.returned(lastRow, chain.get(chain.size() - 1).getOid());
+            }
+            chains[i] = chain.toArray(new VariableBinding[0]);
+        }
+        return chains;
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public void prepare(SubRequest<?> request) {
@@ -813,8 +1082,7 @@ public class DefaultMOTable<R extends MOTableRow, C extends MOColumn, M extends
                 if (rowEvent.getVetoStatus() != PDU.noError) {
                     if (rowEvent.getVetoColumn() >= 0) {
                         int colID = columns[rowEvent.getVetoColumn()].getColumnID();
-                        OID prefix = new OID(getOID());
-                        prefix.append(colID);
+                        OID prefix = new OID(getOID().getValue(), colID);
                         SubRequest<?> r = request.getRequest().find(prefix);
                         if (r != null) {
                             r.getStatus().setErrorStatus(rowEvent.getVetoStatus());
@@ -1490,6 +1758,7 @@ public class DefaultMOTable<R extends MOTableRow, C extends MOColumn, M extends
         private int col = -1;
         private MOTableRow row;
         private DefaultMOTable<?, ?, ?> table;
+        private OID cellOID;
 
         public CellInfo(DefaultMOTable<?, ?, ?> table, OID oid) {
             this.table = table;
@@ -1528,7 +1797,11 @@ public class DefaultMOTable<R extends MOTableRow, C extends MOColumn, M extends
         }
 
         public OID getCellOID() {
-            return table.getCellOID(index, col);
+            // cell info instances live for a single search only, thus the cell OID is built once and then reused
+            if (cellOID == null) {
+                cellOID = table.getCellOID(index, col);
+            }
+            return cellOID;
         }
 
         public MOTableRow getRow() {
@@ -1764,16 +2037,201 @@ public class DefaultMOTable<R extends MOTableRow, C extends MOColumn, M extends
         return false;
     }
 
-    private static class RowCacheEntry {
-        private MOTableRow row;
+    /**
+     * A {@code WalkCursor} holds live positions in the table model for a request. Each position remembers the row
+     * found for an index search together with the model iterator positioned behind that row. Searches for the same
+     * index (the other columns of a GETNEXT row) return the same row, and searches for the successor of that row
+     * (the next repetition of a walk) advance the iterator instead of searching the model again. Several positions
+     * are kept, so repeaters walking different columns do not displace each other.
+     * <p>
+     * If walk continuation is enabled, the cursor records the cells returned from each position and parks the
+     * positions in the {@link WalkContinuationCache} when the request has been completed. The next request of a walk
+     * then resumes a parked position by its last returned OID.
+     * A cursor is used by a single request only and therefore is not thread-safe.
+     *
+     * @param <R>
+     *         the row type.
+     */
+    private static class WalkCursor<R extends MOTableRow> implements RequestCompletionListener {
+
+        private static final int MAX_POSITIONS = 8;
+
+        private final List<Position<R>> positions = new ArrayList<>(2);
+        private final WalkContinuationCache<Position<R>> cache;
+        private final OctetString context;
+        private final Address address;
+        private final long generation;
+        private int nextReplaced;
+        private Position<R> current;
+
+        WalkCursor(WalkContinuationCache<Position<R>> cache, OctetString context, Address address) {
+            this.cache = cache;
+            this.context = context;
+            this.address = address;
+            // positions determined before a model change of this request must not be parked
+            this.generation = (cache == null) ? 0 : cache.getGeneration();
+        }
+
+        void moveTo(OID searchLowerBound, boolean searchLowerBoundIncluded, R row, Iterator<R> iterator) {
+            add(new Position<>(searchLowerBound, searchLowerBoundIncluded, row, iterator));
+        }
+
+        private void add(Position<R> position) {
+            if (positions.size() < MAX_POSITIONS) {
+                positions.add(position);
+            }
+            else {
+                positions.set(nextReplaced, position);
+                nextReplaced = (nextReplaced + 1) % MAX_POSITIONS;
+            }
+            current = position;
+        }
+
+        /**
+         * Resumes the position parked by a previous request after the supplied last returned OID.
+         *
+         * @param lastOID
+         *         the last OID returned by the previous request of the walk.
+         * @param index
+         *         the row index of {@code lastOID}.
+         *
+         * @return the row following {@code index} or {@code null} if no position has been parked for the walk.
+         */
+        R resume(OID lastOID, OID index) {
+            if ((cache == null) || (index == null)) {
+                return null;
+            }
+            Position<R> position = cache.resume(context, address, lastOID);
+            if ((position == null) || (position.row == null) || (!position.row.getIndex().equals(index))) {
+                return null;
+            }
+            if (position.returned != null) {
+                // the position has been parked for each column returned from it
+                for (OID returnedOID : position.returned) {
+                    if (!returnedOID.equals(lastOID)) {
+                        cache.remove(context, address, returnedOID);
+                    }
+                }
+                position.returned = null;
+            }
+            add(position);
+            return position.advance(index);
+        }
+
+        /**
+         * Takes over the iterator of the position whose row has the supplied index. The position cannot be used
+         * afterwards.
+         *
+         * @param index
+         *         a row index.
+         *
+         * @return the iterator positioned behind the row with {@code index} or {@code null} if there is no such
+         * position.
+         */
+        Iterator<R> takeIterator(OID index) {
+            if (index == null) {
+                return null;
+            }
+            for (Position<R> position : positions) {
+                if ((position.row != null) && (position.iterator != null) && position.row.getIndex().equals(index)) {
+                    Iterator<R> iterator = position.iterator;
+                    position.row = null;
+                    position.iterator = null;
+                    position.returned = null;
+                    return iterator;
+                }
+            }
+            return null;
+        }
+
+        void returned(MOTableRow row, OID cellOID) {
+            if ((cache != null) && (current != null) && (current.row == row)) {
+                if (current.returned == null) {
+                    current.returned = new ArrayList<>(4);
+                }
+                current.returned.add(cellOID);
+            }
+        }
+
+        @Override
+        public void requestCompleted(Request<?, ?, ?> request) {
+            if (cache == null) {
+                return;
+            }
+            for (Position<R> position : positions) {
+                if ((position.returned != null) && (position.row != null)) {
+                    for (OID returnedOID : position.returned) {
+                        cache.park(context, address, returnedOID, position, generation);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Returns the row that follows the supplied index in the model if it can be determined from a position of
+         * the cursor.
+         *
+         * @param lowerBound
+         *         the index lower bound of the search.
+         * @param lowerIncluded
+         *         {@code true} if a row with index {@code lowerBound} is a valid result.
+         *
+         * @return the next row or {@code null} if the cursor cannot answer the search (then the model has to be
+         * searched).
+         */
+        R next(OID lowerBound, boolean lowerIncluded) {
+            for (Position<R> position : positions) {
+                if ((position.row != null) && (lowerIncluded == position.searchLowerBoundIncluded) &&
+                        Objects.equals(lowerBound, position.searchLowerBound)) {
+                    current = position;
+                    return position.row;
+                }
+            }
+            if (lowerIncluded) {
+                return null;
+            }
+            for (Position<R> position : positions) {
+                if ((position.row != null) && position.row.getIndex().equals(lowerBound)) {
+                    current = position;
+                    return position.advance(lowerBound);
+                }
+            }
+            return null;
+        }
+    }
+
+    private static class Position<R extends MOTableRow> {
         private OID searchLowerBound;
         private boolean searchLowerBoundIncluded;
+        private R row;
+        private Iterator<R> iterator;
+        private List<OID> returned;
 
-        RowCacheEntry(MOTableRow row,
-                      OID searchLowerBound, boolean searchLowerBoundIncluded) {
-            this.row = row;
+        Position(OID searchLowerBound, boolean searchLowerBoundIncluded, R row, Iterator<R> iterator) {
             this.searchLowerBound = searchLowerBound;
             this.searchLowerBoundIncluded = searchLowerBoundIncluded;
+            this.row = row;
+            this.iterator = iterator;
+        }
+
+        R advance(OID lowerBound) {
+            try {
+                while (iterator.hasNext()) {
+                    R nextRow = iterator.next();
+                    if ((nextRow != null) && (nextRow.getIndex().compareTo(lowerBound) > 0)) {
+                        searchLowerBound = lowerBound;
+                        searchLowerBoundIncluded = false;
+                        row = nextRow;
+                        returned = null;
+                        return nextRow;
+                    }
+                }
+            } catch (ConcurrentModificationException cmex) {
+                // the model has been modified since the position has been determined
+            }
+            row = null;
+            iterator = null;
+            return null;
         }
     }
 }
@@ -0,0 +1,304 @@
+/*_############################################################################
+  _##
+  _##  SNMP4J-Agent 3 - WalkContinuationCache.java
+  _##
+  _##  Copyright (C) 2005-2021  Frank Fock (SNMP4J.org)
+  _##
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##
+  _##########################################################################*/
+
+package org.snmp4j.agent.mo;
+
+import org.snmp4j.smi.Address;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.OctetString;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code WalkContinuationCache} parks the positions of walks after a GETNEXT or GETBULK response has been
+ * returned, so that the next request of the same walk can resume them instead of searching the data again.
+ * A walk is identified by the context, the transport address of the command generator, and the OID of the last
+ * instance that has been returned to it. The next request of the walk uses that OID as (exclusive) lower bound.
+ * <p>
+ * The cache is bounded by size and by the time an entry may stay parked. When the size is exceeded, the least
+ * recently parked entry is evicted. Entries are removed when they are resumed, so each parked position is used by a
+ * single follow-up request only. Positions that have been determined before the cache was last cleared can be
+ * rejected by parking them with the {@link #getGeneration() generation} that was current when they were determined.
+ * All methods are thread-safe.
+ *
+ * @param <V>
+ *         the type of the parked positions.
+ *
+ * @author Frank Fock
+ * @version 3.6.0
+ * @since 3.6.0
+ */
+public class WalkContinuationCache<V> {
+
+    /**
+     * The default maximum number of parked positions.
+     */
+    public static final int DEFAULT_MAX_SIZE = 256;
+    /**
+     * The default time to live of a parked position in milliseconds. It is larger than the typical polling interval
+     * of one minute.
+     */
+    public static final long DEFAULT_TIME_TO_LIVE_MILLIS = 120000;
+
+    private final int maxSize;
+    private final long timeToLiveNanos;
+    private final LinkedHashMap<WalkKey, ParkedPosition<V>> positions;
+    private long hits;
+    private long misses;
+    private long generation;
+
+    /**
+     * Creates a walk continuation cache with default size and time to live.
+     */
+    public WalkContinuationCache() {
+        this(DEFAULT_MAX_SIZE, DEFAULT_TIME_TO_LIVE_MILLIS);
+    }
+
+    /**
+     * Creates a walk continuation cache.
+     *
+     * @param maxSize
+     *         the maximum number of parked positions (must be greater than zero).
+     * @param timeToLiveMillis
+     *         the maximum time in milliseconds a position stays parked (must be greater than zero).
+     */
+    public WalkContinuationCache(int maxSize, long timeToLiveMillis) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Maximum size must be greater than zero: " + maxSize);
+        }
+        if (timeToLiveMillis <= 0) {
+            throw new IllegalArgumentException("Time to live must be greater than zero: " + timeToLiveMillis);
+        }
+        this.maxSize = maxSize;
+        this.timeToLiveNanos = TimeUnit.MILLISECONDS.toNanos(timeToLiveMillis);
+        this.positions = new LinkedHashMap<WalkKey, ParkedPosition<V>>(Math.min(maxSize, 16) * 2) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<WalkKey, ParkedPosition<V>> eldest) {
+                return size() > WalkContinuationCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Parks a walk position.
+     *
+     * @param context
+     *         the context of the walk ({@code null} is treated like the default context).
+     * @param address
+     *         the transport address of the command generator.
+     * @param lastOID
+     *         the OID of the last instance returned to the command generator.
+     * @param position
+     *         the position that continues the walk after {@code lastOID}.
+     */
+    public synchronized void park(OctetString context, Address address, OID lastOID, V position) {
+        park(context, address, lastOID, position, generation);
+    }
+
+    /**
+     * Parks a walk position unless the cache has been cleared since the position has been determined.
+     *
+     * @param context
+     *         the context of the walk ({@code null} is treated like the default context).
+     * @param address
+     *         the transport address of the command generator.
+     * @param lastOID
+     *         the OID of the last instance returned to the command generator.
+     * @param position
+     *         the position that continues the walk after {@code lastOID}.
+     * @param generation
+     *         the {@link #getGeneration()} value before the position has been determined.
+     *
+     * @return {@code true} if the position has been parked, {@code false} if the cache has been cleared since
+     * {@code generation} has been retrieved.
+     */
+    public synchronized boolean park(OctetString context, Address address, OID lastOID, V position,
+                                     long generation) {
+        if (generation != this.generation) {
+            return false;
+        }
+        long now = System.nanoTime();
+        removeExpired(now);
+        WalkKey key = new WalkKey(context, address, lastOID);
+        // re-insert to move the entry to the end of the eviction order
+        positions.remove(key);
+        positions.put(key, new ParkedPosition<>(position, now + timeToLiveNanos));
+        return true;
+    }
+
+    /**
+     * Removes and returns the position parked for a walk that continues after the specified OID.
+     *
+     * @param context
+     *         the context of the walk ({@code null} is treated like the default context).
+     * @param address
+     *         the transport address of the command generator.
+     * @param lowerBound
+     *         the (exclusive) lower bound of the request, i.e. the last OID returned to the command generator.
+     *
+     * @return the parked position or {@code null} if there is no such position or if it has expired.
+     */
+    public synchronized V resume(OctetString context, Address address, OID lowerBound) {
+        ParkedPosition<V> parked = positions.remove(new WalkKey(context, address, lowerBound));
+        if ((parked == null) || (parked.expiration - System.nanoTime() < 0)) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return parked.position;
+    }
+
+    /**
+     * Removes the position parked for the specified walk, if there is any.
+     *
+     * @param context
+     *         the context of the walk.
+     * @param address
+     *         the transport address of the command generator.
+     * @param lastOID
+     *         the OID of the last instance returned to the command generator.
+     */
+    public synchronized void remove(OctetString context, Address address, OID lastOID) {
+        positions.remove(new WalkKey(context, address, lastOID));
+    }
+
+    /**
+     * Removes all parked positions, for example because the underlying data has been modified.
+     */
+    public synchronized void clear() {
+        positions.clear();
+        generation++;
+    }
+
+    /**
+     * Gets the generation of the cache, which is incremented by each {@link #clear()}. Positions that are
+     * determined while the underlying data may be modified concurrently should be parked with the generation
+     * retrieved before they have been determined.
+     *
+     * @return the number of times the cache has been cleared.
+     */
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Gets the number of parked positions (including expired ones that have not been removed yet).
+     *
+     * @return the number of cache entries.
+     */
+    public synchronized int size() {
+        return positions.size();
+    }
+
+    /**
+     * Gets the number of {@link #resume(OctetString, Address, OID)} calls that returned a parked position.
+     *
+     * @return the number of cache hits.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of {@link #resume(OctetString, Address, OID)} calls that did not find a valid position.
+     *
+     * @return the number of cache misses.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getTimeToLiveMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(timeToLiveNanos);
+    }
+
+    private void removeExpired(long now) {
+        for (Iterator<ParkedPosition<V>> it = positions.values().iterator(); it.hasNext(); ) {
+            if (it.next().expiration - now < 0) {
+                it.remove();
+            }
+            else {
+                // entries are ordered by parking time and thus by expiration
+                break;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "WalkContinuationCache{" +
+                "maxSize=" + maxSize +
+                ", timeToLiveMillis=" + getTimeToLiveMillis() +
+                ", size=" + size() +
+                ", hits=" + getHits() +
+                ", misses=" + getMisses() +
+                '}';
+    }
+
+    private static final class ParkedPosition<V> {
+        private final V position;
+        private final long expiration;
+
+        ParkedPosition(V position, long expiration) {
+            this.position = position;
+            this.expiration = expiration;
+        }
+    }
+
+    private static final class WalkKey {
+        private final OctetString context;
+        private final Address address;
+        private final OID lastOID;
+        private final int hashCode;
+
+        WalkKey(OctetString context, Address address, OID lastOID) {
+            this.context = (context == null) ? new OctetString() : context;
+            this.address = address;
+            this.lastOID = lastOID;
+            this.hashCode = Objects.hash(this.context, address, lastOID);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof WalkKey)) {
+                return false;
+            }
+            WalkKey other = (WalkKey) o;
+            return (hashCode == other.hashCode) && lastOID.equals(other.lastOID) &&
+                    context.equals(other.context) && Objects.equals(address, other.address);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
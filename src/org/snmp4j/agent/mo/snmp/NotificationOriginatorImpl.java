@@ -40,6 +40,10 @@ import org.snmp4j.mp.SnmpConstants;
 import org.snmp4j.transport.TransportType;
 
 import java.net.InetAddress;
+import java.util.concurrent.CompletableFuture;
+
+import org.snmp4j.util.WorkerPool;
+import org.snmp4j.util.WorkerTask;
 
 /**
  * The {@code NotificationOriginatorImpl} class implements a notification originator application for SNMP4J.
@@ -62,6 +66,7 @@ public class NotificationOriginatorImpl implements NotificationOriginator {
     private SysUpTime sysUpTime;
     private transient List<NotificationLogListener> notificationLogListeners;
     private long notificationEventID = 0;
+    private WorkerPool workerPool;
 
     private static OctetString EMPTY_CONTEXT_ENGINE_ID = new OctetString();
 
@@ -140,12 +145,14 @@ public class NotificationOriginatorImpl implements NotificationOriginator {
         return notify(context, notificationID, null, vbs);
     }
 
-    private <A extends Address> ResponseEvent<A> sendNotification(A address, Integer32 timeout, Integer32 retries,
-                                                                  SnmpTargetAddrEntryRow targetAddrEntryRow,
-                                                                  MOTableRow paramsRow, OctetString context,
-                                                                  OID notificationID, TimeTicks sysUpTime,
-                                                                  VariableBinding[] vbs, int type,
-                                                                  long notificationEventID) {
+    private <A extends Address> PreparedNotification<A> prepareNotification(A address, Integer32 timeout,
+                                                                           Integer32 retries,
+                                                                           SnmpTargetAddrEntryRow targetAddrEntryRow,
+                                                                           MOTableRow paramsRow, OctetString context,
+                                                                           OID notificationID, TimeTicks sysUpTime,
+                                                                           VariableBinding[] vbs, int type,
+                                                                           long notificationEventID,
+                                                                           Map<Integer, List<VariableBinding>> payloads) {
         Integer32 mpModel = (Integer32) paramsRow.getValue(SnmpTargetMIB.idxSnmpTargetParamsMPModel);
         OctetString secName = (OctetString) paramsRow.getValue(SnmpTargetMIB.idxSnmpTargetParamsSecurityName);
         Integer32 secLevel = (Integer32) paramsRow.getValue(SnmpTargetMIB.idxSnmpTargetParamsSecurityLevel);
@@ -249,35 +256,32 @@ public class NotificationOriginatorImpl implements NotificationOriginator {
         t.setVersion(mpModel.getValue());
         t.setTimeout(timeout.getValue() * 10);
         t.setRetries(retries.getValue());
-        if (mpModel.getValue() != MessageProcessingModel.MPv1) {
-            if (sysUpTime != null) {
-                pdu.add(new VariableBinding(SnmpConstants.sysUpTime, sysUpTime));
-            } else {
-                pdu.add(new VariableBinding(SnmpConstants.sysUpTime, this.sysUpTime.get()));
+        // the variable bindings are the same for all targets with the same message processing model
+        List<VariableBinding> payload = payloads.get(mpModel.getValue());
+        if (payload == null) {
+            payload = new ArrayList<>(vbs.length + 2);
+            if (mpModel.getValue() != MessageProcessingModel.MPv1) {
+                if (sysUpTime != null) {
+                    payload.add(new VariableBinding(SnmpConstants.sysUpTime, sysUpTime));
+                } else {
+                    payload.add(new VariableBinding(SnmpConstants.sysUpTime, this.sysUpTime.get()));
+                }
+                payload.add(new VariableBinding(SnmpConstants.snmpTrapOID, notificationID));
             }
-            pdu.add(new VariableBinding(SnmpConstants.snmpTrapOID, notificationID));
+            payload.addAll(Arrays.asList(vbs));
+            payloads.put(mpModel.getValue(), payload);
         }
-        pdu.addAll(vbs);
+        pdu.addAll(payload);
         pdu.setType((type == SnmpNotificationMIB.SnmpNotifyTypeEnum.inform) ?
                 PDU.INFORM : (mpModel.getValue() == MessageProcessingModel.MPv1)
                 ? PDU.V1TRAP : PDU.TRAP);
+        return new PreparedNotification<A>(t, pdu, context, notificationID, sysUpTime, vbs, notificationEventID);
+    }
+
+    private <A extends Address> ResponseEvent<A> sendNotification(PreparedNotification<A> notification) {
         try {
-            OctetString localEngineID = new OctetString();
-            OctetString contextEngineID = new OctetString();
-            if (pdu instanceof ScopedPDU) {
-                localEngineID.setValue(targetMIB.getLocalEngineID());
-                contextEngineID = ((ScopedPDU) pdu).getContextEngineID();
-            }
-            ResponseEvent<A> response = session.send(pdu, t);
-            fireNotificationLogEvent(new NotificationLogEvent<A>(this,
-                    localEngineID,
-                    t,
-                    contextEngineID,
-                    context, notificationID,
-                    sysUpTime,
-                    vbs, notificationEventID, true));
-            logger.info("Sent notification with ID " + notificationEventID +
-                    " " + pdu + " to " + t);
+            ResponseEvent<A> response = session.send(notification.pdu, notification.target);
+            fireSentNotificationLogEvent(notification);
             return response;
         } catch (IOException iox) {
             logger.error("Failed to send notification: " + iox.getMessage(), iox);
@@ -285,6 +289,24 @@ public class NotificationOriginatorImpl implements NotificationOriginator {
         return null;
     }
 
+    private <A extends Address> void fireSentNotificationLogEvent(PreparedNotification<A> notification) {
+        OctetString localEngineID = new OctetString();
+        OctetString contextEngineID = new OctetString();
+        if (notification.pdu instanceof ScopedPDU) {
+            localEngineID.setValue(targetMIB.getLocalEngineID());
+            contextEngineID = ((ScopedPDU) notification.pdu).getContextEngineID();
+        }
+        fireNotificationLogEvent(new NotificationLogEvent<A>(this,
+                localEngineID,
+                notification.target,
+                contextEngineID,
+                notification.context, notification.notificationID,
+                notification.sysUpTime,
+                notification.vbs, notification.notificationEventID, true));
+        logger.info("Sent notification with ID " + notification.notificationEventID +
+                " " + notification.pdu + " to " + notification.target);
+    }
+
     /**
      * Sets the context engine ID of the scoped PDU to the local engine ID provided by the {@code targetMIB}
      * member.
@@ -335,6 +357,71 @@ public class NotificationOriginatorImpl implements NotificationOriginator {
     }
 
     public Object notify(OctetString context, OID notificationID, TimeTicks sysUpTime, VariableBinding[] vbs) {
+        List<PreparedNotification<?>> notifications = prepareNotifications(context, notificationID, sysUpTime, vbs);
+        ResponseEvent<?>[] responses = new ResponseEvent<?>[notifications.size()];
+        for (int i = 0; i < responses.length; i++) {
+            PreparedNotification<?> notification = notifications.get(i);
+            if (notification != null) {
+                responses[i] = sendNotification(notification);
+            }
+        }
+        return responses;
+    }
+
+    /**
+     * Sends notifications (traps) to all appropriate notification targets concurrently. The targets are
+     * determined and the PDUs are built in the calling thread, whereas the PDUs are sent by the
+     * {@link WorkerPool} set by {@link #setWorkerPool(WorkerPool)}. If no worker pool is set, the PDUs are sent
+     * in the calling thread, but the returned future still aggregates the responses. If the worker pool does not
+     * accept a PDU, because it is stopped or saturated, that PDU is sent in the calling thread too.
+     * A {@link NotificationLogEvent} is fired as soon as a single notification has been sent.
+     *
+     * @param context
+     *         the context name of the context on whose behalf this notification has been generated.
+     * @param notificationID
+     *         the object ID that uniquely identifies this notification. For SNMPv1 traps, the notification ID has to be
+     *         build using the rules provided by RFC 2576.
+     * @param sysUpTime
+     *         the sysUpTime value to be used for the notification or {@code null} to use the current sysUpTime.
+     * @param vbs
+     *         an array of {@code VariableBinding} instances representing the payload of the notification.
+     *
+     * @return a future that completes when all notifications have been sent (and all informs have been responded or
+     * timed out). Its value is an array of ResponseEvent instances with the same semantics as the array returned by
+     * {@link #notify(OctetString, OID, TimeTicks, VariableBinding[])}.
+     * @since 3.6.0
+     */
+    public CompletableFuture<ResponseEvent<?>[]> notifyAsync(OctetString context, OID notificationID,
+                                                             TimeTicks sysUpTime, VariableBinding[] vbs) {
+        List<PreparedNotification<?>> notifications = prepareNotifications(context, notificationID, sysUpTime, vbs);
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        CompletableFuture<ResponseEvent<?>>[] futures = new CompletableFuture[notifications.size()];
+        WorkerPool pool = this.workerPool;
+        for (int i = 0; i < futures.length; i++) {
+            PreparedNotification<?> notification = notifications.get(i);
+            futures[i] = new CompletableFuture<>();
+            if (notification == null) {
+                futures[i].complete(null);
+            }
+            else {
+                SendNotificationTask task = new SendNotificationTask(notification, futures[i]);
+                if ((pool == null) || (!pool.tryToExecute(task))) {
+                    // a stopped or saturated pool must not leave the future incomplete
+                    task.run();
+                }
+            }
+        }
+        return CompletableFuture.allOf(futures).thenApply(v -> {
+            ResponseEvent<?>[] responses = new ResponseEvent<?>[futures.length];
+            for (int i = 0; i < responses.length; i++) {
+                responses[i] = futures[i].join();
+            }
+            return responses;
+        });
+    }
+
+    private List<PreparedNotification<?>> prepareNotifications(OctetString context, OID notificationID,
+                                                               TimeTicks sysUpTime, VariableBinding[] vbs) {
         if (logger.isInfoEnabled()) {
             logger.info("Notification " + notificationID + " reported with " +
                     Arrays.asList(vbs) + " for context " + context);
@@ -342,16 +429,18 @@ public class NotificationOriginatorImpl implements NotificationOriginator {
         if (context == null) {
             context = new OctetString();
         }
-        List<ResponseEvent<?>> responses = new LinkedList<>();
+        List<PreparedNotification<?>> notifications = new ArrayList<>();
+        long eventID;
         synchronized (this) {
-            notificationEventID++;
+            eventID = ++notificationEventID;
         }
         OctetString localEngineID = null;
         if ((targetMIB != null) && (targetMIB.getLocalEngineID() != null)) {
             localEngineID = new OctetString(targetMIB.getLocalEngineID());
         }
         fireNotificationLogEvent(new NotificationLogEvent<Address>(this, localEngineID, null,
-                EMPTY_CONTEXT_ENGINE_ID, context, notificationID, sysUpTime, vbs, notificationEventID, false));
+                EMPTY_CONTEXT_ENGINE_ID, context, notificationID, sysUpTime, vbs, eventID, false));
+        Map<Integer, List<VariableBinding>> payloads = new HashMap<>(4);
         for (Iterator<DefaultMOMutableRow2PC> it = notificationMIB.getNotifyTable().getModel().iterator();
              it.hasNext(); ) {
             MOTableRow notifyRow = it.next();
@@ -371,12 +460,11 @@ public class NotificationOriginatorImpl implements NotificationOriginator {
                                         address.getValue(SnmpTargetMIB.idxSnmpTargetAddrTimeout);
                                 Integer32 retries = (Integer32)
                                         address.getValue(SnmpTargetMIB.idxSnmpTargetAddrRetryCount);
-                                ResponseEvent<?> response =
-                                        sendNotification(address.getAddress(), timeout, retries, address, paramsRow,
-                                                context, notificationID,
+                                notifications.add(
+                                        prepareNotification(address.getAddress(), timeout, retries, address,
+                                                paramsRow, context, notificationID,
                                                 sysUpTime,
-                                                vbs, type.getValue(), notificationEventID);
-                                responses.add(response);
+                                                vbs, type.getValue(), eventID, payloads));
                             } else {
                                 if (logger.isWarnEnabled()) {
                                     logger.warn("Access denied by VACM for " + notificationID);
@@ -394,7 +482,29 @@ public class NotificationOriginatorImpl implements NotificationOriginator {
                 }
             }
         }
-        return responses.toArray(new ResponseEvent<?>[0]);
+        return notifications;
+    }
+
+    /**
+     * Gets the worker pool used by {@link #notifyAsync(OctetString, OID, TimeTicks, VariableBinding[])}.
+     *
+     * @return the worker pool or {@code null} if notifications are sent by the calling thread.
+     * @since 3.6.0
+     */
+    public WorkerPool getWorkerPool() {
+        return workerPool;
+    }
+
+    /**
+     * Sets the worker pool used by {@link #notifyAsync(OctetString, OID, TimeTicks, VariableBinding[])} to send
+     * the notifications to the individual targets concurrently.
+     *
+     * @param workerPool
+     *         a {@link WorkerPool} or {@code null} to send notifications by the calling thread.
+     * @since 3.6.0
+     */
+    public void setWorkerPool(WorkerPool workerPool) {
+        this.workerPool = workerPool;
     }
 
     /**
@@ -432,4 +542,67 @@ public class NotificationOriginatorImpl implements NotificationOriginator {
         }
     }
 
+    /**
+     * A notification PDU with its target that is ready to be sent.
+     *
+     * @param <A>
+     *         the address type of the target.
+     */
+    private static class PreparedNotification<A extends Address> {
+        private final Target<A> target;
+        private final PDU pdu;
+        private final OctetString context;
+        private final OID notificationID;
+        private final TimeTicks sysUpTime;
+        private final VariableBinding[] vbs;
+        private final long notificationEventID;
+
+        PreparedNotification(Target<A> target, PDU pdu, OctetString context, OID notificationID,
+                             TimeTicks sysUpTime, VariableBinding[] vbs, long notificationEventID) {
+            this.target = target;
+            this.pdu = pdu;
+            this.context = context;
+            this.notificationID = notificationID;
+            this.sysUpTime = sysUpTime;
+            this.vbs = vbs;
+            this.notificationEventID = notificationEventID;
+        }
+    }
+
+    /**
+     * Sends a single prepared notification and completes the associated future with its response.
+     */
+    private class SendNotificationTask implements WorkerTask {
+
+        private final PreparedNotification<?> notification;
+        private final CompletableFuture<ResponseEvent<?>> future;
+
+        SendNotificationTask(PreparedNotification<?> notification, CompletableFuture<ResponseEvent<?>> future) {
+            this.notification = notification;
+            this.future = future;
+        }
+
+        @Override
+        public void run() {
+            try {
+                future.complete(sendNotification(notification));
+            } catch (RuntimeException rex) {
+                logger.error("Failed to send notification: " + rex.getMessage(), rex);
+                future.completeExceptionally(rex);
+            }
+        }
+
+        @Override
+        public void terminate() {
+        }
+
+        @Override
+        public void join() throws InterruptedException {
+        }
+
+        @Override
+        public void interrupt() {
+        }
+    }
+
 }
@@ -43,9 +43,16 @@ import java.net.InetAddress;
  * instance as defined by RFC 3413. It is configured through the SNMP-PROXY-MIB
  * and SNMP-TARGET-MIB implementations provided on construction. It sends
  * notifications through the provided SNMP session.
+ * <p>
+ * Requests forwarded to a single target by
+ * {@link #forward(ProxyForwardRequest, ProxyForwardCallback)} are sent
+ * asynchronously. The calling thread is thus not blocked while waiting for the
+ * response of the target. With a {@link ProxyResponseCache}, identical
+ * concurrent read requests for a single target share one request to the
+ * target and their responses are cached for a short time.
  *
  * @author Frank Fock
- * @version 3.0.0
+ * @version 3.6.0
  */
 public class ProxyForwarderImpl implements ProxyForwarder {
 
@@ -56,6 +63,8 @@ public class ProxyForwarderImpl implements ProxyForwarder {
     private SnmpProxyMIB proxyMIB;
     private SnmpTargetMIB targetMIB;
     private transient List<CounterListener> counterListeners;
+    private ProxyRoutingIndex routingIndex;
+    private ProxyResponseCache responseCache;
 
     /**
      * Creates a {@code ProxyForwarder} implementation based on a SNMP
@@ -75,6 +84,53 @@ public class ProxyForwarderImpl implements ProxyForwarder {
         this.session = session;
         this.proxyMIB = proxyMIB;
         this.targetMIB = targetMIB;
+        if ((proxyMIB != null) && (targetMIB != null) && isMatchParametersDeclaredByProxyForwarderImpl()) {
+            this.routingIndex = new ProxyRoutingIndex(proxyMIB, targetMIB);
+        }
+    }
+
+    /**
+     * Returns the index used by {@link #getMatches(ProxyForwardRequest)} to find
+     * the proxy rows matching a request.
+     *
+     * @return the routing index or {@code null} if the matching rows are
+     * determined by filtering the proxy table with
+     * {@link #matchParameters(ProxyForwardRequest, OctetString)}, which is the
+     * case if a subclass overrides that method.
+     * @since 3.6.0
+     */
+    public ProxyRoutingIndex getRoutingIndex() {
+        return routingIndex;
+    }
+
+    public ProxyResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * Sets the cache used for requests forwarded to a single target. SET
+     * requests forwarded through the cache invalidate the cached responses
+     * of their target and context. Notifications are never cached.
+     *
+     * @param responseCache
+     *         a response cache or {@code null} to send each request to the
+     *         target (default).
+     * @since 3.6.0
+     */
+    public void setResponseCache(ProxyResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    private boolean isMatchParametersDeclaredByProxyForwarderImpl() {
+        for (Class<?> c = getClass(); (c != null) && (c != ProxyForwarderImpl.class); c = c.getSuperclass()) {
+            try {
+                c.getDeclaredMethod("matchParameters", ProxyForwardRequest.class, OctetString.class);
+                return false;
+            } catch (NoSuchMethodException nsmex) {
+                // not overridden by this class
+            }
+        }
+        return true;
     }
 
     /**
@@ -94,37 +150,109 @@ public class ProxyForwarderImpl implements ProxyForwarder {
         } else {
             ResponseEvent<A> resp = singleForward(request);
             if ((resp != null) && (resp.getResponse() != null)) {
-                PDU respPDU = resp.getResponse();
-                PDU translatedResponse = DefaultPDUFactory.createPDU(
-                        request.getCommandEvent().getSecurityModel());
-                if (!translatedResponse.getClass().equals(respPDU.getClass())) {
-                    // not required PDU instance -> copy data
-                    translatedResponse.setType(respPDU.getType());
-                    translatedResponse.addAll(respPDU.toArray());
-                    translatedResponse.setErrorIndex(respPDU.getErrorIndex());
-                    translatedResponse.setErrorStatus(respPDU.getErrorStatus());
-                } else {
-                    translatedResponse = respPDU;
-                }
-                if (translatedResponse.getType() == PDU.RESPONSE) {
-                    translatedResponse.setRequestID(
-                            request.getCommandEvent().getPDU().getRequestID());
-                    if ((translatedResponse instanceof ScopedPDU) &&
-                            (request.getCommandEvent().getPDU() instanceof ScopedPDU)) {
-                        ScopedPDU scopedPDUReq = (ScopedPDU) request.getCommandEvent().getPDU();
-                        ScopedPDU scopedPDUResp = (ScopedPDU) translatedResponse;
-                        scopedPDUResp.setContextEngineID(scopedPDUReq.getContextEngineID());
-                        scopedPDUResp.setContextName(scopedPDUReq.getContextName());
-                    }
-                }
-                request.setResponsePDU(translatedResponse);
+                request.setResponsePDU(translateResponse(request, resp.getResponse()));
                 return true;
             }
         }
         return false;
     }
 
+    /**
+     * Forwards a {@code Request} if it matches the criteria defined by the
+     * SNMP-PROXY-MIB associated with this proxy forwarder. In contrast to
+     * {@link #forward(ProxyForwardRequest)}, requests for a single target are
+     * sent asynchronously and the callback is informed from the thread that
+     * receives the response (or detects the timeout). Notifications are
+     * forwarded to multiple targets synchronously as before. If sending the
+     * request fails, the callback is informed before the exception is
+     * rethrown (see {@link SNMP4JSettings#isForwardRuntimeExceptions()}).
+     *
+     * @param request
+     *         a {@code ProxyForwardRequest} encapsuling the forwarding request.
+     * @param callback
+     *         the callback to be informed when forwarding has been completed.
+     * @since 3.6.0
+     */
+    @Override
+    public <A extends Address> void forward(ProxyForwardRequest<A> request, ProxyForwardCallback<A> callback) {
+        int pduType = request.getCommandEvent().getPDU().getType();
+        if (SnmpRequest.getViewType(pduType) == VACM.VIEW_NOTIFY) {
+            callback.forwardCompleted(request, multipleForward(request));
+            return;
+        }
+        Target<A> target = getSingleTarget(request);
+        if (target == null) {
+            callback.forwardCompleted(request, false);
+            return;
+        }
+        // forwarding request
+        if (logger.isInfoEnabled()) {
+            logger.info("Forwarding proxy request " + request + " asynchronously to " + target);
+        }
+        PDU reqPDU = request.getCommandEvent().getPDU();
+        PDU pdu = DefaultPDUFactory.createPDU(target, reqPDU.getType());
+        setScope(request, pdu);
+        try {
+            proxyForwardTranslation(request, reqPDU, pdu);
+            send(pdu, target, new AsyncForward<>(request, callback, target, reqPDU, pdu));
+        } catch (Exception ex) {
+            forwardFailed(target, ex);
+            // the callback must always be informed, otherwise the request would never be answered
+            callback.forwardCompleted(request, false);
+            if (SNMP4JSettings.isForwardRuntimeExceptions()) {
+                throw new RuntimeException(ex);
+            }
+        }
+    }
+
+    /**
+     * Translates the response received from a target into the response PDU
+     * returned to the command generator: The PDU class is converted for the
+     * security model of the request, and request ID and context are set
+     * from the original request.
+     *
+     * @param request
+     *         the forwarded request.
+     * @param respPDU
+     *         the response PDU received from the target.
+     * @param <A> type of the peer {@link Address}.
+     *
+     * @return the translated response PDU.
+     * @since 3.6.0
+     */
+    protected <A extends Address> PDU translateResponse(ProxyForwardRequest<A> request, PDU respPDU) {
+        PDU translatedResponse = DefaultPDUFactory.createPDU(
+                request.getCommandEvent().getSecurityModel());
+        if (!translatedResponse.getClass().equals(respPDU.getClass())) {
+            // not required PDU instance -> copy data
+            translatedResponse.setType(respPDU.getType());
+            translatedResponse.addAll(respPDU.toArray());
+            translatedResponse.setErrorIndex(respPDU.getErrorIndex());
+            translatedResponse.setErrorStatus(respPDU.getErrorStatus());
+        } else {
+            translatedResponse = respPDU;
+        }
+        if (translatedResponse.getType() == PDU.RESPONSE) {
+            translatedResponse.setRequestID(
+                    request.getCommandEvent().getPDU().getRequestID());
+            if ((translatedResponse instanceof ScopedPDU) &&
+                    (request.getCommandEvent().getPDU() instanceof ScopedPDU)) {
+                ScopedPDU scopedPDUReq = (ScopedPDU) request.getCommandEvent().getPDU();
+                ScopedPDU scopedPDUResp = (ScopedPDU) translatedResponse;
+                scopedPDUResp.setContextEngineID(scopedPDUReq.getContextEngineID());
+                scopedPDUResp.setContextName(scopedPDUReq.getContextName());
+            }
+        }
+        return translatedResponse;
+    }
+
     protected List<SnmpProxyRow> getMatches(ProxyForwardRequest<?> request) {
+        if (routingIndex != null) {
+            CommandResponderEvent<?> event = request.getCommandEvent();
+            return routingIndex.getMatches(request.getProxyType(), request.getContextEngineID(), request.getContext(),
+                    event.getMessageProcessingModel(), event.getSecurityModel(), request.getSecurityName(),
+                    event.getSecurityLevel());
+        }
         List<SnmpProxyRow> matches =
                 proxyMIB.getProxyRows(request.getProxyType(),
                         request.getContextEngineID(),
@@ -168,7 +296,18 @@ public class ProxyForwarderImpl implements ProxyForwarder {
         return false;
     }
 
-    protected <A extends Address> ResponseEvent<A> singleForward(ProxyForwardRequest<A> request) {
+    /**
+     * Gets the target for a request that is forwarded to a single target.
+     *
+     * @param request
+     *         the request to forward.
+     * @param <A> type of the peer {@link Address}.
+     *
+     * @return the target of the first matching proxy entry or {@code null} if
+     * there is no matching proxy entry or target.
+     * @since 3.6.0
+     */
+    protected <A extends Address> Target<A> getSingleTarget(ProxyForwardRequest<A> request) {
         List<SnmpProxyRow> matches = getMatches(request);
         if ((matches == null) || (matches.isEmpty())) {
             if (logger.isInfoEnabled()) {
@@ -190,6 +329,14 @@ public class ProxyForwarderImpl implements ProxyForwarder {
             }
             return null;
         }
+        return target;
+    }
+
+    protected <A extends Address> ResponseEvent<A> singleForward(ProxyForwardRequest<A> request) {
+        Target<A> target = getSingleTarget(request);
+        if (target == null) {
+            return null;
+        }
         // forwarding request
         if (logger.isInfoEnabled()) {
             logger.info("Forwarding proxy request " + request + " to " + target);
@@ -201,7 +348,7 @@ public class ProxyForwarderImpl implements ProxyForwarder {
             proxyForwardTranslation(request, reqPDU, pdu);
             ResponseEvent<A> response;
             do {
-                response = session.send(pdu, target);
+                response = send(pdu, target);
                 if (logger.isInfoEnabled()) {
                     logger.info("Received proxy response from " +
                             response.getPeerAddress() +
@@ -211,12 +358,7 @@ public class ProxyForwarderImpl implements ProxyForwarder {
             while (proxyBackwardTranslation(reqPDU, pdu, response));
             return response;
         } catch (Exception ex) {
-            if (logger.isDebugEnabled()) {
-                ex.printStackTrace();
-            }
-            logger.error("Failed to send proxy request to " + target + " because: " +
-                    ex.getMessage());
-            fireIncrementCounter(new CounterEvent(this, SnmpConstants.snmpProxyDrops));
+            forwardFailed(target, ex);
             if (SNMP4JSettings.isForwardRuntimeExceptions()) {
                 throw new RuntimeException(ex);
             }
@@ -224,6 +366,32 @@ public class ProxyForwarderImpl implements ProxyForwarder {
         }
     }
 
+    private <A extends Address> ResponseEvent<A> send(PDU pdu, Target<A> target) throws IOException {
+        ProxyResponseCache cache = responseCache;
+        if (cache != null) {
+            return cache.send(session, pdu, target);
+        }
+        return session.send(pdu, target);
+    }
+
+    private <A extends Address> void send(PDU pdu, Target<A> target, ResponseListener listener) throws IOException {
+        ProxyResponseCache cache = responseCache;
+        if (cache != null) {
+            cache.send(session, pdu, target, null, listener);
+        } else {
+            session.send(pdu, target, null, listener);
+        }
+    }
+
+    private void forwardFailed(Target<?> target, Exception ex) {
+        if (logger.isDebugEnabled()) {
+            ex.printStackTrace();
+        }
+        logger.error("Failed to send proxy request to " + target + " because: " +
+                ex.getMessage());
+        fireIncrementCounter(new CounterEvent(this, SnmpConstants.snmpProxyDrops));
+    }
+
     protected boolean proxyBackwardTranslation(PDU reqPDU, PDU pdu, ResponseEvent<?> response) {
         if (response.getResponse() == null) {
             return false;
@@ -452,6 +620,57 @@ public class ProxyForwarderImpl implements ProxyForwarder {
         }
     }
 
+    /**
+     * The {@code AsyncForward} receives the response of a request forwarded
+     * to a single target. It resends the request if required by
+     * {@link #proxyBackwardTranslation(PDU, PDU, ResponseEvent)} and
+     * otherwise completes the forwarding with the translated response.
+     *
+     * @param <A> type of the peer {@link Address}.
+     */
+    private class AsyncForward<A extends Address> implements ResponseListener {
+
+        private final ProxyForwardRequest<A> request;
+        private final ProxyForwardCallback<A> callback;
+        private final Target<A> target;
+        private final PDU reqPDU;
+        private final PDU pdu;
+
+        AsyncForward(ProxyForwardRequest<A> request, ProxyForwardCallback<A> callback,
+                     Target<A> target, PDU reqPDU, PDU pdu) {
+            this.request = request;
+            this.callback = callback;
+            this.target = target;
+            this.reqPDU = reqPDU;
+            this.pdu = pdu;
+        }
+
+        @Override
+        public <R extends Address> void onResponse(ResponseEvent<R> response) {
+            // always cancel, because the listener is reused when the request has to be resend
+            session.cancel(response.getRequest(), this);
+            if (logger.isInfoEnabled()) {
+                logger.info("Received proxy response from " +
+                        response.getPeerAddress() +
+                        " is " + response.getResponse());
+            }
+            boolean forwarded = false;
+            try {
+                if (proxyBackwardTranslation(reqPDU, pdu, response)) {
+                    send(pdu, target, this);
+                    return;
+                }
+                if (response.getResponse() != null) {
+                    request.setResponsePDU(translateResponse(request, response.getResponse()));
+                    forwarded = true;
+                }
+            } catch (Exception ex) {
+                forwardFailed(target, ex);
+            }
+            callback.forwardCompleted(request, forwarded);
+        }
+    }
+
     /**
      * Sets the SNMP session to used by this proxy forwarder for sending
      * SNMP messages.
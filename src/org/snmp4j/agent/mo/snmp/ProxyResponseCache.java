@@ -0,0 +1,488 @@
+/*_############################################################################
+  _##
+  _##  SNMP4J-Agent 3 - ProxyResponseCache.java
+  _##
+  _##  Copyright (C) 2005-2021  Frank Fock (SNMP4J.org)
+  _##
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##
+  _##########################################################################*/
+
+package org.snmp4j.agent.mo.snmp;
+
+import org.snmp4j.PDU;
+import org.snmp4j.ScopedPDU;
+import org.snmp4j.Session;
+import org.snmp4j.Target;
+import org.snmp4j.event.ResponseEvent;
+import org.snmp4j.event.ResponseListener;
+import org.snmp4j.log.LogAdapter;
+import org.snmp4j.log.LogFactory;
+import org.snmp4j.smi.Address;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.OctetString;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code ProxyResponseCache} reduces the requests a proxy sends to its targets when many command generators poll
+ * the same proxied objects. It is used by {@link ProxyForwarderImpl} and
+ * {@link org.snmp4j.agent.mo.snmp4j.MOSubtreeProxy} to send requests instead of sending them directly through a
+ * {@link Session}:
+ * <ul>
+ * <li>Concurrent identical GET and GETNEXT requests share a single request to the target (single-flight
+ * coalescing). Requests are identical if they are sent to the same target (address, version, security name and
+ * level) with the same context and PDU type for the same OIDs.</li>
+ * <li>Successful responses are cached for a short time to live that can be configured per subtree by
+ * {@link #setTimeToLive(OID, long)}. A time to live of zero disables caching (but not coalescing) for a subtree.</li>
+ * <li>A SET request sent through the cache removes the cached responses for its target and context. Responses of
+ * requests that are outstanding while a SET is sent are not cached.</li>
+ * </ul>
+ * Each caller receives its own copy of the response PDU. The cache is bounded by size, the least recently stored
+ * response is evicted first. All methods are thread-safe.
+ *
+ * @author Frank Fock
+ * @version 3.6.0
+ * @since 3.6.0
+ */
+public class ProxyResponseCache {
+
+    private static final LogAdapter logger = LogFactory.getLogger(ProxyResponseCache.class);
+
+    /**
+     * The default maximum number of cached responses.
+     */
+    public static final int DEFAULT_MAX_SIZE = 1024;
+    /**
+     * The default time to live of a cached response in milliseconds.
+     */
+    public static final long DEFAULT_TIME_TO_LIVE_MILLIS = 1000;
+
+    private final int maxSize;
+    private final long defaultTimeToLiveMillis;
+    private final TreeMap<OID, Long> subtreeTimeToLive = new TreeMap<>();
+    private final LinkedHashMap<RequestKey, CachedResponse> responses;
+    private final Map<RequestKey, CompletableFuture<PDU>> outstanding = new ConcurrentHashMap<>();
+    private long generation;
+    private long hits;
+    private long coalesced;
+    private long misses;
+
+    /**
+     * Creates a response cache with default size and time to live.
+     */
+    public ProxyResponseCache() {
+        this(DEFAULT_MAX_SIZE, DEFAULT_TIME_TO_LIVE_MILLIS);
+    }
+
+    /**
+     * Creates a response cache.
+     *
+     * @param maxSize
+     *         the maximum number of cached responses (must be greater than zero).
+     * @param defaultTimeToLiveMillis
+     *         the time to live in milliseconds for responses that are not covered by a subtree with its own time to
+     *         live. Zero disables caching for those responses.
+     */
+    public ProxyResponseCache(int maxSize, long defaultTimeToLiveMillis) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Maximum size must be greater than zero: " + maxSize);
+        }
+        if (defaultTimeToLiveMillis < 0) {
+            throw new IllegalArgumentException("Time to live must not be negative: " + defaultTimeToLiveMillis);
+        }
+        this.maxSize = maxSize;
+        this.defaultTimeToLiveMillis = defaultTimeToLiveMillis;
+        this.responses = new LinkedHashMap<RequestKey, CachedResponse>(Math.min(maxSize, 16) * 2) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<RequestKey, CachedResponse> eldest) {
+                return size() > ProxyResponseCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Sets the time to live of responses for the objects in the specified subtree. If subtrees are nested, the
+     * longest subtree containing an OID defines its time to live. The time to live of a response is the minimum of
+     * the time to live of its OIDs.
+     *
+     * @param subtree
+     *         the subtree OID as sent to the target, i.e. after any OID translation.
+     * @param timeToLiveMillis
+     *         the time to live in milliseconds. Zero disables caching of responses for the subtree and a negative
+     *         value removes the subtree specific time to live.
+     */
+    public synchronized void setTimeToLive(OID subtree, long timeToLiveMillis) {
+        if (timeToLiveMillis < 0) {
+            subtreeTimeToLive.remove(subtree);
+        } else {
+            subtreeTimeToLive.put(new OID(subtree), timeToLiveMillis);
+        }
+    }
+
+    /**
+     * Gets the time to live of responses for the specified object.
+     *
+     * @param oid
+     *         an OID as sent to the target.
+     *
+     * @return the time to live in milliseconds.
+     */
+    public synchronized long getTimeToLive(OID oid) {
+        // a subtree containing the OID is lexicographically less or equal, the longest one comes first
+        for (Map.Entry<OID, Long> entry : subtreeTimeToLive.headMap(oid, true).descendingMap().entrySet()) {
+            if (oid.startsWith(entry.getKey())) {
+                return entry.getValue();
+            }
+        }
+        return defaultTimeToLiveMillis;
+    }
+
+    /**
+     * Sends a request through the cache and waits for its response.
+     *
+     * @param session
+     *         the session used to send the request if it cannot be answered from the cache.
+     * @param pdu
+     *         the request PDU.
+     * @param target
+     *         the target of the request.
+     * @param <A>
+     *         the target address type.
+     *
+     * @return the response event. Its response PDU is {@code null} if the request timed out.
+     * @throws IOException
+     *         if the request could not be sent.
+     */
+    public <A extends Address> ResponseEvent<A> send(Session session, PDU pdu, Target<A> target) throws IOException {
+        if ((target == null) || !isCoalescible(pdu)) {
+            invalidateOnSet(pdu, target);
+            try {
+                return session.send(pdu, target);
+            } finally {
+                invalidateOnSet(pdu, target);
+            }
+        }
+        try {
+            PDU response = request(session, pdu, target).get();
+            return new ResponseEvent<>(session, target.getAddress(), pdu, response, null);
+        } catch (InterruptedException iex) {
+            Thread.currentThread().interrupt();
+            return new ResponseEvent<>(session, target.getAddress(), pdu, null, null, iex);
+        } catch (ExecutionException eex) {
+            if (eex.getCause() instanceof IOException) {
+                throw (IOException) eex.getCause();
+            }
+            throw new IOException(eex.getCause());
+        }
+    }
+
+    /**
+     * Sends a request through the cache without waiting for its response. The listener is called from the thread
+     * that receives the response or, if the request is answered from the cache, from the calling thread.
+     *
+     * @param session
+     *         the session used to send the request if it cannot be answered from the cache.
+     * @param pdu
+     *         the request PDU.
+     * @param target
+     *         the target of the request.
+     * @param userHandle
+     *         the user handle returned with the response event.
+     * @param listener
+     *         the listener to be informed about the response.
+     * @param <A>
+     *         the target address type.
+     *
+     * @throws IOException
+     *         if the request could not be sent.
+     */
+    public <A extends Address> void send(Session session, PDU pdu, Target<A> target, Object userHandle,
+                                         ResponseListener listener) throws IOException {
+        if ((target == null) || !isCoalescible(pdu)) {
+            invalidateOnSet(pdu, target);
+            ResponseListener invalidatingListener = new ResponseListener() {
+                @Override
+                public <R extends Address> void onResponse(ResponseEvent<R> event) {
+                    invalidateOnSet(pdu, target);
+                    listener.onResponse(event);
+                }
+            };
+            session.send(pdu, target, userHandle, invalidatingListener);
+            return;
+        }
+        request(session, pdu, target).whenComplete((response, error) -> {
+            Exception ex = (error instanceof Exception) ? (Exception) error : null;
+            listener.onResponse(new ResponseEvent<>(session, target.getAddress(), pdu, response, userHandle, ex));
+        });
+    }
+
+    /**
+     * Removes all cached responses for the address of the specified target and context and prevents that responses
+     * of outstanding requests are cached. The responses are removed regardless of the SNMP version and security name
+     * they have been cached with, because a SET with a write community or user changes the values read with any
+     * other community or user. Responses cached for SNMPv1/v2c requests have no context and are always removed.
+     *
+     * @param target
+     *         the target.
+     * @param contextEngineID
+     *         the context engine ID or {@code null} for all contexts of the target.
+     * @param contextName
+     *         the context name (ignored if {@code contextEngineID} is {@code null}).
+     */
+    public synchronized void invalidate(Target<?> target, OctetString contextEngineID, OctetString contextName) {
+        generation++;
+        Address address = target.getAddress();
+        for (Iterator<RequestKey> it = responses.keySet().iterator(); it.hasNext(); ) {
+            RequestKey key = it.next();
+            if (Objects.equals(key.address, address) &&
+                    ((contextEngineID == null) || (key.contextEngineID == null) ||
+                            (Objects.equals(key.contextEngineID, contextEngineID) &&
+                                    Objects.equals(key.contextName, contextName)))) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes all cached responses.
+     */
+    public synchronized void clear() {
+        generation++;
+        responses.clear();
+    }
+
+    /**
+     * Gets the number of cached responses (including expired ones that have not been removed yet).
+     *
+     * @return the cache size.
+     */
+    public synchronized int size() {
+        return responses.size();
+    }
+
+    /**
+     * Gets the number of requests answered from the cache.
+     *
+     * @return the number of cache hits.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of requests that have been answered by the response of an identical outstanding request.
+     *
+     * @return the number of coalesced requests.
+     */
+    public synchronized long getCoalesced() {
+        return coalesced;
+    }
+
+    /**
+     * Gets the number of requests that have been sent to a target.
+     *
+     * @return the number of cache misses.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getDefaultTimeToLiveMillis() {
+        return defaultTimeToLiveMillis;
+    }
+
+    /**
+     * Checks whether a request may be answered from the cache or by the response of an identical outstanding
+     * request.
+     *
+     * @param pdu
+     *         the request PDU.
+     *
+     * @return {@code true} for GET and GETNEXT requests.
+     */
+    protected boolean isCoalescible(PDU pdu) {
+        return (pdu.getType() == PDU.GET) || (pdu.getType() == PDU.GETNEXT);
+    }
+
+    private void invalidateOnSet(PDU pdu, Target<?> target) {
+        if ((target != null) && (pdu.getType() == PDU.SET)) {
+            if (pdu instanceof ScopedPDU) {
+                ScopedPDU scopedPDU = (ScopedPDU) pdu;
+                invalidate(target, scopedPDU.getContextEngineID(), scopedPDU.getContextName());
+            } else {
+                invalidate(target, null, null);
+            }
+        }
+    }
+
+    private <A extends Address> CompletableFuture<PDU> request(Session session, PDU pdu, Target<A> target)
+            throws IOException {
+        RequestKey key = new RequestKey(target, pdu);
+        CompletableFuture<PDU> future;
+        long requestGeneration;
+        synchronized (this) {
+            CachedResponse cached = responses.get(key);
+            if (cached != null) {
+                if (cached.expiration - System.nanoTime() > 0) {
+                    hits++;
+                    return CompletableFuture.completedFuture((PDU) cached.response.clone());
+                }
+                responses.remove(key);
+            }
+            future = outstanding.get(key);
+            if (future != null) {
+                coalesced++;
+                return future.thenApply(ProxyResponseCache::copy);
+            }
+            misses++;
+            future = new CompletableFuture<>();
+            outstanding.put(key, future);
+            requestGeneration = generation;
+        }
+        CompletableFuture<PDU> leader = future;
+        try {
+            session.send(pdu, target, null, new ResponseListener() {
+                @Override
+                public <R extends Address> void onResponse(ResponseEvent<R> event) {
+                    session.cancel(event.getRequest(), this);
+                    PDU response = event.getResponse();
+                    synchronized (ProxyResponseCache.this) {
+                        outstanding.remove(key, leader);
+                        if (isCacheable(response) && (requestGeneration == generation)) {
+                            long timeToLive = getTimeToLive(pdu);
+                            if (timeToLive > 0) {
+                                responses.put(key, new CachedResponse((PDU) response.clone(),
+                                        System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeToLive)));
+                            }
+                        }
+                    }
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("Received response " + response + " for coalesced request " + pdu +
+                                " to " + target);
+                    }
+                    leader.complete(response);
+                }
+            });
+        } catch (IOException | RuntimeException ex) {
+            outstanding.remove(key, leader);
+            leader.completeExceptionally(ex);
+            throw ex;
+        }
+        return future.thenApply(ProxyResponseCache::copy);
+    }
+
+    private long getTimeToLive(PDU pdu) {
+        long timeToLive = Long.MAX_VALUE;
+        for (int i = 0; i < pdu.size(); i++) {
+            timeToLive = Math.min(timeToLive, getTimeToLive(pdu.get(i).getOid()));
+        }
+        return (timeToLive == Long.MAX_VALUE) ? 0 : timeToLive;
+    }
+
+    private static boolean isCacheable(PDU response) {
+        return (response != null) && (response.getType() == PDU.RESPONSE) &&
+                (response.getErrorStatus() == PDU.noError);
+    }
+
+    private static PDU copy(PDU response) {
+        return (response == null) ? null : (PDU) response.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "ProxyResponseCache{" +
+                "maxSize=" + maxSize +
+                ", defaultTimeToLiveMillis=" + defaultTimeToLiveMillis +
+                ", size=" + size() +
+                ", hits=" + getHits() +
+                ", coalesced=" + getCoalesced() +
+                ", misses=" + getMisses() +
+                '}';
+    }
+
+    private static final class CachedResponse {
+        private final PDU response;
+        private final long expiration;
+
+        CachedResponse(PDU response, long expiration) {
+            this.response = response;
+            this.expiration = expiration;
+        }
+    }
+
+    private static final class RequestKey {
+        private final Address address;
+        private final int version;
+        private final OctetString securityName;
+        private final int securityLevel;
+        private final OctetString contextEngineID;
+        private final OctetString contextName;
+        private final int pduType;
+        private final OID[] oids;
+        private final int hashCode;
+
+        RequestKey(Target<?> target, PDU pdu) {
+            this.address = target.getAddress();
+            this.version = target.getVersion();
+            this.securityName = target.getSecurityName();
+            this.securityLevel = target.getSecurityLevel();
+            if (pdu instanceof ScopedPDU) {
+                this.contextEngineID = ((ScopedPDU) pdu).getContextEngineID();
+                this.contextName = ((ScopedPDU) pdu).getContextName();
+            } else {
+                this.contextEngineID = null;
+                this.contextName = null;
+            }
+            this.pduType = pdu.getType();
+            this.oids = new OID[pdu.size()];
+            for (int i = 0; i < oids.length; i++) {
+                oids[i] = new OID(pdu.get(i).getOid());
+            }
+            this.hashCode = Objects.hash(address, version, securityName, securityLevel, contextEngineID,
+                    contextName, pduType) * 31 + Arrays.hashCode(oids);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof RequestKey)) {
+                return false;
+            }
+            RequestKey other = (RequestKey) o;
+            return (hashCode == other.hashCode) && (pduType == other.pduType) && (version == other.version) &&
+                    (securityLevel == other.securityLevel) &&
+                    Objects.equals(address, other.address) &&
+                    Objects.equals(securityName, other.securityName) &&
+                    Objects.equals(contextEngineID, other.contextEngineID) &&
+                    Objects.equals(contextName, other.contextName) &&
+                    Arrays.equals(oids, other.oids);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
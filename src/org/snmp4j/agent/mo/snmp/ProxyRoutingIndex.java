@@ -0,0 +1,373 @@
+/*_############################################################################
+  _##
+  _##  SNMP4J-Agent 3 - ProxyRoutingIndex.java
+  _##
+  _##  Copyright (C) 2005-2021  Frank Fock (SNMP4J.org)
+  _##
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##
+  _##########################################################################*/
+
+package org.snmp4j.agent.mo.snmp;
+
+import org.snmp4j.agent.mo.*;
+import org.snmp4j.agent.mo.snmp.SnmpProxyMIB.SnmpProxyRow;
+import org.snmp4j.log.LogAdapter;
+import org.snmp4j.log.LogFactory;
+import org.snmp4j.smi.Integer32;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.OctetString;
+import org.snmp4j.smi.Variable;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@code ProxyRoutingIndex} maps the attributes of a request to the matching active rows of the
+ * snmpProxyTable (SNMP-PROXY-MIB) whose snmpProxyTargetParamsIn references an active snmpTargetParamsTable row
+ * (SNMP-TARGET-MIB). The routes are keyed by proxy type, context engine ID, context name, message processing model,
+ * security model, security name, and security level. Thus, the rows matching a request can be found by a single hash
+ * lookup instead of filtering the proxy table and looking up the target parameters for each candidate row.
+ * <p>
+ * The index listens to row and model events of both tables. The events only mark the affected proxy rows and
+ * target parameters as changed. The routes of these rows are then updated by the next lookup, so that no table
+ * model lock is acquired while an event is being delivered. Changes of row values that do not fire an event have to
+ * be announced by {@link #invalidate()}.
+ *
+ * @author Frank Fock
+ * @version 3.6.0
+ * @since 3.6.0
+ */
+public class ProxyRoutingIndex {
+
+    private static final LogAdapter logger = LogFactory.getLogger(ProxyRoutingIndex.class);
+
+    private final SnmpProxyMIB proxyMIB;
+    private final SnmpTargetMIB targetMIB;
+
+    private volatile Map<RouteKey, SnmpProxyRow[]> routes = new ConcurrentHashMap<>();
+    private final Map<OID, RouteKey> routeKeysByRow = new HashMap<>();
+    private volatile int wildcardRoutes;
+
+    private final Set<OID> changedProxyRows = ConcurrentHashMap.newKeySet();
+    private final Set<OctetString> changedTargetParams = ConcurrentHashMap.newKeySet();
+    private volatile boolean rebuildRequired = true;
+    private volatile boolean changed = true;
+
+    /**
+     * Creates a routing index for the specified proxy and target configuration and registers the listeners that keep
+     * it up-to-date with the configuration.
+     *
+     * @param proxyMIB
+     *         the SNMP-PROXY-MIB with the proxy configuration.
+     * @param targetMIB
+     *         the SNMP-TARGET-MIB with the target parameters referenced by the proxy configuration.
+     */
+    public ProxyRoutingIndex(SnmpProxyMIB proxyMIB, SnmpTargetMIB targetMIB) {
+        this.proxyMIB = proxyMIB;
+        this.targetMIB = targetMIB;
+        proxyMIB.getSnmpProxyEntry().addMOTableRowListener(event -> proxyRowChanged(event.getRow()));
+        proxyMIB.getSnmpProxyEntry().getModel().addMOTableModelListener(event -> {
+            if (event.getType() == MOTableModelEvent.TABLE_CLEAR) {
+                invalidate();
+            } else {
+                proxyRowChanged(event.getAffectedRow());
+            }
+        });
+        targetMIB.getSnmpTargetParamsEntry().addMOTableRowListener(event -> targetParamsChanged(event.getRow()));
+        targetMIB.getSnmpTargetParamsEntry().getModel().addMOTableModelListener(event -> {
+            if (event.getType() == MOTableModelEvent.TABLE_CLEAR) {
+                invalidate();
+            } else {
+                targetParamsChanged(event.getAffectedRow());
+            }
+        });
+    }
+
+    /**
+     * Gets the active proxy rows that match the specified request attributes.
+     *
+     * @param proxyType
+     *         the proxy type as defined by {@link SnmpProxyMIB.SnmpProxyTypeEnum}.
+     * @param contextEngineID
+     *         the context engine ID of the request.
+     * @param contextName
+     *         the context name of the request.
+     * @param mpModel
+     *         the message processing model of the request.
+     * @param securityModel
+     *         the security model of the request.
+     * @param securityName
+     *         the security name of the request.
+     * @param securityLevel
+     *         the security level of the request.
+     *
+     * @return the matching rows in the lexicographic order of their indexes (i.e. of their snmpProxyName). The
+     * returned list may be modified by the caller.
+     */
+    public List<SnmpProxyRow> getMatches(int proxyType, OctetString contextEngineID, OctetString contextName,
+                                         int mpModel, int securityModel, OctetString securityName,
+                                         int securityLevel) {
+        if (changed) {
+            applyChanges();
+        }
+        SnmpProxyRow[] exact = routes.get(new RouteKey(proxyType, contextEngineID, contextName,
+                mpModel, securityModel, securityName, securityLevel));
+        if (wildcardRoutes == 0) {
+            return (exact == null) ? new ArrayList<>(0) : new ArrayList<>(Arrays.asList(exact));
+        }
+        // proxy rows without context name match any context and target params with security model any(0)
+        // match any security model
+        SortedMap<OID, SnmpProxyRow> matches = new TreeMap<>();
+        addAll(matches, exact);
+        addAll(matches, routes.get(new RouteKey(proxyType, contextEngineID, null,
+                mpModel, securityModel, securityName, securityLevel)));
+        if (securityModel != 0) {
+            addAll(matches, routes.get(new RouteKey(proxyType, contextEngineID, contextName,
+                    mpModel, 0, securityName, securityLevel)));
+            addAll(matches, routes.get(new RouteKey(proxyType, contextEngineID, null,
+                    mpModel, 0, securityName, securityLevel)));
+        }
+        return new ArrayList<>(matches.values());
+    }
+
+    /**
+     * Marks the whole index as outdated, for example because row values have been changed without firing a row event.
+     * The index is then rebuilt by the next lookup.
+     */
+    public void invalidate() {
+        rebuildRequired = true;
+        changed = true;
+    }
+
+    /**
+     * Gets the number of routes (i.e. active proxy rows with active target parameters) in the index.
+     *
+     * @return the number of indexed proxy rows.
+     */
+    public synchronized int size() {
+        if (changed) {
+            applyChanges();
+        }
+        return routeKeysByRow.size();
+    }
+
+    private void proxyRowChanged(MOTableRow row) {
+        if (row == null) {
+            invalidate();
+        } else {
+            changedProxyRows.add(row.getIndex());
+            changed = true;
+        }
+    }
+
+    private void targetParamsChanged(MOTableRow row) {
+        if (row == null) {
+            invalidate();
+        } else {
+            changedTargetParams.add(new OctetString(row.getIndex().toByteArray()));
+            changed = true;
+        }
+    }
+
+    private synchronized void applyChanges() {
+        // reset the flag first, so that changes marked while applying are applied by the next lookup
+        changed = false;
+        DefaultMOMutableTableModel<SnmpProxyRow> proxyModel = proxyMIB.getSnmpProxyEntry().getModel();
+        if (rebuildRequired) {
+            rebuildRequired = false;
+            changedProxyRows.clear();
+            changedTargetParams.clear();
+            // build a new map and replace the old one, so that concurrent lookups never see a partial index
+            Map<RouteKey, SnmpProxyRow[]> newRoutes = new ConcurrentHashMap<>();
+            routeKeysByRow.clear();
+            wildcardRoutes = 0;
+            for (SnmpProxyRow row : proxyModel.getRows(null, null, r -> true)) {
+                addRoute(newRoutes, row);
+            }
+            routes = newRoutes;
+            if (logger.isDebugEnabled()) {
+                logger.debug("Rebuilt proxy routing index with " + routeKeysByRow.size() + " routes");
+            }
+            return;
+        }
+        Set<OID> rowIndexes = new HashSet<>();
+        for (Iterator<OID> it = changedProxyRows.iterator(); it.hasNext(); ) {
+            rowIndexes.add(it.next());
+            it.remove();
+        }
+        if (!changedTargetParams.isEmpty()) {
+            Set<OctetString> paramsNames = new HashSet<>();
+            for (Iterator<OctetString> it = changedTargetParams.iterator(); it.hasNext(); ) {
+                paramsNames.add(it.next());
+                it.remove();
+            }
+            for (SnmpProxyRow row : proxyModel.getRows(null, null,
+                    r -> paramsNames.contains(r.getSnmpProxyTargetParamsIn()))) {
+                rowIndexes.add(row.getIndex());
+            }
+        }
+        for (OID index : rowIndexes) {
+            removeRoute(index);
+            SnmpProxyRow row = proxyModel.getRow(index);
+            if (row != null) {
+                addRoute(routes, row);
+            }
+        }
+    }
+
+    private void addRoute(Map<RouteKey, SnmpProxyRow[]> routes, SnmpProxyRow row) {
+        RouteKey key = createRouteKey(row);
+        if (key == null) {
+            return;
+        }
+        SnmpProxyRow[] rows = routes.get(key);
+        SnmpProxyRow[] newRows;
+        if (rows == null) {
+            newRows = new SnmpProxyRow[]{row};
+        } else {
+            // copy on write, because lookups do not synchronize
+            newRows = Arrays.copyOf(rows, rows.length + 1);
+            int pos = newRows.length - 1;
+            while ((pos > 0) && (newRows[pos - 1].getIndex().compareTo(row.getIndex()) > 0)) {
+                newRows[pos] = newRows[pos - 1];
+                pos--;
+            }
+            newRows[pos] = row;
+        }
+        routes.put(key, newRows);
+        routeKeysByRow.put(row.getIndex(), key);
+        if (key.isWildcard()) {
+            wildcardRoutes++;
+        }
+    }
+
+    private void removeRoute(OID index) {
+        RouteKey key = routeKeysByRow.remove(index);
+        if (key == null) {
+            return;
+        }
+        SnmpProxyRow[] rows = routes.get(key);
+        if (rows != null) {
+            List<SnmpProxyRow> remaining = new ArrayList<>(rows.length);
+            for (SnmpProxyRow row : rows) {
+                if (!row.getIndex().equals(index)) {
+                    remaining.add(row);
+                }
+            }
+            if (remaining.isEmpty()) {
+                routes.remove(key);
+            } else {
+                routes.put(key, remaining.toArray(new SnmpProxyRow[0]));
+            }
+        }
+        if (key.isWildcard()) {
+            wildcardRoutes--;
+        }
+    }
+
+    private RouteKey createRouteKey(SnmpProxyRow row) {
+        if (!isActive(row.getSnmpProxyRowStatus())) {
+            return null;
+        }
+        Integer32 type = row.getSnmpProxyType();
+        OctetString contextEngineID = row.getSnmpProxyContextEngineID();
+        if ((type == null) || (contextEngineID == null)) {
+            return null;
+        }
+        MOTableRow params = targetMIB.getTargetParamsRow(row.getSnmpProxyTargetParamsIn(), true);
+        if (params == null) {
+            return null;
+        }
+        Variable mpModel = params.getValue(SnmpTargetMIB.idxSnmpTargetParamsMPModel);
+        Variable securityModel = params.getValue(SnmpTargetMIB.idxSnmpTargetParamsSecurityModel);
+        Variable securityLevel = params.getValue(SnmpTargetMIB.idxSnmpTargetParamsSecurityLevel);
+        OctetString securityName = (OctetString) params.getValue(SnmpTargetMIB.idxSnmpTargetParamsSecurityName);
+        if ((mpModel == null) || (securityModel == null) || (securityLevel == null) || (securityName == null)) {
+            return null;
+        }
+        return new RouteKey(type.getValue(), contextEngineID, row.getSnmpProxyContextName(),
+                mpModel.toInt(), securityModel.toInt(), securityName, securityLevel.toInt());
+    }
+
+    private static boolean isActive(Integer32 rowStatus) {
+        return (rowStatus != null) && (rowStatus.getValue() == RowStatus.active);
+    }
+
+    private static void addAll(SortedMap<OID, SnmpProxyRow> matches, SnmpProxyRow[] rows) {
+        if (rows != null) {
+            for (SnmpProxyRow row : rows) {
+                matches.put(row.getIndex(), row);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ProxyRoutingIndex{" +
+                "routes=" + routes.size() +
+                ", wildcardRoutes=" + wildcardRoutes +
+                ", changed=" + changed +
+                '}';
+    }
+
+    private static final class RouteKey {
+        private final int proxyType;
+        private final OctetString contextEngineID;
+        private final OctetString contextName;
+        private final int mpModel;
+        private final int securityModel;
+        private final OctetString securityName;
+        private final int securityLevel;
+        private final int hashCode;
+
+        RouteKey(int proxyType, OctetString contextEngineID, OctetString contextName,
+                 int mpModel, int securityModel, OctetString securityName, int securityLevel) {
+            this.proxyType = proxyType;
+            this.contextEngineID = contextEngineID;
+            this.contextName = contextName;
+            this.mpModel = mpModel;
+            this.securityModel = securityModel;
+            this.securityName = securityName;
+            this.securityLevel = securityLevel;
+            this.hashCode = Objects.hash(proxyType, contextEngineID, contextName,
+                    mpModel, securityModel, securityName, securityLevel);
+        }
+
+        boolean isWildcard() {
+            return (contextName == null) || (securityModel == 0);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof RouteKey)) {
+                return false;
+            }
+            RouteKey other = (RouteKey) o;
+            return (hashCode == other.hashCode) && (proxyType == other.proxyType) &&
+                    (mpModel == other.mpModel) && (securityModel == other.securityModel) &&
+                    (securityLevel == other.securityLevel) &&
+                    Objects.equals(contextEngineID, other.contextEngineID) &&
+                    Objects.equals(contextName, other.contextName) &&
+                    Objects.equals(securityName, other.securityName);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
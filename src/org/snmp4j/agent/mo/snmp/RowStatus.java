@@ -260,19 +260,41 @@ public class RowStatus<R extends MOTableRow>
             }
             case createAndWait: {
                 if (isReady(row, column)) {
-                    ((Integer32) row.getValue(column)).setValue(RowStatus.notInService);
+                    setRowStatus(row, column, RowStatus.notInService);
                 } else {
-                    ((Integer32) row.getValue(column)).setValue(RowStatus.notReady);
+                    setRowStatus(row, column, RowStatus.notReady);
                 }
                 break;
             }
             case createAndGo: {
-                ((Integer32) row.getValue(column)).setValue(RowStatus.active);
+                setRowStatus(row, column, RowStatus.active);
                 break;
             }
         }
     }
 
+    /**
+     * Sets the RowStatus value of a row. A {@link MOMutableTableRow} is updated by
+     * {@link MOMutableTableRow#setValue(int, Variable)}, because its model might not return the stored
+     * {@link Integer32} instance (e.g. a {@link ColumnarMOTableModel}). Otherwise,
+     * the current value is changed in place.
+     *
+     * @param row
+     *         the row to update.
+     * @param column
+     *         the column index of the RowStatus column.
+     * @param rowStatus
+     *         the new RowStatus value.
+     * @since 3.6.0
+     */
+    protected void setRowStatus(MOTableRow row, int column, int rowStatus) {
+        if (row instanceof MOMutableTableRow) {
+            ((MOMutableTableRow) row).setValue(column, new Integer32(rowStatus));
+        } else {
+            ((Integer32) row.getValue(column)).setValue(rowStatus);
+        }
+    }
+
     @SuppressWarnings("unchecked")
     public void undo(SubRequest<?> subRequest, MOTableRow row, int column) {
         super.undo(subRequest, row, column);
@@ -582,7 +604,7 @@ public class RowStatus<R extends MOTableRow>
         Integer32 rowStatus = getValue(row, column, subRequest);
         if ((rowStatus != null) && (rowStatus.getValue() == notReady)) {
             if (isReady(row, column)) {
-                rowStatus.setValue(notInService);
+                setRowStatus(row, column, notInService);
             }
         }
         super.get(subRequest, row, column);
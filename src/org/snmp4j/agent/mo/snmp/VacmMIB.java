@@ -22,6 +22,8 @@
 package org.snmp4j.agent.mo.snmp;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.snmp4j.log.*;
 import org.snmp4j.agent.*;
@@ -169,6 +171,9 @@ public class VacmMIB implements MOGroup, MutableVACM {
 
     private SecurityModels securityModels;
 
+    private final Map<OctetString, VacmViewTree> compiledViews = new ConcurrentHashMap<>();
+    private final AtomicLong viewTreeFamilyModifications = new AtomicLong();
+
 
     public VacmMIB(MOServer[] server) {
         this.server = server;
@@ -291,6 +296,9 @@ public class VacmMIB implements MOGroup, MutableVACM {
         vacmViewTreeFamilyTableModel = new DefaultMOMutableTableModel<>();
         vacmViewTreeFamilyTableModel.setRowFactory(new DefaultMOMutableRow2PCFactory());
         vacmViewTreeFamilyTable.setModel(vacmViewTreeFamilyTableModel);
+        ViewTreeFamilyChangeListener changeListener = new ViewTreeFamilyChangeListener();
+        vacmViewTreeFamilyTableModel.addMOTableModelListener(changeListener);
+        vacmViewTreeFamilyTable.addMOTableRowListener(changeListener);
     }
 
     public void unregisterMOs(MOServer server, OctetString context) {
@@ -477,58 +485,84 @@ public class VacmMIB implements MOGroup, MutableVACM {
     }
 
     public int isAccessAllowed(OctetString viewName, OID oid) {
-        List<MOTableRow> views = getViews(viewName);
-        if (views.size() == 0) {
+        VacmViewTree viewTree = getCompiledView(viewName);
+        if (viewTree.getFamilyCount() == 0) {
             if (logger.isDebugEnabled()) {
                 logger.debug("No view tree family entry for view '" + viewName + "'");
             }
             return VACM.VACM_NO_SUCH_VIEW;
         }
-        // iterate from back to forth because the views list must be ordered by
-        // subtree length (view name is the same for all entries) which is the
-        // criteria to find the appropriate view access entry.
-        for (int v = views.size() - 1; v >= 0; v--) {
-            MOTableRow row = views.get(v);
-            if (((Integer32) row.getValue(idxVacmViewTreeFamilyRowStatus)).getValue() !=
-                    RowStatus.active) {
+        VacmViewTree.Family family = viewTree.findFamily(oid);
+        if (family == null) {
+            return VACM.VACM_NOT_IN_VIEW;
+        }
+        if (family.isIncluded()) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Access allowed for view '" + viewName + "' by subtree " +
+                        family.getSubtree() + " for OID " + oid + " and mask " + family.getMask().toHexString());
+            }
+            return VACM.VACM_OK;
+        }
+        // excluded
+        if (logger.isDebugEnabled()) {
+            logger.debug("Access denied for view '" + viewName + "' by subtree " +
+                    family.getSubtree() + " for OID " + oid + " and mask " + family.getMask().toHexString());
+        }
+        return VACM.VACM_NOT_IN_VIEW;
+    }
+
+    /**
+     * Returns the compiled view tree for the specified view. The view tree is built from the view tree family
+     * table on first use and cached until a row of that view is added, changed, or removed.
+     *
+     * @param viewName
+     *         the view name.
+     *
+     * @return the (possibly empty) compiled {@link VacmViewTree}.
+     * @since 3.6.0
+     */
+    protected VacmViewTree getCompiledView(OctetString viewName) {
+        VacmViewTree viewTree = compiledViews.get(viewName);
+        if (viewTree == null) {
+            long modifications = viewTreeFamilyModifications.get();
+            viewTree = compileView(viewName);
+            if (viewName.length() > 0) {
+                compiledViews.put(viewName, viewTree);
+                if (modifications != viewTreeFamilyModifications.get()) {
+                    // the view tree family table has been changed while compiling, thus discard the result
+                    compiledViews.remove(viewName, viewTree);
+                }
+            }
+        }
+        return viewTree;
+    }
+
+    private VacmViewTree compileView(OctetString viewName) {
+        VacmViewTree viewTree = new VacmViewTree(viewName);
+        for (MOTableRow row : getViews(viewName)) {
+            if (((Integer32) row.getValue(idxVacmViewTreeFamilyRowStatus)).getValue() != RowStatus.active) {
                 // only active rows are relevant
+                viewTree.addInactiveFamily();
                 continue;
             }
-            OID index = row.getIndex();
-            Variable[] indexValues = vacmViewTreeFamilyIndex.getIndexValues(index);
+            Variable[] indexValues = vacmViewTreeFamilyIndex.getIndexValues(row.getIndex());
             OID subtree = (OID) indexValues[idxVacmViewTreeSubtree];
-            if (oid.size() < subtree.size()) {
-                // no match
-                continue;
-            }
             OctetString mask = (OctetString) row.getValue(idxVacmViewTreeFamilyMask);
-            boolean match = true;
-            for (int i = 0; i < subtree.size(); i++) {
-                if ((subtree.get(i) != oid.get(i)) && isBitSet(i, mask)) {
-                    match = false;
-                    break;
-                }
-            }
-            if (match) {
-                // we found the matching entry
-                if (((Integer32) row.getValue(idxVacmViewTreeFamilyType)).getValue() ==
-                        vacmViewIncluded) {
-                    if (logger.isDebugEnabled()) {
-                        logger.debug("Access allowed for view '" + viewName + "' by subtree " +
-                                subtree + " for OID " + oid + " and mask " + mask.toHexString());
-                    }
-                    return VACM.VACM_OK;
-                } else {
-                    // excluded
-                    if (logger.isDebugEnabled()) {
-                        logger.debug("Access denied for view '" + viewName + "' by subtree " +
-                                subtree + " for OID " + oid + " and mask " + mask.toHexString());
-                    }
-                    return VACM.VACM_NOT_IN_VIEW;
-                }
-            }
+            viewTree.addFamily(subtree, mask,
+                    ((Integer32) row.getValue(idxVacmViewTreeFamilyType)).getValue() == vacmViewIncluded);
+        }
+        return viewTree;
+    }
+
+    private void invalidateCompiledView(MOTableRow row) {
+        viewTreeFamilyModifications.incrementAndGet();
+        if (row == null) {
+            compiledViews.clear();
+        }
+        else {
+            Variable[] indexValues = vacmViewTreeFamilyIndex.getIndexValues(row.getIndex());
+            compiledViews.remove((OctetString) indexValues[0]);
         }
-        return VACM.VACM_NOT_IN_VIEW;
     }
 
     /**
@@ -772,6 +806,25 @@ public class VacmMIB implements MOGroup, MutableVACM {
         return vacmViewTreeFamilyTableModel.getRows(lowerOID, upperOID);
     }
 
+    /**
+     * Drops compiled views when rows of the view tree family table are added, removed, or updated.
+     */
+    private class ViewTreeFamilyChangeListener
+            implements MOTableModelListener, MOTableRowListener<DefaultMOMutableRow2PC> {
+
+        @Override
+        public void tableModelChanged(MOTableModelEvent event) {
+            invalidateCompiledView((event.getType() == MOTableModelEvent.TABLE_CLEAR) ? null : event.getAffectedRow());
+        }
+
+        @Override
+        public void rowChanged(MOTableRowEvent<DefaultMOMutableRow2PC> event) {
+            if (event.getType() == MOTableRowEvent.UPDATED) {
+                invalidateCompiledView(event.getRow());
+            }
+        }
+    }
+
     public static class VacmContextIterator implements Iterator<MOTableRow> {
 
         private int index = 0;
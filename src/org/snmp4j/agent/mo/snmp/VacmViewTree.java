@@ -0,0 +1,246 @@
+/*_############################################################################
+  _##
+  _##  SNMP4J-Agent 3 - VacmViewTree.java
+  _##
+  _##  Copyright (C) 2005-2021  Frank Fock (SNMP4J.org)
+  _##
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##
+  _##########################################################################*/
+
+package org.snmp4j.agent.mo.snmp;
+
+import java.util.Arrays;
+
+import org.snmp4j.agent.security.VACM;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.OctetString;
+
+/**
+ * The {@code VacmViewTree} is a compiled representation of all view tree families of a single MIB view
+ * as defined by RFC 3415. The families are stored in a trie of sub-identifiers where a sub-identifier
+ * whose mask bit is zero is represented by a wildcard node. An access decision is then a walk along the
+ * OID to check (branching only at wildcard nodes) which does not allocate any objects.
+ * <p>
+ * Among all matching families, the one with the longest subtree and, for subtrees of equal length,
+ * the lexicographically greatest subtree is chosen as required by RFC 3415 section 3.2.
+ * <p>
+ * A {@code VacmViewTree} is immutable once it has been built and can therefore be used by many threads
+ * concurrently.
+ *
+ * @author Frank Fock
+ * @version 3.6.0
+ * @since 3.6.0
+ */
+public class VacmViewTree {
+
+    private final OctetString viewName;
+    private final Node root = new Node();
+    private int familyCount;
+
+    /**
+     * Creates an empty view tree for the specified view.
+     *
+     * @param viewName
+     *         the name of the view.
+     */
+    public VacmViewTree(OctetString viewName) {
+        this.viewName = viewName;
+    }
+
+    /**
+     * Adds a view tree family to this view.
+     *
+     * @param subtree
+     *         the subtree OID of the family.
+     * @param mask
+     *         the family mask. Missing bits of the mask are regarded as set (exact match).
+     * @param included
+     *         {@code true} if the family is included and {@code false} if it is excluded from the view.
+     */
+    public void addFamily(OID subtree, OctetString mask, boolean included) {
+        Family family = new Family(subtree, mask, included);
+        Node node = root;
+        for (int i = 0; i < subtree.size(); i++) {
+            if (VacmMIB.isBitSet(i, mask)) {
+                node = node.getOrCreateChild(subtree.get(i));
+            }
+            else {
+                if (node.wildcard == null) {
+                    node.wildcard = new Node();
+                }
+                node = node.wildcard;
+            }
+        }
+        node.family = better(node.family, family);
+        familyCount++;
+    }
+
+    /**
+     * Counts a view tree family entry that is not active. Such entries do not participate in access
+     * decisions, but they make a view exist.
+     */
+    public void addInactiveFamily() {
+        familyCount++;
+    }
+
+    /**
+     * Returns the number of families (active or not) of this view.
+     *
+     * @return the number of view tree family entries.
+     */
+    public int getFamilyCount() {
+        return familyCount;
+    }
+
+    public OctetString getViewName() {
+        return viewName;
+    }
+
+    /**
+     * Checks whether the supplied OID is in this view.
+     *
+     * @param oid
+     *         the OID of the object instance to check.
+     *
+     * @return {@link VACM#VACM_OK} if the OID is included in this view, {@link VACM#VACM_NOT_IN_VIEW} if it is
+     * excluded or not covered by any family, and {@link VACM#VACM_NO_SUCH_VIEW} if this view has no
+     * families at all.
+     */
+    public int isAccessAllowed(OID oid) {
+        if (familyCount == 0) {
+            return VACM.VACM_NO_SUCH_VIEW;
+        }
+        Family family = findFamily(oid);
+        return ((family != null) && family.included) ? VACM.VACM_OK : VACM.VACM_NOT_IN_VIEW;
+    }
+
+    /**
+     * Returns the family that determines whether the supplied OID is in the view or not.
+     *
+     * @param oid
+     *         the OID of the object instance to check.
+     *
+     * @return the matching family with the longest (and lexicographically greatest) subtree or {@code null} if
+     * no family matches.
+     */
+    public Family findFamily(OID oid) {
+        return match(root, oid, 0);
+    }
+
+    private static Family match(Node node, OID oid, int depth) {
+        Family best = node.family;
+        if (depth < oid.size()) {
+            Node exact = node.getChild(oid.get(depth));
+            if (exact != null) {
+                best = better(best, match(exact, oid, depth + 1));
+            }
+            if (node.wildcard != null) {
+                best = better(best, match(node.wildcard, oid, depth + 1));
+            }
+        }
+        return best;
+    }
+
+    private static Family better(Family a, Family b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        if (a.subtree.size() != b.subtree.size()) {
+            return (a.subtree.size() > b.subtree.size()) ? a : b;
+        }
+        return (a.subtree.compareTo(b.subtree) >= 0) ? a : b;
+    }
+
+    @Override
+    public String toString() {
+        return "VacmViewTree{" +
+                "viewName=" + viewName +
+                ", familyCount=" + familyCount +
+                '}';
+    }
+
+    /**
+     * A view tree family entry of a compiled view.
+     */
+    public static final class Family {
+        private final OID subtree;
+        private final OctetString mask;
+        private final boolean included;
+
+        Family(OID subtree, OctetString mask, boolean included) {
+            this.subtree = subtree;
+            this.mask = mask;
+            this.included = included;
+        }
+
+        public OID getSubtree() {
+            return subtree;
+        }
+
+        public OctetString getMask() {
+            return mask;
+        }
+
+        public boolean isIncluded() {
+            return included;
+        }
+
+        @Override
+        public String toString() {
+            return "Family{" +
+                    "subtree=" + subtree +
+                    ", mask=" + mask.toHexString() +
+                    ", included=" + included +
+                    '}';
+        }
+    }
+
+    /**
+     * A trie node with its exact children sorted by sub-identifier for binary search.
+     */
+    private static final class Node {
+        private int[] subIDs = new int[0];
+        private Node[] children = new Node[0];
+        private Node wildcard;
+        private Family family;
+
+        Node getChild(int subID) {
+            int pos = Arrays.binarySearch(subIDs, subID);
+            return (pos >= 0) ? children[pos] : null;
+        }
+
+        Node getOrCreateChild(int subID) {
+            int pos = Arrays.binarySearch(subIDs, subID);
+            if (pos >= 0) {
+                return children[pos];
+            }
+            int insert = -(pos + 1);
+            int[] newSubIDs = new int[subIDs.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(subIDs, 0, newSubIDs, 0, insert);
+            System.arraycopy(children, 0, newChildren, 0, insert);
+            System.arraycopy(subIDs, insert, newSubIDs, insert + 1, subIDs.length - insert);
+            System.arraycopy(children, insert, newChildren, insert + 1, children.length - insert);
+            Node child = new Node();
+            newSubIDs[insert] = subID;
+            newChildren[insert] = child;
+            subIDs = newSubIDs;
+            children = newChildren;
+            return child;
+        }
+    }
+}
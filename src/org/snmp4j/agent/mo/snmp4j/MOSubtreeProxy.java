@@ -24,6 +24,7 @@ import org.snmp4j.*;
 import org.snmp4j.agent.*;
 import org.snmp4j.agent.mo.GenericManagedObject;
 import org.snmp4j.agent.mo.MOAccessImpl;
+import org.snmp4j.agent.mo.snmp.ProxyResponseCache;
 import org.snmp4j.agent.mo.snmp.SnmpTargetMIB;
 import org.snmp4j.agent.request.SubRequest;
 import org.snmp4j.agent.util.OIDTranslation;
@@ -43,8 +44,13 @@ import java.io.IOException;
  * single subtree based on the configuration provided by the {@link org.snmp4j.agent.mo.snmp4j.Snmp4jProxyMib} {@link
  * org.snmp4j.agent.mo.snmp.SnmpProxyMIB} and {@link org.snmp4j.agent.mo.snmp.SnmpTargetMIB}.
  *
+ * <p>
+ * With a {@link ProxyResponseCache}, identical concurrent GET and GETNEXT sub-requests share a single request to the
+ * target and their responses are cached for a short time. SET requests sent to the target invalidate the cache for
+ * the target.
+ *
  * @author Frank Fock
- * @version 3.2
+ * @version 3.6.0
  * @since 2.0
  */
 public class MOSubtreeProxy implements GenericManagedObject {
@@ -61,6 +67,7 @@ public class MOSubtreeProxy implements GenericManagedObject {
     private MOAccess access = MOAccessImpl.ACCESS_READ_WRITE;
     private OIDTranslation translation;
     private boolean undoEnabled = true;
+    private ProxyResponseCache responseCache;
 
     private PDUFactory pduFactory;
 
@@ -121,6 +128,26 @@ public class MOSubtreeProxy implements GenericManagedObject {
         return range;
     }
 
+    /**
+     * Sends a request to the target through the response cache, if one is set.
+     *
+     * @param pdu
+     *         the request PDU.
+     * @param target
+     *         the target.
+     *
+     * @return the response event.
+     * @throws IOException
+     *         if the request could not be sent.
+     */
+    protected ResponseEvent<?> send(PDU pdu, Target<?> target) throws IOException {
+        ProxyResponseCache cache = responseCache;
+        if (cache != null) {
+            return cache.send(session, pdu, target);
+        }
+        return session.send(pdu, target);
+    }
+
     @Override
     public void get(SubRequest<?> request) {
         if (!access.isAccessibleForRead()) {
@@ -137,7 +164,7 @@ public class MOSubtreeProxy implements GenericManagedObject {
         pdu.setType(PDU.GET);
         pdu.add(vb);
         try {
-            ResponseEvent<?> resp = session.send(pdu, target);
+            ResponseEvent<?> resp = send(pdu, target);
             if (resp.getResponse() != null) {
                 PDU rpdu = resp.getResponse();
                 if (rpdu.getErrorStatus() != PDU.noError) {
@@ -167,7 +194,7 @@ public class MOSubtreeProxy implements GenericManagedObject {
         pdu.setType(PDU.GETNEXT);
         pdu.add(vb);
         try {
-            ResponseEvent<?> resp = session.send(pdu, target);
+            ResponseEvent<?> resp = send(pdu, target);
             if (resp.getResponse() != null) {
                 PDU rpdu = resp.getResponse();
                 if (rpdu.getErrorStatus() != PDU.noError) {
@@ -243,7 +270,7 @@ public class MOSubtreeProxy implements GenericManagedObject {
         pdu.setType(PDU.SET);
         pdu.add(vb);
         try {
-            ResponseEvent<?> resp = session.send(pdu, target);
+            ResponseEvent<?> resp = send(pdu, target);
             if (resp.getResponse() != null) {
                 PDU rpdu = resp.getResponse();
                 if (rpdu.getErrorStatus() != PDU.noError) {
@@ -268,7 +295,7 @@ public class MOSubtreeProxy implements GenericManagedObject {
             pdu.setType(PDU.SET);
             pdu.add(vb);
             try {
-                ResponseEvent<?> resp = session.send(pdu, target);
+                ResponseEvent<?> resp = send(pdu, target);
                 if (resp.getResponse() != null) {
                     PDU rpdu = resp.getResponse();
                     if (rpdu.getErrorStatus() != PDU.noError) {
@@ -324,6 +351,23 @@ public class MOSubtreeProxy implements GenericManagedObject {
         this.undoEnabled = undoEnabled;
     }
 
+    public ProxyResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * Sets the cache used for GET and GETNEXT requests to the target. The GET requests that retrieve undo values for
+     * SET requests always bypass the cache.
+     *
+     * @param responseCache
+     *         a response cache (may be shared with other proxies) or {@code null} to send each request to the target
+     *         (default).
+     * @since 3.6.0
+     */
+    public void setResponseCache(ProxyResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
     public OctetString getProxyName() {
         return proxyName;
     }
@@ -142,6 +142,7 @@ public class Snmp4jProxyMib
     private Session session;
     private MOServer server;
     private SnmpTargetMIB targetMIB;
+    private ProxyResponseCache responseCache;
 //--AgentGen END
 
     /**
@@ -636,6 +637,31 @@ public class Snmp4jProxyMib
 
 
     //--AgentGen BEGIN=_METHODS
+
+    /**
+     * Gets the response cache shared by the subtree proxies registered by this MIB.
+     *
+     * @return the response cache or {@code null} if responses are not cached (default).
+     * @since 3.6.0
+     */
+    public ProxyResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * Sets the response cache shared by the subtree proxies registered by this MIB. The cache is used by proxies
+     * registered afterwards, thus it should be set before the proxy configuration is loaded.
+     * The time to live of the cached responses can be set per proxied subtree by
+     * {@link ProxyResponseCache#setTimeToLive(OID, long)} with the subtree OID of the target.
+     *
+     * @param responseCache
+     *         a response cache or {@code null} to forward each request to the target.
+     * @since 3.6.0
+     */
+    public void setResponseCache(ProxyResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
     public void rowStatusChanged(RowStatusEvent event) {
         Snmp4jProxyEntryRow row =
                 (Snmp4jProxyEntryRow) event.getRow();
@@ -673,6 +699,7 @@ public class Snmp4jProxyMib
                 !SnmpConstants.zeroDotZero.equals(targetOID)) {
             proxy.setTargetSubtree(targetOID);
         }
+        proxy.setResponseCache(responseCache);
         try {
             server.register(proxy, row.getSnmp4jProxyContextName());
         } catch (DuplicateRegistrationException drex) {
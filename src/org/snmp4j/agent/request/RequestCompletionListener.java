@@ -0,0 +1,45 @@
+/*_############################################################################
+  _##
+  _##  SNMP4J-Agent 3 - RequestCompletionListener.java
+  _##
+  _##  Copyright (C) 2005-2021  Frank Fock (SNMP4J.org)
+  _##
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##
+  _##########################################################################*/
+
+package org.snmp4j.agent.request;
+
+import java.util.EventListener;
+
+/**
+ * A {@code RequestCompletionListener} is informed when the processing of a request has been completed and its
+ * response is about to be returned. Processing user objects (see {@link Request#setProcessingUserObject}) that
+ * implement this interface are informed by {@link SnmpRequest#fireRequestCompleted()} automatically, for example
+ * to keep state beyond the lifetime of the request.
+ *
+ * @author Frank Fock
+ * @version 3.6.0
+ * @since 3.6.0
+ */
+public interface RequestCompletionListener extends EventListener {
+
+    /**
+     * The processing of the supplied request has been completed.
+     *
+     * @param request
+     *         the completed request.
+     */
+    void requestCompleted(Request<?, ?, ?> request);
+
+}
@@ -399,6 +399,33 @@ public class SnmpRequest extends AbstractRequest<SnmpRequest.SnmpSubRequest, Com
         return processingUserObjects.put(key, value);
     }
 
+    /**
+     * Informs all processing user objects that implement {@link RequestCompletionListener} that the processing of
+     * this request has been completed. The listeners are called outside the lock of this request.
+     *
+     * @since 3.6.0
+     */
+    public void fireRequestCompleted() {
+        List<RequestCompletionListener> listeners = null;
+        synchronized (this) {
+            if (processingUserObjects != null) {
+                for (Object userObject : processingUserObjects.values()) {
+                    if (userObject instanceof RequestCompletionListener) {
+                        if (listeners == null) {
+                            listeners = new ArrayList<>(2);
+                        }
+                        listeners.add((RequestCompletionListener) userObject);
+                    }
+                }
+            }
+        }
+        if (listeners != null) {
+            for (RequestCompletionListener listener : listeners) {
+                listener.requestCompleted(this);
+            }
+        }
+    }
+
     /**
      * The {@link SnmpSubRequestIterator} implements an iterator over the GETBULK repetitions of a subrequest.
      *
@@ -0,0 +1,395 @@
+/*_############################################################################
+  _##
+  _##  SNMP4J - BERReverseEncoder.java
+  _##
+  _##  Copyright (C) 2003-2021  Frank Fock (SNMP4J.org)
+  _##
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##
+  _##########################################################################*/
+
+package org.snmp4j.asn1;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The {@code BERReverseEncoder} encodes BER structures back-to-front into a growing byte array.
+ * Because the content of a constructed type is written before its header, the definite length of
+ * a sequence is known when its header is written. Thus, a structure can be encoded in a single pass
+ * without computing the BER length of its members in advance.
+ * <p>
+ * Constructed types are encoded by writing their members in reverse order and then calling
+ * {@link #encodeHeader(int, int)} with the mark returned by {@link #getLength()} before the first
+ * member was written:
+ * <pre>
+ *   int mark = encoder.getLength();
+ *   lastMember.encodeBERReverse(encoder);
+ *   firstMember.encodeBERReverse(encoder);
+ *   encoder.encodeHeader(BER.SEQUENCE, mark);
+ * </pre>
+ * An encoder can be reused. A per-thread instance is provided by {@link #acquire()} and has to be
+ * returned by {@link #release()} after the encoded bytes have been retrieved.
+ * <p>
+ * Instances of this class are not thread safe.
+ *
+ * @author Frank Fock
+ * @version 3.6.0
+ * @since 3.6.0
+ */
+public class BERReverseEncoder {
+
+    /**
+     * The default initial capacity of a new encoder.
+     */
+    public static final int DEFAULT_CAPACITY = 1500;
+    /**
+     * Buffers of pooled encoders that grew larger than this size are discarded on {@link #release()} to not
+     * retain the memory of exceptionally large messages.
+     */
+    public static final int MAX_POOLED_CAPACITY = 65536;
+
+    private static final ThreadLocal<BERReverseEncoder> pool = new ThreadLocal<>();
+
+    private byte[] buffer;
+    private int position;
+    private boolean inUse;
+    private boolean pooled;
+
+    /**
+     * Creates an encoder with the {@link #DEFAULT_CAPACITY}.
+     */
+    public BERReverseEncoder() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an encoder with the specified initial capacity.
+     *
+     * @param initialCapacity
+     *         the initial number of bytes that can be encoded without growing the internal buffer.
+     */
+    public BERReverseEncoder(int initialCapacity) {
+        this.buffer = new byte[Math.max(16, initialCapacity)];
+        this.position = buffer.length;
+    }
+
+    /**
+     * Gets an empty encoder for the current thread. If the pooled encoder of this thread is already in use
+     * (i.e., for a nested encoding), a new non-pooled encoder is returned. In any case, the returned encoder
+     * has to be released by {@link #release()} when it is no longer needed.
+     *
+     * @return an empty {@code BERReverseEncoder}.
+     */
+    public static BERReverseEncoder acquire() {
+        BERReverseEncoder encoder = pool.get();
+        if (encoder == null) {
+            encoder = new BERReverseEncoder();
+            encoder.pooled = true;
+            pool.set(encoder);
+        }
+        else if (encoder.inUse) {
+            encoder = new BERReverseEncoder();
+        }
+        encoder.reset();
+        encoder.inUse = true;
+        return encoder;
+    }
+
+    /**
+     * Encodes the supplied object in a single pass with the pooled encoder of the current thread.
+     *
+     * @param serializable
+     *         the object to encode.
+     *
+     * @return the BER encoding of {@code serializable} in an array of exactly the encoded length.
+     * @throws IOException
+     *         if the object cannot be encoded.
+     */
+    public static byte[] encode(BERSerializable serializable) throws IOException {
+        BERReverseEncoder encoder = acquire();
+        try {
+            serializable.encodeBERReverse(encoder);
+            return encoder.toByteArray();
+        }
+        finally {
+            encoder.release();
+        }
+    }
+
+    /**
+     * Releases an encoder obtained by {@link #acquire()}. After calling this method, the encoder must not be
+     * used by the caller anymore.
+     */
+    public void release() {
+        inUse = false;
+        if (pooled && (buffer.length > MAX_POOLED_CAPACITY)) {
+            buffer = new byte[DEFAULT_CAPACITY];
+        }
+        reset();
+    }
+
+    /**
+     * Discards all encoded bytes.
+     */
+    public void reset() {
+        position = buffer.length;
+    }
+
+    /**
+     * Returns the number of bytes encoded so far. The returned value can be used as mark for
+     * {@link #encodeHeader(int, int)}.
+     *
+     * @return the number of encoded bytes.
+     */
+    public int getLength() {
+        return buffer.length - position;
+    }
+
+    private void ensureCapacity(int length) {
+        if (position < length) {
+            int used = getLength();
+            int newCapacity = Math.max(buffer.length * 2, used + length);
+            byte[] newBuffer = new byte[newCapacity];
+            System.arraycopy(buffer, position, newBuffer, newCapacity - used, used);
+            buffer = newBuffer;
+            position = newCapacity - used;
+        }
+    }
+
+    /**
+     * Prepends a single byte.
+     *
+     * @param b
+     *         the byte to write (only the lower eight bits are used).
+     */
+    public void write(int b) {
+        ensureCapacity(1);
+        buffer[--position] = (byte) b;
+    }
+
+    /**
+     * Prepends a byte array range.
+     *
+     * @param b
+     *         the source array.
+     * @param off
+     *         the offset of the first byte to write.
+     * @param len
+     *         the number of bytes to write.
+     */
+    public void write(byte[] b, int off, int len) {
+        ensureCapacity(len);
+        position -= len;
+        System.arraycopy(b, off, buffer, position, len);
+    }
+
+    /**
+     * Prepends an ASN.1 length in the same format as {@link BER#encodeLength(java.io.OutputStream, int)}.
+     *
+     * @param length
+     *         the length to encode.
+     */
+    public void encodeLength(int length) {
+        if ((length >= 0) && (length < 0x80)) {
+            write(length);
+            return;
+        }
+        int numBytes = (length < 0) ? 4 : BER.getBERLengthOfLength(length) - 1;
+        ensureCapacity(numBytes + 1);
+        for (int i = 0; i < numBytes; i++) {
+            buffer[--position] = (byte) (length >> (8 * i));
+        }
+        buffer[--position] = (byte) (numBytes | BER.ASN_LONG_LEN);
+    }
+
+    /**
+     * Prepends the header of a constructed (or primitive) object whose content has been written since
+     * {@code mark} was obtained from {@link #getLength()}.
+     *
+     * @param type
+     *         the type of the ASN.1 object. Must be &lt; 30, i.e. no extension octets.
+     * @param mark
+     *         the encoded length before the content of this object was written.
+     */
+    public void encodeHeader(int type, int mark) {
+        encodeLength(getLength() - mark);
+        write(type);
+    }
+
+    /**
+     * Prepends a signed integer in the same format as
+     * {@link BER#encodeInteger(java.io.OutputStream, byte, int)}.
+     *
+     * @param type
+     *         the tag type for the integer (typically 0x02).
+     * @param value
+     *         the integer value to encode.
+     */
+    public void encodeInteger(byte type, int value) {
+        int intsize = 4;
+        int mask = 0x1FF << ((8 * 3) - 1);
+        int integer = value;
+        while ((((integer & mask) == 0) || ((integer & mask) == mask)) && intsize > 1) {
+            intsize--;
+            integer <<= 8;
+        }
+        ensureCapacity(intsize + 2);
+        for (int i = 0; i < intsize; i++) {
+            buffer[--position] = (byte) (value >> (8 * i));
+        }
+        buffer[--position] = (byte) intsize;
+        buffer[--position] = type;
+    }
+
+    /**
+     * Prepends an unsigned 32bit integer in the same format as
+     * {@link BER#encodeUnsignedInteger(java.io.OutputStream, byte, long)}.
+     *
+     * @param type
+     *         the tag type for the integer.
+     * @param value
+     *         the unsigned integer value to encode.
+     */
+    public void encodeUnsignedInteger(byte type, long value) {
+        int len = 1;
+        if (((value >> 24) & 0xFF) != 0) {
+            len = 4;
+        }
+        else if (((value >> 16) & 0xFF) != 0) {
+            len = 3;
+        }
+        else if (((value >> 8) & 0xFF) != 0) {
+            len = 2;
+        }
+        int valueLength = len;
+        if (((value >> (8 * (len - 1))) & 0x080) != 0) {
+            len++;
+        }
+        ensureCapacity(len + 2);
+        for (int i = 0; i < valueLength; i++) {
+            buffer[--position] = (byte) (value >> (8 * i));
+        }
+        if (len > valueLength) {
+            buffer[--position] = 0;
+        }
+        buffer[--position] = (byte) len;
+        buffer[--position] = type;
+    }
+
+    /**
+     * Prepends an ASN.1 octet string.
+     *
+     * @param type
+     *         the tag type (typically 0x04).
+     * @param string
+     *         the octet string value.
+     */
+    public void encodeString(byte type, byte[] string) {
+        write(string, 0, string.length);
+        encodeLength(string.length);
+        write(type);
+    }
+
+    /**
+     * Prepends an ASN.1 object identifier in the same format as
+     * {@link BER#encodeOID(java.io.OutputStream, byte, int[])}.
+     *
+     * @param type
+     *         the tag type (typically 0x06).
+     * @param oid
+     *         the sub-identifiers of the object identifier.
+     *
+     * @throws IOException
+     *         if the first sub-identifier is invalid and {@link BER#isCheckFirstSubID012()} is {@code true}.
+     */
+    public void encodeOID(byte type, int[] oid) throws IOException {
+        int mark = getLength();
+        if (oid.length < 2) {
+            write(0);
+        }
+        else {
+            int firstSubID = oid[0];
+            if (BER.isCheckFirstSubID012() && (firstSubID < 0 || firstSubID > 2)) {
+                throw new IOException("Invalid first sub-identifier (must be 0, 1, or 2)");
+            }
+            for (int i = oid.length - 1; i >= 2; i--) {
+                encodeSubID(oid[i]);
+            }
+            encodeSubID(oid[1] + (firstSubID * 40));
+        }
+        encodeHeader(type, mark);
+    }
+
+    private void encodeSubID(int subID) {
+        long subid = subID & 0xFFFFFFFFL;
+        ensureCapacity(5);
+        buffer[--position] = (byte) (subid & 0x7F);
+        subid >>>= 7;
+        while (subid != 0) {
+            buffer[--position] = (byte) ((subid & 0x7F) | BER.ASN_BIT8);
+            subid >>>= 7;
+        }
+    }
+
+    /**
+     * Prepends a {@link BERSerializable} by using its forward {@link BERSerializable#encodeBER(java.io.OutputStream)}
+     * encoding. The {@link BERSerializable#getBERLength()} of the object is used to reserve space in front of the
+     * already encoded bytes. This is the fallback for types that do not provide a dedicated reverse encoding.
+     *
+     * @param serializable
+     *         the object to encode.
+     *
+     * @throws IOException
+     *         if the object cannot be encoded.
+     */
+    public void encodeForward(BERSerializable serializable) throws IOException {
+        int length = serializable.getBERLength();
+        ensureCapacity(length);
+        position -= length;
+        ByteBuffer target = ByteBuffer.wrap(buffer, position, length);
+        serializable.encodeBER(new BEROutputStream(target));
+        if (target.hasRemaining()) {
+            throw new IOException("BER encoding of " + serializable + " is shorter (" + target.position() +
+                    ") than its BER length " + length);
+        }
+    }
+
+    /**
+     * Copies the encoded bytes into an array of exactly the encoded length.
+     *
+     * @return the encoded bytes.
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOfRange(buffer, position, buffer.length);
+    }
+
+    /**
+     * Copies the encoded bytes into a new heap buffer whose backing array has exactly the encoded length.
+     * The returned buffer is positioned at zero with its limit set to the encoded length.
+     *
+     * @return a new {@link ByteBuffer} containing the encoded bytes.
+     */
+    public ByteBuffer toByteBuffer() {
+        return ByteBuffer.wrap(toByteArray());
+    }
+
+    @Override
+    public String toString() {
+        return "BERReverseEncoder[" +
+                "length=" + getLength() +
+                ", capacity=" + buffer.length +
+                ']';
+    }
+}
@@ -66,4 +66,19 @@ public interface BERSerializable /*extends Serializable*/ {
    */
   void encodeBER(OutputStream outputStream) throws IOException;
 
+  /**
+   * Encodes this object back-to-front with the supplied {@link BERReverseEncoder}.
+   * The default implementation reserves {@link #getBERLength()} bytes and uses
+   * {@link #encodeBER(OutputStream)} to fill them. Constructed types should
+   * override this method to avoid computing the length of their members twice.
+   * @param encoder
+   *    the {@code BERReverseEncoder} to prepend the encoding of this object to.
+   * @throws IOException
+   *    if an error occurs while encoding this object.
+   * @since 3.6.0
+   */
+  default void encodeBERReverse(BERReverseEncoder encoder) throws IOException {
+    encoder.encodeForward(this);
+  }
+
 }
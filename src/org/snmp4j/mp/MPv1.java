@@ -34,8 +34,7 @@ import org.snmp4j.asn1.BER.MutableByte;
 import org.snmp4j.security.SecurityModels;
 import org.snmp4j.security.SecurityLevel;
 import org.snmp4j.asn1.BEROutputStream;
-
-import java.nio.ByteBuffer;
+import org.snmp4j.asn1.BERReverseEncoder;
 
 import org.snmp4j.util.PDUFactory;
 
@@ -111,22 +110,19 @@ public class MPv1 implements MessageProcessingModel {
 
         OctetString community = new OctetString(securityName);
         Integer32 version = new Integer32(messageProcessingModel);
-        // compute total length
-        int length = pdu.getBERLength();
-        length += community.getBERLength();
-        length += version.getBERLength();
-
-        ByteBuffer buf = ByteBuffer.allocate(length +
-                BER.getBERLengthOfLength(length) + 1);
-        // set the buffer of the outgoing message
-        outgoingMessage.setBuffer(buf);
-
-        // encode the message
-        BER.encodeHeader(outgoingMessage, BER.SEQUENCE, length);
-        version.encodeBER(outgoingMessage);
-
-        community.encodeBER(outgoingMessage);
-        pdu.encodeBER(outgoingMessage);
+        // encode the message back-to-front in a single pass
+        BERReverseEncoder encoder = BERReverseEncoder.acquire();
+        try {
+            pdu.encodeBERReverse(encoder);
+            community.encodeBERReverse(encoder);
+            version.encodeBERReverse(encoder);
+            encoder.encodeHeader(BER.SEQUENCE, 0);
+            // set the buffer of the outgoing message
+            outgoingMessage.setFilledBuffer(encoder.toByteBuffer());
+        }
+        finally {
+            encoder.release();
+        }
 
         return SnmpConstants.SNMP_MP_OK;
     }
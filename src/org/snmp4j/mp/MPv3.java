@@ -765,6 +765,16 @@ public class MPv3
             msgFlags.encodeBER(outputStream);
             securityModel.encodeBER(outputStream);
         }
+
+        @Override
+        public void encodeBERReverse(BERReverseEncoder encoder) throws IOException {
+            int mark = encoder.getLength();
+            securityModel.encodeBERReverse(encoder);
+            msgFlags.encodeBERReverse(encoder);
+            msgMaxSize.encodeBERReverse(encoder);
+            msgID.encodeBERReverse(encoder);
+            encoder.encodeHeader(BER.SEQUENCE, mark);
+        }
     }
 
     /**
@@ -877,11 +887,8 @@ public class MPv3
             }
         }
 
-        // get length of scoped PDU
-        int scopedPDULength = scopedPDU.getBERLength();
-        BEROutputStream scopedPdu = new BEROutputStream(ByteBuffer.allocate(scopedPDULength));
-
-        scopedPDU.encodeBER(scopedPdu);
+        // encode scoped PDU in a single pass
+        byte[] scopedPdu = BERReverseEncoder.encode(scopedPDU);
 
         HeaderData headerData = new HeaderData();
         int flags = initHeaderDataFromSecurityLevel(securityLevel);
@@ -897,17 +904,15 @@ public class MPv3
         headerData.setMsgMaxSize(maxMessageSize);
         headerData.setSecurityModel(securityModel);
 
-        ByteBuffer globalDataBuffer = ByteBuffer.allocate(headerData.getBERLength());
-        BEROutputStream globalDataOutputStream = new BEROutputStream(globalDataBuffer);
-        headerData.encodeBER(globalDataOutputStream);
+        byte[] globalData = BERReverseEncoder.encode(headerData);
 
-        BERInputStream scopedPDUInput = new BERInputStream(scopedPdu.rewind());
+        BERInputStream scopedPDUInput = new BERInputStream(ByteBuffer.wrap(scopedPdu));
 
         // output data
         SecurityParameters securityParameters = secModel.newSecurityParametersInstance();
         SecurityStateReference securityStateReference = secModel.newSecurityStateReference();
         int status = secModel.generateRequestMessage(messageProcessingModel,
-                        globalDataBuffer.array(),
+                        globalData,
                         maxMessageSize,
                         securityModel,
                         secEngineID,
@@ -972,23 +977,16 @@ public class MPv3
             return SnmpConstants.SNMP_MP_UNKNOWN_MSGID;
         }
 
-        // get length of scoped PDU
-        // get length of scoped PDU
-        int scopedPDULength = pdu.getBERLength();
-        BEROutputStream scopedPDU;
+        // encode scoped PDU in a single pass
+        byte[] scopedPDU = BERReverseEncoder.encode(pdu);
         // check length
-        if (scopedPDULength > maxSizeResponseScopedPDU) {
+        if (scopedPDU.length > maxSizeResponseScopedPDU) {
             PDU tooBigPDU = new ScopedPDU((ScopedPDU) pdu);
             tooBigPDU.clear();
             tooBigPDU.setRequestID(pdu.getRequestID());
             tooBigPDU.setErrorStatus(SnmpConstants.SNMP_ERROR_TOO_BIG);
             tooBigPDU.setErrorIndex(0);
-            scopedPDULength = tooBigPDU.getBERLength();
-            scopedPDU = new BEROutputStream(ByteBuffer.allocate(scopedPDULength));
-            tooBigPDU.encodeBER(scopedPDU);
-        } else {
-            scopedPDU = new BEROutputStream(ByteBuffer.allocate(scopedPDULength));
-            pdu.encodeBER(scopedPDU);
+            scopedPDU = BERReverseEncoder.encode(tooBigPDU);
         }
 
         HeaderData headerData = new HeaderData();
@@ -999,9 +997,7 @@ public class MPv3
         headerData.setMsgMaxSize(maxMessageSize);
         headerData.setSecurityModel(securityModel);
 
-        ByteBuffer globalDataBuffer = ByteBuffer.allocate(headerData.getBERLength());
-        BEROutputStream globalDataOutputStream = new BEROutputStream(globalDataBuffer);
-        headerData.encodeBER(globalDataOutputStream);
+        byte[] globalData = BERReverseEncoder.encode(headerData);
 
         OctetString securityEngineID;
         switch (pdu.getType()) {
@@ -1015,14 +1011,14 @@ public class MPv3
                 securityEngineID = new OctetString(cacheEntry.getSecurityEngineID());
         }
 
-        BERInputStream scopedPDUInput = new BERInputStream(scopedPDU.rewind());
+        BERInputStream scopedPDUInput = new BERInputStream(ByteBuffer.wrap(scopedPDU));
 
         SecurityModel secModel = securityModels.getSecurityModel(new Integer32(securityModel));
         // output data
         SecurityParameters securityParameters = secModel.newSecurityParametersInstance();
 
         return secModel.generateResponseMessage(getID(),
-                globalDataBuffer.array(),
+                globalData,
                 maxMessageSize,
                 securityModel,
                 securityEngineID.getValue(),
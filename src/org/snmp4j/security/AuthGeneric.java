@@ -24,8 +24,16 @@ import org.snmp4j.log.LogAdapter;
 import org.snmp4j.log.LogFactory;
 import org.snmp4j.smi.OctetString;
 
-import java.nio.ByteBuffer;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * The abstract class AuthGeneric implements common operations for SNMP authentication protocols, such as MD5 and SHA.
@@ -46,10 +54,20 @@ public abstract class AuthGeneric implements AuthenticationProtocol {
     public static int HMAC_BLOCK_SIZE = 64;
     private static int DEFAULT_AUTHENTICATION_CODE_LENGTH = 12;
 
+    /**
+     * The default maximum number of non-localized keys (Ku) cached by {@link #passwordToKey(OctetString, byte[])}.
+     */
+    public static final int DEFAULT_KU_CACHE_SIZE = 1024;
+
+    private static volatile int kuCacheSize = DEFAULT_KU_CACHE_SIZE;
+    private static final Map<KuCacheKey, KuCacheEntry> KU_CACHE = new LinkedHashMap<>(64, 0.75f, true);
+
     protected int hmacBlockSize;
     private int authenticationCodeLength;
     private final int digestLength;
     private final String protoName;
+    private transient volatile MacPool macPool;
+    private transient volatile boolean macUnsupported;
 
     /**
      * Creates an authentication protocol with the specified name (ID) and digest length and using the {@link
@@ -158,11 +176,70 @@ public abstract class AuthGeneric implements AuthenticationProtocol {
         }
     }
 
+    /**
+     * Computes the HMAC of the message and stores the first {@link #getAuthenticationCodeLength()} octets in the
+     * digest window. If the JCE provides an HMAC implementation for the digest algorithm, a pooled {@link Mac}
+     * instance already initialized with the authentication key is reused, so that the padded inner and outer key
+     * states are not computed for each message. Otherwise, the HMAC is computed with a new {@link MessageDigest}.
+     *
+     * @param authenticationKey
+     *         the (localized) authentication key.
+     * @param message
+     *         the message to authenticate.
+     * @param messageOffset
+     *         the offset of the message.
+     * @param messageLength
+     *         the length of the message.
+     * @param digest
+     *         the window of the message receiving the authentication code.
+     *
+     * @return {@code true} if the authentication code has been computed.
+     */
     public boolean authenticate(byte[] authenticationKey,
                                 byte[] message,
                                 int messageOffset,
                                 int messageLength,
                                 ByteArrayWindow digest) {
+        MacPool pool = getMacPool();
+        if ((pool == null) || (authenticationKey.length == 0)) {
+            return authenticateWithDigest(authenticationKey, message, messageOffset, messageLength, digest);
+        }
+        PooledMac pooledMac = null;
+        try {
+            pooledMac = pool.borrow(authenticationKey);
+            authenticateWithMac(pooledMac, message, messageOffset, messageLength, digest);
+        } catch (GeneralSecurityException gsex) {
+            logger.warn(protoName + " HMAC computation failed, using message digest instead: " + gsex.getMessage());
+            pool.discard(pooledMac);
+            return authenticateWithDigest(authenticationKey, message, messageOffset, messageLength, digest);
+        }
+        pool.release(pooledMac);
+        return true;
+    }
+
+    private void authenticateWithMac(PooledMac pooledMac,
+                                     byte[] message,
+                                     int messageOffset,
+                                     int messageLength,
+                                     ByteArrayWindow digest) throws GeneralSecurityException {
+        // clear the bytes for the digest
+        for (int i = 0; i < authenticationCodeLength; ++i) {
+            digest.set(i, (byte) 0);
+        }
+        byte[] result = pooledMac.result;
+        pooledMac.mac.update(message, messageOffset, messageLength);
+        pooledMac.mac.doFinal(result, 0);
+        // copy the digest into the message (authenticationCodeLength bytes only!)
+        for (int i = 0; i < authenticationCodeLength; ++i) {
+            digest.set(i, result[i]);
+        }
+    }
+
+    private boolean authenticateWithDigest(byte[] authenticationKey,
+                                           byte[] message,
+                                           int messageOffset,
+                                           int messageLength,
+                                           ByteArrayWindow digest) {
         MessageDigest md = getDigestObject();
 
         byte[] authKey = authenticationKey;
@@ -221,6 +298,43 @@ public abstract class AuthGeneric implements AuthenticationProtocol {
                                int messageOffset,
                                int messageLength,
                                ByteArrayWindow digest) {
+        MacPool pool = getMacPool();
+        if ((pool == null) || (authenticationKey.length == 0)) {
+            return isAuthenticWithDigest(authenticationKey, message, messageOffset, messageLength, digest);
+        }
+        PooledMac pooledMac;
+        try {
+            pooledMac = pool.borrow(authenticationKey);
+        } catch (GeneralSecurityException gsex) {
+            logger.warn(protoName + " HMAC computation failed, using message digest instead: " + gsex.getMessage());
+            return isAuthenticWithDigest(authenticationKey, message, messageOffset, messageLength, digest);
+        }
+        // copy digest from message
+        byte[] origDigest = pooledMac.received;
+        System.arraycopy(digest.getValue(), digest.getOffset(), origDigest, 0, authenticationCodeLength);
+        try {
+            // recalculate the digest
+            authenticateWithMac(pooledMac, message, messageOffset, messageLength, digest);
+        } catch (GeneralSecurityException gsex) {
+            logger.warn(protoName + " HMAC computation failed, using message digest instead: " + gsex.getMessage());
+            pool.discard(pooledMac);
+            System.arraycopy(origDigest, 0, digest.getValue(), digest.getOffset(), authenticationCodeLength);
+            return isAuthenticWithDigest(authenticationKey, message, messageOffset, messageLength, digest);
+        }
+        // compare in constant time to not leak the number of matching octets
+        int diff = 0;
+        for (int i = 0; i < authenticationCodeLength; i++) {
+            diff |= digest.get(i) ^ origDigest[i];
+        }
+        pool.release(pooledMac);
+        return diff == 0;
+    }
+
+    private boolean isAuthenticWithDigest(byte[] authenticationKey,
+                                          byte[] message,
+                                          int messageOffset,
+                                          int messageLength,
+                                          ByteArrayWindow digest) {
         // copy digest from message
         ByteArrayWindow origDigest =
                 new ByteArrayWindow(new byte[authenticationCodeLength], 0, authenticationCodeLength);
@@ -228,13 +342,74 @@ public abstract class AuthGeneric implements AuthenticationProtocol {
                 origDigest.getValue(), 0, authenticationCodeLength);
 
         // use the authenticate() method to recalculate the digest
-        if (!authenticate(authenticationKey, message, messageOffset,
+        if (!authenticateWithDigest(authenticationKey, message, messageOffset,
                 messageLength, digest)) {
             return false;
         }
         return digest.equals(origDigest, authenticationCodeLength);
     }
 
+    /**
+     * Gets the HMAC pool of this protocol.
+     *
+     * @return the {@code MacPool} or {@code null} if the JCE does not support an HMAC for the digest algorithm and
+     * block size of this protocol.
+     */
+    private MacPool getMacPool() {
+        if (macUnsupported) {
+            return null;
+        }
+        MacPool macPool = this.macPool;
+        if (macPool == null) {
+            String algorithm = getHmacAlgorithm();
+            int macLength;
+            try {
+                if (algorithm == null) {
+                    throw new NoSuchAlgorithmException("No standard HMAC for " + protoName +
+                            " with block size " + hmacBlockSize);
+                }
+                macLength = Mac.getInstance(algorithm).getMacLength();
+            } catch (NoSuchAlgorithmException nsaex) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Using message digest for HMAC: " + nsaex.getMessage());
+                }
+                macUnsupported = true;
+                return null;
+            }
+            if (macLength < authenticationCodeLength) {
+                macUnsupported = true;
+                return null;
+            }
+            macPool = new MacPool(algorithm, macLength, authenticationCodeLength);
+            this.macPool = macPool;
+        }
+        return macPool;
+    }
+
+    private String getHmacAlgorithm() {
+        String name = protoName.replace("-", "").toUpperCase();
+        int standardBlockSize;
+        switch (name) {
+            case "MD5":
+            case "SHA1":
+            case "SHA":
+            case "SHA224":
+            case "SHA256":
+                standardBlockSize = 64;
+                break;
+            case "SHA384":
+            case "SHA512":
+                standardBlockSize = 128;
+                break;
+            default:
+                return null;
+        }
+        if (standardBlockSize != hmacBlockSize) {
+            return null;
+        }
+        return "Hmac" + ("SHA".equals(name) ? "SHA1" : name);
+    }
+
     public byte[] changeDelta(byte[] oldKey,
                               byte[] newKey,
                               byte[] random) {
@@ -286,47 +461,197 @@ public abstract class AuthGeneric implements AuthenticationProtocol {
     }
 
     public byte[] passwordToKey(OctetString passwordString, byte[] engineID) {
+        byte[] ku = getCachedKu(passwordString);
+        return localizeKey(ku, engineID);
+    }
 
-        MessageDigest md = getDigestObject();
+    /**
+     * Generates the localized key for the given pass phrase and engine ID without using the Ku cache. The key
+     * extension algorithms of privacy protocols hash engine specific localized keys as pass phrases. Their Ku
+     * values are never reused and must not evict the cached Ku values of user pass phrases.
+     *
+     * @param authProtocol
+     *         the authentication protocol to use.
+     * @param passwordString
+     *         the pass phrase.
+     * @param engineID
+     *         the engine ID of the authoritative engine.
+     *
+     * @return the localized key.
+     * @since 3.6.0
+     */
+    public static byte[] passwordToKeyUncached(AuthenticationProtocol authProtocol, OctetString passwordString,
+                                               byte[] engineID) {
+        if (authProtocol instanceof AuthGeneric) {
+            AuthGeneric authGeneric = (AuthGeneric) authProtocol;
+            return authGeneric.localizeKey(authGeneric.passwordToKu(passwordString), engineID);
+        }
+        return authProtocol.passwordToKey(passwordString, engineID);
+    }
 
-        byte[] digest;
-        ByteBuffer buf = ByteBuffer.allocate(HMAC_BUFFER_SIZE);
-        int password_index = 0;
-        int count = 0;
+    /**
+     * Computes the non-localized key Ku from a pass phrase as defined by RFC 3414 section A.2. This is the
+     * expensive part of the key generation, because it hashes one megabyte of the repeated pass phrase. Instead of
+     * allocating the whole megabyte, a buffer holding the pass phrase repeated {@code hmacBlockSize} times is hashed
+     * repeatedly.
+     *
+     * @param passwordString
+     *         the authentication or privacy pass phrase.
+     *
+     * @return the non-localized key Ku.
+     * @since 3.6.0
+     */
+    public byte[] passwordToKu(OctetString passwordString) {
+        MessageDigest md = getDigestObject();
         byte[] password = passwordString.getValue();
-
+        if (password.length == 0) {
+            throw new IllegalArgumentException("Pass phrase must not be empty");
+        }
+        // the pattern repeats after password.length blocks, so each chunk starts with the first password octet
+        byte[] chunk = new byte[hmacBlockSize * password.length];
+        for (int i = 0; i < chunk.length; i++) {
+            chunk[i] = password[i % password.length];
+        }
+        int total = ((HMAC_BUFFER_SIZE + hmacBlockSize - 1) / hmacBlockSize) * hmacBlockSize;
+        int count = 0;
         /* Use while loop until we've done 1 Megabyte */
-        while (count < HMAC_BUFFER_SIZE) {
-            for (int i = 0; i < hmacBlockSize; ++i) {
-                /* Take the next octet of the password, wrapping */
-                /* to the beginning of the password as necessary.*/
-                buf.put(password[password_index++ % password.length]);
-            }
-            count += hmacBlockSize;
+        while (count < total) {
+            int length = Math.min(chunk.length, total - count);
+            md.update(chunk, 0, length);
+            count += length;
         }
-        buf.flip();
-        md.update(buf);
-        digest = md.digest();
+        byte[] digest = md.digest();
         if (logger.isDebugEnabled()) {
             logger.debug(protoName + "First digest: " + new OctetString(digest).toHexString());
         }
+        return digest;
+    }
 
+    /**
+     * Localizes a non-localized key Ku with the supplied engine ID by computing {@code H(Ku | engineID | Ku)}.
+     *
+     * @param ku
+     *         a non-localized key as returned by {@link #passwordToKu(OctetString)}.
+     * @param engineID
+     *         the engine ID of the authoritative engine.
+     *
+     * @return the localized key.
+     * @since 3.6.0
+     */
+    public byte[] localizeKey(byte[] ku, byte[] engineID) {
         /*****************************************************/
         /* Now localize the key with the engine_id and pass  */
         /* through MD to produce final key                   */
         /*****************************************************/
-        md.reset();
-        md.update(digest);
+        MessageDigest md = getDigestObject();
+        md.update(ku);
         md.update(engineID);
-        md.update(digest);
-        digest = md.digest();
+        md.update(ku);
+        byte[] digest = md.digest();
         if (logger.isDebugEnabled()) {
             logger.debug(protoName + "localized key: " + new OctetString(digest).toHexString());
         }
-
         return digest;
     }
 
+    /**
+     * Gets the non-localized key Ku for a pass phrase from the Ku cache or computes and caches it.
+     * The cache is shared by all authentication protocols and keyed by the protocol and a SHA-256 hash of the
+     * pass phrase, so the pass phrases themselves are not retained.
+     *
+     * @param passwordString
+     *         the authentication or privacy pass phrase.
+     *
+     * @return the non-localized key Ku. The returned array must not be modified.
+     */
+    private byte[] getCachedKu(OctetString passwordString) {
+        int maxSize = kuCacheSize;
+        if (maxSize <= 0) {
+            return passwordToKu(passwordString);
+        }
+        KuCacheKey key = new KuCacheKey(this, passwordString.getValue());
+        KuCacheEntry entry;
+        synchronized (KU_CACHE) {
+            entry = KU_CACHE.get(key);
+            if (entry == null) {
+                entry = new KuCacheEntry();
+                KU_CACHE.put(key, entry);
+                while (KU_CACHE.size() > maxSize) {
+                    Iterator<KuCacheKey> eldest = KU_CACHE.keySet().iterator();
+                    eldest.next();
+                    eldest.remove();
+                }
+            }
+        }
+        // computing the Ku outside the cache lock lets different pass phrases be processed in parallel
+        synchronized (entry) {
+            if (entry.ku == null) {
+                entry.ku = passwordToKu(passwordString);
+            }
+            return entry.ku;
+        }
+    }
+
+    /**
+     * Sets the maximum number of non-localized keys (Ku) cached by all {@code AuthGeneric} instances. With the
+     * cache, {@link #passwordToKey(OctetString, byte[])} hashes the one megabyte pass phrase stream only once per
+     * pass phrase and protocol and not once per localization engine ID. A Ku is equivalent to the pass phrase for
+     * any engine, so a size of zero disables the cache for environments where this is not acceptable.
+     *
+     * @param maxSize
+     *         the maximum number of cached keys, default is {@link #DEFAULT_KU_CACHE_SIZE}.
+     *
+     * @since 3.6.0
+     */
+    public static void setKuCacheSize(int maxSize) {
+        kuCacheSize = maxSize;
+        synchronized (KU_CACHE) {
+            if (maxSize <= 0) {
+                KU_CACHE.clear();
+            }
+            else {
+                while (KU_CACHE.size() > maxSize) {
+                    Iterator<KuCacheKey> eldest = KU_CACHE.keySet().iterator();
+                    eldest.next();
+                    eldest.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the maximum number of cached non-localized keys.
+     *
+     * @return the maximum Ku cache size.
+     * @since 3.6.0
+     */
+    public static int getKuCacheSize() {
+        return kuCacheSize;
+    }
+
+    /**
+     * Gets the number of non-localized keys currently held in the Ku cache.
+     *
+     * @return the number of cached keys.
+     * @since 3.6.0
+     */
+    public static int getCachedKuCount() {
+        synchronized (KU_CACHE) {
+            return KU_CACHE.size();
+        }
+    }
+
+    /**
+     * Removes all non-localized keys from the Ku cache.
+     *
+     * @since 3.6.0
+     */
+    public static void clearKuCache() {
+        synchronized (KU_CACHE) {
+            KU_CACHE.clear();
+        }
+    }
+
     public byte[] hash(byte[] data) {
         MessageDigest md = getDigestObject();
         md.update(data);
@@ -339,4 +664,173 @@ public abstract class AuthGeneric implements AuthenticationProtocol {
         return md.digest();
     }
 
+    private static final class KuCacheKey {
+
+        private final Class<?> protocolClass;
+        private final String protoName;
+        private final int hmacBlockSize;
+        private final byte[] passwordHash;
+        private final int hashCode;
+
+        private KuCacheKey(AuthGeneric protocol, byte[] password) {
+            this.protocolClass = protocol.getClass();
+            this.protoName = protocol.protoName;
+            this.hmacBlockSize = protocol.hmacBlockSize;
+            try {
+                this.passwordHash = MessageDigest.getInstance("SHA-256").digest(password);
+            } catch (NoSuchAlgorithmException e) {
+                throw new InternalError("SHA-256 not supported by the security provider");
+            }
+            this.hashCode = Arrays.hashCode(passwordHash) ^ protoName.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof KuCacheKey)) {
+                return false;
+            }
+            KuCacheKey other = (KuCacheKey) o;
+            return (protocolClass == other.protocolClass) && (hmacBlockSize == other.hmacBlockSize) &&
+                    protoName.equals(other.protoName) && Arrays.equals(passwordHash, other.passwordHash);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private static final class KuCacheEntry {
+        private byte[] ku;
+    }
+
+    /**
+     * The {@code MacPool} holds idle {@link Mac} instances that have been initialized with an authentication key,
+     * so that threads (including virtual threads that run a single task only) can share them. The pool is bounded
+     * by the number of keys and by the number of idle instances per key. When a key is evicted or an instance is
+     * discarded, the copies of the key octets held by the pool are cleared.
+     */
+    private static final class MacPool {
+
+        private static final int MAX_KEYS = 128;
+
+        private final String algorithm;
+        private final int macLength;
+        private final int authenticationCodeLength;
+        private final int maxIdlePerKey = Runtime.getRuntime().availableProcessors();
+        private final Map<MacKey, ArrayDeque<PooledMac>> idleMacs =
+                new LinkedHashMap<MacKey, ArrayDeque<PooledMac>>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<MacKey, ArrayDeque<PooledMac>> eldest) {
+                        if (size() > MAX_KEYS) {
+                            Arrays.fill(eldest.getKey().key, (byte) 0);
+                            for (PooledMac pooledMac : eldest.getValue()) {
+                                pooledMac.clear();
+                            }
+                            return true;
+                        }
+                        return false;
+                    }
+                };
+
+        private MacPool(String algorithm, int macLength, int authenticationCodeLength) {
+            this.algorithm = algorithm;
+            this.macLength = macLength;
+            this.authenticationCodeLength = authenticationCodeLength;
+        }
+
+        /**
+         * Gets an idle {@link Mac} initialized with the supplied key or creates a new one. The returned instance
+         * must be returned by {@link #release(PooledMac)} or {@link #discard(PooledMac)}.
+         *
+         * @param key
+         *         the authentication key.
+         *
+         * @return a {@code PooledMac} initialized with {@code key}.
+         * @throws GeneralSecurityException
+         *         if the HMAC cannot be created or initialized.
+         */
+        private PooledMac borrow(byte[] key) throws GeneralSecurityException {
+            synchronized (idleMacs) {
+                ArrayDeque<PooledMac> macs = idleMacs.get(new MacKey(key));
+                if ((macs != null) && (!macs.isEmpty())) {
+                    return macs.pollLast();
+                }
+            }
+            Mac mac = Mac.getInstance(algorithm);
+            mac.init(new SecretKeySpec(key, algorithm));
+            return new PooledMac(mac, key.clone(), macLength, authenticationCodeLength);
+        }
+
+        private void release(PooledMac pooledMac) {
+            synchronized (idleMacs) {
+                ArrayDeque<PooledMac> macs = idleMacs.get(new MacKey(pooledMac.key));
+                if (macs == null) {
+                    macs = new ArrayDeque<>(maxIdlePerKey);
+                    idleMacs.put(new MacKey(pooledMac.key.clone()), macs);
+                }
+                if (macs.size() < maxIdlePerKey) {
+                    macs.addLast(pooledMac);
+                    return;
+                }
+            }
+            pooledMac.clear();
+        }
+
+        private void discard(PooledMac pooledMac) {
+            if (pooledMac != null) {
+                pooledMac.clear();
+            }
+        }
+    }
+
+    /**
+     * An initialized {@link Mac} with a copy of its key and scratch buffers for the computed and received
+     * authentication codes.
+     */
+    private static final class PooledMac {
+
+        private final Mac mac;
+        private final byte[] key;
+        private final byte[] result;
+        private final byte[] received;
+
+        private PooledMac(Mac mac, byte[] key, int macLength, int authenticationCodeLength) {
+            this.mac = mac;
+            this.key = key;
+            this.result = new byte[macLength];
+            this.received = new byte[authenticationCodeLength];
+        }
+
+        private void clear() {
+            Arrays.fill(key, (byte) 0);
+            Arrays.fill(result, (byte) 0);
+            Arrays.fill(received, (byte) 0);
+        }
+    }
+
+    private static final class MacKey {
+
+        private final byte[] key;
+        private final int hashCode;
+
+        private MacKey(byte[] key) {
+            this.key = key;
+            this.hashCode = Arrays.hashCode(key);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return (o instanceof MacKey) && Arrays.equals(key, ((MacKey) o).key);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
 }
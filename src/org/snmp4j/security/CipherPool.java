@@ -21,24 +21,38 @@
 package org.snmp4j.security;
 
 import javax.crypto.Cipher;
-import javax.crypto.NoSuchPaddingException;
-import java.security.NoSuchAlgorithmException;
-import java.util.LinkedList;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.spec.AlgorithmParameterSpec;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The CipherPool class provides service to share and reuse Cipher instances, across
  * different threads. The maximum number of Ciphers in the pool might temporarily
  * exceed the {@link #maxPoolSize} to minimize waiting time.
+ * <p>
+ * Since version 3.6.0, the pool is lock-free and additionally provides thread-affine ciphers through
+ * {@link #initCipher(String, String, byte[], int, int, AlgorithmParameterSpec)}: each thread keeps the ciphers
+ * and {@link SecretKeySpec}s of the keys it used most recently. Re-initializing such a cipher with the same key
+ * spec and a new IV allows the JCE provider to skip the key schedule computation if it caches it (as the AES
+ * implementation of the JDK does), and neither the cipher nor the key spec has to be created again.
  *
  * @author Frank Fock
+ * @version 3.6.0
  * @since 2.2.2
  */
 public class CipherPool {
 
-  private LinkedList<Cipher> availableCiphers;
+  private static final int MAX_THREAD_KEYS = 8;
+
+  private final Queue<Cipher> availableCiphers = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger currentPoolSize = new AtomicInteger();
+  private final ThreadLocal<KeyedCiphers> threadCiphers = ThreadLocal.withInitial(KeyedCiphers::new);
 
   private int maxPoolSize;
-  private int currentPoolSize;
 
 
   /**
@@ -54,12 +68,10 @@ public class CipherPool {
    *   the maximum number of ciphers in the pool.
    */
   public CipherPool(int maxPoolSize) {
-    this.currentPoolSize = 0;
     if (maxPoolSize < 0) {
       throw new IllegalArgumentException("Pool size must be >= 0");
     }
     this.maxPoolSize = maxPoolSize;
-    this.availableCiphers = new LinkedList<Cipher>();
   }
 
   public int getMaxPoolSize() {
@@ -74,26 +86,117 @@ public class CipherPool {
    *    a Cipher from the pool, or {@code null} if the pool currently does not contain any
    *    cipher.
    */
-  public synchronized Cipher reuseCipher() {
+  public Cipher reuseCipher() {
     Cipher cipher = availableCiphers.poll();
-    if (cipher == null) {
-      currentPoolSize = 0;
-    }
-    else {
-      currentPoolSize--;
+    if (cipher != null) {
+      currentPoolSize.decrementAndGet();
     }
     return cipher;
   }
 
   /**
-   * Offers a Cipher to the pool (thus returns it to the pool).
+   * Offers a Cipher to the pool (thus returns it to the pool). Ciphers returned by
+   * {@link #initCipher(String, String, byte[], int, int, AlgorithmParameterSpec)} stay with the calling thread
+   * and are ignored.
    * @param cipher
    *    a Cipher instance previously acquired by {@link #reuseCipher()} or created externally.
    */
-  public synchronized void offerCipher(Cipher cipher) {
-    if (currentPoolSize < maxPoolSize) {
-      currentPoolSize++;
+  public void offerCipher(Cipher cipher) {
+    if (threadCiphers.get().contains(cipher)) {
+      return;
+    }
+    if (currentPoolSize.incrementAndGet() <= maxPoolSize) {
       availableCiphers.offer(cipher);
     }
+    else {
+      currentPoolSize.decrementAndGet();
+    }
+  }
+
+  /**
+   * Gets a cipher bound to the calling thread and initializes it with the supplied key and parameters. If the
+   * thread used the same key before, the cipher and key spec of that call are reused. The returned cipher must only
+   * be used by the calling thread and only until its next call of this method. It must not be offered to the pool.
+   *
+   * @param transformation
+   *    the cipher transformation, for example {@code AES/CFB/NoPadding}.
+   * @param keyAlgorithm
+   *    the secret key algorithm, for example {@code AES}.
+   * @param key
+   *    an array whose first {@code keyLength} octets are the (localized) key.
+   * @param keyLength
+   *    the length of the key in octets.
+   * @param opmode
+   *    the operation mode, i.e. {@link Cipher#ENCRYPT_MODE} or {@link Cipher#DECRYPT_MODE}.
+   * @param params
+   *    the algorithm parameters, typically an {@link javax.crypto.spec.IvParameterSpec}.
+   * @return
+   *    an initialized cipher.
+   * @throws GeneralSecurityException
+   *    if the transformation is not supported, or the key or parameters are invalid.
+   * @since 3.6.0
+   */
+  public Cipher initCipher(String transformation, String keyAlgorithm, byte[] key, int keyLength, int opmode,
+                           AlgorithmParameterSpec params) throws GeneralSecurityException {
+    KeyedCiphers keyedCiphers = threadCiphers.get();
+    int slot = keyedCiphers.indexOf(transformation, key, keyLength);
+    if (slot < 0) {
+      slot = keyedCiphers.next;
+      keyedCiphers.next = (slot + 1) % MAX_THREAD_KEYS;
+      Cipher cipher = keyedCiphers.ciphers[slot];
+      if ((cipher == null) || !transformation.equals(keyedCiphers.transformations[slot])) {
+        cipher = reuseCipher();
+        if ((cipher == null) || !transformation.equals(cipher.getAlgorithm())) {
+          cipher = Cipher.getInstance(transformation);
+        }
+      }
+      keyedCiphers.keySpecs[slot] = null;
+      keyedCiphers.ciphers[slot] = cipher;
+      keyedCiphers.transformations[slot] = transformation;
+      keyedCiphers.keySpecs[slot] = new SecretKeySpec(key, 0, keyLength, keyAlgorithm);
+      keyedCiphers.keys[slot] = Arrays.copyOf(key, keyLength);
+    }
+    Cipher cipher = keyedCiphers.ciphers[slot];
+    try {
+      cipher.init(opmode, keyedCiphers.keySpecs[slot], params);
+    }
+    catch (GeneralSecurityException | RuntimeException ex) {
+      keyedCiphers.keySpecs[slot] = null;
+      throw ex;
+    }
+    return cipher;
+  }
+
+  /**
+   * The ciphers and key specs of a thread for its most recently used keys.
+   */
+  private static final class KeyedCiphers {
+
+    private final Cipher[] ciphers = new Cipher[MAX_THREAD_KEYS];
+    private final String[] transformations = new String[MAX_THREAD_KEYS];
+    private final SecretKeySpec[] keySpecs = new SecretKeySpec[MAX_THREAD_KEYS];
+    // copies of the key spec octets, because SecretKeySpec.getEncoded() creates a copy on each call
+    private final byte[][] keys = new byte[MAX_THREAD_KEYS][];
+    private int next;
+
+    private int indexOf(String transformation, byte[] key, int keyLength) {
+      for (int i = 0; i < MAX_THREAD_KEYS; i++) {
+        byte[] cachedKey = keys[i];
+        if ((cachedKey != null) && (keySpecs[i] != null) && transformation.equals(transformations[i]) &&
+            Arrays.equals(cachedKey, 0, cachedKey.length, key, 0, keyLength)) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    private boolean contains(Cipher cipher) {
+      for (Cipher c : ciphers) {
+        if (c == cipher) {
+          return true;
+        }
+      }
+      return false;
+    }
   }
 }
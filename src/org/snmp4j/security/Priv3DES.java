@@ -119,7 +119,6 @@ public class Priv3DES extends PrivacyGeneric {
       // now do CBC encryption of the plaintext
       Cipher alg = doInit(encryptionKey, iv);
       encryptedData = doFinalWithPadding(unencryptedData, offset, length, alg);
-      cipherPool.offerCipher(alg);
     }
     catch (Exception e) {
       logger.error(e);
@@ -207,7 +206,7 @@ public class Priv3DES extends PrivacyGeneric {
     byte[] key = new byte[getMinKeyLength()];
     System.arraycopy(shortKey, 0, key, 0, shortKey.length);
     while (length < getMinKeyLength()) {
-      key = authProtocol.passwordToKey(new OctetString(key, 0, length), engineID);
+      key = AuthGeneric.passwordToKeyUncached(authProtocol, new OctetString(key, 0, length), engineID);
       int copyBytes = Math.min(getMinKeyLength() - length,
                                authProtocol.getDigestLength());
       System.arraycopy(key, 0, extendedKey, length, copyBytes);
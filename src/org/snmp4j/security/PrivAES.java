@@ -105,7 +105,6 @@ public abstract class PrivAES extends PrivacyGeneric
         try {
             Cipher alg = doInit(encryptionKey, initVect);
             encryptedData = alg.doFinal(unencryptedData, offset, length);
-            cipherPool.offerCipher(alg);
 
             if (logger.isDebugEnabled()) {
                 logger.debug("aes encrypt: Data to encrypt " + asHex(unencryptedData));
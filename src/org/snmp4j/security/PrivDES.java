@@ -114,7 +114,6 @@ public class PrivDES extends PrivacyGeneric {
             // now do CBC encryption of the plaintext
             Cipher alg = doInit(encryptionKey, iv);
             encryptedData = doFinalWithPadding(unencryptedData, offset, length, alg);
-            cipherPool.offerCipher(alg);
         } catch (Exception e) {
             logger.error(e);
             if (logger.isDebugEnabled()) {
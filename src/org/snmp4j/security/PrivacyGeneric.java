@@ -25,6 +25,7 @@ import org.snmp4j.log.LogFactory;
 import javax.crypto.*;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
@@ -48,17 +49,34 @@ public abstract class PrivacyGeneric implements PrivacyProtocol {
     protected int initVectorLength;
 
 
+    /**
+     * Initializes a cipher for encryption. The returned cipher is bound to the calling thread and the key, so it
+     * does not need to be offered to the {@link CipherPool} after use.
+     *
+     * @param encryptionKey
+     *         the localized privacy key.
+     * @param initVect
+     *         the initialization vector.
+     *
+     * @return an initialized cipher.
+     */
     protected Cipher doInit(byte[] encryptionKey, byte[] initVect) throws
             NoSuchPaddingException, NoSuchAlgorithmException, InvalidKeyException, InvalidAlgorithmParameterException {
         // now do CFB encryption of the plaintext
-        Cipher alg = cipherPool.reuseCipher();
-        if (alg == null) {
-            alg = Cipher.getInstance(protocolId);
+        return initCipher(Cipher.ENCRYPT_MODE, encryptionKey, initVect);
+    }
+
+    private Cipher initCipher(int opmode, byte[] key, byte[] initVect) throws
+            NoSuchPaddingException, NoSuchAlgorithmException, InvalidKeyException, InvalidAlgorithmParameterException {
+        try {
+            return cipherPool.initCipher(protocolId, protocolClass, key, keyBytes, opmode,
+                    new IvParameterSpec(initVect));
+        } catch (NoSuchPaddingException | NoSuchAlgorithmException | InvalidKeyException |
+                InvalidAlgorithmParameterException ex) {
+            throw ex;
+        } catch (GeneralSecurityException gsex) {
+            throw new InvalidKeyException(gsex);
         }
-        SecretKeySpec key = new SecretKeySpec(encryptionKey, 0, keyBytes, protocolClass);
-        IvParameterSpec ivSpec = new IvParameterSpec(initVect);
-        alg.init(Cipher.ENCRYPT_MODE, key, ivSpec);
-        return alg;
     }
 
     protected byte[] doFinal(byte[] unencryptedData, int offset, int length, Cipher alg)
@@ -89,15 +107,8 @@ public abstract class PrivacyGeneric implements PrivacyProtocol {
     protected byte[] doDecrypt(byte[] cryptedData, int offset, int length, byte[] decryptionKey, byte[] iv) {
         byte[] decryptedData = null;
         try {
-            Cipher alg = cipherPool.reuseCipher();
-            if (alg == null) {
-                alg = Cipher.getInstance(protocolId);
-            }
-            SecretKeySpec key = new SecretKeySpec(decryptionKey, 0, keyBytes, protocolClass);
-            IvParameterSpec ivSpec = new IvParameterSpec(iv);
-            alg.init(Cipher.DECRYPT_MODE, key, ivSpec);
+            Cipher alg = initCipher(Cipher.DECRYPT_MODE, decryptionKey, iv);
             decryptedData = alg.doFinal(cryptedData, offset, length);
-            cipherPool.offerCipher(alg);
         } catch (Exception e) {
             logger.error(e);
             if (logger.isDebugEnabled()) {
@@ -331,6 +331,56 @@ public class USM extends SNMPv3SecurityModel {
         return entry;
     }
 
+    /**
+     * Localizes the keys of all non-localized users for the engine IDs of all remote engines in the USM time table
+     * (i.e., all engines discovered so far) that have no localized entry for that user yet.
+     *
+     * @return the number of localized user entries added.
+     * @since 3.6.0
+     */
+    public int localizeUsers() {
+        return localizeUsers(timeTable.getEngineIDs());
+    }
+
+    /**
+     * Localizes the keys of all non-localized users for the supplied engine IDs, if there is no localized entry for
+     * a user and engine ID yet. The engine IDs are processed in parallel on all available processors. Because the
+     * non-localized keys are cached by {@link AuthGeneric}, the expensive pass phrase hashing is done only once per
+     * user and not once per user and engine. Pre-localizing users this way avoids the localization delay when the
+     * first message of an engine is processed.
+     *
+     * @param engineIDs
+     *         the authoritative engine IDs to localize the users for. Engine IDs with an invalid length are ignored.
+     *
+     * @return the number of localized user entries added.
+     * @since 3.6.0
+     */
+    public int localizeUsers(Collection<OctetString> engineIDs) {
+        List<UsmUserEntry> users = new ArrayList<>();
+        for (UsmUserEntry entry : userTable.getUserEntries()) {
+            if (((entry.getEngineID() == null) || (entry.getEngineID().length() == 0)) &&
+                    !entry.getUsmUser().isLocalized() && (entry.getUsmUser().getAuthenticationProtocol() != null)) {
+                users.add(entry);
+            }
+        }
+        if (users.isEmpty()) {
+            return 0;
+        }
+        return engineIDs.parallelStream()
+                .filter(engineID -> (engineID.length() >= MPv3.MINLEN_ENGINE_ID) &&
+                        (engineID.length() <= MPv3.MAXLEN_ENGINE_ID))
+                .mapToInt(engineID -> {
+                    int localized = 0;
+                    for (UsmUserEntry user : users) {
+                        if (userTable.getUser(engineID, user.getUserName()) == null) {
+                            addLocalizedUsmUserEntry(engineID, user.getUserName(), user);
+                            localized++;
+                        }
+                    }
+                    return localized;
+                }).sum();
+    }
+
     private static boolean isValidSecurityStateReference(SecurityStateReference securityStateReference) {
         return (securityStateReference instanceof UsmSecurityStateReference &&
                 ((UsmSecurityStateReference) securityStateReference).getSecurityName() != null);
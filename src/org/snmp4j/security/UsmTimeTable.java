@@ -26,7 +26,9 @@ import org.snmp4j.smi.OctetString;
 import org.snmp4j.smi.Variable;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Hashtable;
+import java.util.List;
 
 /**
  * The {@code UsmTimeTable} class is a singleton that stores USM user information as part of the Local
@@ -60,6 +62,20 @@ public class UsmTimeTable implements Serializable {
         return table.get(engineID);
     }
 
+    /**
+     * Returns the engine IDs of the remote SNMP engines in this time table.
+     *
+     * @return a snapshot of the engine IDs with a time entry (excluding the local engine ID).
+     * @since 3.6.0
+     */
+    public List<OctetString> getEngineIDs() {
+        List<OctetString> engineIDs = new ArrayList<>(table.size());
+        for (UsmTimeEntry entry : new ArrayList<>(table.values())) {
+            engineIDs.add(entry.getEngineID());
+        }
+        return engineIDs;
+    }
+
     public UsmTimeEntry getLocalTime() {
         UsmTimeEntry entry = new UsmTimeEntry(localTime.getEngineID(),
                 localTime.getEngineBoots(),
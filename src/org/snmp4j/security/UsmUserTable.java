@@ -19,8 +19,13 @@
   _##########################################################################*/
 package org.snmp4j.security;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import org.snmp4j.smi.OctetString;
 import org.snmp4j.log.*;
@@ -28,9 +33,15 @@ import org.snmp4j.log.*;
 /**
  * The {@code UsmUserTable} class stores USM user
  * information as part of the Local Configuration Datastore (LCD).
+ * <p>
+ * Since version 3.6.0, the table is safe for concurrent use without locking readers: users are looked up by
+ * engine ID and security name through a hash index and by user name through a secondary index. A sorted
+ * map provides the iteration order by engine ID and security name. Modifications are serialized among each
+ * other and update the sorted map and the indexes one after the other, so a reader running concurrently with
+ * a modification may see it in one view slightly before the other.
  *
  * @author Frank Fock
- * @version 1.1
+ * @version 3.6.0
  */
 public class UsmUserTable implements Serializable {
 
@@ -38,7 +49,10 @@ public class UsmUserTable implements Serializable {
 
     private static final LogAdapter logger = LogFactory.getLogger(UsmUserTable.class);
 
-    private Map<UsmUserKey, UsmUserEntry> table = new TreeMap<UsmUserKey, UsmUserEntry>();
+    private Map<UsmUserKey, UsmUserEntry> table = new ConcurrentSkipListMap<UsmUserKey, UsmUserEntry>();
+    private transient Map<UsmUserKey, UsmUserEntry> hashIndex = new ConcurrentHashMap<>();
+    private transient Map<OctetString, ConcurrentNavigableMap<UsmUserKey, UsmUserEntry>> securityNameIndex =
+            new ConcurrentHashMap<>();
 
     public UsmUserTable() {
     }
@@ -47,16 +61,24 @@ public class UsmUserTable implements Serializable {
         if (logger.isDebugEnabled()) {
             logger.debug("Adding user " + user.getUserName() + " = " + user.getUsmUser());
         }
-        return table.put(new UsmUserKey(user), user);
+        UsmUserKey key = new UsmUserKey(user);
+        UsmUserEntry replaced = table.put(key, user);
+        if (replaced != null) {
+            unindex(key, replaced);
+        }
+        index(key, user);
+        return replaced;
     }
 
     public synchronized void setUsers(Collection<UsmUserEntry> c) {
         if (logger.isDebugEnabled()) {
             logger.debug("Setting users to " + c);
         }
-        table.clear();
+        clearIndexed();
         for (UsmUserEntry user : c) {
-            table.put(new UsmUserKey(user), user);
+            UsmUserKey key = new UsmUserKey(user);
+            table.put(key, user);
+            index(key, user);
         }
     }
 
@@ -69,12 +91,11 @@ public class UsmUserTable implements Serializable {
      * @return a possibly empty {@code List} containing all user entries with
      * the specified {@code userName}.
      */
-    public synchronized List<UsmUserEntry> getUserEntries(OctetString userName) {
+    public List<UsmUserEntry> getUserEntries(OctetString userName) {
         LinkedList<UsmUserEntry> users = new LinkedList<UsmUserEntry>();
-        for (UsmUserEntry value : table.values()) {
-            if (userName.equals(value.getUserName())) {
-                users.add(value);
-            }
+        Map<UsmUserKey, UsmUserEntry> entries = securityNameIndex.get(userName);
+        if (entries != null) {
+            users.addAll(entries.values());
         }
         if (logger.isDebugEnabled()) {
             logger.debug("Returning user entries for " + userName + " = " + users);
@@ -82,7 +103,7 @@ public class UsmUserTable implements Serializable {
         return users;
     }
 
-    public synchronized List<UsmUserEntry> getUserEntries() {
+    public List<UsmUserEntry> getUserEntries() {
         LinkedList<UsmUserEntry> l = new LinkedList<UsmUserEntry>();
         l.addAll(table.values());
         return l;
@@ -91,11 +112,13 @@ public class UsmUserTable implements Serializable {
     public synchronized List<UsmUserEntry> removeAllUsers(OctetString securityName, OctetString engineID) {
         if (engineID == null) {
             List<UsmUserEntry> deleted = new ArrayList<UsmUserEntry>();
-            for (Iterator<UsmUserEntry> usmUserEntryIterator = table.values().iterator(); usmUserEntryIterator.hasNext(); ) {
-                UsmUserEntry usmUserEntry = usmUserEntryIterator.next();
+            for (Iterator<Map.Entry<UsmUserKey, UsmUserEntry>> it = table.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<UsmUserKey, UsmUserEntry> e = it.next();
+                UsmUserEntry usmUserEntry = e.getValue();
                 if (securityName.equals(usmUserEntry.getUsmUser().getSecurityName())) {
                     deleted.add(usmUserEntry);
-                    usmUserEntryIterator.remove();
+                    it.remove();
+                    unindex(e.getKey(), usmUserEntry);
                     if (logger.isDebugEnabled()) {
                         logger.debug("Removed user " + usmUserEntry);
                     }
@@ -103,19 +126,17 @@ public class UsmUserTable implements Serializable {
             }
             return deleted;
         }
-        UsmUserEntry entry =
-                table.remove(new UsmUserKey(engineID, securityName));
-        if (logger.isDebugEnabled()) {
-            logger.debug("Removed user with secName=" + securityName +
-                    " and engineID=" + engineID);
-        }
+        UsmUserEntry entry = removeUser(engineID, securityName);
         return (entry != null) ? Collections.singletonList(entry) : Collections.<UsmUserEntry>emptyList();
     }
 
     public synchronized UsmUserEntry removeUser(OctetString engineID,
                                                 OctetString securityName) {
-        UsmUserEntry entry =
-                table.remove(new UsmUserKey(engineID, securityName));
+        UsmUserKey key = new UsmUserKey(engineID, securityName);
+        UsmUserEntry entry = table.remove(key);
+        if (entry != null) {
+            unindex(key, entry);
+        }
         if (logger.isDebugEnabled()) {
             logger.debug("Removed user with secName=" + securityName +
                     " and engineID=" + engineID);
@@ -123,21 +144,61 @@ public class UsmUserTable implements Serializable {
         return entry;
     }
 
-    public synchronized UsmUserEntry getUser(OctetString engineID, OctetString securityName) {
-        return table.get(new UsmUserKey(engineID, securityName));
+    public UsmUserEntry getUser(OctetString engineID, OctetString securityName) {
+        return hashIndex.get(new UsmUserKey(engineID, securityName));
     }
 
-    public synchronized UsmUserEntry getUser(OctetString securityName) {
-        return table.get(new UsmUserKey(new OctetString(), securityName));
+    public UsmUserEntry getUser(OctetString securityName) {
+        return hashIndex.get(new UsmUserKey(null, securityName));
     }
 
     public synchronized void clear() {
-        table.clear();
+        clearIndexed();
         if (logger.isDebugEnabled()) {
             logger.debug("Cleared UsmUserTable");
         }
     }
 
+    private void index(UsmUserKey key, UsmUserEntry user) {
+        hashIndex.put(key, user);
+        if (user.getUserName() != null) {
+            securityNameIndex.computeIfAbsent(user.getUserName(), k -> new ConcurrentSkipListMap<>()).put(key, user);
+        }
+    }
+
+    private void unindex(UsmUserKey key, UsmUserEntry user) {
+        hashIndex.remove(key);
+        if (user.getUserName() != null) {
+            ConcurrentNavigableMap<UsmUserKey, UsmUserEntry> entries = securityNameIndex.get(user.getUserName());
+            if (entries != null) {
+                entries.remove(key);
+                if (entries.isEmpty()) {
+                    securityNameIndex.remove(user.getUserName());
+                }
+            }
+        }
+    }
+
+    private void clearIndexed() {
+        table.clear();
+        hashIndex.clear();
+        securityNameIndex.clear();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        Map<UsmUserKey, UsmUserEntry> entries = table;
+        table = new ConcurrentSkipListMap<>();
+        hashIndex = new ConcurrentHashMap<>();
+        securityNameIndex = new ConcurrentHashMap<>();
+        if (entries != null) {
+            for (Map.Entry<UsmUserKey, UsmUserEntry> e : entries.entrySet()) {
+                table.put(e.getKey(), e.getValue());
+                index(e.getKey(), e.getValue());
+            }
+        }
+    }
+
     public static class UsmUserKey implements Comparable<Object> {
         OctetString engineID;
         OctetString securityName;
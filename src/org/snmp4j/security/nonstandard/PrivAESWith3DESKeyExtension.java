@@ -21,6 +21,7 @@ package org.snmp4j.security.nonstandard;
 
 import org.snmp4j.log.LogAdapter;
 import org.snmp4j.log.LogFactory;
+import org.snmp4j.security.AuthGeneric;
 import org.snmp4j.security.AuthenticationProtocol;
 import org.snmp4j.security.PrivAES;
 import org.snmp4j.smi.OID;
@@ -66,7 +67,7 @@ public abstract class PrivAESWith3DESKeyExtension extends PrivAES implements Non
         byte[] key = new byte[getMinKeyLength()];
         System.arraycopy(shortKey, 0, key, 0, shortKey.length);
         while (length < getMinKeyLength()) {
-            key = authProtocol.passwordToKey(new OctetString(key, 0, length), engineID);
+            key = AuthGeneric.passwordToKeyUncached(authProtocol, new OctetString(key, 0, length), engineID);
             int copyBytes = Math.min(getMinKeyLength() - length, authProtocol.getDigestLength());
             System.arraycopy(key, 0, extendedKey, length, copyBytes);
             length += copyBytes;
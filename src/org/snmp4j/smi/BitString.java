@@ -23,6 +23,7 @@ import org.snmp4j.asn1.BER;
 import java.io.IOException;
 import java.io.OutputStream;
 import org.snmp4j.asn1.BERInputStream;
+import org.snmp4j.asn1.BERReverseEncoder;
 
 /**
  * The <code>BitString</code> class represents the obsolete SMI type
@@ -58,6 +59,11 @@ public class BitString extends OctetString {
     BER.encodeString(outputStream, BER.BITSTRING, getValue());
   }
 
+  @Override
+  public void encodeBERReverse(BERReverseEncoder encoder) throws IOException {
+    encoder.encodeString(BER.BITSTRING, getValue());
+  }
+
   public void decodeBER(BERInputStream inputStream) throws java.io.IOException {
     BER.MutableByte type = new BER.MutableByte();
     byte[] v = BER.decodeString(inputStream, type);
@@ -26,6 +26,7 @@ package org.snmp4j.smi;
 import java.io.*;
 import org.snmp4j.asn1.BER;
 import org.snmp4j.asn1.BERInputStream;
+import org.snmp4j.asn1.BERReverseEncoder;
 
 /**
  * The <code>Counter32</code> class allows all the functionality of unsigned
@@ -60,6 +61,11 @@ public class Counter32 extends UnsignedInteger32 {
     BER.encodeUnsignedInteger(outputStream, BER.COUNTER32, getValue());
   }
 
+  @Override
+  public void encodeBERReverse(BERReverseEncoder encoder) throws IOException {
+    encoder.encodeUnsignedInteger(BER.COUNTER32, getValue());
+  }
+
   public void decodeBER(BERInputStream inputStream) throws IOException {
     BER.MutableByte type = new BER.MutableByte();
     long newValue = BER.decodeUnsignedInteger(inputStream, type);
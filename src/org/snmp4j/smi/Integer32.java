@@ -22,6 +22,7 @@ package org.snmp4j.smi;
 import java.io.*;
 import org.snmp4j.asn1.BER;
 import org.snmp4j.asn1.BERInputStream;
+import org.snmp4j.asn1.BERReverseEncoder;
 
 /**
  * The <code>Integer32</code> represents 32bit signed integer values for SNMP.
@@ -55,6 +56,11 @@ public class Integer32 extends AbstractVariable
     BER.encodeInteger(outputStream, BER.INTEGER, value);
   }
 
+  @Override
+  public void encodeBERReverse(BERReverseEncoder encoder) throws IOException {
+    encoder.encodeInteger(BER.INTEGER, value);
+  }
+
   public void decodeBER(BERInputStream inputStream) throws java.io.IOException {
     BER.MutableByte type = new BER.MutableByte();
     int newValue = BER.decodeInteger(inputStream, type);
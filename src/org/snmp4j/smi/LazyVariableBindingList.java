@@ -0,0 +1,482 @@
+/*_############################################################################
+  _##
+  _##  SNMP4J - LazyVariableBindingList.java
+  _##
+  _##  Copyright (C) 2003-2021  Frank Fock (SNMP4J.org)
+  _##
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##
+  _##########################################################################*/
+
+package org.snmp4j.smi;
+
+import org.snmp4j.asn1.BER;
+import org.snmp4j.asn1.BERInputStream;
+import org.snmp4j.asn1.BERReverseEncoder;
+
+import java.io.IOException;
+import java.io.ObjectStreamException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * The {@code LazyVariableBindingList} is a list of {@link VariableBinding}s decoded from a BER encoded
+ * variable bindings sequence, where only the position of each variable binding within the encoded data
+ * is determined while decoding. A {@link VariableBinding} is materialized when it is accessed through
+ * {@link #get(int)} (or an iterator) for the first time.
+ * <p>
+ * The object identifier of a variable binding can be checked by {@link #startsWith(int, OID)} without
+ * materializing the variable binding at all and it can be decoded without its value by {@link #getOid(int)}.
+ * Variable bindings that have never been materialized are encoded by copying their original BER encoding,
+ * which makes forwarding them (e.g., by a proxy) cheap.
+ * <p>
+ * Because transport mappings may reuse their receive buffers, the encoded variable bindings sequence is
+ * copied once into a single array on decoding. Values are sliced from that array on demand.
+ * <p>
+ * {@link #decode(BERInputStream)} checks the headers of each variable binding, its object identifier and its
+ * value against the bounds of the variable binding and throws an {@link IOException} if they are truncated or
+ * malformed. Since the values are decoded on access, an invalid BER encoding of the value content is not detected
+ * by {@link #decode(BERInputStream)}. Instead, {@link #get(int)} throws an {@link IllegalStateException}
+ * in that case.
+ *
+ * @author Frank Fock
+ * @version 3.6.0
+ * @since 3.6.0
+ */
+public class LazyVariableBindingList extends AbstractList<VariableBinding>
+        implements RandomAccess, Serializable {
+
+    private static final long serialVersionUID = -3071596412787541045L;
+
+    private transient byte[] encoded;
+    private transient int[] offsets;
+    private transient int[] lengths;
+    private transient VariableBinding[] variableBindings;
+    private int size;
+
+    private LazyVariableBindingList(byte[] encoded, int[] offsets, int[] lengths, int size) {
+        this.encoded = encoded;
+        this.offsets = offsets;
+        this.lengths = lengths;
+        this.variableBindings = new VariableBinding[offsets.length];
+        this.size = size;
+    }
+
+    /**
+     * Decodes a variable bindings sequence from the supplied input stream by determining the position
+     * of each variable binding only.
+     *
+     * @param inputStream
+     *         a {@link BERInputStream} positioned at the header of a variable bindings SEQUENCE.
+     *
+     * @return a {@code LazyVariableBindingList} containing the not yet materialized variable bindings.
+     * @throws IOException
+     *         if the sequence or the header of a contained variable binding, its object identifier or its value
+     *         has an invalid BER encoding or exceeds the bounds of the variable binding.
+     */
+    public static LazyVariableBindingList decode(BERInputStream inputStream) throws IOException {
+        BER.MutableByte type = new BER.MutableByte();
+        int vbLength = BER.decodeHeader(inputStream, type);
+        if (type.getValue() != BER.SEQUENCE) {
+            throw new IOException("Encountered invalid tag, SEQUENCE expected: " + type.getValue());
+        }
+        if (inputStream.available() < vbLength) {
+            throw new IOException("Length of VB sequence (" + vbLength + ") exceeds available bytes: " +
+                    inputStream.available());
+        }
+        byte[] encoded = new byte[vbLength];
+        if (vbLength > 0) {
+            inputStream.read(encoded, 0, vbLength);
+        }
+        BERInputStream vbs = new BERInputStream(ByteBuffer.wrap(encoded));
+        int[] offsets = new int[8];
+        int[] lengths = new int[8];
+        int count = 0;
+        while (vbs.getPosition() < vbLength) {
+            int start = (int) vbs.getPosition();
+            int length = BER.decodeHeader(vbs, type, false);
+            if (type.getValue() != BER.SEQUENCE) {
+                throw new IOException("Invalid sequence encoding: " + type.getValue());
+            }
+            if (length > vbs.available()) {
+                throw new IOException("Length of VB (" + length + ") at position " + start +
+                        " exceeds VB sequence length " + vbLength);
+            }
+            int contentStart = (int) vbs.getPosition();
+            checkVariableBinding(encoded, start, contentStart, contentStart + length);
+            vbs.skip(length);
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, count * 2);
+                lengths = Arrays.copyOf(lengths, count * 2);
+            }
+            offsets[count] = start;
+            lengths[count++] = (int) vbs.getPosition() - start;
+        }
+        return new LazyVariableBindingList(encoded, offsets, lengths, count);
+    }
+
+    @Override
+    public VariableBinding get(int index) {
+        checkIndex(index);
+        VariableBinding vb = variableBindings[index];
+        if (vb == null) {
+            vb = new VariableBinding();
+            try {
+                vb.decodeBER(slice(index));
+            } catch (IOException iox) {
+                throw new IllegalStateException("Invalid BER encoding of variable binding #" + index, iox);
+            }
+            variableBindings[index] = vb;
+        }
+        return vb;
+    }
+
+    /**
+     * Gets the object identifier of the variable binding at the specified position without decoding its value.
+     *
+     * @param index
+     *         a zero based index ({@code 0 &lt;= index &lt; {@link #size()}}).
+     *
+     * @return the object identifier of the variable binding. If the variable binding has been materialized
+     * already, its {@link OID} instance is returned (not a copy).
+     * @throws IOException
+     *         if the object identifier has an invalid BER encoding.
+     */
+    public OID getOid(int index) throws IOException {
+        checkIndex(index);
+        VariableBinding vb = variableBindings[index];
+        if (vb != null) {
+            return vb.getOid();
+        }
+        BERInputStream inputStream = slice(index);
+        BER.decodeHeader(inputStream, new BER.MutableByte(), false);
+        OID oid = new OID();
+        oid.decodeBER(inputStream);
+        return oid;
+    }
+
+    /**
+     * Checks whether the object identifier of the variable binding at the specified position starts with the
+     * given prefix. For a variable binding that has not been materialized yet, the check is done on its BER
+     * encoding without allocating any objects.
+     *
+     * @param index
+     *         a zero based index ({@code 0 &lt;= index &lt; {@link #size()}}).
+     * @param prefix
+     *         the prefix {@link OID}.
+     *
+     * @return {@code true} if the object identifier starts with {@code prefix}.
+     */
+    public boolean startsWith(int index, OID prefix) {
+        checkIndex(index);
+        VariableBinding vb = variableBindings[index];
+        if (vb != null) {
+            return vb.getOid().startsWith(prefix);
+        }
+        int[] prefixValue = prefix.getValue();
+        int vbEnd = offsets[index] + lengths[index];
+        int pos;
+        int end;
+        try {
+            pos = skipHeader(encoded, offsets[index], vbEnd);
+            if (encoded[pos] != BER.OID) {
+                return false;
+            }
+            end = getContentEnd(encoded, pos, vbEnd);
+            pos = skipHeader(encoded, pos, vbEnd);
+        } catch (IOException iox) {
+            throw new IllegalStateException("Invalid BER encoding of variable binding #" + index, iox);
+        }
+        int n = 0;
+        while ((pos < end) && (n < prefixValue.length)) {
+            long subID = 0;
+            byte b;
+            do {
+                b = encoded[pos++];
+                subID = (subID << 7) | (b & 0x7F);
+            }
+            while (((b & BER.ASN_BIT8) != 0) && (pos < end));
+            if (n == 0) {
+                int first = (subID < 80) ? (int) (subID / 40) : 2;
+                if (first != prefixValue[n++]) {
+                    return false;
+                }
+                if (n < prefixValue.length) {
+                    if ((int) (subID - first * 40L) != prefixValue[n++]) {
+                        return false;
+                    }
+                }
+            }
+            else if ((int) subID != prefixValue[n++]) {
+                return false;
+            }
+        }
+        return (n == prefixValue.length);
+    }
+
+    /**
+     * Checks whether the variable binding at the specified position has been materialized.
+     *
+     * @param index
+     *         a zero based index ({@code 0 &lt;= index &lt; {@link #size()}}).
+     *
+     * @return {@code true} if a {@link VariableBinding} instance exists for that position.
+     */
+    public boolean isMaterialized(int index) {
+        checkIndex(index);
+        return variableBindings[index] != null;
+    }
+
+    @Override
+    public VariableBinding set(int index, VariableBinding element) {
+        VariableBinding previous = get(index);
+        variableBindings[index] = element;
+        return previous;
+    }
+
+    @Override
+    public void add(int index, VariableBinding element) {
+        if ((index < 0) || (index > size)) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        if (size == offsets.length) {
+            int capacity = Math.max(8, size * 2);
+            offsets = Arrays.copyOf(offsets, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            variableBindings = Arrays.copyOf(variableBindings, capacity);
+        }
+        int moved = size - index;
+        if (moved > 0) {
+            System.arraycopy(offsets, index, offsets, index + 1, moved);
+            System.arraycopy(lengths, index, lengths, index + 1, moved);
+            System.arraycopy(variableBindings, index, variableBindings, index + 1, moved);
+        }
+        offsets[index] = -1;
+        lengths[index] = 0;
+        variableBindings[index] = element;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public VariableBinding remove(int index) {
+        VariableBinding previous = get(index);
+        int moved = size - index - 1;
+        if (moved > 0) {
+            System.arraycopy(offsets, index + 1, offsets, index, moved);
+            System.arraycopy(lengths, index + 1, lengths, index, moved);
+            System.arraycopy(variableBindings, index + 1, variableBindings, index, moved);
+        }
+        variableBindings[--size] = null;
+        modCount++;
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(variableBindings, 0, size, null);
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the length of the BER encoded variable bindings without the header of the enclosing sequence.
+     * Variable bindings that have not been materialized are not decoded to determine their length.
+     *
+     * @return the payload length of the variable bindings sequence.
+     */
+    public int getBERPayloadLength() {
+        int length = 0;
+        for (int i = 0; i < size; i++) {
+            VariableBinding vb = variableBindings[i];
+            length += (vb != null) ? vb.getBERLength() : lengths[i];
+        }
+        return length;
+    }
+
+    /**
+     * Encodes the variable bindings as BER sequence. Variable bindings that have not been materialized are
+     * written from their original encoding.
+     *
+     * @param outputStream
+     *         the output stream to write to.
+     *
+     * @throws IOException
+     *         if a variable binding cannot be encoded.
+     */
+    public void encodeBER(OutputStream outputStream) throws IOException {
+        BER.encodeHeader(outputStream, BER.SEQUENCE, getBERPayloadLength());
+        for (int i = 0; i < size; i++) {
+            VariableBinding vb = variableBindings[i];
+            if (vb != null) {
+                vb.encodeBER(outputStream);
+            }
+            else {
+                outputStream.write(encoded, offsets[i], lengths[i]);
+            }
+        }
+    }
+
+    /**
+     * Encodes the variable bindings as BER sequence back-to-front. Variable bindings that have not been
+     * materialized are written from their original encoding.
+     *
+     * @param encoder
+     *         the {@link BERReverseEncoder} to prepend the variable bindings sequence to.
+     *
+     * @throws IOException
+     *         if a variable binding cannot be encoded.
+     */
+    public void encodeBERReverse(BERReverseEncoder encoder) throws IOException {
+        int mark = encoder.getLength();
+        for (int i = size - 1; i >= 0; i--) {
+            VariableBinding vb = variableBindings[i];
+            if (vb != null) {
+                vb.encodeBERReverse(encoder);
+            }
+            else {
+                encoder.write(encoded, offsets[i], lengths[i]);
+            }
+        }
+        encoder.encodeHeader(BER.SEQUENCE, mark);
+    }
+
+    private void checkIndex(int index) {
+        if ((index < 0) || (index >= size)) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    private BERInputStream slice(int index) {
+        return new BERInputStream(ByteBuffer.wrap(encoded, offsets[index], lengths[index]).slice());
+    }
+
+    /**
+     * Checks that a variable binding contains an object identifier and a value header within its bounds.
+     *
+     * @param encoded
+     *         the encoded variable bindings.
+     * @param start
+     *         the position of the variable binding's SEQUENCE header.
+     * @param contentStart
+     *         the position of the variable binding's content.
+     * @param end
+     *         the end (exclusive) of the variable binding.
+     *
+     * @throws IOException
+     *         if the object identifier or the value header is missing or exceeds the variable binding.
+     */
+    private static void checkVariableBinding(byte[] encoded, int start, int contentStart, int end)
+            throws IOException {
+        if ((contentStart >= end) || (encoded[contentStart] != BER.OID)) {
+            throw new IOException("Variable binding at position " + start +
+                    " does not start with an OBJECT IDENTIFIER");
+        }
+        int oidEnd = getContentEnd(encoded, contentStart, end);
+        if (oidEnd >= end) {
+            throw new IOException("Variable binding at position " + start + " has no value");
+        }
+        int valueEnd = getContentEnd(encoded, oidEnd, end);
+        if (BER.isCheckSequenceLength() && (valueEnd != end)) {
+            throw new IOException("Length of the value of the variable binding at position " + start +
+                    " does not match the variable binding length");
+        }
+    }
+
+    /**
+     * Gets the position following the header of the BER TLV at the specified position.
+     *
+     * @param encoded
+     *         the encoded data.
+     * @param pos
+     *         the position of the TLV's tag.
+     * @param end
+     *         the position (exclusive) the header must not exceed.
+     *
+     * @return the position of the TLV's content.
+     * @throws IOException
+     *         if the header exceeds {@code end} or uses more than four length octets.
+     */
+    private static int skipHeader(byte[] encoded, int pos, int end) throws IOException {
+        if (pos + 2 > end) {
+            throw new IOException("Truncated BER header at position " + pos);
+        }
+        int lengthByte = encoded[pos + 1] & 0xFF;
+        if ((lengthByte & BER.ASN_LONG_LEN) == 0) {
+            return pos + 2;
+        }
+        int lengthOctets = lengthByte & ~BER.ASN_LONG_LEN;
+        if (lengthOctets > 4) {
+            throw new IOException("Length of BER header at position " + pos + " exceeds four octets");
+        }
+        if (pos + 2 + lengthOctets > end) {
+            throw new IOException("Truncated BER length at position " + pos);
+        }
+        return pos + 2 + lengthOctets;
+    }
+
+    /**
+     * Gets the end of the content of the BER TLV at the specified position.
+     *
+     * @param encoded
+     *         the encoded data.
+     * @param pos
+     *         the position of the TLV's tag.
+     * @param end
+     *         the position (exclusive) the TLV must not exceed.
+     *
+     * @return the position (exclusive) of the content's end.
+     * @throws IOException
+     *         if the TLV exceeds {@code end}.
+     */
+    private static int getContentEnd(byte[] encoded, int pos, int end) throws IOException {
+        int contentStart = skipHeader(encoded, pos, end);
+        int lengthByte = encoded[pos + 1] & 0xFF;
+        long length;
+        if ((lengthByte & BER.ASN_LONG_LEN) == 0) {
+            length = lengthByte;
+        }
+        else {
+            length = 0;
+            for (int i = pos + 2; i < contentStart; i++) {
+                length = (length << 8) | (encoded[i] & 0xFF);
+            }
+        }
+        if (contentStart + length > end) {
+            throw new IOException("Length " + length + " of BER TLV at position " + pos +
+                    " exceeds the variable binding");
+        }
+        return contentStart + (int) length;
+    }
+
+    /**
+     * Materializes all variable bindings into an {@link ArrayList} for serialization.
+     *
+     * @return an {@link ArrayList} with the same elements as this list.
+     * @throws ObjectStreamException
+     *         never.
+     */
+    private Object writeReplace() throws ObjectStreamException {
+        return new ArrayList<>(this);
+    }
+}
@@ -22,6 +22,7 @@ package org.snmp4j.smi;
 import java.io.*;
 import org.snmp4j.asn1.BER;
 import org.snmp4j.asn1.BERInputStream;
+import org.snmp4j.asn1.BERReverseEncoder;
 import org.snmp4j.asn1.BER.MutableByte;
 
 /**
@@ -95,6 +96,11 @@ public class Null extends AbstractVariable {
     BER.encodeHeader(outputStream, (byte)getSyntax(), 0);
   }
 
+  @Override
+  public void encodeBERReverse(BERReverseEncoder encoder) throws IOException {
+    encoder.encodeHeader(getSyntax(), encoder.getLength());
+  }
+
   public void setSyntax(int syntax) {
     if ((syntax != SMIConstants.SYNTAX_NULL) &&  (!isExceptionSyntax(syntax))) {
       throw new IllegalArgumentException("Syntax " + syntax +
@@ -24,6 +24,7 @@ import java.util.*;
 
 import org.snmp4j.asn1.BER;
 import org.snmp4j.asn1.BERInputStream;
+import org.snmp4j.asn1.BERReverseEncoder;
 import org.snmp4j.SNMP4JSettings;
 import org.snmp4j.util.OIDTextFormat;
 import org.snmp4j.util.SimpleOIDTextFormat;
@@ -55,6 +56,10 @@ public class OID extends AbstractVariable
     private static final int[] NULL_OID = new int[0];
 
     private int[] value = NULL_OID;
+    /**
+     * The cached hash code of {@link #value} or zero if it has not been computed yet.
+     */
+    private transient int hashCode;
 
     /**
      * Constructs a zero length OID.
@@ -132,6 +137,24 @@ public class OID extends AbstractVariable
         this.value[prefixOID.length] = suffixID;
     }
 
+    /**
+     * Constructs an {@code OID} from a prefix, a single sub-identifier, and a suffix with a single array allocation.
+     * This constructor is intended to build instance OIDs of columnar objects, for example a table cell OID from the
+     * OID of the table entry, the column sub-identifier, and the row index.
+     *
+     * @param prefixOID an array of {@code int} values (i.e., the OID of a table entry). The array is copied.
+     * @param subID     an {@code int} value appended to {@code prefixOID} (i.e., a column sub-identifier).
+     * @param suffixOID an array of {@code int} values appended after {@code subID} (i.e., a row index). The array
+     *                  is copied.
+     * @since 3.6.0
+     */
+    public OID(int[] prefixOID, int subID, int[] suffixOID) {
+        this.value = new int[prefixOID.length + 1 + suffixOID.length];
+        System.arraycopy(prefixOID, 0, value, 0, prefixOID.length);
+        this.value[prefixOID.length] = subID;
+        System.arraycopy(suffixOID, 0, value, prefixOID.length + 1, suffixOID.length);
+    }
+
     /**
      * Constructs an {@code OID} from an array of integer values.
      *
@@ -155,6 +178,7 @@ public class OID extends AbstractVariable
      */
     public OID(OID other) {
         this(other.getValue());
+        this.hashCode = other.hashCode;
     }
 
     private static int[] parseDottedString(String oid) {
@@ -170,9 +194,20 @@ public class OID extends AbstractVariable
         return SMIConstants.SYNTAX_OBJECT_IDENTIFIER;
     }
 
+    /**
+     * Returns the hash code of this OID. The hash code is computed only once and then cached until the value of
+     * this OID is changed by one of its methods.
+     *
+     * @return the hash code as defined by {@link Arrays#hashCode(int[])} for {@link #getValue()}.
+     */
     @Override
     public int hashCode() {
-        return Arrays.hashCode(getValue());
+        int h = hashCode;
+        if (h == 0) {
+            h = Arrays.hashCode(value);
+            hashCode = h;
+        }
+        return h;
     }
 
     public final boolean equals(Object o) {
@@ -281,6 +316,11 @@ public class OID extends AbstractVariable
         BER.encodeOID(outputStream, BER.OID, value);
     }
 
+    @Override
+    public void encodeBERReverse(BERReverseEncoder encoder) throws IOException {
+        encoder.encodeOID(BER.OID, value);
+    }
+
     public int getBERLength() {
         int length = BER.getOIDLength(value);
         return length + BER.getBERLengthOfLength(length) + 1;
@@ -298,10 +338,12 @@ public class OID extends AbstractVariable
 
     public void setValue(String value) {
         this.value = parseDottedString(value);
+        this.hashCode = 0;
     }
 
     /**
-     * Sets the value from an array of integer values.
+     * Sets the value from an array of integer values. The array is not copied, it must therefore not be changed
+     * afterwards by the caller.
      *
      * @param value The new value
      * @throws IllegalArgumentException if value == null.
@@ -311,15 +353,19 @@ public class OID extends AbstractVariable
             throw new IllegalArgumentException("OID value must not be set to null");
         }
         this.value = value;
+        this.hashCode = 0;
     }
 
     private void setValue(int[] rawOID, int offset, int length) {
         value = new int[length];
         System.arraycopy(rawOID, offset, value, 0, length);
+        hashCode = 0;
     }
 
     /**
-     * Gets all sub-identifiers as an int array.
+     * Gets all sub-identifiers as an int array. The returned array is the internal representation of this OID and
+     * must not be modified. Use {@link #set(int, int)} or {@link #setValue(int[])} to change the value instead,
+     * otherwise the cached {@link #hashCode()} would no longer match the value.
      *
      * @return int arry of all sub-identifiers
      */
@@ -360,6 +406,7 @@ public class OID extends AbstractVariable
      */
     public final void set(int index, int value) {
         this.value[index] = value;
+        this.hashCode = 0;
     }
 
     /**
@@ -384,6 +431,7 @@ public class OID extends AbstractVariable
         System.arraycopy(value, 0, newValue, 0, value.length);
         System.arraycopy(oid.value, 0, newValue, value.length, oid.value.length);
         value = newValue;
+        hashCode = 0;
         return this;
     }
 
@@ -398,6 +446,7 @@ public class OID extends AbstractVariable
         System.arraycopy(value, 0, newValue, 0, value.length);
         newValue[value.length] = subID;
         value = newValue;
+        hashCode = 0;
         return this;
     }
 
@@ -510,7 +559,9 @@ public class OID extends AbstractVariable
     }
 
     public Object clone() {
-        return new OID(value);
+        OID clone = new OID(value);
+        clone.hashCode = hashCode;
+        return clone;
     }
 
     /**
@@ -560,6 +611,7 @@ public class OID extends AbstractVariable
         System.arraycopy(value, 0, newValue, 0, value.length - 1);
         int retValue = value[value.length - 1];
         value = newValue;
+        hashCode = 0;
         return retValue;
     }
 
@@ -578,6 +630,7 @@ public class OID extends AbstractVariable
             int[] newValue = new int[value.length - n];
             System.arraycopy(value, 0, newValue, 0, value.length - n);
             value = newValue;
+            hashCode = 0;
         }
     }
 
@@ -715,6 +768,11 @@ public class OID extends AbstractVariable
         return b;
     }
 
+    /**
+     * Returns the sub-identifiers of this OID. Like for {@link #getValue()}, the returned array must not be modified.
+     *
+     * @return the internal array of sub-identifiers.
+     */
     public int[] toIntArray() {
         return value;
     }
@@ -27,6 +27,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.*;
 import org.snmp4j.asn1.BER;
 import org.snmp4j.asn1.BERInputStream;
+import org.snmp4j.asn1.BERReverseEncoder;
 
 /**
  * The {@code OctetString} class represents the SMI type OCTET STRING.
@@ -186,6 +187,11 @@ public class OctetString extends AbstractVariable
         BER.encodeString(outputStream, BER.OCTETSTRING, getValue());
     }
 
+    @Override
+    public void encodeBERReverse(BERReverseEncoder encoder) throws IOException {
+        encoder.encodeString(BER.OCTETSTRING, getValue());
+    }
+
     public void decodeBER(BERInputStream inputStream) throws java.io.IOException {
         BER.MutableByte type = new BER.MutableByte();
         byte[] v = BER.decodeString(inputStream, type);
@@ -26,6 +26,7 @@ package org.snmp4j.smi;
 import java.io.*;
 import org.snmp4j.asn1.BER;
 import org.snmp4j.asn1.BERInputStream;
+import org.snmp4j.asn1.BERReverseEncoder;
 
 /**
  * The <code>Opaque</code> class represents the SMI type Opaque which is used
@@ -54,6 +55,11 @@ public class Opaque extends OctetString {
     BER.encodeString(outputStream, BER.OPAQUE, getValue());
   }
 
+  @Override
+  public void encodeBERReverse(BERReverseEncoder encoder) throws IOException {
+    encoder.encodeString(BER.OPAQUE, getValue());
+  }
+
   public void decodeBER(BERInputStream inputStream) throws IOException {
     BER.MutableByte type = new BER.MutableByte();
     byte[] v = BER.decodeString(inputStream, type);
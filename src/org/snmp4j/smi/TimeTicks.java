@@ -21,6 +21,7 @@ package org.snmp4j.smi;
 
 import org.snmp4j.asn1.BER;
 import org.snmp4j.asn1.BERInputStream;
+import org.snmp4j.asn1.BERReverseEncoder;
 
 import java.io.IOException;
 import java.io.OutputStream;
@@ -74,6 +75,11 @@ public class TimeTicks extends UnsignedInteger32 {
         BER.encodeUnsignedInteger(os, BER.TIMETICKS, super.getValue());
     }
 
+    @Override
+    public void encodeBERReverse(BERReverseEncoder encoder) throws IOException {
+        encoder.encodeUnsignedInteger(BER.TIMETICKS, super.getValue());
+    }
+
     public void decodeBER(BERInputStream inputStream) throws IOException {
         BER.MutableByte type = new BER.MutableByte();
         long newValue = BER.decodeUnsignedInteger(inputStream, type);
@@ -21,6 +21,7 @@ package org.snmp4j.smi;
 
 import org.snmp4j.asn1.BER;
 import org.snmp4j.asn1.BERInputStream;
+import org.snmp4j.asn1.BERReverseEncoder;
 
 import java.io.IOException;
 import java.io.OutputStream;
@@ -82,6 +83,11 @@ public class UnsignedInteger32 extends AbstractVariable
         BER.encodeUnsignedInteger(outputStream, BER.GAUGE, value);
     }
 
+    @Override
+    public void encodeBERReverse(BERReverseEncoder encoder) throws IOException {
+        encoder.encodeUnsignedInteger(BER.GAUGE, value);
+    }
+
     public void decodeBER(BERInputStream inputStream) throws java.io.IOException {
         BER.MutableByte type = new BER.MutableByte();
         long newValue = BER.decodeUnsignedInteger(inputStream, type);
@@ -204,6 +204,14 @@ public class VariableBinding
     variable.encodeBER(outputStream);
   }
 
+  @Override
+  public final void encodeBERReverse(BERReverseEncoder encoder) throws IOException {
+    int mark = encoder.getLength();
+    variable.encodeBERReverse(encoder);
+    oid.encodeBERReverse(encoder);
+    encoder.encodeHeader(BER.SEQUENCE, mark);
+  }
+
   /**
    * Gets a string representation of this variable binding using the
    * {@link VariableTextFormat} configured by {@link SNMP4JSettings}.
@@ -0,0 +1,955 @@
+/*_############################################################################
+  _##
+  _##  SNMP4J - EventLoopTcpTransportMapping.java
+  _##
+  _##  Copyright (C) 2003-2021  Frank Fock (SNMP4J.org)
+  _##
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##
+  _##########################################################################*/
+package org.snmp4j.transport;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.snmp4j.SNMP4JSettings;
+import org.snmp4j.TransportStateReference;
+import org.snmp4j.log.LogAdapter;
+import org.snmp4j.log.LogFactory;
+import org.snmp4j.mp.SnmpConstants;
+import org.snmp4j.security.SecurityLevel;
+import org.snmp4j.smi.OctetString;
+import org.snmp4j.smi.TcpAddress;
+import org.snmp4j.util.CommonTimer;
+import org.snmp4j.util.WorkerTask;
+
+/**
+ * The {@code EventLoopTcpTransportMapping} implements a TCP transport mapping with an event loop group.
+ * Incoming connections are accepted by a single acceptor thread and then assigned round-robin to one of
+ * a configurable number of selector loops. Each selector loop owns its {@link Selector} and serves the read,
+ * write, and connect operations of its connections exclusively. Outgoing connections are assigned the same way.
+ * <p>
+ * Other threads never modify the interest set of a connection directly. Instead, they append the connection to
+ * the lock-free pending queue of its selector loop and wake up the selector (only if it has not been woken up
+ * already). Read buffers are borrowed from a pool of the selector loop while a message is being received and
+ * returned to the pool when the message has been dispatched, so idle connections do not hold a buffer.
+ * Partially written messages are continued when the socket becomes writable again.
+ * <p>
+ * If {@link #isAsyncMsgProcessingSupported()} returns {@code false}, the received message is handed over to the
+ * {@link TransportListener}s as a view on the pooled buffer without any copy. This requires that the listeners have
+ * finished using the buffer when {@link TransportListener#processMessage} returns. Otherwise, the message is copied
+ * into a buffer of its exact size before it is handed over.
+ *
+ * @author Frank Fock
+ * @version 3.6.0
+ * @since 3.6.0
+ */
+public class EventLoopTcpTransportMapping extends TcpTransportMapping<EventLoopTcpTransportMapping.SocketEntry> {
+
+    private static final LogAdapter logger = LogFactory.getLogger(EventLoopTcpTransportMapping.class);
+
+    /**
+     * The default maximum number of idle read buffers kept by each selector loop.
+     */
+    public static final int DEFAULT_MAX_POOLED_BUFFERS = 64;
+    /**
+     * The default maximum number of messages read from a connection before other connections of the same selector
+     * loop are served.
+     */
+    public static final int DEFAULT_MAX_MESSAGES_PER_READ = 16;
+
+    private final int numSelectorLoops;
+    protected MessageLengthDecoder messageLengthDecoder = new DefaultTcpTransportMapping.SnmpMesssageLengthDecoder();
+    private int maxPooledBuffers = DEFAULT_MAX_POOLED_BUFFERS;
+    private int maxMessagesPerRead = DEFAULT_MAX_MESSAGES_PER_READ;
+    private volatile EventLoopGroup eventLoopGroup;
+
+    /**
+     * Creates a TCP transport mapping in client mode (i.e. the server for incoming connections is disabled) with
+     * one selector loop per available processor.
+     *
+     * @throws IOException
+     *         if the local host address cannot be determined.
+     */
+    public EventLoopTcpTransportMapping() throws IOException {
+        this(new TcpAddress(InetAddress.getLocalHost(), 0), false, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a TCP transport mapping that binds to the given address with one selector loop per available
+     * processor.
+     *
+     * @param serverAddress
+     *         the TcpAddress instance that describes the server address to listen on incoming connection requests.
+     * @param serverEnabled
+     *         if {@code true} the server mode is enabled and incoming new connections are accepted. Use {@code false}
+     *         to allow outgoing messages and their responses only (client mode).
+     */
+    public EventLoopTcpTransportMapping(TcpAddress serverAddress, boolean serverEnabled) {
+        this(serverAddress, serverEnabled, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a TCP transport mapping that binds to the given address.
+     *
+     * @param serverAddress
+     *         the TcpAddress instance that describes the server address to listen on incoming connection requests.
+     * @param serverEnabled
+     *         if {@code true} the server mode is enabled and incoming new connections are accepted. Use {@code false}
+     *         to allow outgoing messages and their responses only (client mode).
+     * @param numSelectorLoops
+     *         the number of selector loop threads that serve the connections (at least 1).
+     */
+    public EventLoopTcpTransportMapping(TcpAddress serverAddress, boolean serverEnabled, int numSelectorLoops) {
+        super(serverAddress);
+        if (numSelectorLoops < 1) {
+            throw new IllegalArgumentException("Number of selector loops must be > 0");
+        }
+        this.serverEnabled = serverEnabled;
+        this.numSelectorLoops = numSelectorLoops;
+    }
+
+    /**
+     * Listen for incoming and outgoing requests. If the {@code serverEnabled} member is {@code false} the acceptor
+     * for incoming connections is not started. This starts the selector loop threads that process messages.
+     *
+     * @throws SocketException
+     *         when the transport is already listening for incoming/outgoing messages.
+     * @throws IOException
+     *         if the listen port could not be bound or a selector could not be opened.
+     */
+    @Override
+    public synchronized void listen() throws IOException {
+        if (server != null) {
+            throw new SocketException("Port already listening");
+        }
+        EventLoopGroup group = new EventLoopGroup();
+        eventLoopGroup = group;
+        if (getConnectionTimeout() > 0) {
+            socketCleaner = SNMP4JSettings.getTimerFactory().createTimer();
+        }
+        server = group;
+        if (logger.isInfoEnabled()) {
+            logger.info("TCP address " + getListenAddress() + " bound successfully with " + numSelectorLoops +
+                    " selector loops");
+        }
+        group.run();
+    }
+
+    @Override
+    public TransportType getSupportedTransportType() {
+        return (isServerEnabled() ? TransportType.any : TransportType.sender);
+    }
+
+    /**
+     * Closes all open sockets, stops the acceptor and selector loop threads, and removes all queued messages and
+     * socket entries.
+     */
+    @Override
+    public void close() {
+        WorkerTask st;
+        synchronized (this) {
+            st = server;
+            server = null;
+            eventLoopGroup = null;
+        }
+        if (st != null) {
+            st.terminate();
+            try {
+                st.join();
+            } catch (InterruptedException ex) {
+                logger.warn(ex);
+                Thread.currentThread().interrupt();
+            }
+            closeSockets(sockets);
+            sockets.clear();
+            if (socketCleaner != null) {
+                socketCleaner.cancel();
+            }
+            socketCleaner = null;
+        }
+    }
+
+    /**
+     * Sends a SNMP message to the supplied address. If there is no open connection to the address, a new one is
+     * initiated on the next selector loop in round-robin order. The message is written by the selector loop of the
+     * connection.
+     *
+     * @param address
+     *         the target {@code TcpAddress}.
+     * @param message
+     *         the message to sent.
+     * @param tmStateReference
+     *         the (optional) transport model state reference as defined by RFC 5590 section 6.1.
+     *
+     * @throws IOException
+     *         if a new connection cannot be initiated.
+     */
+    @Override
+    public void sendMessage(TcpAddress address, byte[] message,
+                            TransportStateReference tmStateReference, long timeoutMillis, int maxRetries)
+            throws IOException {
+        EventLoopGroup group = eventLoopGroup;
+        if (group == null) {
+            if (isOpenSocketOnSending()) {
+                synchronized (this) {
+                    if (server == null) {
+                        listen();
+                    }
+                    group = eventLoopGroup;
+                }
+            }
+            else {
+                handleDroppedMessageToSend(address, message, tmStateReference, timeoutMillis, maxRetries);
+                return;
+            }
+        }
+        if ((suspendedAddresses.size() > 0) && suspendedAddresses.contains(address)) {
+            handleDroppedMessageToSend(address, message, tmStateReference, timeoutMillis, maxRetries);
+            return;
+        }
+        SocketEntry entry = sockets.get(address);
+        if ((entry != null) && !entry.getChannel().isOpen()) {
+            sockets.remove(address, entry);
+            entry = null;
+        }
+        if (entry == null) {
+            SocketEntry newEntry = group.connect(address);
+            entry = sockets.putIfAbsent(address, newEntry);
+            if (entry == null) {
+                entry = newEntry;
+            }
+            else {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Concurrent connection attempt detected, canceling this one to " + address);
+                }
+                newEntry.getChannel().close();
+            }
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("Queuing message with length " + message.length + " for " + entry);
+        }
+        entry.used();
+        entry.addMessage(message);
+        entry.getSelectorLoop().schedule(entry);
+    }
+
+    @Override
+    public MessageLengthDecoder getMessageLengthDecoder() {
+        return messageLengthDecoder;
+    }
+
+    /**
+     * Sets the message length decoder. Default message length decoder is the
+     * {@link DefaultTcpTransportMapping.SnmpMesssageLengthDecoder}.
+     *
+     * @param messageLengthDecoder
+     *         a {@code MessageLengthDecoder} instance.
+     */
+    @Override
+    public void setMessageLengthDecoder(MessageLengthDecoder messageLengthDecoder) {
+        if (messageLengthDecoder == null) {
+            throw new NullPointerException();
+        }
+        this.messageLengthDecoder = messageLengthDecoder;
+    }
+
+    @Override
+    public CommonTimer getSocketCleaner() {
+        return socketCleaner;
+    }
+
+    /**
+     * Sets the maximum buffer size for incoming requests. When SNMP packets are received that are longer than this
+     * maximum size, the messages will be silently dropped and the connection will be closed. Buffers already pooled
+     * with a smaller size are discarded when they are borrowed next.
+     *
+     * @param maxInboundMessageSize
+     *         the length of the inbound buffer in bytes.
+     */
+    public void setMaxInboundMessageSize(int maxInboundMessageSize) {
+        this.maxInboundMessageSize = maxInboundMessageSize;
+    }
+
+    @Override
+    public boolean isListening() {
+        return (server != null);
+    }
+
+    @Override
+    public TcpAddress getListenAddress() {
+        EventLoopGroup group = eventLoopGroup;
+        if ((group != null) && (group.serverSocketChannel != null)) {
+            try {
+                InetSocketAddress local = (InetSocketAddress) group.serverSocketChannel.getLocalAddress();
+                if (local != null) {
+                    return new TcpAddress(tcpAddress.getInetAddress(), local.getPort());
+                }
+            } catch (IOException iox) {
+                logger.debug("Failed to get local address: " + iox.getMessage());
+            }
+        }
+        return tcpAddress;
+    }
+
+    /**
+     * Returns the number of selector loop threads.
+     *
+     * @return the number of threads serving connections.
+     */
+    public int getNumSelectorLoops() {
+        return numSelectorLoops;
+    }
+
+    public int getMaxPooledBuffers() {
+        return maxPooledBuffers;
+    }
+
+    /**
+     * Sets the maximum number of idle read buffers each selector loop keeps for reuse.
+     *
+     * @param maxPooledBuffers
+     *         the maximum number of pooled buffers per selector loop. Zero disables pooling.
+     */
+    public void setMaxPooledBuffers(int maxPooledBuffers) {
+        if (maxPooledBuffers < 0) {
+            throw new IllegalArgumentException("Maximum pooled buffers must be >= 0");
+        }
+        this.maxPooledBuffers = maxPooledBuffers;
+    }
+
+    public int getMaxMessagesPerRead() {
+        return maxMessagesPerRead;
+    }
+
+    /**
+     * Sets the maximum number of messages read from a single connection before the other connections of the same
+     * selector loop are served. This prevents a busy connection from starving the others.
+     *
+     * @param maxMessagesPerRead
+     *         a value greater than zero.
+     */
+    public void setMaxMessagesPerRead(int maxMessagesPerRead) {
+        if (maxMessagesPerRead < 1) {
+            throw new IllegalArgumentException("Maximum messages per read must be > 0");
+        }
+        this.maxMessagesPerRead = maxMessagesPerRead;
+    }
+
+    protected TcpAddress createIncomingAddress(Socket s) {
+        return new TcpAddress(s.getInetAddress(), s.getPort());
+    }
+
+    /**
+     * A connection served by a {@link SelectorLoop}. The selection key and the read and write state are accessed
+     * by the selector loop thread only.
+     */
+    protected class SocketEntry extends AbstractSocketEntry {
+        private final SelectorLoop selectorLoop;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private SelectionKey selectionKey;
+        private ByteBuffer readBuffer;
+        private int messageLength;
+        private ByteBuffer writeBuffer;
+
+        public SocketEntry(TcpAddress address, Socket socket, SelectorLoop selectorLoop) {
+            super(address, socket);
+            this.selectorLoop = selectorLoop;
+        }
+
+        public SocketChannel getChannel() {
+            return socket.getChannel();
+        }
+
+        public SelectorLoop getSelectorLoop() {
+            return selectorLoop;
+        }
+
+        @Override
+        public String toString() {
+            return "SocketEntry[peerAddress=" + getPeerAddress() +
+                    ",socket=" + socket + ",lastUse=" +
+                    new Date(getLastUse() / SnmpConstants.MILLISECOND_TO_NANOSECOND) +
+                    ",socketTimeout=" + getSocketTimeout() + "]";
+        }
+    }
+
+    /**
+     * The {@code EventLoopGroup} combines the acceptor and the selector loops of a listening transport mapping into
+     * a single {@link WorkerTask}.
+     */
+    protected class EventLoopGroup implements WorkerTask {
+
+        private final SelectorLoop[] selectorLoops;
+        private final WorkerTask[] loopThreads;
+        private final AtomicInteger nextLoop = new AtomicInteger();
+        private final ServerSocketChannel serverSocketChannel;
+        private final Acceptor acceptor;
+        private final WorkerTask acceptorThread;
+
+        protected EventLoopGroup() throws IOException {
+            selectorLoops = new SelectorLoop[numSelectorLoops];
+            loopThreads = new WorkerTask[numSelectorLoops];
+            try {
+                for (int i = 0; i < selectorLoops.length; i++) {
+                    selectorLoops[i] = new SelectorLoop();
+                }
+            } catch (IOException iox) {
+                closeSelectors();
+                throw iox;
+            }
+            if (isServerEnabled()) {
+                ServerSocketChannel ssc = ServerSocketChannel.open();
+                try {
+                    setSocketOptions(ssc.socket());
+                    ssc.bind(new InetSocketAddress(tcpAddress.getInetAddress(), tcpAddress.getPort()));
+                } catch (IOException iox) {
+                    logger.warn("Socket bind failed for " + tcpAddress + ": " + iox.getMessage());
+                    ssc.close();
+                    closeSelectors();
+                    throw iox;
+                }
+                serverSocketChannel = ssc;
+                acceptor = new Acceptor(ssc);
+            }
+            else {
+                serverSocketChannel = null;
+                acceptor = null;
+            }
+            String name = "EventLoopTcpTransportMapping_" + getAddress();
+            for (int i = 0; i < selectorLoops.length; i++) {
+                loopThreads[i] =
+                        SNMP4JSettings.getThreadFactory().createWorkerThread(name + "_" + i, selectorLoops[i], true);
+            }
+            acceptorThread = (acceptor == null) ? null :
+                    SNMP4JSettings.getThreadFactory().createWorkerThread(name + "_acceptor", acceptor, true);
+        }
+
+        private void closeSelectors() {
+            for (SelectorLoop selectorLoop : selectorLoops) {
+                if (selectorLoop != null) {
+                    try {
+                        selectorLoop.selector.close();
+                    } catch (IOException iox) {
+                        logger.debug(iox);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Returns the selector loop for the next connection in round-robin order.
+         *
+         * @return a selector loop.
+         */
+        protected SelectorLoop nextSelectorLoop() {
+            return selectorLoops[Math.floorMod(nextLoop.getAndIncrement(), selectorLoops.length)];
+        }
+
+        /**
+         * Initiates a non-blocking connection to the specified address.
+         *
+         * @param address
+         *         the remote address.
+         *
+         * @return the socket entry for the connection which has not been scheduled with its selector loop yet.
+         * @throws IOException
+         *         if the channel cannot be opened.
+         */
+        protected SocketEntry connect(TcpAddress address) throws IOException {
+            SocketChannel sc = SocketChannel.open();
+            try {
+                sc.configureBlocking(false);
+                sc.connect(new InetSocketAddress(address.getInetAddress(), address.getPort()));
+            } catch (IOException iox) {
+                logger.error(iox);
+                sc.close();
+                throw iox;
+            }
+            if (logger.isDebugEnabled()) {
+                logger.debug("Trying to connect to " + address);
+            }
+            return new SocketEntry(address, sc.socket(), nextSelectorLoop());
+        }
+
+        @Override
+        public void run() {
+            for (WorkerTask loopThread : loopThreads) {
+                loopThread.run();
+            }
+            if (acceptorThread != null) {
+                acceptorThread.run();
+            }
+        }
+
+        @Override
+        public void terminate() {
+            if (acceptor != null) {
+                acceptor.terminate();
+            }
+            for (SelectorLoop selectorLoop : selectorLoops) {
+                selectorLoop.terminate();
+            }
+        }
+
+        @Override
+        public void join() throws InterruptedException {
+            if (acceptorThread != null) {
+                acceptorThread.join();
+            }
+            for (WorkerTask loopThread : loopThreads) {
+                loopThread.join();
+            }
+        }
+
+        @Override
+        public void interrupt() {
+            terminate();
+        }
+    }
+
+    /**
+     * The {@code Acceptor} accepts incoming connections in blocking mode and hands them over to the selector loops.
+     */
+    protected class Acceptor implements WorkerTask {
+
+        private final ServerSocketChannel serverSocketChannel;
+        private volatile boolean stop = false;
+
+        protected Acceptor(ServerSocketChannel serverSocketChannel) {
+            this.serverSocketChannel = serverSocketChannel;
+        }
+
+        @Override
+        public void run() {
+            EventLoopGroup group = eventLoopGroup;
+            while (!stop && (group != null)) {
+                SocketChannel sc;
+                try {
+                    sc = serverSocketChannel.accept();
+                } catch (ClosedChannelException ccex) {
+                    // closed by terminate()
+                    break;
+                } catch (IOException iox) {
+                    // for example too many open files, retry after the next connection attempt
+                    logger.warn("Failed to accept connection on " + tcpAddress + ": " + iox.getMessage());
+                    continue;
+                }
+                try {
+                    sc.configureBlocking(false);
+                    Socket s = sc.socket();
+                    TcpAddress incomingAddress = createIncomingAddress(s);
+                    SocketEntry entry = new SocketEntry(incomingAddress, s, group.nextSelectorLoop());
+                    sockets.put(incomingAddress, entry);
+                    timeoutSocket(entry);
+                    TransportStateEvent e =
+                            new TransportStateEvent(EventLoopTcpTransportMapping.this, incomingAddress,
+                                    TransportStateEvent.STATE_CONNECTED, null);
+                    fireConnectionStateChanged(e);
+                    if (e.isCancelled()) {
+                        logger.warn("Incoming connection cancelled");
+                        sockets.remove(incomingAddress, entry);
+                        sc.close();
+                    }
+                    else {
+                        entry.getSelectorLoop().schedule(entry);
+                    }
+                } catch (IOException iox) {
+                    logger.warn(iox);
+                    closeQuietly(sc);
+                } catch (RuntimeException rex) {
+                    logger.error("Failed to register incoming connection: " + rex.getMessage(), rex);
+                    closeQuietly(sc);
+                    if (SNMP4JSettings.isForwardRuntimeExceptions()) {
+                        throw rex;
+                    }
+                }
+            }
+            if (logger.isDebugEnabled()) {
+                logger.debug("Worker task finished: " + getClass().getName());
+            }
+        }
+
+        @Override
+        public void terminate() {
+            stop = true;
+            try {
+                serverSocketChannel.close();
+            } catch (IOException iox) {
+                logger.warn(iox);
+            }
+            if (logger.isDebugEnabled()) {
+                logger.debug("Terminated worker task: " + getClass().getName());
+            }
+        }
+
+        @Override
+        public void join() {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Joining worker task: " + getClass().getName());
+            }
+        }
+
+        @Override
+        public void interrupt() {
+            terminate();
+        }
+    }
+
+    /**
+     * A {@code SelectorLoop} serves the connections assigned to it with its own {@link Selector}. All changes of
+     * the interest sets of its connections are done by the loop thread itself.
+     */
+    protected class SelectorLoop implements WorkerTask {
+
+        private final Selector selector;
+        private final Queue<SocketEntry> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean wakeupPending = new AtomicBoolean();
+        private final ArrayDeque<ByteBuffer> bufferPool = new ArrayDeque<>();
+        private volatile Thread loopThread;
+        private volatile boolean stop = false;
+
+        protected SelectorLoop() throws IOException {
+            selector = Selector.open();
+        }
+
+        /**
+         * Schedules a connection for (re)registration with this loop's selector, for example because a message has
+         * been queued for it. This method may be called by any thread.
+         *
+         * @param entry
+         *         a socket entry assigned to this selector loop.
+         */
+        public void schedule(SocketEntry entry) {
+            if (entry.scheduled.compareAndSet(false, true)) {
+                pending.offer(entry);
+            }
+            if ((Thread.currentThread() != loopThread) && wakeupPending.compareAndSet(false, true)) {
+                selector.wakeup();
+            }
+        }
+
+        @Override
+        public void run() {
+            loopThread = Thread.currentThread();
+            while (!stop) {
+                try {
+                    selector.select();
+                    wakeupPending.set(false);
+                    if (stop) {
+                        break;
+                    }
+                    Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                    while (it.hasNext()) {
+                        SelectionKey sk = it.next();
+                        it.remove();
+                        processKey(sk);
+                    }
+                    // after the keys, because messages sent while dispatching on this thread do not wake up the
+                    // selector
+                    processPending();
+                } catch (IOException iox) {
+                    logger.error(iox);
+                } catch (RuntimeException rex) {
+                    logger.error("Exception in selector loop: " + rex.getMessage(), rex);
+                    if (SNMP4JSettings.isForwardRuntimeExceptions()) {
+                        stop = true;
+                        throw rex;
+                    }
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException iox) {
+                logger.warn(iox);
+            }
+            bufferPool.clear();
+            if (logger.isDebugEnabled()) {
+                logger.debug("Worker task finished: " + getClass().getName());
+            }
+        }
+
+        private void processPending() {
+            SocketEntry entry;
+            while ((entry = pending.poll()) != null) {
+                entry.scheduled.set(false);
+                SocketChannel sc = entry.getChannel();
+                try {
+                    if (!sc.isOpen()) {
+                        continue;
+                    }
+                    SelectionKey sk = entry.selectionKey;
+                    if ((sk == null) || !sk.isValid()) {
+                        int ops = sc.isConnectionPending() ? SelectionKey.OP_CONNECT :
+                                (entry.hasMessage() ? SelectionKey.OP_READ | SelectionKey.OP_WRITE :
+                                        SelectionKey.OP_READ);
+                        entry.selectionKey = sc.register(selector, ops, entry);
+                    }
+                    else if (sc.isConnected() && entry.hasMessage()) {
+                        sk.interestOps(sk.interestOps() | SelectionKey.OP_WRITE);
+                    }
+                } catch (ClosedChannelException | CancelledKeyException ex) {
+                    logger.warn("Cannot register closed channel of " + entry + ": " + ex);
+                    connectionClosed(entry, TransportStateEvent.STATE_CLOSED, null);
+                }
+            }
+        }
+
+        private void processKey(SelectionKey sk) {
+            SocketEntry entry = (SocketEntry) sk.attachment();
+            try {
+                if (sk.isConnectable()) {
+                    finishConnect(entry, sk);
+                    return;
+                }
+                if (sk.isReadable()) {
+                    readMessages(entry, sk);
+                }
+                if (sk.isValid() && sk.isWritable()) {
+                    writeMessages(entry, sk);
+                }
+            } catch (CancelledKeyException ckex) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Selection key cancelled, skipping it");
+                }
+            }
+        }
+
+        private void finishConnect(SocketEntry entry, SelectionKey sk) {
+            try {
+                if (entry.getChannel().finishConnect()) {
+                    logger.debug("Connected to " + entry.getPeerAddress());
+                    timeoutSocket(entry);
+                    sk.interestOps(entry.hasMessage() ? SelectionKey.OP_READ | SelectionKey.OP_WRITE :
+                            SelectionKey.OP_READ);
+                    TransportStateEvent e =
+                            new TransportStateEvent(EventLoopTcpTransportMapping.this, entry.getPeerAddress(),
+                                    TransportStateEvent.STATE_CONNECTED, null);
+                    fireConnectionStateChanged(e);
+                }
+            } catch (IOException iox) {
+                logger.warn(iox);
+                connectionClosed(entry, TransportStateEvent.STATE_CLOSED, iox);
+            }
+        }
+
+        private void readMessages(SocketEntry entry, SelectionKey sk) {
+            SocketChannel sc = entry.getChannel();
+            int minHeaderLength = messageLengthDecoder.getMinHeaderLength();
+            int messages = 0;
+            try {
+                while (messages < maxMessagesPerRead) {
+                    ByteBuffer buffer = entry.readBuffer;
+                    if (buffer == null) {
+                        buffer = borrowBuffer();
+                        buffer.limit(minHeaderLength);
+                        entry.readBuffer = buffer;
+                    }
+                    int bytesRead = sc.read(buffer);
+                    if (bytesRead < 0) {
+                        logger.debug("Socket closed remotely");
+                        connectionClosed(entry, TransportStateEvent.STATE_DISCONNECTED_REMOTELY, null);
+                        return;
+                    }
+                    if (bytesRead == 0) {
+                        break;
+                    }
+                    entry.used();
+                    if ((entry.messageLength == 0) && (buffer.position() >= minHeaderLength)) {
+                        MessageLength messageLength =
+                                messageLengthDecoder.getMessageLength(ByteBuffer.wrap(buffer.array(), 0,
+                                        buffer.position()));
+                        if (logger.isDebugEnabled()) {
+                            logger.debug("Message length is " + messageLength);
+                        }
+                        int messageSize = messageLength.getMessageLength();
+                        if ((messageSize > getMaxInboundMessageSize()) || (messageSize <= 0) ||
+                                (messageSize < buffer.position())) {
+                            logger.error("Received message length " + messageLength +
+                                    " is greater than inboundBufferSize " + getMaxInboundMessageSize());
+                            connectionClosed(entry, TransportStateEvent.STATE_CLOSED, null);
+                            logger.info("Socket to " + entry.getPeerAddress() + " closed due to an error");
+                            return;
+                        }
+                        entry.messageLength = messageSize;
+                        buffer.limit(messageSize);
+                    }
+                    if ((entry.messageLength > 0) && !buffer.hasRemaining()) {
+                        dispatchMessage(entry, buffer);
+                        messages++;
+                        entry.messageLength = 0;
+                        buffer.clear();
+                        buffer.limit(minHeaderLength);
+                    }
+                }
+                if ((entry.messageLength == 0) && (entry.readBuffer != null) &&
+                        (entry.readBuffer.position() == 0)) {
+                    releaseBuffer(entry.readBuffer);
+                    entry.readBuffer = null;
+                }
+            } catch (IOException iox) {
+                // IO exception -> channel closed remotely
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Reading from " + entry.getPeerAddress() + " failed: " + iox.getMessage());
+                }
+                connectionClosed(entry, TransportStateEvent.STATE_DISCONNECTED_REMOTELY, iox);
+            }
+        }
+
+        private void dispatchMessage(SocketEntry entry, ByteBuffer buffer) {
+            int length = buffer.position();
+            if (logger.isDebugEnabled()) {
+                logger.debug("Received message from " + entry.getPeerAddress() + " with length " + length + ": " +
+                        new OctetString(buffer.array(), 0, length).toHexString());
+            }
+            ByteBuffer message;
+            if (isAsyncMsgProcessingSupported()) {
+                byte[] bytes = new byte[length];
+                System.arraycopy(buffer.array(), 0, bytes, 0, length);
+                message = ByteBuffer.wrap(bytes);
+            }
+            else {
+                message = ByteBuffer.wrap(buffer.array(), 0, length);
+            }
+            TransportStateReference stateReference =
+                    new TransportStateReference(EventLoopTcpTransportMapping.this, entry.getPeerAddress(), null,
+                            SecurityLevel.undefined, SecurityLevel.undefined, false, entry);
+            try {
+                fireProcessMessage(entry.getPeerAddress(), message, stateReference);
+            } catch (RuntimeException rex) {
+                logger.error("Processing of incoming message failed: " + rex.getMessage(), rex);
+                if (SNMP4JSettings.isForwardRuntimeExceptions()) {
+                    throw rex;
+                }
+            }
+        }
+
+        private void writeMessages(SocketEntry entry, SelectionKey sk) {
+            SocketChannel sc = entry.getChannel();
+            try {
+                while (true) {
+                    ByteBuffer buffer = entry.writeBuffer;
+                    if (buffer == null) {
+                        byte[] message = entry.nextMessage();
+                        if (message == null) {
+                            // a message queued concurrently reschedules the entry and thus sets OP_WRITE again
+                            sk.interestOps(sk.interestOps() & ~SelectionKey.OP_WRITE);
+                            return;
+                        }
+                        buffer = ByteBuffer.wrap(message);
+                        entry.writeBuffer = buffer;
+                    }
+                    sc.write(buffer);
+                    if (buffer.hasRemaining()) {
+                        // socket send buffer is full, continue when writable again
+                        return;
+                    }
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("Sent message with length " + buffer.limit() + " to " +
+                                entry.getPeerAddress() + ": " +
+                                new OctetString(buffer.array(), 0, buffer.limit()).toHexString());
+                    }
+                    entry.writeBuffer = null;
+                    entry.used();
+                }
+            } catch (IOException iox) {
+                logger.warn(iox);
+                connectionClosed(entry, TransportStateEvent.STATE_DISCONNECTED_REMOTELY, iox);
+            }
+        }
+
+        private void connectionClosed(SocketEntry entry, int state, IOException cause) {
+            if (entry.selectionKey != null) {
+                entry.selectionKey.cancel();
+            }
+            closeQuietly(entry.getChannel());
+            if (entry.readBuffer != null) {
+                releaseBuffer(entry.readBuffer);
+                entry.readBuffer = null;
+            }
+            entry.writeBuffer = null;
+            sockets.remove(entry.getPeerAddress(), entry);
+            if (entry.getSocketTimeout() != null) {
+                entry.getSocketTimeout().cancel();
+            }
+            TransportStateEvent e = (state == TransportStateEvent.STATE_CLOSED) ?
+                    new TransportStateEvent(EventLoopTcpTransportMapping.this, entry.getPeerAddress(), state, cause,
+                            entry.getMessages()) :
+                    new TransportStateEvent(EventLoopTcpTransportMapping.this, entry.getPeerAddress(), state, cause);
+            fireConnectionStateChanged(e);
+        }
+
+        private ByteBuffer borrowBuffer() {
+            ByteBuffer buffer;
+            while ((buffer = bufferPool.pollFirst()) != null) {
+                if (buffer.capacity() >= getMaxInboundMessageSize()) {
+                    buffer.clear();
+                    return buffer;
+                }
+            }
+            return ByteBuffer.allocate(getMaxInboundMessageSize());
+        }
+
+        private void releaseBuffer(ByteBuffer buffer) {
+            if (bufferPool.size() < maxPooledBuffers) {
+                bufferPool.addFirst(buffer);
+            }
+        }
+
+        @Override
+        public void terminate() {
+            stop = true;
+            selector.wakeup();
+            if (logger.isDebugEnabled()) {
+                logger.debug("Terminated worker task: " + getClass().getName());
+            }
+        }
+
+        @Override
+        public void join() {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Joining worker task: " + getClass().getName());
+            }
+        }
+
+        @Override
+        public void interrupt() {
+            terminate();
+        }
+    }
+
+    private static void closeQuietly(SocketChannel sc) {
+        try {
+            sc.close();
+        } catch (IOException iox) {
+            logger.debug(iox);
+        }
+    }
+}
@@ -0,0 +1,467 @@
+/*_############################################################################
+  _##
+  _##  SNMP4J - NioUdpTransportMapping.java
+  _##
+  _##  Copyright (C) 2003-2021  Frank Fock (SNMP4J.org)
+  _##
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##
+  _##########################################################################*/
+package org.snmp4j.transport;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.SocketException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.snmp4j.SNMP4JSettings;
+import org.snmp4j.TransportStateReference;
+import org.snmp4j.log.LogAdapter;
+import org.snmp4j.log.LogFactory;
+import org.snmp4j.security.SecurityLevel;
+import org.snmp4j.smi.OctetString;
+import org.snmp4j.smi.UdpAddress;
+import org.snmp4j.util.MultiThreadedMessageDispatcher;
+import org.snmp4j.util.WorkerTask;
+
+/**
+ * The {@code NioUdpTransportMapping} implements a UDP transport mapping based on {@link DatagramChannel}s
+ * with a configurable number of reader threads. Each reader thread receives datagrams into a buffer (slab)
+ * that it owns, and hands them over to the {@link TransportListener}s as read-only views on that buffer
+ * without copying them.
+ * <p>
+ * If the operating system supports {@link StandardSocketOptions#SO_REUSEPORT}, each reader thread
+ * gets its own channel bound to the same address and port, so that the kernel distributes incoming
+ * datagrams among the readers. Otherwise, all readers receive from a single shared channel.
+ * <p>
+ * By default ({@link #isAsyncMsgProcessingSupported()} returns {@code true}), each datagram is received
+ * into a region of a heap slab that is not reused, so listeners may keep and process the buffer
+ * asynchronously. A new slab is allocated when the remaining space of the current slab cannot hold a
+ * message of {@link #getMaxInboundMessageSize()}; the old slab is released by the garbage collector
+ * when all its messages have been processed. Heap slabs are used in this mode, because direct memory
+ * is limited and only reclaimed lazily by the garbage collector.
+ * <p>
+ * If {@link #isAsyncMsgProcessingSupported()} returns {@code false}, every datagram is received at the
+ * start of a direct slab, which is allocated once per reader and saves copying the datagram from the
+ * socket. This requires that the listeners have finished using the buffer when
+ * {@link TransportListener#processMessage} returns. This is the case for
+ * {@link org.snmp4j.MessageDispatcherImpl}, but not for
+ * {@link org.snmp4j.util.MultiThreadedMessageDispatcher}, which processes the buffer on a worker thread.
+ * The slab is therefore not reused while a {@code MultiThreadedMessageDispatcher} is registered as
+ * listener, regardless of {@link #isAsyncMsgProcessingSupported()}.
+ *
+ * @author Frank Fock
+ * @version 3.6.0
+ * @since 3.6.0
+ */
+public class NioUdpTransportMapping extends UdpTransportMapping {
+
+    private static final LogAdapter logger = LogFactory.getLogger(NioUdpTransportMapping.class);
+    /**
+     * The minimum size of the buffers (slabs) the reader threads receive datagrams into.
+     */
+    public static final int MIN_RECEIVE_SLAB_SIZE = 1 << 18;
+
+    private final int numReaders;
+    private final boolean reuseAddress;
+    private int receiveBufferSize = 0; // not set by default
+    private volatile DatagramChannel[] channels;
+    private volatile List<WorkerTask> readers;
+    private volatile boolean asyncListenerRegistered;
+
+    /**
+     * Creates a UDP transport with a single reader thread on the specified address.
+     *
+     * @param udpAddress
+     *         the local address for sending and receiving of UDP messages.
+     */
+    public NioUdpTransportMapping(UdpAddress udpAddress) {
+        this(udpAddress, 1, false);
+    }
+
+    /**
+     * Creates a UDP transport with the specified number of reader threads.
+     *
+     * @param udpAddress
+     *         the local address for sending and receiving of UDP messages.
+     * @param numReaders
+     *         the number of threads receiving datagrams (at least 1).
+     * @param reuseAddress
+     *         if {@code true} addresses are reused which provides faster socket
+     *         binding if an application is restarted for instance.
+     */
+    public NioUdpTransportMapping(UdpAddress udpAddress, int numReaders, boolean reuseAddress) {
+        super(udpAddress);
+        if (numReaders < 1) {
+            throw new IllegalArgumentException("Number of readers must be > 0");
+        }
+        this.numReaders = numReaders;
+        this.reuseAddress = reuseAddress;
+    }
+
+    @Override
+    public void sendMessage(UdpAddress targetAddress, byte[] message,
+                            TransportStateReference tmStateReference, long timeoutMillis, int maxRetries)
+            throws IOException {
+        if ((suspendedAddresses.size() > 0) && suspendedAddresses.contains(targetAddress)) {
+            handleDroppedMessageToSend(targetAddress, message, tmStateReference, timeoutMillis, maxRetries);
+            return;
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("Sending message to " + targetAddress + " from " + getListenAddress() + " with length " +
+                    message.length + ": " +
+                    new OctetString(message).toHexString());
+        }
+        DatagramChannel channel = ensureChannels()[0];
+        channel.send(ByteBuffer.wrap(message),
+                new InetSocketAddress(targetAddress.getInetAddress(), targetAddress.getPort()));
+    }
+
+    /**
+     * Opens (and binds) the channels of this transport mapping if they are not yet open.
+     *
+     * @return the bound channels. If {@code SO_REUSEPORT} is not supported, a single channel is returned.
+     * @throws IOException
+     *         if a channel cannot be opened or bound.
+     */
+    protected synchronized DatagramChannel[] ensureChannels() throws IOException {
+        DatagramChannel[] c = channels;
+        if (c == null) {
+            DatagramChannel first = openChannel(new InetSocketAddress(udpAddress.getInetAddress(),
+                    udpAddress.getPort()));
+            boolean reusePort = (numReaders > 1) &&
+                    first.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+            if (reusePort) {
+                c = new DatagramChannel[numReaders];
+                c[0] = first;
+                // bind to the actual port which might have been chosen by the OS
+                InetSocketAddress boundAddress = (InetSocketAddress) first.getLocalAddress();
+                for (int i = 1; i < c.length; i++) {
+                    c[i] = openChannel(boundAddress);
+                }
+            }
+            else {
+                c = new DatagramChannel[] { first };
+            }
+            channels = c;
+        }
+        return c;
+    }
+
+    private DatagramChannel openChannel(SocketAddress bindAddress) throws IOException {
+        DatagramChannel channel = DatagramChannel.open();
+        try {
+            channel.setOption(StandardSocketOptions.SO_REUSEADDR, reuseAddress);
+            if ((numReaders > 1) && channel.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT)) {
+                channel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+            }
+            if (receiveBufferSize > 0) {
+                channel.setOption(StandardSocketOptions.SO_RCVBUF,
+                        Math.max(receiveBufferSize, maxInboundMessageSize));
+            }
+            channel.bind(bindAddress);
+        } catch (IOException iox) {
+            channel.close();
+            throw iox;
+        }
+        return channel;
+    }
+
+    /**
+     * Starts the reader threads that receive incoming messages. The threads are
+     * started in daemon mode and thus they will not block application termination.
+     * Nevertheless, the {@link #close()} method should be called to stop the
+     * reader threads gracefully and free associated resources.
+     *
+     * @throws IOException
+     *         if the listen port could not be bound.
+     */
+    @Override
+    public synchronized void listen() throws IOException {
+        if (readers != null) {
+            throw new SocketException("Port already listening");
+        }
+        DatagramChannel[] c = ensureChannels();
+        List<WorkerTask> r = new ArrayList<>(numReaders);
+        for (int i = 0; i < numReaders; i++) {
+            ReaderTask readerTask = new ReaderTask(c[i % c.length]);
+            r.add(SNMP4JSettings.getThreadFactory().createWorkerThread(
+                    "NioUdpTransportMapping_" + getListenAddress() + "_" + i, readerTask, true));
+        }
+        readers = r;
+        if (logger.isInfoEnabled()) {
+            logger.info("Listening on " + getListenAddress() + " with " + numReaders + " readers on " +
+                    c.length + " channel(s)");
+        }
+        for (WorkerTask reader : r) {
+            reader.run();
+        }
+    }
+
+    /**
+     * Closes the channels and stops the reader threads.
+     *
+     * @throws IOException
+     *         if a channel cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        List<WorkerTask> r;
+        DatagramChannel[] c;
+        synchronized (this) {
+            r = readers;
+            c = channels;
+            readers = null;
+            channels = null;
+        }
+        if (r != null) {
+            for (WorkerTask reader : r) {
+                reader.terminate();
+            }
+        }
+        IOException closeException = null;
+        if (c != null) {
+            for (DatagramChannel channel : c) {
+                try {
+                    channel.close();
+                } catch (IOException iox) {
+                    closeException = iox;
+                }
+            }
+        }
+        if (r != null) {
+            boolean interrupted = false;
+            for (WorkerTask reader : r) {
+                try {
+                    reader.join();
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                    logger.warn(ex);
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (closeException != null) {
+            throw closeException;
+        }
+    }
+
+    @Override
+    public synchronized void addTransportListener(TransportListener l) {
+        super.addTransportListener(l);
+        updateAsyncListenerRegistered();
+    }
+
+    @Override
+    public synchronized void removeTransportListener(TransportListener l) {
+        super.removeTransportListener(l);
+        updateAsyncListenerRegistered();
+    }
+
+    private void updateAsyncListenerRegistered() {
+        boolean asyncListener = false;
+        for (TransportListener l : transportListener) {
+            if (l instanceof MultiThreadedMessageDispatcher) {
+                asyncListener = true;
+                break;
+            }
+        }
+        if (asyncListener && !isAsyncMsgProcessingSupported() && logger.isDebugEnabled()) {
+            logger.debug("Receive buffers of " + this + " are not reused, because a listener processes " +
+                    "messages asynchronously");
+        }
+        asyncListenerRegistered = asyncListener;
+    }
+
+    /**
+     * Checks whether the reader threads may reuse their receive buffer for the next datagram as soon as
+     * the listeners returned from {@link TransportListener#processMessage}. This is the case if
+     * asynchronous message processing is not supported and no {@link MultiThreadedMessageDispatcher} is
+     * registered as listener.
+     *
+     * @return {@code true} if received datagrams are overwritten by the next datagram.
+     */
+    protected boolean isReceiveBufferReused() {
+        return !isAsyncMsgProcessingSupported() && !asyncListenerRegistered;
+    }
+
+    @Override
+    public boolean isListening() {
+        return (readers != null);
+    }
+
+    @Override
+    public UdpAddress getListenAddress() {
+        DatagramChannel[] c = channels;
+        if (c != null) {
+            try {
+                InetSocketAddress local = (InetSocketAddress) c[0].getLocalAddress();
+                if (local != null) {
+                    return new UdpAddress(local.getAddress(), local.getPort());
+                }
+            } catch (IOException iox) {
+                logger.debug("Failed to get local address: " + iox.getMessage());
+            }
+        }
+        return null;
+    }
+
+    public void setMaxInboundMessageSize(int maxInboundMessageSize) {
+        this.maxInboundMessageSize = maxInboundMessageSize;
+    }
+
+    /**
+     * Returns the number of reader threads.
+     *
+     * @return the number of threads receiving datagrams.
+     */
+    public int getNumReaders() {
+        return numReaders;
+    }
+
+    /**
+     * Gets the requested receive buffer size for the underlying UDP channels.
+     *
+     * @return &lt;=0 if the default buffer size of the OS is used, or a value &gt;0 if the
+     * user specified a buffer size.
+     */
+    public int getReceiveBufferSize() {
+        return receiveBufferSize;
+    }
+
+    /**
+     * Sets the receive buffer size, which should be greater than the maximum inbound message
+     * size. This method has to be called before {@link #listen()} to be effective.
+     *
+     * @param receiveBufferSize
+     *         an integer value &gt;0 and &gt; {@link #getMaxInboundMessageSize()}.
+     */
+    public void setReceiveBufferSize(int receiveBufferSize) {
+        if (receiveBufferSize <= 0) {
+            throw new IllegalArgumentException("Receive buffer size must be > 0");
+        }
+        this.receiveBufferSize = receiveBufferSize;
+    }
+
+    /**
+     * Receives datagrams from a channel into a buffer (slab) and hands them over without copying them.
+     */
+    protected class ReaderTask implements WorkerTask {
+
+        private final DatagramChannel channel;
+        private ByteBuffer directSlab;
+        private ByteBuffer heapSlab;
+        private volatile boolean stop = false;
+
+        public ReaderTask(DatagramChannel channel) {
+            this.channel = channel;
+        }
+
+        private int getSlabSize() {
+            return Math.max(MIN_RECEIVE_SLAB_SIZE, getMaxInboundMessageSize());
+        }
+
+        @Override
+        public void run() {
+            TransportStateReference stateReference =
+                    new TransportStateReference(NioUdpTransportMapping.this, udpAddress, null,
+                            SecurityLevel.undefined, SecurityLevel.undefined,
+                            false, channel);
+            while (!stop) {
+                try {
+                    int maxMessageSize = getMaxInboundMessageSize();
+                    ByteBuffer slab;
+                    if (isReceiveBufferReused()) {
+                        if ((directSlab == null) || (directSlab.capacity() < maxMessageSize)) {
+                            directSlab = ByteBuffer.allocateDirect(getSlabSize());
+                        }
+                        slab = directSlab;
+                        slab.clear();
+                    }
+                    else {
+                        if ((heapSlab == null) || (heapSlab.capacity() - heapSlab.position() < maxMessageSize)) {
+                            // messages in the old slab may still be processed, thus do not overwrite them
+                            heapSlab = ByteBuffer.allocate(getSlabSize());
+                        }
+                        slab = heapSlab;
+                    }
+                    int start = slab.position();
+                    slab.limit(Math.min(slab.capacity(), start + maxMessageSize));
+                    InetSocketAddress source = (InetSocketAddress) channel.receive(slab);
+                    if (source == null) {
+                        continue;
+                    }
+                    ByteBuffer view = slab.duplicate();
+                    view.limit(slab.position());
+                    view.position(start);
+                    ByteBuffer message = view.slice().asReadOnlyBuffer();
+                    UdpAddress sourceAddress = new UdpAddress(source.getAddress(), source.getPort());
+                    if (logger.isDebugEnabled()) {
+                        byte[] bytes = new byte[message.remaining()];
+                        message.duplicate().get(bytes);
+                        logger.debug("Received message from " + sourceAddress +
+                                " with length " + bytes.length + ": " + new OctetString(bytes).toHexString());
+                    }
+                    fireProcessMessage(sourceAddress, message, stateReference);
+                } catch (ClosedChannelException ccex) {
+                    // channel closed by close() or interrupt
+                    stop = true;
+                } catch (IOException iox) {
+                    logger.warn(iox);
+                    if (SNMP4JSettings.isForwardRuntimeExceptions()) {
+                        throw new RuntimeException(iox);
+                    }
+                } catch (RuntimeException rex) {
+                    logger.error("Processing of incoming message failed: " + rex.getMessage(), rex);
+                    if (SNMP4JSettings.isForwardRuntimeExceptions()) {
+                        throw rex;
+                    }
+                }
+            }
+            if (logger.isDebugEnabled()) {
+                logger.debug("Worker task stopped:" + getClass().getName());
+            }
+        }
+
+        @Override
+        public void terminate() {
+            stop = true;
+            if (logger.isDebugEnabled()) {
+                logger.debug("Terminated worker task: " + getClass().getName());
+            }
+        }
+
+        @Override
+        public void join() throws InterruptedException {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Joining worker task: " + getClass().getName());
+            }
+        }
+
+        @Override
+        public void interrupt() {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Interrupting worker task: " + getClass().getName());
+            }
+            terminate();
+        }
+    }
+}
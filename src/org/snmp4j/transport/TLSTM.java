@@ -47,7 +47,12 @@ import java.security.*;
 import java.security.cert.*;
 import java.util.*;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The {@code TLSTM} implements the Transport Layer Security
@@ -57,15 +62,26 @@ import java.util.concurrent.LinkedBlockingQueue;
  * It uses a single thread for processing incoming and outgoing messages.
  * The thread is started when the {@code listen} method is called, or
  * when an outgoing request is sent using the {@code sendMessage} method.
+ * <p>
+ * The network and application buffers of a connection are taken from a shared pool when they are needed
+ * and returned to it when the connection is idle after the handshake, so that idle connections do not hold
+ * any buffers. The delegated tasks of TLS handshakes (i.e. certificate validation and key exchange) can be
+ * offloaded from the server thread with {@link #setHandshakeTaskExecutor(Executor)}.
  *
  * @author Frank Fock
- * @version 3.5.0
+ * @version 3.6.0
  * @since 2.0
  */
 public class TLSTM extends TcpTransportMapping<TLSTM.SocketEntry> implements X509TlsTransportMappingConfig {
 
     private static final LogAdapter logger = LogFactory.getLogger(TLSTM.class);
     public static final int TLS_MAX_FRAGMENT_SIZE = 16384;
+    /**
+     * The default maximum number of idle buffers kept in the buffer pool of a TLSTM.
+     * @since 3.6.0
+     */
+    public static final int DEFAULT_MAX_POOLED_BUFFERS = 256;
+    private static final ByteBuffer EMPTY_BUFFER = ByteBuffer.allocate(0).asReadOnlyBuffer();
 
     private WorkerTask server;
     private ServerThread serverThread;
@@ -94,6 +110,8 @@ public class TLSTM extends TcpTransportMapping<TLSTM.SocketEntry> implements X50
     private String[] tlsProtocols;
     private TLSTMTrustManagerFactory trustManagerFactory = new DefaultTLSTMTrustManagerFactory();
     private int tlsMaxFragmentSize;
+    private final BufferPool bufferPool = new BufferPool(DEFAULT_MAX_POOLED_BUFFERS);
+    private volatile Executor handshakeTaskExecutor;
 
     /**
      * Creates a default TCP transport mapping with the server for incoming
@@ -420,8 +438,20 @@ public class TLSTM extends TcpTransportMapping<TLSTM.SocketEntry> implements X50
         return securityCallback.getTlsTmSecurityCallback();
     }
 
+    /**
+     * Sets the security callback that maps and accepts peer certificates. The cached SSL contexts of a
+     * {@link DefaultSSLEngineConfiguration} are cleared, so that sessions accepted by the previous callback cannot
+     * be resumed.
+     *
+     * @param securityCallback
+     *         a {@link TlsTmSecurityCallback} instance.
+     */
     public void setSecurityCallback(TlsTmSecurityCallback<X509Certificate> securityCallback) {
         this.securityCallback.setTlsTmSecurityCallback(securityCallback);
+        SSLEngineConfigurator configurator = this.sslEngineConfigurator;
+        if (configurator instanceof DefaultSSLEngineConfiguration) {
+            ((DefaultSSLEngineConfiguration) configurator).clearCache();
+        }
     }
 
     public SSLEngineConfigurator getSslEngineConfigurator() {
@@ -459,6 +489,54 @@ public class TLSTM extends TcpTransportMapping<TLSTM.SocketEntry> implements X50
         this.trustManagerFactory = trustManagerFactory;
     }
 
+    /**
+     * Gets the executor that runs the delegated tasks of TLS handshakes.
+     *
+     * @return the handshake task executor or {@code null} if delegated tasks are run by the server thread.
+     * @since 3.6.0
+     */
+    public Executor getHandshakeTaskExecutor() {
+        return handshakeTaskExecutor;
+    }
+
+    /**
+     * Sets the executor that runs the delegated tasks of TLS handshakes, like certificate validation and
+     * key agreement. These tasks are CPU intensive and would otherwise block the server thread, and thus all other
+     * connections of this transport mapping, while a handshake is in progress. The server thread continues the
+     * handshake when the tasks are finished.
+     *
+     * @param handshakeTaskExecutor
+     *         an executor (for example a thread pool) or {@code null} to run the delegated tasks on the server thread
+     *         (default).
+     * @since 3.6.0
+     */
+    public void setHandshakeTaskExecutor(Executor handshakeTaskExecutor) {
+        this.handshakeTaskExecutor = handshakeTaskExecutor;
+    }
+
+    /**
+     * Gets the maximum number of idle buffers kept in the buffer pool of this transport mapping.
+     *
+     * @return the maximum number of pooled buffers.
+     * @since 3.6.0
+     */
+    public int getMaxPooledBuffers() {
+        return bufferPool.getMaxSize();
+    }
+
+    /**
+     * Sets the maximum number of idle buffers kept in the buffer pool of this transport mapping. Each buffer has
+     * the size of {@link #getMaxInboundMessageSize()}.
+     *
+     * @param maxPooledBuffers
+     *         the maximum number of pooled buffers. Zero disables pooling, but buffers are still only allocated while
+     *         they are needed.
+     * @since 3.6.0
+     */
+    public void setMaxPooledBuffers(int maxPooledBuffers) {
+        bufferPool.setMaxSize(maxPooledBuffers);
+    }
+
     /**
      * Listen for incoming and outgoing requests. If the {@code serverEnabled}
      * member is {@code false} the server for incoming requests is not
@@ -708,21 +786,22 @@ public class TLSTM extends TcpTransportMapping<TLSTM.SocketEntry> implements X50
 
         private final Object outboundLock = new Object();
         private final Object inboundLock = new Object();
+        private final AtomicBoolean delegatedTasksRunning = new AtomicBoolean();
 
         public SocketEntry(TcpAddress address, Socket socket,
                            boolean useClientMode,
                            TransportStateReference tmStateReference) throws GeneralSecurityException {
             super(address, socket);
-            this.inAppBuffer = ByteBuffer.allocate(getMaxInboundMessageSize());
-            this.inNetBuffer = ByteBuffer.allocate(getMaxInboundMessageSize());
-            this.outNetBuffer = ByteBuffer.allocate(getMaxInboundMessageSize());
             this.tmStateReference = tmStateReference;
             if (tmStateReference == null) {
                 counterSupport.fireIncrementCounter(new CounterEvent(this, SnmpConstants.snmpTlstmSessionAccepts));
             }
             SSLEngineConfigurator sslEngineConfigurator = ensureSslEngineConfigurator();
             SSLContext sslContext = sslEngineConfigurator.getSSLContext(useClientMode, tmStateReference);
-            this.sslEngine = sslContext.createSSLEngine(address.getInetAddress().getHostName(), address.getPort());
+            // the peer host is only used to resume client sessions, thus avoid a reverse lookup for incoming connections
+            String peerHost = useClientMode ?
+                    address.getInetAddress().getHostName() : address.getInetAddress().getHostAddress();
+            this.sslEngine = sslContext.createSSLEngine(peerHost, address.getPort());
             sslEngine.setUseClientMode(useClientMode);
             sslEngineConfigurator.configure(sslEngine);
             synchronized (TLSTM.this) {
@@ -754,11 +833,27 @@ public class TLSTM extends TcpTransportMapping<TLSTM.SocketEntry> implements X50
             this.inNetBuffer = byteBuffer;
         }
 
+        /**
+         * Gets the inbound network buffer and takes it from the buffer pool if there is none.
+         *
+         * @return the inbound network buffer.
+         */
         public ByteBuffer getInNetBuffer() {
+            if (inNetBuffer == null) {
+                inNetBuffer = bufferPool.acquire(getMaxInboundMessageSize());
+            }
             return inNetBuffer;
         }
 
+        /**
+         * Gets the outbound network buffer and takes it from the buffer pool if there is none.
+         *
+         * @return the outbound network buffer.
+         */
         public ByteBuffer getOutNetBuffer() {
+            if (outNetBuffer == null) {
+                outNetBuffer = bufferPool.acquire(getMaxInboundMessageSize());
+            }
             return outNetBuffer;
         }
 
@@ -800,10 +895,50 @@ public class TLSTM extends TcpTransportMapping<TLSTM.SocketEntry> implements X50
             this.inAppBuffer = inAppBuffer;
         }
 
+        /**
+         * Gets the inbound application buffer and takes it from the buffer pool if there is none.
+         *
+         * @return the inbound application buffer.
+         */
         public ByteBuffer getInAppBuffer() {
+            if (inAppBuffer == null) {
+                inAppBuffer = bufferPool.acquire(getMaxInboundMessageSize());
+            }
             return inAppBuffer;
         }
 
+        /**
+         * Returns the inbound buffers to the buffer pool if the handshake has finished and they do not contain any
+         * data. Must be called while holding the inbound lock.
+         */
+        void releaseIdleInboundBuffers() {
+            if (handshakeFinished) {
+                if (BufferPool.isEmpty(inNetBuffer)) {
+                    bufferPool.release(inNetBuffer);
+                    inNetBuffer = null;
+                }
+                if (BufferPool.isEmpty(inAppBuffer)) {
+                    bufferPool.release(inAppBuffer);
+                    inAppBuffer = null;
+                }
+            }
+        }
+
+        /**
+         * Returns the outbound network buffer to the buffer pool if the handshake has finished and it does not contain
+         * any data. Must be called while holding the outbound lock.
+         */
+        void releaseIdleOutboundBuffer() {
+            if (handshakeFinished && BufferPool.isEmpty(outNetBuffer)) {
+                bufferPool.release(outNetBuffer);
+                outNetBuffer = null;
+            }
+        }
+
+        public boolean isDelegatedTasksRunning() {
+            return delegatedTasksRunning.get();
+        }
+
         public boolean isHandshakeFinished() {
             return handshakeFinished;
         }
@@ -913,15 +1048,19 @@ public class TLSTM extends TcpTransportMapping<TLSTM.SocketEntry> implements X50
                     SocketEntry entry = null;
                     try {
                         entry = inQueue.take();
+                        if (entry.isDelegatedTasksRunning()) {
+                            // entry is queued again when the tasks are finished
+                            continue;
+                        }
                         synchronized (entry.inboundLock) {
                             // Is there any data to read?
-                            if (entry.getInNetBuffer().position() > 0) {
+                            if ((entry.inNetBuffer != null) && (entry.inNetBuffer.position() > 0)) {
                                 entry.inNetBuffer.flip();
                                 if (logger.isDebugEnabled()) {
                                     logger.debug("TLS inNetBuffer = " + entry.inNetBuffer);
                                 }
                                 SSLEngineResult nextResult =
-                                        entry.sslEngine.unwrap(entry.inNetBuffer, entry.inAppBuffer);
+                                        entry.sslEngine.unwrap(entry.inNetBuffer, entry.getInAppBuffer());
                                 adjustInNetBuffer(entry, nextResult);
                                 if (runDelegatedTasks(nextResult, entry)) {
                                     switch (nextResult.getStatus()) {
@@ -945,17 +1084,24 @@ public class TLSTM extends TcpTransportMapping<TLSTM.SocketEntry> implements X50
                                                 logger.debug("Dispatching inAppBuffer=" + entry.inAppBuffer);
                                             }
                                             if (entry.inAppBuffer.limit() > 0) {
+                                                entry.checkTransportStateReference();
                                                 dispatchMessage(entry.getPeerAddress(),
                                                         entry.inAppBuffer, entry.inAppBuffer.limit(),
                                                         entry.sessionID, entry.tmStateReference);
                                             }
                                             entry.inAppBuffer.clear();
+                                            if (entry.inNetBuffer.position() > 0) {
+                                                // an abbreviated handshake may deliver application data
+                                                // together with the peer's finished message
+                                                inQueue.add(entry);
+                                            }
                                     }
                                 }
                             }
                             else {
                                 entry.addRegistration(selector, SelectionKey.OP_READ);
                             }
+                            entry.releaseIdleInboundBuffers();
                         }
                     } catch (IOException iox) {
                         logger.error("IO exception caught while SSL processing: " + iox.getMessage(), iox);
@@ -1045,6 +1191,13 @@ public class TLSTM extends TcpTransportMapping<TLSTM.SocketEntry> implements X50
             }
             SSLEngineResult.HandshakeStatus status = result.getHandshakeStatus();
             if (status == SSLEngineResult.HandshakeStatus.NEED_TASK) {
+                Executor executor = handshakeTaskExecutor;
+                if (entry.isDelegatedTasksRunning()) {
+                    return false;
+                }
+                if ((executor != null) && runDelegatedTasksAsync(entry, executor)) {
+                    return false;
+                }
                 Runnable runnable;
                 while ((runnable = entry.sslEngine.getDelegatedTask()) != null) {
                     logger.debug("Running delegated task...");
@@ -1091,6 +1244,60 @@ public class TLSTM extends TcpTransportMapping<TLSTM.SocketEntry> implements X50
             return false;
         }
 
+        /**
+         * Runs the delegated tasks of the specified session with the supplied executor. When the tasks are finished,
+         * the session is queued for wrapping or unwrapping according to its handshake status and the selector is
+         * woken up to continue the handshake.
+         *
+         * @param entry
+         *         the session to use.
+         * @param executor
+         *         the executor for the delegated tasks.
+         *
+         * @return {@code true} if the tasks have been submitted to the executor, {@code false} if the executor
+         * rejected them and they need to be run by the caller.
+         */
+        private boolean runDelegatedTasksAsync(final SocketEntry entry, Executor executor) {
+            if (!entry.delegatedTasksRunning.compareAndSet(false, true)) {
+                return true;
+            }
+            try {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            Runnable runnable;
+                            while ((runnable = entry.sslEngine.getDelegatedTask()) != null) {
+                                runnable.run();
+                            }
+                        } catch (RuntimeException rex) {
+                            logger.error("Delegated TLS task failed for " + entry + ": " + rex.getMessage(), rex);
+                        } finally {
+                            entry.delegatedTasksRunning.set(false);
+                            SSLEngineResult.HandshakeStatus status = entry.sslEngine.getHandshakeStatus();
+                            if (logger.isDebugEnabled()) {
+                                logger.debug("Delegated tasks finished for " + entry + ", handshake status = " +
+                                        status);
+                            }
+                            if (status == SSLEngineResult.HandshakeStatus.NEED_WRAP) {
+                                outQueue.add(entry);
+                            }
+                            else {
+                                inQueue.add(entry);
+                            }
+                            selector.wakeup();
+                        }
+                    }
+                });
+                return true;
+            } catch (RejectedExecutionException rex) {
+                logger.warn("Handshake task executor rejected delegated tasks, running them on server thread: " +
+                        rex.getMessage());
+                entry.delegatedTasksRunning.set(false);
+                return false;
+            }
+        }
+
         public Throwable getLastError() {
             return lastError;
         }
@@ -1392,7 +1599,7 @@ public class TLSTM extends TcpTransportMapping<TLSTM.SocketEntry> implements X50
                     fireConnectionStateChanged(e);
                     return;
                 }
-                if (bytesRead > 0) {
+                if ((bytesRead > 0) && !entry.isDelegatedTasksRunning()) {
                     SSLEngineResult result;
                     synchronized (entry.inboundLock) {
                         do {
@@ -1439,6 +1646,7 @@ public class TLSTM extends TcpTransportMapping<TLSTM.SocketEntry> implements X50
                                 break;
                             }
                         } while (inNetBuffer.position() > 0 && inNetBuffer.remaining() > 0);
+                        entry.releaseIdleInboundBuffers();
                     }
                 }
             } catch (ClosedChannelException ccex) {
@@ -1499,6 +1707,7 @@ public class TLSTM extends TcpTransportMapping<TLSTM.SocketEntry> implements X50
                                 selector.wakeup();
                             }
                             entry.addRegistration(selector, SelectionKey.OP_READ);
+                            entry.releaseIdleOutboundBuffer();
                             return;
                         }
                     }
@@ -1506,7 +1715,7 @@ public class TLSTM extends TcpTransportMapping<TLSTM.SocketEntry> implements X50
                         offset = entry.outAppBuffer.position();
                     }
                     SSLEngineResult result;
-                    result = entry.sslEngine.wrap(entry.outAppBuffer, entry.outNetBuffer);
+                    result = entry.sslEngine.wrap(entry.outAppBuffer, entry.getOutNetBuffer());
                     if (result.getStatus() == SSLEngineResult.Status.OK) {
                         if (result.bytesProduced() > 0) {
                             writeNetBuffer(entry, sc);
@@ -1528,12 +1737,17 @@ public class TLSTM extends TcpTransportMapping<TLSTM.SocketEntry> implements X50
                 if (logger.isDebugEnabled()) {
                     logger.debug("Message sent for "+entry);
                 }
+                entry.releaseIdleOutboundBuffer();
             }
             entry.addRegistration(selector, SelectionKey.OP_READ);
         }
     }
 
     void writeNetBuffer(SocketEntry entry, SocketChannel sc) throws IOException {
+        if (entry.outNetBuffer == null) {
+            // nothing wrapped yet
+            return;
+        }
         entry.outNetBuffer.flip();
         // Send SSL/TLS encoded data to peer
         while (entry.outNetBuffer.hasRemaining()) {
@@ -1570,14 +1784,15 @@ public class TLSTM extends TcpTransportMapping<TLSTM.SocketEntry> implements X50
     private SSLEngineResult sendNetMessage(SocketEntry entry) throws IOException {
         SSLEngineResult result;
         synchronized (entry.outboundLock) {
-            if (!entry.outNetBuffer.hasRemaining()) {
+            ByteBuffer outNetBuffer = entry.getOutNetBuffer();
+            if (!outNetBuffer.hasRemaining()) {
                 return null;
             }
-            result = entry.sslEngine.wrap(ByteBuffer.allocate(0), entry.outNetBuffer);
-            entry.outNetBuffer.flip();
-            logger.debug("TLS outNetBuffer = " + entry.outNetBuffer);
-            entry.socket.getChannel().write(entry.outNetBuffer);
-            entry.outNetBuffer.clear();
+            result = entry.sslEngine.wrap(EMPTY_BUFFER, outNetBuffer);
+            outNetBuffer.flip();
+            logger.debug("TLS outNetBuffer = " + outNetBuffer);
+            entry.socket.getChannel().write(outNetBuffer);
+            outNetBuffer.clear();
         }
         return result;
     }
@@ -1592,6 +1807,83 @@ public class TLSTM extends TcpTransportMapping<TLSTM.SocketEntry> implements X50
         }
     }
 
+    /**
+     * The {@code BufferPool} keeps idle heap buffers of the maximum inbound message size for reuse by the
+     * connections of a TLSTM. It is thread-safe and does not block.
+     */
+    static class BufferPool {
+        private final ConcurrentLinkedDeque<ByteBuffer> buffers = new ConcurrentLinkedDeque<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private volatile int maxSize;
+
+        BufferPool(int maxSize) {
+            setMaxSize(maxSize);
+        }
+
+        int getMaxSize() {
+            return maxSize;
+        }
+
+        void setMaxSize(int maxSize) {
+            if (maxSize < 0) {
+                throw new IllegalArgumentException("Maximum number of pooled buffers must be >= 0");
+            }
+            this.maxSize = maxSize;
+        }
+
+        /**
+         * Takes a cleared buffer with at least the specified capacity from the pool or allocates a new one.
+         *
+         * @param capacity
+         *         the minimum capacity.
+         *
+         * @return a cleared buffer.
+         */
+        ByteBuffer acquire(int capacity) {
+            ByteBuffer buffer;
+            while ((buffer = buffers.pollFirst()) != null) {
+                size.decrementAndGet();
+                if (buffer.capacity() >= capacity) {
+                    buffer.clear();
+                    return buffer;
+                }
+                // too small since the maximum inbound message size has been increased
+            }
+            return ByteBuffer.allocate(capacity);
+        }
+
+        /**
+         * Returns a buffer to the pool, unless the pool is full.
+         *
+         * @param buffer
+         *         a buffer that is no longer used.
+         */
+        void release(ByteBuffer buffer) {
+            if (size.incrementAndGet() <= maxSize) {
+                buffers.offerFirst(buffer);
+            }
+            else {
+                size.decrementAndGet();
+            }
+        }
+
+        int size() {
+            return size.get();
+        }
+
+        /**
+         * Checks whether a buffer exists and is cleared, i.e. it is in write mode and does not contain any data.
+         *
+         * @param buffer
+         *         a buffer or {@code null}.
+         *
+         * @return {@code true} if the buffer is not {@code null} and does not contain data.
+         */
+        static boolean isEmpty(ByteBuffer buffer) {
+            return (buffer != null) && (buffer.position() == 0) && (buffer.limit() == buffer.capacity());
+        }
+    }
+
     private class DefaultTLSTMTrustManagerFactory implements TLSTMTrustManagerFactory {
         public X509TrustManager create(X509TrustManager trustManager, boolean useClientMode,
                                        TransportStateReference tmStateReference) {
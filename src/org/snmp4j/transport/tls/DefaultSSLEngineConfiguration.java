@@ -20,9 +20,12 @@
 
 package org.snmp4j.transport.tls;
 
+import org.snmp4j.CertifiedIdentity;
 import org.snmp4j.TransportStateReference;
 import org.snmp4j.log.LogAdapter;
 import org.snmp4j.log.LogFactory;
+import org.snmp4j.smi.Address;
+import org.snmp4j.smi.OctetString;
 import org.snmp4j.transport.TLSTM;
 
 import javax.net.ssl.*;
@@ -32,22 +35,59 @@ import java.security.cert.Certificate;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 /**
  * The {@link DefaultSSLEngineConfiguration} implements the SSL engine configuration based on
  * {@link X509Certificate} trust management.
+ * <p>
+ * Since version 3.6.0, the created {@link SSLContext}s are cached by the peer identity they have been created for,
+ * i.e. the client/server role, the key and trust store configuration, the local certificate alias, and for client
+ * mode the peer address and the fingerprints and identity of its {@link CertifiedIdentity} target. Because the
+ * SSL session caches are bound to a {@link SSLContext}, reusing the context enables abbreviated handshakes (session
+ * resumption) for repeated connections to and from the same peer, and avoids loading the key and trust stores for
+ * each connection. Call {@link #clearCache()} after the content of the key or trust store files has changed.
+ * <p>
+ * A resumed session skips the validation of the client certificate by the trust manager and the
+ * {@link TlsTmSecurityCallback}. Hence, if the acceptance of a client certificate is revoked in the security callback
+ * (for example by removing its certificate to security name mapping), clients that already have a session can resume
+ * it until the server session timeout (see {@link #setServerSessionTimeout(int)}) expires. Call
+ * {@link #clearCache()} to make the revocation effective immediately. {@link TLSTM} clears the
+ * cache when its security callback is replaced.
  *
  * @author Frank Fock
+ * @version 3.6.0
  * @since 3.0.5
  */
 public class DefaultSSLEngineConfiguration implements SSLEngineConfigurator {
 
     private static final LogAdapter logger = LogFactory.getLogger(DefaultSSLEngineConfiguration.class);
 
+    /**
+     * The default maximum number of cached {@link SSLContext} instances.
+     */
+    public static final int DEFAULT_MAX_CACHED_SSL_CONTEXTS = 128;
+
+    /**
+     * The default lifetime in seconds of the SSL sessions of incoming connections.
+     */
+    public static final int DEFAULT_SERVER_SESSION_TIMEOUT = 300;
+
     private TlsTransportMappingConfig<X509Certificate> tlsTransportMappingConfig;
     private TLSTMTrustManagerFactory trustManagerFactory;
     private String defaultProtocolVersion;
+    private volatile int maxCachedSSLContexts = DEFAULT_MAX_CACHED_SSL_CONTEXTS;
+    private volatile int serverSessionTimeout = DEFAULT_SERVER_SESSION_TIMEOUT;
+    private final LinkedHashMap<SSLContextKey, SSLContext> sslContextCache =
+            new LinkedHashMap<SSLContextKey, SSLContext>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<SSLContextKey, SSLContext> eldest) {
+                    return size() > maxCachedSSLContexts;
+                }
+            };
 
     public DefaultSSLEngineConfiguration(TlsTransportMappingConfig<X509Certificate> tlsTransportMappingConfig,
                                          TLSTMTrustManagerFactory trustManagerFactory,
@@ -97,15 +137,147 @@ public class DefaultSSLEngineConfiguration implements SSLEngineConfigurator {
         }
     }
 
+    /**
+     * Gets the maximum number of {@link SSLContext} instances cached by peer identity.
+     *
+     * @return the maximum cache size. Zero means caching is disabled.
+     * @since 3.6.0
+     */
+    public int getMaxCachedSSLContexts() {
+        return maxCachedSSLContexts;
+    }
+
+    /**
+     * Sets the maximum number of {@link SSLContext} instances cached by peer identity. When the maximum is exceeded,
+     * the least recently used context (and with it the SSL sessions that could be resumed with it) is removed.
+     *
+     * @param maxCachedSSLContexts
+     *         the maximum cache size. Zero disables caching and creates a new context for each connection.
+     * @since 3.6.0
+     */
+    public void setMaxCachedSSLContexts(int maxCachedSSLContexts) {
+        if (maxCachedSSLContexts < 0) {
+            throw new IllegalArgumentException("Maximum number of cached SSL contexts must be >= 0");
+        }
+        this.maxCachedSSLContexts = maxCachedSSLContexts;
+        if (maxCachedSSLContexts == 0) {
+            clearCache();
+        }
+    }
+
+    /**
+     * Gets the lifetime of the SSL sessions of incoming connections.
+     *
+     * @return the timeout in seconds after which a server-side session can no longer be resumed. Zero means no
+     * limit.
+     * @since 3.6.0
+     */
+    public int getServerSessionTimeout() {
+        return serverSessionTimeout;
+    }
+
+    /**
+     * Sets the lifetime of the SSL sessions of incoming connections. It bounds the time a client whose certificate
+     * is no longer accepted by the {@link TlsTmSecurityCallback} can still resume its session. The timeout applies
+     * to the cached contexts too.
+     *
+     * @param serverSessionTimeout
+     *         the timeout in seconds after which a server-side session can no longer be resumed. Zero means no
+     *         limit. Default is {@link #DEFAULT_SERVER_SESSION_TIMEOUT}.
+     * @since 3.6.0
+     */
+    public void setServerSessionTimeout(int serverSessionTimeout) {
+        if (serverSessionTimeout < 0) {
+            throw new IllegalArgumentException("Server session timeout must be >= 0");
+        }
+        this.serverSessionTimeout = serverSessionTimeout;
+        synchronized (sslContextCache) {
+            for (Map.Entry<SSLContextKey, SSLContext> entry : sslContextCache.entrySet()) {
+                if (!entry.getKey().useClientMode) {
+                    entry.getValue().getServerSessionContext().setSessionTimeout(serverSessionTimeout);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all cached {@link SSLContext} instances, for example because the key or trust store has been updated
+     * or because the security callback no longer accepts a client certificate. Sessions established with the
+     * removed contexts cannot be resumed anymore. Established connections are not affected.
+     *
+     * @since 3.6.0
+     */
+    public void clearCache() {
+        synchronized (sslContextCache) {
+            sslContextCache.clear();
+        }
+    }
+
+    /**
+     * Returns the number of currently cached {@link SSLContext} instances.
+     *
+     * @return the cache size.
+     * @since 3.6.0
+     */
+    public int getCachedSSLContextCount() {
+        synchronized (sslContextCache) {
+            return sslContextCache.size();
+        }
+    }
+
     @Override
-    public SSLContext getSSLContext(boolean useClientMode, TransportStateReference transportStateReference) throws GeneralSecurityException {
-        try {
-            String protocol = defaultProtocolVersion;
-            if ((tlsTransportMappingConfig.getProtocolVersions() != null)
-                    && (tlsTransportMappingConfig.getProtocolVersions().length > 0)) {
-                protocol = tlsTransportMappingConfig.getProtocolVersions()[0];
+    public SSLContext getSSLContext(boolean useClientMode, TransportStateReference transportStateReference)
+            throws GeneralSecurityException {
+        if (maxCachedSSLContexts <= 0) {
+            return initSessionTimeout(createSSLContext(useClientMode, transportStateReference), useClientMode);
+        }
+        SSLContextKey key = new SSLContextKey(useClientMode, transportStateReference);
+        SSLContext sslContext;
+        synchronized (sslContextCache) {
+            sslContext = sslContextCache.get(key);
+        }
+        if (sslContext == null) {
+            sslContext = initSessionTimeout(createSSLContext(useClientMode, transportStateReference), useClientMode);
+            if (sslContext != null) {
+                synchronized (sslContextCache) {
+                    SSLContext existing = sslContextCache.putIfAbsent(key, sslContext);
+                    if (existing != null) {
+                        // keep the context with the (potentially) cached sessions
+                        sslContext = existing;
+                    }
+                }
             }
-            return TLSTMUtil.createSSLContext(protocol,
+        }
+        else if (logger.isDebugEnabled()) {
+            logger.debug("Reusing SSL context for " + key);
+        }
+        return sslContext;
+    }
+
+    private SSLContext initSessionTimeout(SSLContext sslContext, boolean useClientMode) {
+        if ((sslContext != null) && !useClientMode) {
+            sslContext.getServerSessionContext().setSessionTimeout(serverSessionTimeout);
+        }
+        return sslContext;
+    }
+
+    /**
+     * Creates a new {@link SSLContext} for the specified role and transport state reference.
+     *
+     * @param useClientMode
+     *         {@code true} if the connection is established in client mode.
+     * @param transportStateReference
+     *         the transportStateReference with additional security information for the SSL connection to establish.
+     *
+     * @return the new SSLContext or {@code null} if the protocol is not supported.
+     * @throws GeneralSecurityException
+     *         if the TLS context initialization failed because of configuration errors.
+     * @since 3.6.0
+     */
+    protected SSLContext createSSLContext(boolean useClientMode, TransportStateReference transportStateReference)
+            throws GeneralSecurityException {
+        try {
+            return TLSTMUtil.createSSLContext(getProtocol(),
                     tlsTransportMappingConfig.getKeyStore(), tlsTransportMappingConfig.getKeyStorePassword(),
                     tlsTransportMappingConfig.getTrustStore(), tlsTransportMappingConfig.getTrustStorePassword(),
                     transportStateReference, trustManagerFactory,
@@ -117,4 +289,116 @@ public class DefaultSSLEngineConfiguration implements SSLEngineConfigurator {
         }
         return null;
     }
+
+    private String getProtocol() {
+        String protocol = defaultProtocolVersion;
+        if ((tlsTransportMappingConfig.getProtocolVersions() != null)
+                && (tlsTransportMappingConfig.getProtocolVersions().length > 0)) {
+            protocol = tlsTransportMappingConfig.getProtocolVersions()[0];
+        }
+        return protocol;
+    }
+
+    /**
+     * The {@code SSLContextKey} contains everything that the key and trust managers of a {@link SSLContext} created
+     * by {@link TLSTMUtil#createSSLContext} depend on.
+     */
+    private final class SSLContextKey {
+        private final boolean useClientMode;
+        private final String protocol;
+        private final String keyStore;
+        private final String keyStorePassword;
+        private final String trustStore;
+        private final String trustStorePassword;
+        private final String localCertificateAlias;
+        private final Object securityCallback;
+        private final Address peerAddress;
+        private final OctetString serverFingerprint;
+        private final OctetString clientFingerprint;
+        private final OctetString identity;
+        private final Object targetSecurityCallback;
+        private final int hashCode;
+
+        SSLContextKey(boolean useClientMode, TransportStateReference transportStateReference) {
+            this.useClientMode = useClientMode;
+            this.protocol = getProtocol();
+            this.keyStore = tlsTransportMappingConfig.getKeyStore();
+            this.keyStorePassword = tlsTransportMappingConfig.getKeyStorePassword();
+            this.trustStore = tlsTransportMappingConfig.getTrustStore();
+            this.trustStorePassword = tlsTransportMappingConfig.getTrustStorePassword();
+            TlsTmSecurityCallback<X509Certificate> callback = tlsTransportMappingConfig.getSecurityCallback();
+            this.securityCallback = callback;
+            String alias = null;
+            if ((callback != null) && (transportStateReference != null)) {
+                alias = callback.getLocalCertificateAlias(transportStateReference.getAddress());
+            }
+            this.localCertificateAlias = (alias == null) ? tlsTransportMappingConfig.getLocalCertificateAlias() : alias;
+            if (transportStateReference != null) {
+                this.peerAddress = transportStateReference.getAddress();
+                if (TransportStateReference.hasCertifiedIdentity(transportStateReference)) {
+                    CertifiedIdentity certifiedIdentity = (CertifiedIdentity) transportStateReference.getTarget();
+                    this.serverFingerprint = certifiedIdentity.getServerFingerprint();
+                    this.clientFingerprint = certifiedIdentity.getClientFingerprint();
+                    this.identity = certifiedIdentity.getIdentity();
+                    this.targetSecurityCallback = (certifiedIdentity instanceof TlsX509CertifiedTarget) ?
+                            ((TlsX509CertifiedTarget<?>) certifiedIdentity).getTlsTmSecurityCallback() : null;
+                }
+                else {
+                    this.serverFingerprint = null;
+                    this.clientFingerprint = null;
+                    this.identity = null;
+                    this.targetSecurityCallback = null;
+                }
+            }
+            else {
+                this.peerAddress = null;
+                this.serverFingerprint = null;
+                this.clientFingerprint = null;
+                this.identity = null;
+                this.targetSecurityCallback = null;
+            }
+            this.hashCode = Objects.hash(useClientMode, protocol, keyStore, trustStore, localCertificateAlias,
+                    peerAddress, serverFingerprint, clientFingerprint, identity);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof SSLContextKey)) {
+                return false;
+            }
+            SSLContextKey other = (SSLContextKey) o;
+            return (hashCode == other.hashCode) && (useClientMode == other.useClientMode) &&
+                    Objects.equals(protocol, other.protocol) &&
+                    Objects.equals(keyStore, other.keyStore) &&
+                    Objects.equals(keyStorePassword, other.keyStorePassword) &&
+                    Objects.equals(trustStore, other.trustStore) &&
+                    Objects.equals(trustStorePassword, other.trustStorePassword) &&
+                    Objects.equals(localCertificateAlias, other.localCertificateAlias) &&
+                    (securityCallback == other.securityCallback) &&
+                    Objects.equals(peerAddress, other.peerAddress) &&
+                    Objects.equals(serverFingerprint, other.serverFingerprint) &&
+                    Objects.equals(clientFingerprint, other.clientFingerprint) &&
+                    Objects.equals(identity, other.identity) &&
+                    (targetSecurityCallback == other.targetSecurityCallback);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public String toString() {
+            return "SSLContextKey{" +
+                    "useClientMode=" + useClientMode +
+                    ", protocol=" + protocol +
+                    ", localCertificateAlias=" + localCertificateAlias +
+                    ", peerAddress=" + peerAddress +
+                    ", identity=" + identity +
+                    '}';
+        }
+    }
 }
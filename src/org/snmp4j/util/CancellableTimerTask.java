@@ -0,0 +1,91 @@
+/*_############################################################################
+  _##
+  _##  SNMP4J - CancellableTimerTask.java
+  _##
+  _##  Copyright (C) 2003-2021  Frank Fock (SNMP4J.org)
+  _##
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##
+  _##########################################################################*/
+package org.snmp4j.util;
+
+import java.util.TimerTask;
+
+/**
+ * A {@code CancellableTimerTask} is a {@link TimerTask} that notifies the {@link HashedWheelTimer} it is scheduled
+ * on when it is cancelled. This allows the timer to remove the task from its wheel in constant time instead of
+ * keeping it until its scheduled execution time.
+ * <p>
+ * A {@code CancellableTimerTask} can be scheduled on any {@link CommonTimer}. Only the {@link HashedWheelTimer}
+ * makes use of the cancellation notification. As for any {@link TimerTask}, an instance can be scheduled only once.
+ *
+ * @author Frank Fock
+ * @version 3.6.0
+ * @since 3.6.0
+ */
+public abstract class CancellableTimerTask extends TimerTask {
+
+    private final Object assignmentLock = new Object();
+    private volatile HashedWheelTimer.Timeout timeout;
+    private volatile boolean cancelled;
+
+    protected CancellableTimerTask() {
+    }
+
+    /**
+     * Assigns the timeout of a {@link HashedWheelTimer} to this task.
+     *
+     * @param newTimeout
+     *         the timeout that will run this task.
+     *
+     * @throws IllegalStateException
+     *         if this task has been scheduled or cancelled already.
+     */
+    void assignTimeout(HashedWheelTimer.Timeout newTimeout) {
+        synchronized (assignmentLock) {
+            if (cancelled || (timeout != null)) {
+                throw new IllegalStateException("Task already scheduled or cancelled");
+            }
+            timeout = newTimeout;
+        }
+    }
+
+    /**
+     * Cancels this timer task. If the task is scheduled on a {@link HashedWheelTimer}, it is removed from the
+     * timer's wheel with the next tick of the timer.
+     *
+     * @return {@code true} if this task was scheduled for execution and has not run yet.
+     */
+    @Override
+    public boolean cancel() {
+        boolean result;
+        synchronized (assignmentLock) {
+            cancelled = true;
+            result = super.cancel();
+        }
+        HashedWheelTimer.Timeout t = timeout;
+        if (t != null) {
+            result = t.cancel();
+        }
+        return result;
+    }
+
+    /**
+     * Checks whether {@link #cancel()} has been called on this task.
+     *
+     * @return {@code true} if this task has been cancelled.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
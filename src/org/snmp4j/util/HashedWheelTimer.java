@@ -0,0 +1,361 @@
+/*_############################################################################
+  _##
+  _##  SNMP4J - HashedWheelTimer.java
+  _##
+  _##  Copyright (C) 2003-2021  Frank Fock (SNMP4J.org)
+  _##
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##
+  _##########################################################################*/
+package org.snmp4j.util;
+
+import org.snmp4j.log.LogAdapter;
+import org.snmp4j.log.LogFactory;
+
+import java.util.Date;
+import java.util.Queue;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * The {@code HashedWheelTimer} is a {@link CommonTimer} optimized for a large number of one-shot timeouts that are
+ * mostly cancelled before they expire, like the retry and timeout tasks of {@link org.snmp4j.Snmp} requests.
+ * <p>
+ * Timeouts are hashed by their expiration tick into the buckets of a wheel. A single daemon thread advances the wheel
+ * every tick and runs the tasks of the current bucket that expired. Scheduling and cancelling a task only appends it
+ * to a lock-free queue and thus takes constant time without contention on a shared lock. Cancelled tasks are removed
+ * from their bucket with the next tick, so memory is not retained until their original execution time.
+ * The precision of the timer is limited by the tick duration.
+ * <p>
+ * Only one-shot tasks that extend {@link CancellableTimerTask} are managed by the wheel, because a plain
+ * {@link TimerTask} does not notify the timer when it is cancelled. Other tasks and periodic tasks are delegated to
+ * a {@link Timer} that is created on demand.
+ *
+ * @author Frank Fock
+ * @version 3.6.0
+ * @since 3.6.0
+ */
+public class HashedWheelTimer implements CommonTimer {
+
+    private static final LogAdapter logger = LogFactory.getLogger(HashedWheelTimer.class);
+
+    /**
+     * The default tick duration in milliseconds.
+     */
+    public static final long DEFAULT_TICK_MILLIS = 10;
+    /**
+     * The default number of buckets of the wheel.
+     */
+    public static final int DEFAULT_TICKS_PER_WHEEL = 512;
+
+    private static final int MAX_TRANSFERS_PER_TICK = 100000;
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final long startTime;
+    private final Queue<Timeout> newTimeouts = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingTimeouts = new AtomicInteger();
+    private final Thread workerThread;
+    private volatile boolean stopped;
+    private Timer fallbackTimer;
+
+    /**
+     * Creates a hashed wheel timer with the default tick duration and wheel size.
+     */
+    public HashedWheelTimer() {
+        this("SNMP4J-HashedWheelTimer", DEFAULT_TICK_MILLIS, DEFAULT_TICKS_PER_WHEEL);
+    }
+
+    /**
+     * Creates a hashed wheel timer and starts its daemon thread.
+     *
+     * @param name
+     *         the name of the timer thread.
+     * @param tickMillis
+     *         the duration of a tick in milliseconds (must be greater than zero).
+     * @param ticksPerWheel
+     *         the number of buckets of the wheel, which is rounded up to the next power of two.
+     */
+    public HashedWheelTimer(String name, long tickMillis, int ticksPerWheel) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick duration must be greater than zero: " + tickMillis);
+        }
+        if ((ticksPerWheel <= 0) || (ticksPerWheel > (1 << 30))) {
+            throw new IllegalArgumentException("Ticks per wheel out of range: " + ticksPerWheel);
+        }
+        int size = Integer.highestOneBit(ticksPerWheel);
+        if (size < ticksPerWheel) {
+            size <<= 1;
+        }
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.startTime = System.nanoTime();
+        this.workerThread = new Thread(new Worker(), name);
+        this.workerThread.setDaemon(true);
+        this.workerThread.start();
+    }
+
+    @Override
+    public void schedule(TimerTask task, long delay) {
+        if (delay < 0) {
+            throw new IllegalArgumentException("Negative delay.");
+        }
+        if (stopped) {
+            throw new IllegalStateException("Timer already cancelled.");
+        }
+        if (!(task instanceof CancellableTimerTask)) {
+            getFallbackTimer().schedule(task, delay);
+            return;
+        }
+        long deadline = System.nanoTime() - startTime + TimeUnit.MILLISECONDS.toNanos(delay);
+        Timeout timeout = new Timeout(this, (CancellableTimerTask) task, deadline);
+        ((CancellableTimerTask) task).assignTimeout(timeout);
+        pendingTimeouts.incrementAndGet();
+        newTimeouts.add(timeout);
+    }
+
+    @Override
+    public void schedule(TimerTask task, Date firstTime, long period) {
+        if (stopped) {
+            throw new IllegalStateException("Timer already cancelled.");
+        }
+        getFallbackTimer().schedule(task, firstTime, period);
+    }
+
+    @Override
+    public void schedule(TimerTask task, long delay, long period) {
+        if (stopped) {
+            throw new IllegalStateException("Timer already cancelled.");
+        }
+        getFallbackTimer().schedule(task, delay, period);
+    }
+
+    @Override
+    public void cancel() {
+        stopped = true;
+        workerThread.interrupt();
+        Timer timer;
+        synchronized (this) {
+            timer = fallbackTimer;
+            fallbackTimer = null;
+        }
+        if (timer != null) {
+            timer.cancel();
+        }
+    }
+
+    /**
+     * Gets the number of one-shot tasks on the wheel that have neither expired nor been cancelled.
+     *
+     * @return the number of pending timeouts.
+     */
+    public int getPendingTimeouts() {
+        return pendingTimeouts.get();
+    }
+
+    private synchronized Timer getFallbackTimer() {
+        if (fallbackTimer == null) {
+            fallbackTimer = new Timer(workerThread.getName() + "-Fallback", true);
+        }
+        return fallbackTimer;
+    }
+
+    /**
+     * A {@code Timeout} links a {@link CancellableTimerTask} into a bucket of the wheel.
+     */
+    static final class Timeout {
+
+        private static final int ST_INIT = 0;
+        private static final int ST_CANCELLED = 1;
+        private static final int ST_EXPIRED = 2;
+
+        private static final AtomicIntegerFieldUpdater<Timeout> STATE_UPDATER =
+                AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+        private volatile int state = ST_INIT;
+        private final CancellableTimerTask task;
+        private final long deadline;
+        private final HashedWheelTimer timer;
+        private long remainingRounds;
+        private Bucket bucket;
+        private Timeout next;
+        private Timeout prev;
+
+        private Timeout(HashedWheelTimer timer, CancellableTimerTask task, long deadline) {
+            this.timer = timer;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        boolean cancel() {
+            if (!STATE_UPDATER.compareAndSet(this, ST_INIT, ST_CANCELLED)) {
+                return false;
+            }
+            timer.pendingTimeouts.decrementAndGet();
+            timer.cancelledTimeouts.add(this);
+            return true;
+        }
+
+        boolean isCancelled() {
+            return state == ST_CANCELLED;
+        }
+
+        void expire() {
+            if (!STATE_UPDATER.compareAndSet(this, ST_INIT, ST_EXPIRED)) {
+                return;
+            }
+            timer.pendingTimeouts.decrementAndGet();
+            try {
+                task.run();
+            } catch (Throwable t) {
+                // keep the wheel thread alive, otherwise no other timeout would expire anymore
+                logger.error("Timer task " + task + " failed: " + t.getMessage(), t);
+            }
+        }
+    }
+
+    /**
+     * A doubly linked list of timeouts that is only accessed by the worker thread.
+     */
+    private static final class Bucket {
+
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            }
+            else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        Timeout remove(Timeout timeout) {
+            Timeout next = timeout.next;
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (next != null) {
+                next.prev = timeout.prev;
+            }
+            if (timeout == head) {
+                head = next;
+            }
+            if (timeout == tail) {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+            return next;
+        }
+
+        void expireTimeouts(long deadline) {
+            Timeout timeout = head;
+            while (timeout != null) {
+                if (timeout.isCancelled()) {
+                    timeout = remove(timeout);
+                }
+                else if (timeout.remainingRounds <= 0) {
+                    Timeout next = remove(timeout);
+                    if (timeout.deadline <= deadline) {
+                        timeout.expire();
+                    }
+                    timeout = next;
+                }
+                else {
+                    timeout.remainingRounds--;
+                    timeout = timeout.next;
+                }
+            }
+        }
+    }
+
+    private final class Worker implements Runnable {
+
+        private long tick;
+
+        @Override
+        public void run() {
+            while (!stopped) {
+                long deadline = waitForNextTick();
+                if (deadline > 0) {
+                    removeCancelledTimeouts();
+                    transferTimeoutsToBuckets();
+                    wheel[(int) (tick & mask)].expireTimeouts(deadline);
+                    tick++;
+                }
+            }
+            newTimeouts.clear();
+            cancelledTimeouts.clear();
+        }
+
+        private long waitForNextTick() {
+            long deadline = tickNanos * (tick + 1);
+            while (true) {
+                long currentTime = System.nanoTime() - startTime;
+                long sleepMillis = (deadline - currentTime + 999999) / 1000000;
+                if (sleepMillis <= 0) {
+                    return (currentTime == 0) ? 1 : currentTime;
+                }
+                try {
+                    Thread.sleep(sleepMillis);
+                } catch (InterruptedException iex) {
+                    if (stopped) {
+                        return -1;
+                    }
+                }
+            }
+        }
+
+        private void transferTimeoutsToBuckets() {
+            for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+                Timeout timeout = newTimeouts.poll();
+                if (timeout == null) {
+                    break;
+                }
+                if (timeout.isCancelled()) {
+                    continue;
+                }
+                long calculated = timeout.deadline / tickNanos;
+                timeout.remainingRounds = (calculated - tick) / wheel.length;
+                long ticks = Math.max(calculated, tick);
+                wheel[(int) (ticks & mask)].add(timeout);
+            }
+        }
+
+        private void removeCancelledTimeouts() {
+            Timeout timeout;
+            while ((timeout = cancelledTimeouts.poll()) != null) {
+                Bucket bucket = timeout.bucket;
+                if (bucket != null) {
+                    bucket.remove(timeout);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*_############################################################################
+  _##
+  _##  SNMP4J - HashedWheelTimerFactory.java
+  _##
+  _##  Copyright (C) 2003-2021  Frank Fock (SNMP4J.org)
+  _##
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##
+  _##########################################################################*/
+package org.snmp4j.util;
+
+/**
+ * This {@code HashedWheelTimerFactory} creates {@link HashedWheelTimer} instances. Use
+ * {@link org.snmp4j.SNMP4JSettings#setTimerFactory(TimerFactory)} to make {@link org.snmp4j.Snmp} use hashed wheel
+ * timers for its pending requests, which scales better than the {@link DefaultTimerFactory} for many thousands of
+ * concurrently outstanding requests.
+ *
+ * @author Frank Fock
+ * @version 3.6.0
+ * @since 3.6.0
+ */
+public class HashedWheelTimerFactory implements TimerFactory {
+
+    private final long tickMillis;
+    private final int ticksPerWheel;
+
+    /**
+     * Creates a factory for hashed wheel timers with the default tick duration and wheel size.
+     */
+    public HashedWheelTimerFactory() {
+        this(HashedWheelTimer.DEFAULT_TICK_MILLIS, HashedWheelTimer.DEFAULT_TICKS_PER_WHEEL);
+    }
+
+    /**
+     * Creates a factory for hashed wheel timers.
+     * @param tickMillis
+     *    the duration of a tick in milliseconds, which determines the precision of the timers.
+     * @param ticksPerWheel
+     *    the number of buckets per wheel.
+     */
+    public HashedWheelTimerFactory(long tickMillis, int ticksPerWheel) {
+        this.tickMillis = tickMillis;
+        this.ticksPerWheel = ticksPerWheel;
+    }
+
+    public CommonTimer createTimer() {
+        return new HashedWheelTimer("SNMP4J-HashedWheelTimer", tickMillis, ticksPerWheel);
+    }
+}
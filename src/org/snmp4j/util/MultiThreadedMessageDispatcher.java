@@ -45,6 +45,11 @@ import org.snmp4j.transport.TransportType;
  * {@code MultiThreadedMessageDispatcher} copies the incoming
  * {@code ByteBuffer} for {@link #processMessage(TransportMapping, Address, ByteBuffer, TransportStateReference)}
  * to allow concurrent processing of the buffer.
+ * <p>
+ * Since {@link #processMessage(TransportMapping, Address, ByteBuffer, TransportStateReference)} is called by the
+ * listen thread of the transport mapping, a {@link ThreadPool} blocks message reception while all its threads are
+ * busy. Use a {@link QueuedWorkerPool} to queue incoming messages instead and to drop them with a counter when the
+ * queues are full.
  *
  * @author Frank Fock
  * @version 3.5.0
@@ -0,0 +1,548 @@
+/*_############################################################################
+  _##
+  _##  SNMP4J - QueuedWorkerPool.java
+  _##
+  _##  Copyright (C) 2003-2021  Frank Fock (SNMP4J.org)
+  _##
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##
+  _##########################################################################*/
+package org.snmp4j.util;
+
+import org.snmp4j.log.LogAdapter;
+import org.snmp4j.log.LogFactory;
+
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The {@code QueuedWorkerPool} is a {@link WorkerPool} with a fixed number of worker threads, each owning a bounded
+ * task queue. In contrast to {@link ThreadPool}, submitting a task never scans for an idle thread and waits: the task
+ * is appended to the queue of an idle worker or, if all workers are busy, to the shortest queue. A worker that runs
+ * out of tasks steals tasks from the tail of the longest queue of the other workers. Thus, a single slow task (for
+ * example a slow MIB instrumentation) delays only the tasks queued behind it until they are stolen, but it never
+ * blocks the submitting thread, which is typically the listen thread of a transport mapping.
+ * <p>
+ * If all queues are full, the task is passed to the {@link WorkerTaskRejectionHandler} of the pool. The default
+ * handler {@link #DISCARD} drops the task; other handlers can run the task in the caller's thread
+ * ({@link #CALLER_RUNS}), wait for free queue capacity ({@link #block(long)}), or answer the request with an error
+ * response (see {@code CommandProcessor} of SNMP4J-Agent). Rejected tasks are counted in any case.
+ * <p>
+ * Idle workers are parked until a task is queued for them or can be stolen by them, so an idle pool does not
+ * consume CPU time.
+ * <p>
+ * The pool collects the current queue depth, the number of executed, stolen and rejected tasks, as well as the
+ * average and maximum time tasks waited in a queue.
+ *
+ * @author Frank Fock
+ * @version 3.6.0
+ * @since 3.6.0
+ */
+public class QueuedWorkerPool implements WorkerPool {
+
+    private static final LogAdapter logger = LogFactory.getLogger(QueuedWorkerPool.class);
+
+    /**
+     * The default capacity of a worker's task queue.
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 256;
+
+    /**
+     * Discards rejected tasks. The pool counts them in {@link #getRejectedTaskCount()}.
+     */
+    public static final WorkerTaskRejectionHandler DISCARD = (task, workerPool) -> {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Worker pool " + workerPool + " is saturated, discarded task " + task);
+        }
+    };
+
+    /**
+     * Runs rejected tasks in the thread that submitted them. This throttles the submitting thread to the speed
+     * of the pool.
+     */
+    public static final WorkerTaskRejectionHandler CALLER_RUNS = (task, workerPool) -> task.run();
+
+    private final String name;
+    private final Worker[] workers;
+    private final int queueCapacity;
+    private final AtomicInteger nextWorker = new AtomicInteger();
+    private final AtomicInteger activeCount = new AtomicInteger();
+    private final LongAdder executedTasks = new LongAdder();
+    private final LongAdder stolenTasks = new LongAdder();
+    private final LongAdder rejectedTasks = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private volatile WorkerTaskRejectionHandler rejectionHandler = DISCARD;
+    private volatile boolean stop;
+
+    /**
+     * Creates a queued worker pool and starts its worker threads.
+     *
+     * @param name
+     *         the name prefix for the threads of this pool.
+     * @param size
+     *         the number of worker threads.
+     * @param queueCapacity
+     *         the maximum number of tasks queued per worker thread.
+     */
+    public QueuedWorkerPool(String name, int size, int queueCapacity) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Pool size must be greater than zero: " + size);
+        }
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("Queue capacity must be greater than zero: " + queueCapacity);
+        }
+        this.name = name;
+        this.queueCapacity = queueCapacity;
+        this.workers = new Worker[size];
+        for (int i = 0; i < size; i++) {
+            workers[i] = new Worker(name + "." + i, queueCapacity);
+        }
+        for (Worker worker : workers) {
+            worker.start();
+        }
+    }
+
+    /**
+     * Creates a queued worker pool with {@link #DEFAULT_QUEUE_CAPACITY} and starts its worker threads.
+     *
+     * @param name
+     *         the name prefix for the threads of this pool.
+     * @param size
+     *         the number of worker threads.
+     *
+     * @return a {@code QueuedWorkerPool} instance.
+     */
+    public static QueuedWorkerPool create(String name, int size) {
+        return new QueuedWorkerPool(name, size, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Creates a rejection handler that waits up to the specified time for free capacity in any worker queue and
+     * discards the task if there is still none.
+     *
+     * @param timeoutMillis
+     *         the maximum time in milliseconds the submitting thread is blocked.
+     *
+     * @return a blocking {@link WorkerTaskRejectionHandler} for {@code QueuedWorkerPool} instances.
+     */
+    public static WorkerTaskRejectionHandler block(long timeoutMillis) {
+        return (task, workerPool) -> {
+            if (workerPool instanceof QueuedWorkerPool) {
+                try {
+                    if (((QueuedWorkerPool) workerPool).offer(task, timeoutMillis, TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                } catch (InterruptedException iex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            DISCARD.rejectedExecution(task, workerPool);
+        };
+    }
+
+    /**
+     * Queues a task for execution. This method does not block unless the rejection handler does. If all queues
+     * are full, the task is passed to the rejection handler of this pool.
+     *
+     * @param task
+     *         a {@code Runnable} to execute.
+     */
+    @Override
+    public void execute(WorkerTask task) {
+        if (!tryToExecute(task)) {
+            rejectedTasks.increment();
+            rejectionHandler.rejectedExecution(task, this);
+        }
+    }
+
+    /**
+     * Queues a task for execution if there is free capacity in a worker queue.
+     *
+     * @param task
+     *         a {@code Runnable} to execute.
+     *
+     * @return {@code true} if the task has been queued, {@code false} if the pool is saturated or stopped.
+     */
+    @Override
+    public boolean tryToExecute(WorkerTask task) {
+        if (stop) {
+            return false;
+        }
+        QueuedTask queuedTask = new QueuedTask(task);
+        Thread current = Thread.currentThread();
+        if ((current instanceof Worker) && (((Worker) current).getPool() == this) &&
+                ((Worker) current).queue.offerLast(queuedTask)) {
+            wakeUp((Worker) current);
+            return true;
+        }
+        int start = Math.floorMod(nextWorker.getAndIncrement(), workers.length);
+        Worker shortest = null;
+        int shortestSize = Integer.MAX_VALUE;
+        for (int i = 0; i < workers.length; i++) {
+            Worker worker = workers[(start + i) % workers.length];
+            int size = worker.queue.size();
+            if (worker.idle && (size == 0)) {
+                if (worker.queue.offerLast(queuedTask)) {
+                    wakeUp(worker);
+                    return true;
+                }
+            }
+            else if (size < shortestSize) {
+                shortest = worker;
+                shortestSize = size;
+            }
+        }
+        if ((shortest != null) && shortest.queue.offerLast(queuedTask)) {
+            wakeUp(shortest);
+            return true;
+        }
+        for (int i = 0; i < workers.length; i++) {
+            Worker worker = workers[(start + i) % workers.length];
+            if (worker.queue.offerLast(queuedTask)) {
+                wakeUp(worker);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Unparks the worker a task has been queued for if it is idle, otherwise an idle worker that can steal the
+     * task. Because a worker marks itself idle before it checks the queues a last time and parks, a task queued
+     * before that check is found by the worker and a task queued after it finds the worker marked idle.
+     *
+     * @param target
+     *         the worker whose queue received a task.
+     */
+    private void wakeUp(Worker target) {
+        if (target.idle) {
+            LockSupport.unpark(target);
+            return;
+        }
+        for (Worker worker : workers) {
+            if (worker.idle) {
+                LockSupport.unpark(worker);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Queues a task for execution and waits up to the specified time for free capacity if all queues are full.
+     *
+     * @param task
+     *         a {@code Runnable} to execute.
+     * @param timeout
+     *         the maximum time to wait.
+     * @param unit
+     *         the time unit of {@code timeout}.
+     *
+     * @return {@code true} if the task has been queued, {@code false} if the timeout elapsed or the pool has
+     * been stopped.
+     * @throws InterruptedException
+     *         if the waiting thread has been interrupted.
+     */
+    public boolean offer(WorkerTask task, long timeout, TimeUnit unit) throws InterruptedException {
+        if (tryToExecute(task)) {
+            return true;
+        }
+        if (stop) {
+            return false;
+        }
+        Worker worker = workers[Math.floorMod(nextWorker.getAndIncrement(), workers.length)];
+        if (worker.queue.offerLast(new QueuedTask(task), timeout, unit)) {
+            wakeUp(worker);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Stops all workers gracefully. Tasks already queued are executed before the workers terminate. This method
+     * does not return until all workers have been joined.
+     */
+    @Override
+    public void stop() {
+        stop = true;
+        for (Worker worker : workers) {
+            worker.interrupt();
+        }
+        for (Worker worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Cancels all workers non-blocking by interrupting them. Queued tasks are discarded and running tasks are
+     * asked to terminate.
+     */
+    @Override
+    public void cancel() {
+        stop = true;
+        for (Worker worker : workers) {
+            worker.queue.clear();
+            worker.cancelled = true;
+            WorkerTask running = worker.runningTask;
+            if (running != null) {
+                running.terminate();
+            }
+            worker.interrupt();
+        }
+    }
+
+    /**
+     * Checks if all workers of the pool are idle and all queues are empty.
+     *
+     * @return {@code true} if there is no task running or waiting for execution.
+     */
+    @Override
+    public boolean isIdle() {
+        return (activeCount.get() == 0) && (getQueueDepth() == 0);
+    }
+
+    /**
+     * Returns the name of this worker pool.
+     *
+     * @return the name prefix of the worker threads.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the number of worker threads.
+     *
+     * @return the pool size.
+     */
+    public int getSize() {
+        return workers.length;
+    }
+
+    /**
+     * Returns the capacity of each worker's task queue.
+     *
+     * @return the maximum number of tasks queued per worker.
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public WorkerTaskRejectionHandler getRejectionHandler() {
+        return rejectionHandler;
+    }
+
+    /**
+     * Sets the handler for tasks that cannot be queued because all worker queues are full.
+     *
+     * @param rejectionHandler
+     *         a {@link WorkerTaskRejectionHandler}, for example {@link #DISCARD} (the default),
+     *         {@link #CALLER_RUNS}, or {@link #block(long)}.
+     */
+    public void setRejectionHandler(WorkerTaskRejectionHandler rejectionHandler) {
+        if (rejectionHandler == null) {
+            throw new NullPointerException();
+        }
+        this.rejectionHandler = rejectionHandler;
+    }
+
+    /**
+     * Returns the number of tasks waiting for execution in all worker queues.
+     *
+     * @return the current queue depth.
+     */
+    public int getQueueDepth() {
+        int depth = 0;
+        for (Worker worker : workers) {
+            depth += worker.queue.size();
+        }
+        return depth;
+    }
+
+    /**
+     * Returns the number of tasks currently being executed.
+     *
+     * @return the number of busy workers.
+     */
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+    public long getExecutedTaskCount() {
+        return executedTasks.sum();
+    }
+
+    /**
+     * Returns the number of tasks that were executed by another worker than the one they were queued for.
+     *
+     * @return the number of stolen tasks.
+     */
+    public long getStolenTaskCount() {
+        return stolenTasks.sum();
+    }
+
+    /**
+     * Returns the number of tasks that have been passed to the rejection handler.
+     *
+     * @return the number of rejected tasks.
+     */
+    public long getRejectedTaskCount() {
+        return rejectedTasks.sum();
+    }
+
+    /**
+     * Returns the average time executed tasks waited in a queue before their execution started.
+     *
+     * @return the average wait time in nanoseconds.
+     */
+    public long getAverageWaitTimeNanos() {
+        long executed = executedTasks.sum();
+        return (executed == 0) ? 0 : totalWaitNanos.sum() / executed;
+    }
+
+    /**
+     * Returns the maximum time a task waited in a queue before its execution started.
+     *
+     * @return the maximum wait time in nanoseconds.
+     */
+    public long getMaxWaitTimeNanos() {
+        return maxWaitNanos.get();
+    }
+
+    /**
+     * Resets the wait time and task counters.
+     */
+    public void resetStatistics() {
+        executedTasks.reset();
+        stolenTasks.reset();
+        rejectedTasks.reset();
+        totalWaitNanos.reset();
+        maxWaitNanos.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "QueuedWorkerPool[name=" + name + ",size=" + workers.length + ",queueDepth=" + getQueueDepth() +
+                ",active=" + activeCount.get() + ",executed=" + executedTasks.sum() +
+                ",rejected=" + rejectedTasks.sum() + "]";
+    }
+
+    private QueuedTask steal(Worker thief) {
+        Worker victim = null;
+        int victimSize = 0;
+        for (Worker worker : workers) {
+            if (worker != thief) {
+                int size = worker.queue.size();
+                if (size > victimSize) {
+                    victim = worker;
+                    victimSize = size;
+                }
+            }
+        }
+        if (victim != null) {
+            QueuedTask task = victim.queue.pollLast();
+            if (task != null) {
+                stolenTasks.increment();
+            }
+            return task;
+        }
+        return null;
+    }
+
+    private void execute(Worker worker, QueuedTask queuedTask) {
+        long waitNanos = System.nanoTime() - queuedTask.queuedNanos;
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+        activeCount.incrementAndGet();
+        worker.runningTask = queuedTask.task;
+        try {
+            queuedTask.task.run();
+        } catch (Throwable t) {
+            logger.error("Task " + queuedTask.task + " failed in worker " + worker.getName() + ": " +
+                    t.getMessage(), t);
+            if (t instanceof VirtualMachineError) {
+                throw (VirtualMachineError) t;
+            }
+        } finally {
+            worker.runningTask = null;
+            activeCount.decrementAndGet();
+            executedTasks.increment();
+        }
+    }
+
+    private static final class QueuedTask {
+
+        private final WorkerTask task;
+        private final long queuedNanos = System.nanoTime();
+
+        private QueuedTask(WorkerTask task) {
+            this.task = task;
+        }
+    }
+
+    private final class Worker extends Thread {
+
+        private final BlockingDeque<QueuedTask> queue;
+        private volatile boolean idle;
+        private volatile boolean cancelled;
+        private volatile WorkerTask runningTask;
+
+        private Worker(String name, int capacity) {
+            super(name);
+            this.queue = new LinkedBlockingDeque<>(capacity);
+        }
+
+        private QueuedWorkerPool getPool() {
+            return QueuedWorkerPool.this;
+        }
+
+        @Override
+        public void run() {
+            while (!cancelled) {
+                QueuedTask task = queue.pollFirst();
+                if (task == null) {
+                    task = steal(this);
+                }
+                if (task == null) {
+                    if (stop) {
+                        break;
+                    }
+                    idle = true;
+                    // check again after being marked idle, see wakeUp(Worker)
+                    task = queue.pollFirst();
+                    if (task == null) {
+                        task = steal(this);
+                    }
+                    if ((task == null) && !stop) {
+                        LockSupport.park(this);
+                        // stop() and cancel() interrupt to unpark, tasks must not see that interrupt
+                        Thread.interrupted();
+                    }
+                    idle = false;
+                }
+                if ((task != null) && !cancelled) {
+                    execute(this, task);
+                }
+            }
+        }
+    }
+}
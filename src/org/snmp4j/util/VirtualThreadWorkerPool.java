@@ -0,0 +1,503 @@
+/*_############################################################################
+  _##
+  _##  SNMP4J - VirtualThreadWorkerPool.java
+  _##
+  _##  Copyright (C) 2003-2021  Frank Fock (SNMP4J.org)
+  _##
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##
+  _##########################################################################*/
+package org.snmp4j.util;
+
+import org.snmp4j.log.LogAdapter;
+import org.snmp4j.log.LogFactory;
+
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * The {@code VirtualThreadWorkerPool} runs each {@link WorkerTask} on its own virtual thread if the Java runtime
+ * supports virtual threads (Java 21 or later). On older runtimes, the tasks are executed by a platform thread
+ * {@link WorkerPool} instead. Tasks that block, for example while waiting for the response of a proxied request or
+ * for a slow backend to update a managed object, then only occupy a cheap virtual thread instead of a scarce pool
+ * thread.
+ * <p>
+ * The number of tasks running concurrently is limited by a concurrency limiter. Tasks are grouped by a key
+ * determined by the task classifier (see {@link #setTaskClassifier(Function)}), for example the context of an SNMP
+ * request. Each key can run at most {@code maxConcurrencyPerKey} tasks at the same time and waiting tasks are
+ * started round-robin over their keys. Thus, thousands of slow requests for one context cannot starve the requests
+ * of other contexts. By default, tasks are classified by their class.
+ * <p>
+ * Tasks exceeding the limit are queued up to {@code maxPendingTasks}. Further tasks, and tasks that cannot be
+ * started on a thread, are passed to the {@link WorkerTaskRejectionHandler} of the pool, which discards them by
+ * default.
+ *
+ * @author Frank Fock
+ * @version 3.6.0
+ * @since 3.6.0
+ */
+public class VirtualThreadWorkerPool implements WorkerPool {
+
+    private static final LogAdapter logger = LogFactory.getLogger(VirtualThreadWorkerPool.class);
+
+    private static final boolean VIRTUAL_THREADS_SUPPORTED = (createVirtualThreadFactory("SNMP4J-") != null);
+
+    private final String name;
+    private final int maxConcurrency;
+    private final int maxConcurrencyPerKey;
+    private final int maxPendingTasks;
+    private final java.util.concurrent.ThreadFactory virtualThreadFactory;
+    private final WorkerPool platformPool;
+    private final boolean ownPlatformPool;
+    private final Map<Object, KeyQueue> keyQueues = new HashMap<>();
+    private final Queue<KeyQueue> readyQueues = new ArrayDeque<>();
+    private final Set<Thread> runningThreads = ConcurrentHashMap.newKeySet();
+    private int running;
+    private int pending;
+    private long executedTasks;
+    private long rejectedTasks;
+    private volatile boolean stop;
+    private volatile Function<WorkerTask, ?> taskClassifier = Object::getClass;
+    private volatile WorkerTaskRejectionHandler rejectionHandler = QueuedWorkerPool.DISCARD;
+
+    /**
+     * Creates a virtual thread worker pool.
+     *
+     * @param name
+     *         the name prefix of the threads created by this pool.
+     * @param maxConcurrency
+     *         the maximum number of tasks running concurrently.
+     * @param maxConcurrencyPerKey
+     *         the maximum number of tasks with the same key running concurrently.
+     * @param maxPendingTasks
+     *         the maximum number of tasks waiting for execution.
+     * @param platformPool
+     *         the worker pool executing the tasks if virtual threads are not supported by the Java runtime. The
+     *         pool should accept {@code maxConcurrency} tasks by {@link WorkerPool#tryToExecute(WorkerTask)},
+     *         because tasks it does not accept are passed to the rejection handler of this pool. If {@code null}, a
+     *         {@link QueuedWorkerPool} with {@code maxConcurrency} threads is created on demand and stopped together
+     *         with this pool.
+     */
+    public VirtualThreadWorkerPool(String name, int maxConcurrency, int maxConcurrencyPerKey, int maxPendingTasks,
+                                   WorkerPool platformPool) {
+        if ((maxConcurrency <= 0) || (maxConcurrencyPerKey <= 0) || (maxPendingTasks < 0)) {
+            throw new IllegalArgumentException("Invalid concurrency limits");
+        }
+        this.name = name;
+        this.maxConcurrency = maxConcurrency;
+        this.maxConcurrencyPerKey = Math.min(maxConcurrencyPerKey, maxConcurrency);
+        this.maxPendingTasks = maxPendingTasks;
+        this.virtualThreadFactory = createVirtualThreadFactory(name + ".");
+        if ((virtualThreadFactory == null) && (platformPool == null)) {
+            this.platformPool = new QueuedWorkerPool(name, maxConcurrency, QueuedWorkerPool.DEFAULT_QUEUE_CAPACITY);
+            this.ownPlatformPool = true;
+        }
+        else {
+            this.platformPool = platformPool;
+            this.ownPlatformPool = false;
+        }
+    }
+
+    /**
+     * Creates a virtual thread worker pool that allows each task key to use half of the concurrency limit.
+     *
+     * @param name
+     *         the name prefix of the threads created by this pool.
+     * @param maxConcurrency
+     *         the maximum number of tasks running concurrently.
+     *
+     * @return a {@code VirtualThreadWorkerPool} that queues up to {@code 16 * maxConcurrency} tasks.
+     */
+    public static VirtualThreadWorkerPool create(String name, int maxConcurrency) {
+        return new VirtualThreadWorkerPool(name, maxConcurrency, Math.max(1, maxConcurrency / 2),
+                16 * maxConcurrency, null);
+    }
+
+    /**
+     * Checks whether the Java runtime supports virtual threads.
+     *
+     * @return {@code true} if tasks are executed on virtual threads, {@code false} if they are executed by the
+     * platform thread pool.
+     */
+    public static boolean isVirtualThreadSupported() {
+        return VIRTUAL_THREADS_SUPPORTED;
+    }
+
+    private static java.util.concurrent.ThreadFactory createVirtualThreadFactory(String namePrefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            Method factory = builderClass.getMethod("factory");
+            return (java.util.concurrent.ThreadFactory) factory.invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Virtual threads not supported: " + ex);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Sets the function that determines the key of a task for the per-key concurrency limit. Tasks with
+     * {@link Object#equals(Object) equal} keys share the per-key limit.
+     *
+     * @param taskClassifier
+     *         a function returning a non-{@code null} key for each task.
+     */
+    public void setTaskClassifier(Function<WorkerTask, ?> taskClassifier) {
+        if (taskClassifier == null) {
+            throw new NullPointerException();
+        }
+        this.taskClassifier = taskClassifier;
+    }
+
+    public Function<WorkerTask, ?> getTaskClassifier() {
+        return taskClassifier;
+    }
+
+    /**
+     * Sets the handler for tasks that cannot be queued because {@code maxPendingTasks} tasks are already waiting.
+     *
+     * @param rejectionHandler
+     *         a {@link WorkerTaskRejectionHandler}.
+     */
+    public void setRejectionHandler(WorkerTaskRejectionHandler rejectionHandler) {
+        if (rejectionHandler == null) {
+            throw new NullPointerException();
+        }
+        this.rejectionHandler = rejectionHandler;
+    }
+
+    public WorkerTaskRejectionHandler getRejectionHandler() {
+        return rejectionHandler;
+    }
+
+    /**
+     * Executes the task on a new virtual thread, or queues it if the concurrency limit of the pool or of the task's
+     * key is reached. This method never blocks unless the rejection handler does.
+     *
+     * @param task
+     *         a {@code Runnable} to execute.
+     */
+    @Override
+    public void execute(WorkerTask task) {
+        if (!tryToExecute(task)) {
+            synchronized (this) {
+                rejectedTasks++;
+            }
+            rejectionHandler.rejectedExecution(task, this);
+        }
+    }
+
+    /**
+     * Executes or queues a task unless {@code maxPendingTasks} tasks are already waiting or the pool has been
+     * stopped.
+     *
+     * @param task
+     *         a {@code Runnable} to execute.
+     *
+     * @return {@code true} if the task has been started or queued.
+     */
+    @Override
+    public boolean tryToExecute(WorkerTask task) {
+        if (stop) {
+            return false;
+        }
+        Object key = taskClassifier.apply(task);
+        List<LimitedTask> startable;
+        synchronized (this) {
+            KeyQueue keyQueue = keyQueues.get(key);
+            boolean immediate = (running < maxConcurrency) &&
+                    ((keyQueue == null) || ((keyQueue.running < maxConcurrencyPerKey) && keyQueue.tasks.isEmpty()));
+            if (!immediate && (pending >= maxPendingTasks)) {
+                return false;
+            }
+            if (keyQueue == null) {
+                keyQueue = new KeyQueue(key);
+                keyQueues.put(key, keyQueue);
+            }
+            keyQueue.tasks.add(task);
+            pending++;
+            if (!keyQueue.ready && (keyQueue.running < maxConcurrencyPerKey)) {
+                keyQueue.ready = true;
+                readyQueues.add(keyQueue);
+            }
+            startable = dispatch();
+        }
+        start(startable);
+        return true;
+    }
+
+    /**
+     * Takes waiting tasks round-robin over their keys while the concurrency limits permit. The returned tasks have
+     * to be started outside the lock, because starting a task may call the rejection handler.
+     *
+     * @return the tasks to start or {@code null} if there are none.
+     */
+    private List<LimitedTask> dispatch() {
+        List<LimitedTask> startable = null;
+        while ((running < maxConcurrency) && !readyQueues.isEmpty()) {
+            KeyQueue keyQueue = readyQueues.poll();
+            WorkerTask task = keyQueue.tasks.poll();
+            pending--;
+            keyQueue.running++;
+            running++;
+            if (!keyQueue.tasks.isEmpty() && (keyQueue.running < maxConcurrencyPerKey)) {
+                readyQueues.add(keyQueue);
+            }
+            else {
+                keyQueue.ready = false;
+            }
+            if (startable == null) {
+                startable = new ArrayList<>(2);
+            }
+            startable.add(new LimitedTask(task, keyQueue));
+        }
+        return startable;
+    }
+
+    private void start(List<LimitedTask> tasks) {
+        if (tasks == null) {
+            return;
+        }
+        Queue<LimitedTask> startable = new ArrayDeque<>(tasks);
+        LimitedTask task;
+        while ((task = startable.poll()) != null) {
+            if (!startTask(task)) {
+                // release the slot of the task, otherwise its key would be blocked and stop() would never return
+                List<LimitedTask> next;
+                synchronized (this) {
+                    next = completedTask(task.keyQueue, false);
+                }
+                rejectionHandler.rejectedExecution(task.task, this);
+                if (next != null) {
+                    startable.addAll(next);
+                }
+            }
+        }
+    }
+
+    private boolean startTask(LimitedTask task) {
+        if (virtualThreadFactory == null) {
+            return platformPool.tryToExecute(task);
+        }
+        try {
+            Thread thread = virtualThreadFactory.newThread(task);
+            if (thread != null) {
+                thread.start();
+                return true;
+            }
+        } catch (RuntimeException rex) {
+            logger.error("Failed to start virtual thread for task " + task.task + " in worker pool " + name +
+                    ": " + rex.getMessage(), rex);
+        }
+        return false;
+    }
+
+    private void completed(KeyQueue keyQueue) {
+        List<LimitedTask> startable;
+        synchronized (this) {
+            startable = completedTask(keyQueue, true);
+        }
+        start(startable);
+    }
+
+    private List<LimitedTask> completedTask(KeyQueue keyQueue, boolean executed) {
+        keyQueue.running--;
+        running--;
+        if (executed) {
+            executedTasks++;
+        }
+        else {
+            rejectedTasks++;
+        }
+        if (!keyQueue.tasks.isEmpty()) {
+            if (!keyQueue.ready) {
+                keyQueue.ready = true;
+                readyQueues.add(keyQueue);
+            }
+        }
+        else if (keyQueue.running == 0) {
+            keyQueues.remove(keyQueue.key);
+        }
+        if ((running == 0) && (pending == 0)) {
+            notifyAll();
+        }
+        return dispatch();
+    }
+
+    /**
+     * Stops the pool gracefully. New tasks are rejected, while running and queued tasks are completed. This method
+     * does not return until all tasks have been completed.
+     */
+    @Override
+    public void stop() {
+        stop = true;
+        synchronized (this) {
+            while ((running > 0) || (pending > 0)) {
+                try {
+                    wait();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        if (ownPlatformPool) {
+            platformPool.stop();
+        }
+    }
+
+    /**
+     * Cancels the pool non-blocking. Queued tasks are discarded and running tasks are asked to terminate and
+     * interrupted.
+     */
+    @Override
+    public void cancel() {
+        stop = true;
+        synchronized (this) {
+            readyQueues.clear();
+            for (KeyQueue keyQueue : keyQueues.values()) {
+                pending -= keyQueue.tasks.size();
+                keyQueue.tasks.clear();
+                keyQueue.ready = false;
+            }
+        }
+        for (Thread thread : runningThreads) {
+            thread.interrupt();
+        }
+        if (ownPlatformPool) {
+            platformPool.cancel();
+        }
+    }
+
+    @Override
+    public synchronized boolean isIdle() {
+        return (running == 0) && (pending == 0);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public int getMaxConcurrencyPerKey() {
+        return maxConcurrencyPerKey;
+    }
+
+    public synchronized int getRunningCount() {
+        return running;
+    }
+
+    public synchronized int getPendingCount() {
+        return pending;
+    }
+
+    public synchronized long getExecutedTaskCount() {
+        return executedTasks;
+    }
+
+    public synchronized long getRejectedTaskCount() {
+        return rejectedTasks;
+    }
+
+    /**
+     * Returns the number of running tasks with the specified key.
+     *
+     * @param key
+     *         a key returned by the task classifier.
+     *
+     * @return the number of running tasks for {@code key}.
+     */
+    public synchronized int getRunningCount(Object key) {
+        KeyQueue keyQueue = keyQueues.get(key);
+        return (keyQueue == null) ? 0 : keyQueue.running;
+    }
+
+    @Override
+    public String toString() {
+        return "VirtualThreadWorkerPool[name=" + name + ",virtual=" + isVirtualThreadSupported() +
+                ",maxConcurrency=" + maxConcurrency + ",maxConcurrencyPerKey=" + maxConcurrencyPerKey + "]";
+    }
+
+    private static final class KeyQueue {
+
+        private final Object key;
+        private final Queue<WorkerTask> tasks = new ArrayDeque<>();
+        private int running;
+        private boolean ready;
+
+        private KeyQueue(Object key) {
+            this.key = key;
+        }
+    }
+
+    private final class LimitedTask implements WorkerTask {
+
+        private final WorkerTask task;
+        private final KeyQueue keyQueue;
+        private volatile Thread thread;
+
+        private LimitedTask(WorkerTask task, KeyQueue keyQueue) {
+            this.task = task;
+            this.keyQueue = keyQueue;
+        }
+
+        @Override
+        public void run() {
+            Thread current = Thread.currentThread();
+            thread = current;
+            runningThreads.add(current);
+            try {
+                task.run();
+            } catch (RuntimeException rex) {
+                logger.error("Task " + task + " failed in worker pool " + name + ": " + rex.getMessage(), rex);
+            } finally {
+                runningThreads.remove(current);
+                thread = null;
+                completed(keyQueue);
+            }
+        }
+
+        @Override
+        public void terminate() {
+            task.terminate();
+        }
+
+        @Override
+        public void join() throws InterruptedException {
+            task.join();
+        }
+
+        @Override
+        public void interrupt() {
+            Thread t = thread;
+            if (t != null) {
+                t.interrupt();
+            }
+            task.interrupt();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*_############################################################################
+  _##
+  _##  SNMP4J - WorkerTaskRejectionHandler.java
+  _##
+  _##  Copyright (C) 2003-2021  Frank Fock (SNMP4J.org)
+  _##
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##
+  _##########################################################################*/
+package org.snmp4j.util;
+
+/**
+ * A {@code WorkerTaskRejectionHandler} decides what happens with a {@link WorkerTask} that a {@link WorkerPool}
+ * cannot accept because all its queues are full. The handler is called by the thread that submitted the task,
+ * for example the listen thread of a transport mapping, and therefore should not block longer than necessary.
+ *
+ * @author Frank Fock
+ * @version 3.6.0
+ * @since 3.6.0
+ */
+@FunctionalInterface
+public interface WorkerTaskRejectionHandler {
+
+    /**
+     * Handles a task that could not be queued for execution.
+     *
+     * @param task
+     *         the rejected task.
+     * @param workerPool
+     *         the worker pool that rejected the task.
+     */
+    void rejectedExecution(WorkerTask task, WorkerPool workerPool);
+
+}
@@ -0,0 +1,96 @@
+/*_############################################################################
+  _##
+  _##  SNMP4J-Agent 3 - ConcurrentMOServerTest.java
+  _##
+  _##  Copyright (C) 2005-2021  Frank Fock (SNMP4J.org)
+  _##
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##
+  _##########################################################################*/
+
+package org.snmp4j.agent;
+
+import junit.framework.TestCase;
+import org.snmp4j.agent.mo.MOAccessImpl;
+import org.snmp4j.agent.mo.MOScalar;
+import org.snmp4j.smi.Integer32;
+import org.snmp4j.smi.OID;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ConcurrentMOServerTest extends TestCase {
+
+    private ConcurrentMOServer server;
+    private MOScalar<Integer32> scalar;
+
+    protected void setUp() throws Exception {
+        server = new ConcurrentMOServer();
+        scalar = new MOScalar<>(new OID("1.3.6.1.4.1.4976.99.40.0"), MOAccessImpl.ACCESS_READ_WRITE,
+                new Integer32(0));
+        server.register(scalar, null);
+    }
+
+    public void testUnregisterKeepsHeldLock() throws Exception {
+        Object owner = new Object();
+        assertTrue(server.lock(owner, scalar));
+        server.unregister(scalar, null);
+        assertFalse(server.lock(new Object(), scalar, 50));
+        assertTrue(server.unlock(owner, scalar));
+        assertTrue(server.lock(new Object(), scalar, 50));
+    }
+
+    public void testLockIsExclusiveWhileUnregistering() throws Exception {
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicInteger holders = new AtomicInteger();
+        AtomicInteger violations = new AtomicInteger();
+        AtomicInteger acquired = new AtomicInteger();
+        Thread[] lockers = new Thread[4];
+        for (int i = 0; i < lockers.length; i++) {
+            lockers[i] = new Thread(() -> {
+                while (!stop.get()) {
+                    Object owner = new Object();
+                    if (server.lock(owner, scalar, 1000)) {
+                        if (holders.incrementAndGet() != 1) {
+                            violations.incrementAndGet();
+                        }
+                        acquired.incrementAndGet();
+                        holders.decrementAndGet();
+                        server.unlock(owner, scalar);
+                    }
+                }
+            }, "Locker" + i);
+            lockers[i].start();
+        }
+        Thread registrar = new Thread(() -> {
+            while (!stop.get()) {
+                server.unregister(scalar, null);
+                try {
+                    server.register(scalar, null);
+                } catch (DuplicateRegistrationException e) {
+                    violations.incrementAndGet();
+                }
+            }
+        }, "Registrar");
+        registrar.start();
+        Thread.sleep(TimeUnit.SECONDS.toMillis(1));
+        stop.set(true);
+        for (Thread locker : lockers) {
+            locker.join();
+        }
+        registrar.join();
+        assertEquals(0, violations.get());
+        assertTrue(acquired.get() > 0);
+    }
+}
@@ -0,0 +1,88 @@
+/*_############################################################################
+  _##
+  _##  SNMP4J-Agent 3 - ColumnarMOTableModelTest.java
+  _##
+  _##  Copyright (C) 2005-2021  Frank Fock (SNMP4J.org)
+  _##
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##
+  _##########################################################################*/
+
+package org.snmp4j.agent.mo;
+
+import junit.framework.TestCase;
+import org.snmp4j.PDU;
+import org.snmp4j.agent.mo.snmp.RowStatus;
+import org.snmp4j.smi.*;
+
+public class ColumnarMOTableModelTest extends TestCase {
+
+    private static final OID TABLE_ENTRY = new OID("1.3.6.1.4.1.4976.99.10.1");
+    private static final int COL_DESCR = 0;
+    private static final int COL_ROW_STATUS = 1;
+
+    private ColumnarMOTableModel model;
+    private LocalCommandProcessor processor;
+
+    protected void setUp() throws Exception {
+        model = new ColumnarMOTableModel(
+                new int[]{SMIConstants.SYNTAX_OCTET_STRING, SMIConstants.SYNTAX_INTEGER32});
+        MOColumn<?>[] columns = new MOColumn<?>[]{
+                new MOMutableColumn<>(2, SMIConstants.SYNTAX_OCTET_STRING, MOAccessImpl.ACCESS_READ_CREATE),
+                new RowStatus<ColumnarMOTableModel.ColumnarRow>(3)
+        };
+        MOTableIndex indexDef =
+                new MOTableIndex(new MOTableSubIndex[]{new MOTableSubIndex(SMIConstants.SYNTAX_INTEGER)});
+        DefaultMOTable<ColumnarMOTableModel.ColumnarRow, MOColumn<?>, ColumnarMOTableModel> table =
+                new DefaultMOTable<>(TABLE_ENTRY, indexDef, columns, model);
+        processor = new LocalCommandProcessor();
+        processor.register(table);
+    }
+
+    private static OID cellOID(int columnID, int index) {
+        return new OID(TABLE_ENTRY.getValue(), new int[]{columnID, index});
+    }
+
+    public void testCreateAndGoActivatesRow() {
+        PDU response = processor.set(
+                new VariableBinding(cellOID(2, 7), new OctetString("created")),
+                new VariableBinding(cellOID(3, 7), new Integer32(RowStatus.createAndGo)));
+        assertEquals(PDU.noError, response.getErrorStatus());
+        ColumnarMOTableModel.ColumnarRow row = model.getRow(new OID(new int[]{7}));
+        assertNotNull(row);
+        assertEquals(new OctetString("created"), row.getValue(COL_DESCR));
+        assertEquals(new Integer32(RowStatus.active), row.getValue(COL_ROW_STATUS));
+        assertEquals(RowStatus.active, model.getLong(new OID(new int[]{7}), COL_ROW_STATUS, -1));
+    }
+
+    public void testAddedRowWritesThrough() {
+        ColumnarMOTableModel.ColumnarRow row =
+                model.createRow(new OID(new int[]{1}), new Variable[]{new OctetString("a"), new Integer32(4)});
+        assertTrue(row.isDetached());
+        model.addRow(row);
+        assertFalse(row.isDetached());
+        row.setValue(COL_ROW_STATUS, new Integer32(RowStatus.active));
+        assertEquals(RowStatus.active, model.getLong(new OID(new int[]{1}), COL_ROW_STATUS, -1));
+        assertEquals(row, model.getRow(new OID(new int[]{1})));
+    }
+
+    public void testSetAfterCreateAndGo() {
+        processor.set(new VariableBinding(cellOID(2, 3), new OctetString("first")),
+                new VariableBinding(cellOID(3, 3), new Integer32(RowStatus.createAndGo)));
+        PDU response = processor.set(new VariableBinding(cellOID(2, 3), new OctetString("second")));
+        assertEquals(PDU.noError, response.getErrorStatus());
+        assertEquals(new OctetString("second"), model.getRow(new OID(new int[]{3})).getValue(COL_DESCR));
+        response = processor.getNext(cellOID(3, 0));
+        assertEquals(new VariableBinding(cellOID(3, 3), new Integer32(RowStatus.active)), response.get(0));
+    }
+}
@@ -0,0 +1,363 @@
+/*_############################################################################
+  _##
+  _##  SNMP4J-Agent 3 - DefaultMOTableTest.java
+  _##
+  _##  Copyright (C) 2005-2021  Frank Fock (SNMP4J.org)
+  _##
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##
+  _##########################################################################*/
+
+package org.snmp4j.agent.mo;
+
+import junit.framework.TestCase;
+import org.snmp4j.PDU;
+import org.snmp4j.agent.request.SubRequest;
+import org.snmp4j.mp.MPv1;
+import org.snmp4j.smi.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class DefaultMOTableTest extends TestCase {
+
+    private static final OID TABLE_ENTRY = new OID("1.3.6.1.4.1.4976.99.20.1");
+    private static final OID SCALAR = new OID("1.3.6.1.4.1.4976.99.21.0");
+    private static final int[] COLUMN_IDS = {2, 3, 4, 5};
+    private static final int[] SYNTAXES = {
+            SMIConstants.SYNTAX_INTEGER32, SMIConstants.SYNTAX_OCTET_STRING,
+            SMIConstants.SYNTAX_COUNTER64, SMIConstants.SYNTAX_GAUGE32
+    };
+    private static final int ROWS = 5;
+
+    private LocalCommandProcessor processor;
+    private CountingTable<?, ?> table;
+
+    protected void setUp() throws Exception {
+        processor = new LocalCommandProcessor();
+        processor.register(new MOScalar<>(SCALAR, MOAccessImpl.ACCESS_READ_ONLY, new OctetString("behind table")));
+    }
+
+    private void createTable(boolean columnar) throws Exception {
+        MOColumn<?>[] columns = new MOColumn<?>[COLUMN_IDS.length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new MOColumn<>(COLUMN_IDS[i], SYNTAXES[i], MOAccessImpl.ACCESS_READ_ONLY);
+        }
+        MOTableIndex indexDef =
+                new MOTableIndex(new MOTableSubIndex[]{new MOTableSubIndex(SMIConstants.SYNTAX_INTEGER)});
+        if (columnar) {
+            ColumnarMOTableModel model = new ColumnarMOTableModel(SYNTAXES);
+            for (int r = 1; r <= ROWS; r++) {
+                model.addRow(model.createRow(new OID(new int[]{r}), createValues(r)));
+            }
+            table = new CountingTable<>(indexDef, columns, model);
+        }
+        else {
+            DefaultMOMutableTableModel<DefaultMOTableRow> model = new DefaultMOMutableTableModel<>();
+            for (int r = 1; r <= ROWS; r++) {
+                model.addRow(new DefaultMOTableRow(new OID(new int[]{r}), createValues(r)));
+            }
+            table = new CountingTable<>(indexDef, columns, model);
+        }
+        processor.register(table);
+    }
+
+    private static Variable[] createValues(int row) {
+        return new Variable[]{
+                new Integer32(row), new OctetString("row" + row), new Counter64(1000L + row), new Gauge32(row * 10)
+        };
+    }
+
+    private static OID column(int columnID) {
+        return new OID(TABLE_ENTRY.getValue(), new int[]{columnID});
+    }
+
+    private static OID cell(int columnID, int row) {
+        return new OID(TABLE_ENTRY.getValue(), new int[]{columnID, row});
+    }
+
+    /**
+     * Checks that a GETBULK request returns the same variable bindings as GETNEXT requests that walk the same
+     * columns, and that the table answered repetitions by {@link DefaultMOTable#nextBulk}.
+     *
+     * @param maxRepetitions
+     *         the max-repetitions of the GETBULK request.
+     * @param oids
+     *         the repeater OIDs.
+     */
+    private void assertBulkMatchesGetNext(int maxRepetitions, OID... oids) {
+        List<VariableBinding> expected = processor.walkByGetNext(maxRepetitions, oids);
+        int getNextBulkCalls = table.bulkCalls;
+        PDU response = processor.getBulk(maxRepetitions, oids);
+        assertEquals(PDU.noError, response.getErrorStatus());
+        List<VariableBinding> actual = new ArrayList<>(response.getVariableBindings());
+        // the agent may stop repeating as soon as all repeaters reached the end of the MIB view
+        assertTrue(actual.size() <= expected.size());
+        assertEquals(expected.subList(0, actual.size()), actual);
+        for (VariableBinding vb : expected.subList(actual.size(), expected.size())) {
+            assertEquals(Null.endOfMibView, vb.getVariable());
+        }
+        assertEquals(0, getNextBulkCalls);
+        assertTrue(table.bulkCalls > 0);
+    }
+
+    private void assertBulkMatchesGetNextForBothModels(int maxRepetitions, OID... oids) throws Exception {
+        createTable(false);
+        assertBulkMatchesGetNext(maxRepetitions, oids);
+        processor = new LocalCommandProcessor();
+        processor.register(new MOScalar<>(SCALAR, MOAccessImpl.ACCESS_READ_ONLY, new OctetString("behind table")));
+        createTable(true);
+        assertBulkMatchesGetNext(maxRepetitions, oids);
+    }
+
+    public void testBulkWrapsColumns() throws Exception {
+        assertBulkMatchesGetNextForBothModels(12, column(2));
+    }
+
+    public void testBulkReachesEndOfTable() throws Exception {
+        // 20 cells, the scalar behind the table and end of MIB view
+        assertBulkMatchesGetNextForBothModels(24, column(2));
+    }
+
+    public void testBulkWithSeveralRepeaters() throws Exception {
+        assertBulkMatchesGetNextForBothModels(8, cell(2, 3), column(4), cell(5, 4));
+    }
+
+    public void testBulkSkipsExcludedColumn() throws Exception {
+        processor.exclude(column(3));
+        processor.exclude(cell(5, 2));
+        createTable(false);
+        assertBulkMatchesGetNext(15, column(2), cell(3, 2));
+        PDU response = processor.getBulk(15, column(2));
+        for (VariableBinding vb : response.getVariableBindings()) {
+            assertFalse(vb.getOid().startsWith(column(3)));
+            assertFalse(vb.getOid().equals(cell(5, 2)));
+        }
+    }
+
+    public void testBulkSkipsCounter64ForV1() throws Exception {
+        processor.setMessageProcessingModel(MPv1.ID);
+        createTable(false);
+        assertBulkMatchesGetNext(15, column(2));
+        PDU response = processor.getBulk(15, column(3));
+        for (VariableBinding vb : response.getVariableBindings()) {
+            assertTrue(vb.getSyntax() != SMIConstants.SYNTAX_COUNTER64);
+        }
+        assertEquals(cell(5, 1), response.get(ROWS).getOid());
+    }
+
+    public void testBulkNotUsedWhenNextIsOverridden() throws Exception {
+        DefaultMOMutableTableModel<DefaultMOTableRow> model = new DefaultMOMutableTableModel<>();
+        for (int r = 1; r <= ROWS; r++) {
+            model.addRow(new DefaultMOTableRow(new OID(new int[]{r}), createValues(r)));
+        }
+        MOColumn<?>[] columns = new MOColumn<?>[COLUMN_IDS.length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new MOColumn<>(COLUMN_IDS[i], SYNTAXES[i], MOAccessImpl.ACCESS_READ_ONLY);
+        }
+        table = new CountingTable<DefaultMOTableRow, DefaultMOMutableTableModel<DefaultMOTableRow>>(
+                new MOTableIndex(new MOTableSubIndex[]{new MOTableSubIndex(SMIConstants.SYNTAX_INTEGER)}),
+                columns, model) {
+            @Override
+            public boolean next(SubRequest<?> request) {
+                return super.next(request);
+            }
+        };
+        processor.register(table);
+        List<VariableBinding> expected = processor.walkByGetNext(12, column(2));
+        PDU response = processor.getBulk(12, column(2));
+        assertEquals(expected, new ArrayList<>(response.getVariableBindings()));
+        assertNull(table.nextBulk(null, new OID[]{column(2)}, 12));
+    }
+
+    private static MOColumn<?>[] createColumns() {
+        MOColumn<?>[] columns = new MOColumn<?>[COLUMN_IDS.length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new MOColumn<>(COLUMN_IDS[i], SYNTAXES[i], MOAccessImpl.ACCESS_READ_ONLY);
+        }
+        return columns;
+    }
+
+    private static DefaultMOTableRow createRow(int row) {
+        return new DefaultMOTableRow(new OID(new int[]{row}), createValues(row));
+    }
+
+    /**
+     * Gets the row indexes returned for a repeater of a GETNEXT walk as long as the walk stays in the supplied
+     * column.
+     */
+    private static List<Integer> walkedRows(List<VariableBinding> vbs, int repeater, int repeaters, int columnID) {
+        List<Integer> rows = new ArrayList<>();
+        for (int i = repeater; i < vbs.size(); i += repeaters) {
+            OID oid = vbs.get(i).getOid();
+            if (!oid.startsWith(column(columnID)) || (oid.size() != TABLE_ENTRY.size() + 2)) {
+                break;
+            }
+            rows.add(oid.last());
+        }
+        return rows;
+    }
+
+    private static void assertStrictlyIncreasing(List<Integer> rows) {
+        for (int i = 1; i < rows.size(); i++) {
+            assertTrue("row " + rows.get(i) + " returned after row " + rows.get(i - 1),
+                    rows.get(i) > rows.get(i - 1));
+        }
+    }
+
+    /**
+     * Walks a table by GETNEXT while each returned row of the first column whose index is a multiple of three
+     * removes the following row and adds two rows, one behind and one ahead of the walk. Initially, the table
+     * contains the rows 1 to 60 whose index modulo 3 is 0 or 1.
+     */
+    private void assertWalkWhileRowsChange(MOMutableTableModel<DefaultMOTableRow> changingModel,
+                                           boolean walkContinuation) throws Exception {
+        for (int r = 1; r <= 60; r++) {
+            if (r % 3 != 2) {
+                changingModel.addRow(createRow(r));
+            }
+        }
+        DefaultMOTable<DefaultMOTableRow, MOColumn, MOTableModel<DefaultMOTableRow>> changingTable =
+                new DefaultMOTable<DefaultMOTableRow, MOColumn, MOTableModel<DefaultMOTableRow>>(TABLE_ENTRY,
+                        new MOTableIndex(new MOTableSubIndex[]{new MOTableSubIndex(SMIConstants.SYNTAX_INTEGER)}),
+                        createColumns(), changingModel) {
+                    @Override
+                    protected Variable getValue(MOTableRow row, int col, SubRequest<?> req) {
+                        int index = row.getIndex().last();
+                        if ((col == 0) && (index % 3 == 0) && (changingModel.getRow(row.getIndex()) != null)) {
+                            changingModel.removeRow(new OID(new int[]{index + 1}));
+                            changingModel.addRow(DefaultMOTableTest.createRow(index - 1));
+                            changingModel.addRow(DefaultMOTableTest.createRow(index + 2));
+                        }
+                        return super.getValue(row, col, req);
+                    }
+                };
+        if (walkContinuation) {
+            assertTrue(changingTable.enableWalkContinuation(16, 60000));
+        }
+        processor.register(changingTable);
+        List<VariableBinding> vbs = processor.walkByGetNext(200, column(2), column(3));
+        List<Integer> expected = new ArrayList<>();
+        expected.add(1);
+        for (int r = 3; r <= 62; r++) {
+            if (r % 3 != 1) {
+                expected.add(r);
+            }
+        }
+        assertEquals(expected, walkedRows(vbs, 0, 2, 2));
+        List<Integer> secondColumn = walkedRows(vbs, 1, 2, 3);
+        assertStrictlyIncreasing(secondColumn);
+        for (int r = 3; r <= 60; r += 3) {
+            assertTrue("row " + r + " skipped", secondColumn.contains(r));
+        }
+    }
+
+    public void testGetNextWalkWhileRowsChange() throws Exception {
+        assertWalkWhileRowsChange(new DefaultMOMutableTableModel<>(), false);
+    }
+
+    public void testGetNextWalkWhileRowsChangeConcurrentModel() throws Exception {
+        assertWalkWhileRowsChange(new ConcurrentMOMutableTableModel<>(), false);
+    }
+
+    public void testContinuedGetNextWalkWhileRowsChange() throws Exception {
+        assertWalkWhileRowsChange(new DefaultMOMutableTableModel<>(), true);
+    }
+
+    public void testContinuedGetNextWalkWhileRowsChangeConcurrentModel() throws Exception {
+        assertWalkWhileRowsChange(new ConcurrentMOMutableTableModel<>(), true);
+    }
+
+    /**
+     * Walks a table by GETNEXT while another thread adds and removes the rows whose index is not a multiple of
+     * three. The rows with an index that is a multiple of three must be returned exactly once by each walk.
+     */
+    private void assertWalkWithConcurrentRowChanges(MOMutableTableModel<DefaultMOTableRow> model) throws Exception {
+        for (int r = 1; r <= 60; r++) {
+            model.addRow(createRow(r));
+        }
+        DefaultMOTable<DefaultMOTableRow, MOColumn, MOTableModel<DefaultMOTableRow>> changingTable =
+                new DefaultMOTable<>(TABLE_ENTRY,
+                        new MOTableIndex(new MOTableSubIndex[]{new MOTableSubIndex(SMIConstants.SYNTAX_INTEGER)}),
+                        createColumns(), model);
+        assertTrue(changingTable.enableWalkContinuation(16, 60000));
+        processor.register(changingTable);
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread changer = new Thread(() -> {
+            Random random = new Random(4976);
+            try {
+                while (!stop.get()) {
+                    int r = random.nextInt(60) + 1;
+                    if (r % 3 != 0) {
+                        synchronized (model) {
+                            if (model.removeRow(new OID(new int[]{r})) == null) {
+                                model.addRow(createRow(r));
+                            }
+                        }
+                    }
+                }
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        }, "RowChanger");
+        changer.start();
+        try {
+            for (int walk = 0; walk < 50; walk++) {
+                List<VariableBinding> vbs = processor.walkByGetNext(100, column(2), column(3));
+                for (int repeater = 0; repeater < 2; repeater++) {
+                    List<Integer> rows = walkedRows(vbs, repeater, 2, COLUMN_IDS[repeater]);
+                    assertStrictlyIncreasing(rows);
+                    for (int r = 3; r <= 60; r += 3) {
+                        assertTrue("row " + r + " skipped", rows.contains(r));
+                    }
+                }
+            }
+        } finally {
+            stop.set(true);
+            changer.join();
+        }
+        assertNull(failure.get());
+    }
+
+    public void testGetNextWalkWithConcurrentRowChanges() throws Exception {
+        assertWalkWithConcurrentRowChanges(new DefaultMOMutableTableModel<>());
+    }
+
+    public void testGetNextWalkWithConcurrentRowChangesConcurrentModel() throws Exception {
+        assertWalkWithConcurrentRowChanges(new ConcurrentMOMutableTableModel<>());
+    }
+
+    /**
+     * A table that counts the calls of {@link #nextBulk(SubRequest, OID[], int)}.
+     */
+    @SuppressWarnings("rawtypes")
+    private static class CountingTable<R extends MOTableRow, M extends MOTableModel<R>>
+            extends DefaultMOTable<R, MOColumn, M> {
+
+        private int bulkCalls;
+
+        CountingTable(MOTableIndex indexDef, MOColumn[] columns, M model) {
+            super(TABLE_ENTRY, indexDef, columns, model);
+        }
+
+        @Override
+        public VariableBinding[][] nextBulk(SubRequest<?> request, OID[] lowerBounds, int maxRepetitions) {
+            bulkCalls++;
+            return super.nextBulk(request, lowerBounds, maxRepetitions);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/*_############################################################################
+  _##
+  _##  SNMP4J-Agent 3 - LocalCommandProcessor.java
+  _##
+  _##  Copyright (C) 2005-2021  Frank Fock (SNMP4J.org)
+  _##
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##
+  _##########################################################################*/
+
+package org.snmp4j.agent.mo;
+
+import org.snmp4j.CommandResponderEvent;
+import org.snmp4j.MessageDispatcherImpl;
+import org.snmp4j.PDU;
+import org.snmp4j.ScopedPDU;
+import org.snmp4j.agent.CommandProcessor;
+import org.snmp4j.agent.DefaultMOServer;
+import org.snmp4j.agent.DuplicateRegistrationException;
+import org.snmp4j.agent.ManagedObject;
+import org.snmp4j.agent.security.VACM;
+import org.snmp4j.mp.MPv3;
+import org.snmp4j.security.SecurityLevel;
+import org.snmp4j.security.SecurityModel;
+import org.snmp4j.smi.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link CommandProcessor} that processes requests synchronously without a transport mapping and returns the
+ * responses to the caller. Its VACM grants access to all OIDs except those excluded by {@link #exclude(OID)}.
+ *
+ * @author Frank Fock
+ * @version 3.6.0
+ */
+class LocalCommandProcessor extends CommandProcessor {
+
+    static final OctetString ENGINE_ID = new OctetString("localEngine");
+    static final UdpAddress DEFAULT_PEER = new UdpAddress("127.0.0.1/50161");
+
+    private final DefaultMOServer server = new DefaultMOServer();
+    private final List<OID> excluded = new ArrayList<>();
+    private int messageProcessingModel = MPv3.ID;
+    private UdpAddress peerAddress = DEFAULT_PEER;
+    private PDU response;
+
+    LocalCommandProcessor() {
+        super(ENGINE_ID);
+        addMOServer(server);
+        setVacm(new ExcludingVACM());
+    }
+
+    void register(ManagedObject<?> mo) throws DuplicateRegistrationException {
+        server.register(mo, null);
+    }
+
+    void exclude(OID subtree) {
+        excluded.add(subtree);
+    }
+
+    void setMessageProcessingModel(int messageProcessingModel) {
+        this.messageProcessingModel = messageProcessingModel;
+    }
+
+    void setPeerAddress(UdpAddress peerAddress) {
+        this.peerAddress = peerAddress;
+    }
+
+    PDU send(PDU request) {
+        response = null;
+        CommandResponderEvent<UdpAddress> event =
+                new CommandResponderEvent<>(new MessageDispatcherImpl(), null, peerAddress, messageProcessingModel,
+                        SecurityModel.SECURITY_MODEL_USM, "local".getBytes(), SecurityLevel.AUTH_PRIV, null,
+                        request, 65535, null);
+        processPdu(event);
+        return response;
+    }
+
+    PDU set(VariableBinding... vbs) {
+        return send(createPDU(PDU.SET, vbs));
+    }
+
+    PDU getNext(OID... oids) {
+        return send(createPDU(PDU.GETNEXT, toNullBindings(oids)));
+    }
+
+    PDU getBulk(int maxRepetitions, OID... oids) {
+        ScopedPDU pdu = createPDU(PDU.GETBULK, toNullBindings(oids));
+        pdu.setMaxRepetitions(maxRepetitions);
+        pdu.setNonRepeaters(0);
+        return send(pdu);
+    }
+
+    /**
+     * Walks the supplied columns by GETNEXT requests with one variable binding per column until all columns have
+     * left their subtree or reached the end of the MIB view.
+     *
+     * @param maxCells
+     *         the maximum number of cells returned per column.
+     * @param columns
+     *         the column OIDs to walk.
+     *
+     * @return the variable bindings in the order a GETBULK request with {@code maxCells} repetitions would return
+     * them.
+     */
+    List<VariableBinding> walkByGetNext(int maxCells, OID... columns) {
+        List<VariableBinding> result = new ArrayList<>();
+        OID[] next = columns.clone();
+        for (int r = 0; r < maxCells; r++) {
+            PDU resp = getNext(next);
+            for (int i = 0; i < next.length; i++) {
+                VariableBinding vb = resp.get(i);
+                result.add(vb);
+                next[i] = vb.getOid();
+            }
+        }
+        return result;
+    }
+
+    private static ScopedPDU createPDU(int type, VariableBinding... vbs) {
+        ScopedPDU pdu = new ScopedPDU();
+        pdu.setType(type);
+        pdu.setContextEngineID(ENGINE_ID);
+        pdu.setContextName(new OctetString());
+        pdu.addAll(vbs);
+        return pdu;
+    }
+
+    private static VariableBinding[] toNullBindings(OID... oids) {
+        VariableBinding[] vbs = new VariableBinding[oids.length];
+        for (int i = 0; i < oids.length; i++) {
+            vbs[i] = new VariableBinding(oids[i]);
+        }
+        return vbs;
+    }
+
+    @Override
+    protected <A extends Address> void sendResponse(CommandResponderEvent<A> requestEvent, PDU response) {
+        this.response = response;
+    }
+
+    private class ExcludingVACM implements VACM {
+
+        private final OctetString viewName = new OctetString("all");
+
+        private int isAccessAllowed(OID oid) {
+            for (OID subtree : excluded) {
+                if (oid.startsWith(subtree)) {
+                    return VACM_NOT_IN_VIEW;
+                }
+            }
+            return VACM_OK;
+        }
+
+        @Override
+        public int isAccessAllowed(OctetString context, OctetString securityName, int securityModel,
+                                   int securityLevel, int viewType, OID oid) {
+            return isAccessAllowed(oid);
+        }
+
+        @Override
+        public int isAccessAllowed(OctetString viewName, OID oid) {
+            return isAccessAllowed(oid);
+        }
+
+        @Override
+        public OctetString getViewName(OctetString context, OctetString securityName, int securityModel,
+                                       int securityLevel, int viewType) {
+            return viewName;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*_############################################################################
+  _##
+  _##  SNMP4J-Agent 3 - WalkContinuationCacheTest.java
+  _##
+  _##  Copyright (C) 2005-2021  Frank Fock (SNMP4J.org)
+  _##
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##
+  _##########################################################################*/
+
+package org.snmp4j.agent.mo;
+
+import junit.framework.TestCase;
+import org.snmp4j.PDU;
+import org.snmp4j.smi.*;
+
+public class WalkContinuationCacheTest extends TestCase {
+
+    private static final OID TABLE_ENTRY = new OID("1.3.6.1.4.1.4976.99.30.1");
+    private static final UdpAddress OTHER_PEER = new UdpAddress("127.0.0.2/50161");
+
+    private DefaultMOMutableTableModel<DefaultMOTableRow> model;
+    private DefaultMOTable<DefaultMOTableRow, MOColumn<?>, DefaultMOMutableTableModel<DefaultMOTableRow>> table;
+    private WalkContinuationCache<?> cache;
+    private LocalCommandProcessor processor;
+
+    protected void setUp() throws Exception {
+        model = new DefaultMOMutableTableModel<>();
+        for (int r : new int[]{1, 2, 4, 5}) {
+            model.addRow(createRow(r));
+        }
+        MOColumn<?>[] columns = new MOColumn<?>[]{
+                new MOColumn<>(2, SMIConstants.SYNTAX_INTEGER32, MOAccessImpl.ACCESS_READ_ONLY),
+                new MOColumn<>(3, SMIConstants.SYNTAX_OCTET_STRING, MOAccessImpl.ACCESS_READ_ONLY)
+        };
+        MOTableIndex indexDef =
+                new MOTableIndex(new MOTableSubIndex[]{new MOTableSubIndex(SMIConstants.SYNTAX_INTEGER)});
+        table = new DefaultMOTable<>(TABLE_ENTRY, indexDef, columns, model);
+        assertTrue(table.enableWalkContinuation(16, 60000));
+        cache = table.getWalkContinuationCache();
+        processor = new LocalCommandProcessor();
+        processor.register(table);
+    }
+
+    private static DefaultMOTableRow createRow(int row) {
+        return new DefaultMOTableRow(new OID(new int[]{row}),
+                new Variable[]{new Integer32(row), new OctetString("row" + row)});
+    }
+
+    private static OID cell(int columnID, int row) {
+        return new OID(TABLE_ENTRY.getValue(), new int[]{columnID, row});
+    }
+
+    private static VariableBinding vb(int columnID, int row) {
+        Variable value = (columnID == 2) ? new Integer32(row) : new OctetString("row" + row);
+        return new VariableBinding(cell(columnID, row), value);
+    }
+
+    private void assertGetNext(OID[] request, VariableBinding... expected) {
+        PDU response = processor.getNext(request);
+        assertEquals(PDU.noError, response.getErrorStatus());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], response.get(i));
+        }
+    }
+
+    public void testWalkContinuesAcrossTwoPdus() {
+        assertGetNext(new OID[]{cell(2, 1), cell(3, 1)}, vb(2, 2), vb(3, 2));
+        // the position of row 2 is parked for both returned cells
+        assertEquals(2, cache.size());
+        assertEquals(0, cache.getHits());
+        long misses = cache.getMisses();
+        assertGetNext(new OID[]{cell(2, 2), cell(3, 2)}, vb(2, 4), vb(3, 4));
+        // the resumed position answers both variable bindings
+        assertEquals(1, cache.getHits());
+        assertEquals(misses, cache.getMisses());
+        assertEquals(2, cache.size());
+        // the walk of another command generator cannot resume those positions
+        processor.setPeerAddress(OTHER_PEER);
+        assertGetNext(new OID[]{cell(2, 4)}, vb(2, 5));
+        assertEquals(1, cache.getHits());
+        assertEquals(misses + 1, cache.getMisses());
+    }
+
+    public void testWalkContinuesIntoNextColumn() {
+        assertGetNext(new OID[]{cell(2, 4)}, vb(2, 5));
+        long misses = cache.getMisses();
+        assertGetNext(new OID[]{cell(2, 5)}, vb(3, 1));
+        assertGetNext(new OID[]{cell(3, 1)}, vb(3, 2));
+        assertEquals(2, cache.getHits());
+        assertEquals(misses, cache.getMisses());
+    }
+
+    public void testRowAddedInvalidatesCache() {
+        assertGetNext(new OID[]{cell(2, 1)}, vb(2, 2));
+        assertEquals(1, cache.size());
+        model.addRow(createRow(3));
+        assertEquals(0, cache.size());
+        assertGetNext(new OID[]{cell(2, 2)}, vb(2, 3));
+        assertEquals(0, cache.getHits());
+    }
+
+    public void testRowRemovedInvalidatesCache() {
+        assertGetNext(new OID[]{cell(2, 1)}, vb(2, 2));
+        assertEquals(1, cache.size());
+        model.removeRow(new OID(new int[]{4}));
+        assertEquals(0, cache.size());
+        assertGetNext(new OID[]{cell(2, 2)}, vb(2, 5));
+        assertEquals(0, cache.getHits());
+    }
+
+    public void testClearInvalidatesCache() {
+        assertGetNext(new OID[]{cell(2, 1)}, vb(2, 2));
+        model.clear();
+        assertEquals(0, cache.size());
+        model.addRow(createRow(3));
+        assertGetNext(new OID[]{cell(2, 2)}, vb(2, 3));
+        assertEquals(0, cache.getHits());
+    }
+
+    public void testRowChangedKeepsCache() {
+        assertGetNext(new OID[]{cell(2, 1)}, vb(2, 2));
+        model.fireTableModelChanged(new MOTableModelEvent(model, MOTableModelEvent.ROW_CHANGED,
+                model.getRow(new OID(new int[]{2}))));
+        assertEquals(1, cache.size());
+        assertGetNext(new OID[]{cell(2, 2)}, vb(2, 4));
+        assertEquals(1, cache.getHits());
+    }
+
+    public void testDisableWalkContinuation() {
+        assertGetNext(new OID[]{cell(2, 1)}, vb(2, 2));
+        table.disableWalkContinuation();
+        assertNull(table.getWalkContinuationCache());
+        assertGetNext(new OID[]{cell(2, 2)}, vb(2, 4));
+        assertEquals(0, cache.getHits());
+    }
+
+    public void testResumeRemovesPosition() {
+        WalkContinuationCache<String> positions = new WalkContinuationCache<>(4, 60000);
+        positions.park(null, LocalCommandProcessor.DEFAULT_PEER, cell(2, 1), "a");
+        assertEquals("a", positions.resume(new OctetString(), LocalCommandProcessor.DEFAULT_PEER, cell(2, 1)));
+        assertNull(positions.resume(new OctetString(), LocalCommandProcessor.DEFAULT_PEER, cell(2, 1)));
+        assertEquals(1, positions.getHits());
+        assertEquals(1, positions.getMisses());
+    }
+
+    public void testPositionsAreKeyedByContextAndAddress() {
+        WalkContinuationCache<String> positions = new WalkContinuationCache<>(4, 60000);
+        positions.park(new OctetString("ctx"), LocalCommandProcessor.DEFAULT_PEER, cell(2, 1), "a");
+        assertNull(positions.resume(new OctetString(), LocalCommandProcessor.DEFAULT_PEER, cell(2, 1)));
+        assertNull(positions.resume(new OctetString("ctx"), OTHER_PEER, cell(2, 1)));
+        assertEquals("a", positions.resume(new OctetString("ctx"), LocalCommandProcessor.DEFAULT_PEER, cell(2, 1)));
+    }
+
+    public void testEldestPositionIsEvicted() {
+        WalkContinuationCache<String> positions = new WalkContinuationCache<>(2, 60000);
+        positions.park(null, LocalCommandProcessor.DEFAULT_PEER, cell(2, 1), "a");
+        positions.park(null, LocalCommandProcessor.DEFAULT_PEER, cell(2, 2), "b");
+        positions.park(null, LocalCommandProcessor.DEFAULT_PEER, cell(2, 3), "c");
+        assertEquals(2, positions.size());
+        assertNull(positions.resume(null, LocalCommandProcessor.DEFAULT_PEER, cell(2, 1)));
+        assertEquals("c", positions.resume(null, LocalCommandProcessor.DEFAULT_PEER, cell(2, 3)));
+    }
+
+    public void testExpiredPositionIsNotResumed() throws Exception {
+        WalkContinuationCache<String> positions = new WalkContinuationCache<>(2, 1);
+        positions.park(null, LocalCommandProcessor.DEFAULT_PEER, cell(2, 1), "a");
+        Thread.sleep(10);
+        assertNull(positions.resume(null, LocalCommandProcessor.DEFAULT_PEER, cell(2, 1)));
+    }
+
+    public void testPositionOfOlderGenerationIsRejected() {
+        WalkContinuationCache<String> positions = new WalkContinuationCache<>(2, 60000);
+        long generation = positions.getGeneration();
+        positions.clear();
+        assertFalse(positions.park(null, LocalCommandProcessor.DEFAULT_PEER, cell(2, 1), "a", generation));
+        assertEquals(0, positions.size());
+        assertTrue(positions.park(null, LocalCommandProcessor.DEFAULT_PEER, cell(2, 1), "a",
+                positions.getGeneration()));
+        assertEquals(1, positions.size());
+    }
+}
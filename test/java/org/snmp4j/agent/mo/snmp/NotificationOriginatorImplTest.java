@@ -0,0 +1,174 @@
+/*_############################################################################
+  _##
+  _##  SNMP4J-Agent 3 - NotificationOriginatorImplTest.java
+  _##
+  _##  Copyright (C) 2005-2021  Frank Fock (SNMP4J.org)
+  _##
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##
+  _##########################################################################*/
+
+package org.snmp4j.agent.mo.snmp;
+
+import junit.framework.TestCase;
+import org.snmp4j.*;
+import org.snmp4j.agent.security.VACM;
+import org.snmp4j.event.ResponseEvent;
+import org.snmp4j.mp.MessageProcessingModel;
+import org.snmp4j.mp.SnmpConstants;
+import org.snmp4j.security.SecurityLevel;
+import org.snmp4j.security.SecurityModel;
+import org.snmp4j.smi.*;
+import org.snmp4j.util.QueuedWorkerPool;
+import org.snmp4j.util.WorkerTask;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class NotificationOriginatorImplTest extends TestCase {
+
+    private static final OID NOTIFICATION_ID = SnmpConstants.coldStart;
+
+    private RecordingSession session;
+    private NotificationOriginatorImpl originator;
+    private QueuedWorkerPool pool;
+
+    protected void setUp() {
+        session = new RecordingSession();
+        SnmpTargetMIB targetMIB = new SnmpTargetMIB(new MessageDispatcherImpl());
+        targetMIB.addDefaultTDomains();
+        for (int i = 1; i <= 2; i++) {
+            targetMIB.addTargetAddress(new OctetString("target" + i), TransportDomains.transportDomainUdpIpv4,
+                    new OctetString(new UdpAddress("127.0.0." + i + "/162").getValue()), 200, 0,
+                    new OctetString("notify"), new OctetString("v2c"), StorageType.volatile_);
+        }
+        targetMIB.addTargetParams(new OctetString("v2c"), MessageProcessingModel.MPv2c,
+                SecurityModel.SECURITY_MODEL_SNMPv2c, new OctetString("public"), SecurityLevel.NOAUTH_NOPRIV,
+                StorageType.volatile_);
+        SnmpNotificationMIB notificationMIB = new SnmpNotificationMIB();
+        notificationMIB.addNotifyEntry(new OctetString("default"), new OctetString("notify"),
+                SnmpNotificationMIB.SnmpNotifyTypeEnum.trap, StorageType.volatile_);
+        originator = new NotificationOriginatorImpl(session, new AllowAllVACM(), null, targetMIB, notificationMIB);
+    }
+
+    protected void tearDown() {
+        if (pool != null) {
+            pool.cancel();
+        }
+    }
+
+    private ResponseEvent<?>[] notifyAsync() throws Exception {
+        CompletableFuture<ResponseEvent<?>[]> future = originator.notifyAsync(new OctetString(), NOTIFICATION_ID,
+                new TimeTicks(100), new VariableBinding[0]);
+        return future.get(5, TimeUnit.SECONDS);
+    }
+
+    public void testNotifyAsyncWithStoppedPool() throws Exception {
+        pool = new QueuedWorkerPool("stopped", 1, 4);
+        pool.stop();
+        originator.setWorkerPool(pool);
+        ResponseEvent<?>[] responses = notifyAsync();
+        assertEquals(2, responses.length);
+        assertEquals(2, session.sent.get());
+    }
+
+    public void testNotifyAsyncWithSaturatedPool() throws Exception {
+        pool = new QueuedWorkerPool("saturated", 1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        pool.execute(new BlockingTask(started, release));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertTrue(pool.tryToExecute(new BlockingTask(new CountDownLatch(1), release)));
+        originator.setWorkerPool(pool);
+        try {
+            ResponseEvent<?>[] responses = notifyAsync();
+            assertEquals(2, responses.length);
+            assertEquals(2, session.sent.get());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    public void testNotifyAsyncWithPool() throws Exception {
+        pool = new QueuedWorkerPool("running", 2, 4);
+        originator.setWorkerPool(pool);
+        ResponseEvent<?>[] responses = notifyAsync();
+        assertEquals(2, responses.length);
+        assertEquals(2, session.sent.get());
+    }
+
+    private static class BlockingTask implements WorkerTask {
+        private final CountDownLatch started;
+        private final CountDownLatch release;
+
+        BlockingTask(CountDownLatch started, CountDownLatch release) {
+            this.started = started;
+            this.release = release;
+        }
+
+        @Override
+        public void run() {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void terminate() {
+        }
+
+        @Override
+        public void join() {
+        }
+
+        @Override
+        public void interrupt() {
+        }
+    }
+
+    /**
+     * A session that records sent notifications without sending them.
+     */
+    private static class RecordingSession extends Snmp {
+        private final AtomicInteger sent = new AtomicInteger();
+
+        @Override
+        public <A extends Address> ResponseEvent<A> send(PDU pdu, Target<A> target) {
+            sent.incrementAndGet();
+            return new ResponseEvent<>(this, target.getAddress(), pdu, null, null);
+        }
+    }
+
+    private static class AllowAllVACM implements VACM {
+
+        @Override
+        public int isAccessAllowed(OctetString context, OctetString securityName, int securityModel,
+                                   int securityLevel, int viewType, OID oid) {
+            return VACM_OK;
+        }
+
+        @Override
+        public int isAccessAllowed(OctetString viewName, OID oid) {
+            return VACM_OK;
+        }
+
+        @Override
+        public OctetString getViewName(OctetString context, OctetString securityName, int securityModel,
+                                       int securityLevel, int viewType) {
+            return new OctetString("all");
+        }
+    }
+}
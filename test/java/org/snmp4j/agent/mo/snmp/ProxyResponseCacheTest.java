@@ -0,0 +1,136 @@
+/*_############################################################################
+  _##
+  _##  SNMP4J-Agent 3 - ProxyResponseCacheTest.java
+  _##
+  _##  Copyright (C) 2005-2021  Frank Fock (SNMP4J.org)
+  _##
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##
+  _##########################################################################*/
+
+package org.snmp4j.agent.mo.snmp;
+
+import junit.framework.TestCase;
+import org.snmp4j.*;
+import org.snmp4j.event.ResponseEvent;
+import org.snmp4j.event.ResponseListener;
+import org.snmp4j.mp.SnmpConstants;
+import org.snmp4j.smi.*;
+
+import java.io.IOException;
+
+public class ProxyResponseCacheTest extends TestCase {
+
+    private static final UdpAddress AGENT_ADDRESS = new UdpAddress("127.0.0.1/161");
+
+    private ProxyResponseCache cache;
+    private RespondingSession session;
+
+    protected void setUp() {
+        cache = new ProxyResponseCache(16, 60000);
+        session = new RespondingSession();
+    }
+
+    protected void tearDown() throws Exception {
+        session.close();
+    }
+
+    private static CommunityTarget<UdpAddress> createTarget(String community) {
+        CommunityTarget<UdpAddress> target = new CommunityTarget<>(AGENT_ADDRESS, new OctetString(community));
+        target.setVersion(SnmpConstants.version2c);
+        return target;
+    }
+
+    private static PDU createPDU(int type) {
+        PDU pdu = new PDU();
+        pdu.setType(type);
+        pdu.add(new VariableBinding(SnmpConstants.sysContact,
+                (type == PDU.SET) ? new OctetString("new contact") : new Null()));
+        return pdu;
+    }
+
+    public void testGetIsCached() throws IOException {
+        CommunityTarget<UdpAddress> readTarget = createTarget("public");
+        assertNotNull(cache.send(session, createPDU(PDU.GET), readTarget).getResponse());
+        assertNotNull(cache.send(session, createPDU(PDU.GET), readTarget).getResponse());
+        assertEquals(1, session.requests);
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    public void testSetWithOtherCommunityInvalidates() throws IOException {
+        CommunityTarget<UdpAddress> readTarget = createTarget("public");
+        CommunityTarget<UdpAddress> writeTarget = createTarget("private");
+        cache.send(session, createPDU(PDU.GET), readTarget);
+        assertEquals(1, cache.size());
+        cache.send(session, createPDU(PDU.SET), writeTarget);
+        assertEquals(0, cache.size());
+        cache.send(session, createPDU(PDU.GET), readTarget);
+        assertEquals(0, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(3, session.requests);
+    }
+
+    public void testAsyncSetWithOtherCommunityInvalidates() throws IOException {
+        CommunityTarget<UdpAddress> readTarget = createTarget("public");
+        CommunityTarget<UdpAddress> writeTarget = createTarget("private");
+        cache.send(session, createPDU(PDU.GET), readTarget);
+        final ResponseEvent<?>[] setResponse = new ResponseEvent<?>[1];
+        cache.send(session, createPDU(PDU.SET), writeTarget, null, new ResponseListener() {
+            @Override
+            public <A extends Address> void onResponse(ResponseEvent<A> event) {
+                setResponse[0] = event;
+            }
+        });
+        assertNotNull(setResponse[0]);
+        cache.send(session, createPDU(PDU.GET), readTarget);
+        assertEquals(0, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    public void testSetToOtherAgentKeepsCache() throws IOException {
+        CommunityTarget<UdpAddress> readTarget = createTarget("public");
+        CommunityTarget<UdpAddress> otherTarget =
+                new CommunityTarget<>(new UdpAddress("127.0.0.2/161"), new OctetString("private"));
+        otherTarget.setVersion(SnmpConstants.version2c);
+        cache.send(session, createPDU(PDU.GET), readTarget);
+        cache.send(session, createPDU(PDU.SET), otherTarget);
+        cache.send(session, createPDU(PDU.GET), readTarget);
+        assertEquals(1, cache.getHits());
+    }
+
+    /**
+     * A session that answers every request immediately with a copy of the request.
+     */
+    private static class RespondingSession extends Snmp {
+        private int requests;
+
+        private PDU respond(PDU pdu) {
+            requests++;
+            PDU response = (PDU) pdu.clone();
+            response.setType(PDU.RESPONSE);
+            return response;
+        }
+
+        @Override
+        public <A extends Address> ResponseEvent<A> send(PDU pdu, Target<A> target) {
+            return new ResponseEvent<>(this, target.getAddress(), pdu, respond(pdu), null);
+        }
+
+        @Override
+        public <A extends Address> void send(PDU pdu, Target<A> target, Object userHandle,
+                                             ResponseListener listener) {
+            listener.onResponse(new ResponseEvent<>(this, target.getAddress(), pdu, respond(pdu), userHandle));
+        }
+    }
+}
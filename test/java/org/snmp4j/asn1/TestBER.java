@@ -27,6 +27,7 @@ import java.io.*;
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
 
+import org.snmp4j.PDU;
 import org.snmp4j.ScopedPDU;
 import org.snmp4j.mp.MPv3;
 import org.snmp4j.mp.SnmpConstants;
@@ -35,6 +36,8 @@ import org.snmp4j.smi.OID;
 import org.snmp4j.smi.OctetString;
 import org.snmp4j.smi.UnsignedInteger32;
 import org.snmp4j.smi.Counter64;
+import org.snmp4j.smi.Null;
+import org.snmp4j.smi.VariableBinding;
 import org.snmp4j.asn1.BER.MutableByte;
 
 /**
@@ -449,4 +452,31 @@ public class TestBER extends TestCase {
     assertEquals(value3, result);
   }
 
+  public void testEncodeBERReverse() throws Exception {
+    ScopedPDU scopedPDU = new ScopedPDU();
+    scopedPDU.setType(PDU.RESPONSE);
+    scopedPDU.setRequestID(new Integer32(-12345678));
+    scopedPDU.setContextName(new OctetString("context"));
+    for (int i=0; i<300; i++) {
+      OID oid = new OID(new int[] { 1,3,6,1,2,1,2,2,1,i,0xFFFFFFFF });
+      switch (i % 4) {
+        case 0:
+          scopedPDU.add(new VariableBinding(oid, new UnsignedInteger32(0xFFFFFFFFL - i)));
+          break;
+        case 1:
+          scopedPDU.add(new VariableBinding(oid, new OctetString(new byte[i])));
+          break;
+        case 2:
+          scopedPDU.add(new VariableBinding(oid, new Counter64(i * 1000000000000L)));
+          break;
+        default:
+          scopedPDU.add(new VariableBinding(oid, Null.noSuchInstance));
+      }
+    }
+    ByteBuffer forward = ByteBuffer.allocate(scopedPDU.getBERLength());
+    scopedPDU.encodeBER(new BEROutputStream(forward));
+    byte[] reverse = BERReverseEncoder.encode(scopedPDU);
+    assertEquals(new OctetString(forward.array()), new OctetString(reverse));
+  }
+
 }
@@ -82,6 +82,28 @@ public class TestAuthMD5 extends TestCase {
     }
   }
 
+  public void testPasswordToKuAndLocalizeKey() {
+    byte[] engineId = {
+        (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00,
+        (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00,
+        (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x02};
+    // Ku of RFC 3414 A.3.1
+    String expectedKu = "9f:af:32:83:88:4e:92:83:4e:bc:98:47:d8:ed:d9:63";
+    AuthMD5 auth = new AuthMD5();
+    byte[] ku = auth.passwordToKu(new OctetString("maplesyrup"));
+    assertEquals(expectedKu, asHex(ku));
+    byte[] cachedKey = auth.passwordToKey(new OctetString("maplesyrup"), engineId);
+    assertEquals(asHex(auth.localizeKey(ku, engineId)), asHex(cachedKey));
+    int cacheSize = AuthGeneric.getKuCacheSize();
+    try {
+      AuthGeneric.setKuCacheSize(0);
+      assertEquals(asHex(cachedKey), asHex(auth.passwordToKey(new OctetString("maplesyrup"), engineId)));
+    }
+    finally {
+      AuthGeneric.setKuCacheSize(cacheSize);
+    }
+  }
+
   public void testChangeDelta() {
     String oldPass = "maplesyrup";
     String newPass = "newsyrup";
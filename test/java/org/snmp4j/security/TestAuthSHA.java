@@ -23,6 +23,11 @@ package org.snmp4j.security;
 import org.snmp4j.smi.OctetString;
 import junit.framework.*;
 
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
 
 public class TestAuthSHA
     extends TestCase {
@@ -131,4 +136,45 @@ public class TestAuthSHA
     }
 
   }
+
+  public void testAuthenticateWithPooledMacs() throws Exception {
+    final AuthSHA auth = new AuthSHA();
+    // more keys than idle HMACs are pooled for
+    final byte[][] keys = new byte[200][];
+    for (int k = 0; k < keys.length; k++) {
+      keys[k] = auth.hash(new byte[] { (byte) k, (byte) (k >> 8) });
+    }
+    final byte[] msg = "The quick brown fox jumps over the lazy dog".getBytes();
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+    Thread[] threads = new Thread[8];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread(() -> {
+        try {
+          for (int round = 0; round < 3; round++) {
+            for (byte[] key : keys) {
+              byte[] message = new byte[msg.length + 12];
+              System.arraycopy(msg, 0, message, 0, msg.length);
+              ByteArrayWindow digest = new ByteArrayWindow(message, msg.length, 12);
+              assertTrue(auth.authenticate(key, message, 0, msg.length, digest));
+              Mac mac = Mac.getInstance("HmacSHA1");
+              mac.init(new SecretKeySpec(key, "HmacSHA1"));
+              byte[] expected = Arrays.copyOf(mac.doFinal(msg), 12);
+              assertTrue(Arrays.equals(expected, Arrays.copyOfRange(message, msg.length, message.length)));
+              assertTrue(auth.isAuthentic(key, message, 0, msg.length, digest));
+              message[msg.length] ^= 1;
+              assertFalse(auth.isAuthentic(key, message, 0, msg.length, digest));
+            }
+          }
+        }
+        catch (Throwable ex) {
+          failure.set(ex);
+        }
+      });
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertNull(failure.get());
+  }
 }
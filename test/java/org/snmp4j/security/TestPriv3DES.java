@@ -69,6 +69,20 @@ public class TestPriv3DES
     }
   }
 
+  public void testKeyExtensionBypassesKuCache() {
+    Priv3DES priv3DES = new Priv3DES();
+    AuthMD5 authMD5 = new AuthMD5();
+    byte[] engineID = OctetString.fromHexString("00:00:00:00:00:00:00:00:00:00:00:02").toByteArray();
+    AuthGeneric.clearKuCache();
+    byte[] shortKey = authMD5.passwordToKey(new OctetString("maplesyrup"), engineID);
+    assertEquals(1, AuthGeneric.getCachedKuCount());
+    byte[] key = priv3DES.extendShortKey(shortKey, new OctetString("maplesyrup"), engineID, authMD5);
+    // the localized key used as pass phrase by the key extension must not be cached
+    assertEquals(1, AuthGeneric.getCachedKuCount());
+    assertEquals("52:6f:5e:ed:9f:cc:e2:6f:89:64:c2:93:07:87:d8:2b:79:ef:f4:4a:90:65:0e:e0:a3:a4:0a:bf:ac:5a:cc:12",
+                 asHex(key));
+  }
+
   public static void testEncrypt()
   {
 
@@ -28,6 +28,8 @@ import org.snmp4j.security.nonstandard.PrivAES256With3DESKeyExtension;
 import org.snmp4j.smi.OID;
 import org.snmp4j.smi.OctetString;
 
+import java.util.Arrays;
+
 import static org.junit.Assert.assertArrayEquals;
 
 
@@ -91,6 +93,22 @@ public class TestPrivAES extends TestCase {
                 new OctetString(key).toHexString());
     }
 
+    public void testAes3DESKeyExtensionBypassesKuCache() {
+        PrivAES256With3DESKeyExtension privAES256 = new PrivAES256With3DESKeyExtension();
+        AuthSHA authSHA = new AuthSHA();
+        byte[] engineID = MPv3.createLocalEngineID();
+        OctetString password = new OctetString("maplesyrup");
+        AuthGeneric.clearKuCache();
+        byte[] shortKey = authSHA.passwordToKey(password, engineID);
+        assertEquals(1, AuthGeneric.getCachedKuCount());
+        byte[] key = privAES256.extendShortKey(shortKey, password, engineID, authSHA);
+        assertEquals(1, AuthGeneric.getCachedKuCount());
+        assertEquals(32, key.length);
+        byte[] expectedExtension = authSHA.localizeKey(authSHA.passwordToKu(new OctetString(shortKey)), engineID);
+        assertArrayEquals(Arrays.copyOfRange(shortKey, 0, 20), Arrays.copyOfRange(key, 0, 20));
+        assertArrayEquals(Arrays.copyOfRange(expectedExtension, 0, 12), Arrays.copyOfRange(key, 20, 32));
+    }
+
     public void testSecurityProtocolsAddDefaultProtocols() {
         SNMP4JSettings.setExtensibilityEnabled(true);
         System.setProperty(SecurityProtocols.SECURITY_PROTOCOLS_PROPERTIES, "SecurityProtocolsTest.properties");
@@ -0,0 +1,207 @@
+/*_############################################################################
+  _##
+  _##  SNMP4J - TestLazyVariableBindingList.java
+  _##
+  _##  Copyright (C) 2003-2021  Frank Fock (SNMP4J.org)
+  _##
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##
+  _##########################################################################*/
+package org.snmp4j.smi;
+
+import junit.framework.TestCase;
+import org.snmp4j.asn1.BER;
+import org.snmp4j.asn1.BERInputStream;
+import org.snmp4j.asn1.BEROutputStream;
+import org.snmp4j.mp.SnmpConstants;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+public class TestLazyVariableBindingList extends TestCase {
+
+    private static final List<VariableBinding> VBS = Arrays.asList(
+            new VariableBinding(SnmpConstants.sysDescr, new OctetString("SNMP4J test agent")),
+            new VariableBinding(SnmpConstants.sysUpTime, new TimeTicks(4711)),
+            new VariableBinding(new OID("1.3.6.1.4.1.4976.1.1.0"), new Counter64(1L << 40)),
+            new VariableBinding(SnmpConstants.sysContact, new Null()));
+
+    private boolean checkSequenceLength;
+
+    protected void setUp() {
+        checkSequenceLength = BER.isCheckSequenceLength();
+        BER.setCheckSequenceLength(true);
+    }
+
+    protected void tearDown() {
+        BER.setCheckSequenceLength(checkSequenceLength);
+    }
+
+    private static byte[] encode(List<VariableBinding> vbs) throws IOException {
+        int length = 0;
+        for (VariableBinding vb : vbs) {
+            length += vb.getBERLength();
+        }
+        BEROutputStream outputStream =
+                new BEROutputStream(ByteBuffer.allocate(length + BER.getBERLengthOfLength(length) + 1));
+        BER.encodeHeader(outputStream, BER.SEQUENCE, length);
+        for (VariableBinding vb : vbs) {
+            vb.encodeBER(outputStream);
+        }
+        return outputStream.getBuffer().array();
+    }
+
+    /**
+     * Wraps the supplied variable binding encodings into a variable bindings sequence.
+     *
+     * @param vbs
+     *         the encoded variable bindings.
+     *
+     * @return the encoded sequence.
+     */
+    private static byte[] sequence(byte[]... vbs) throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        for (byte[] vb : vbs) {
+            content.write(vb);
+        }
+        ByteArrayOutputStream sequence = new ByteArrayOutputStream();
+        BER.encodeHeader(sequence, BER.SEQUENCE, content.size());
+        content.writeTo(sequence);
+        return sequence.toByteArray();
+    }
+
+    private static byte[] encode(VariableBinding vb) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        vb.encodeBER(outputStream);
+        return outputStream.toByteArray();
+    }
+
+    private static LazyVariableBindingList decode(byte[] encoded) throws IOException {
+        return LazyVariableBindingList.decode(new BERInputStream(ByteBuffer.wrap(encoded)));
+    }
+
+    private static void assertDecodeFails(byte[] encoded) {
+        try {
+            decode(encoded);
+            fail("IOException expected for " + new OctetString(encoded).toHexString());
+        } catch (IOException iox) {
+            // expected
+        }
+    }
+
+    public void testRoundTrip() throws IOException {
+        byte[] encoded = encode(VBS);
+        LazyVariableBindingList list = decode(encoded);
+        assertEquals(VBS.size(), list.size());
+        for (int i = 0; i < VBS.size(); i++) {
+            assertFalse(list.isMaterialized(i));
+            assertTrue(list.startsWith(i, VBS.get(i).getOid()));
+            assertTrue(list.startsWith(i, new OID(new int[] { 1, 3, 6, 1 })));
+            assertFalse(list.startsWith(i, new OID("1.3.6.2")));
+            assertEquals(VBS.get(i).getOid(), list.getOid(i));
+        }
+        assertFalse(list.startsWith(0, new OID(SnmpConstants.sysDescr).append(0)));
+        assertEquals(encoded.length - 2, list.getBERPayloadLength());
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        list.encodeBER(outputStream);
+        assertEquals(new OctetString(encoded), new OctetString(outputStream.toByteArray()));
+        assertEquals(VBS, list);
+        for (int i = 0; i < VBS.size(); i++) {
+            assertTrue(list.isMaterialized(i));
+        }
+        outputStream.reset();
+        list.encodeBER(outputStream);
+        assertEquals(new OctetString(encoded), new OctetString(outputStream.toByteArray()));
+    }
+
+    public void testEmptySequence() throws IOException {
+        LazyVariableBindingList list = decode(new byte[] { 0x30, 0x00 });
+        assertEquals(0, list.size());
+    }
+
+    public void testEmptyVariableBinding() throws IOException {
+        // an empty VB followed by a valid one must not be read into the next VB
+        assertDecodeFails(sequence(new byte[] { 0x30, 0x00 }, encode(VBS.get(0))));
+        assertDecodeFails(sequence(new byte[] { 0x30, 0x00 }));
+    }
+
+    public void testVariableBindingWithoutValue() throws IOException {
+        assertDecodeFails(sequence(new byte[] { 0x30, 0x04, 0x06, 0x02, 0x2b, 0x06 }, encode(VBS.get(1))));
+    }
+
+    public void testTruncatedOid() throws IOException {
+        // OID length exceeds the VB
+        assertDecodeFails(sequence(new byte[] { 0x30, 0x04, 0x06, 0x05, 0x2b, 0x06 }, encode(VBS.get(1))));
+        // long form OID length exceeds the VB
+        assertDecodeFails(sequence(new byte[] { 0x30, 0x03, 0x06, (byte) 0x82, 0x01 }, encode(VBS.get(1))));
+        // truncated OID header
+        assertDecodeFails(sequence(new byte[] { 0x30, 0x01, 0x06 }, encode(VBS.get(1))));
+    }
+
+    public void testValueLengthExceedsVariableBinding() throws IOException {
+        assertDecodeFails(sequence(new byte[] { 0x30, 0x06, 0x06, 0x01, 0x2b, 0x02, 0x05, 0x01 }, encode(VBS.get(1))));
+        assertDecodeFails(sequence(new byte[] { 0x30, 0x05, 0x06, 0x01, 0x2b, 0x02, 0x00, 0x05, 0x00 }));
+    }
+
+    public void testTruncatedVariableBinding() throws IOException {
+        byte[] encoded = encode(VBS);
+        // VB sequence length exceeds the available bytes
+        assertDecodeFails(Arrays.copyOf(encoded, encoded.length - 1));
+        // last VB is cut off within the enclosing sequence
+        byte[] truncated = Arrays.copyOf(encoded, encoded.length - 1);
+        truncated[1]--;
+        assertDecodeFails(truncated);
+    }
+
+    public void testInvalidValueContent() throws IOException {
+        // a Counter64 with more than 9 content octets is only detected when the VB is materialized
+        byte[] invalidCounter = { 0x30, 0x0f, 0x06, 0x01, 0x2b, 0x46, 0x0a, 0x01, 0x01, 0x01, 0x01, 0x01, 0x01,
+                0x01, 0x01, 0x01, 0x01 };
+        LazyVariableBindingList list = decode(sequence(encode(VBS.get(0)), invalidCounter));
+        assertEquals(2, list.size());
+        assertEquals(VBS.get(0), list.get(0));
+        assertTrue(list.startsWith(1, new OID(new int[] { 1, 3 })));
+        try {
+            list.get(1);
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException isex) {
+            assertTrue(isex.getCause() instanceof IOException);
+        }
+    }
+
+    public void testSetAndAddAfterLazyDecode() throws IOException {
+        LazyVariableBindingList list = decode(encode(VBS));
+        VariableBinding replacement = new VariableBinding(SnmpConstants.sysName, new OctetString("agent"));
+        VariableBinding inserted = new VariableBinding(SnmpConstants.sysLocation, new OctetString("lab"));
+        VariableBinding appended = new VariableBinding(SnmpConstants.sysServices, new Integer32(72));
+        assertEquals(VBS.get(1), list.set(1, replacement));
+        list.add(0, inserted);
+        list.add(appended);
+        assertEquals(VBS.size() + 2, list.size());
+        assertFalse(list.isMaterialized(3));
+        assertTrue(list.startsWith(3, VBS.get(2).getOid()));
+        assertEquals(VBS.get(2).getOid(), list.getOid(3));
+        List<VariableBinding> expected =
+                Arrays.asList(inserted, VBS.get(0), replacement, VBS.get(2), VBS.get(3), appended);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        list.encodeBER(outputStream);
+        assertEquals(new OctetString(encode(expected)), new OctetString(outputStream.toByteArray()));
+        assertEquals(VBS.get(0), list.remove(1));
+        assertEquals(replacement, list.get(1));
+        assertEquals(expected.size() - 1, list.size());
+        assertEquals(VBS.get(3), list.get(3));
+    }
+}
@@ -150,4 +150,35 @@ public class TestOID extends TestCase {
     OID nullOID = a.getSuffix(c);
     assertNull(nullOID);
   }
+
+  public void testCellOIDConstructor() {
+    OID entry = new OID("1.3.6.1.2.1.2.2.1");
+    OID index = new OID("104.97.1");
+    OID expected = new OID(entry).append(2).append(index);
+    OID cell = new OID(entry.getValue(), 2, index.getValue());
+    assertEquals(expected, cell);
+    assertEquals(expected.hashCode(), cell.hashCode());
+    assertEquals(new OID("1.3.6.1.2.1.2.2.1.2"), new OID(entry.getValue(), 2, new int[0]));
+  }
+
+  public void testHashCodeFollowsChanges() {
+    OID a = new OID("1.3.6.1.2.1.1");
+    int h = a.hashCode();
+    assertEquals(h, a.hashCode());
+    a.append(5);
+    assertEquals(new OID("1.3.6.1.2.1.1.5").hashCode(), a.hashCode());
+    a.set(7, 1);
+    assertEquals(new OID("1.3.6.1.2.1.1.1").hashCode(), a.hashCode());
+    a.removeLast();
+    assertEquals(h, a.hashCode());
+    a.append(new OID("2.3"));
+    a.trim(2);
+    assertEquals(h, a.hashCode());
+    a.setValue("1.3.6");
+    assertEquals(new OID("1.3.6").hashCode(), a.hashCode());
+    OID copy = new OID(a);
+    copy.set(0, 2);
+    assertEquals(new OID("2.3.6").hashCode(), copy.hashCode());
+    assertEquals(new OID("1.3.6").hashCode(), a.hashCode());
+  }
 }
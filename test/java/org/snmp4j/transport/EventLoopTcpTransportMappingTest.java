@@ -0,0 +1,170 @@
+/*_############################################################################
+  _##
+  _##  SNMP4J - EventLoopTcpTransportMappingTest.java
+  _##
+  _##  Copyright (C) 2003-2021  Frank Fock (SNMP4J.org)
+  _##
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##
+  _##########################################################################*/
+package org.snmp4j.transport;
+
+import junit.framework.TestCase;
+import org.snmp4j.PDU;
+import org.snmp4j.TransportMapping;
+import org.snmp4j.TransportStateReference;
+import org.snmp4j.asn1.BEROutputStream;
+import org.snmp4j.mp.SnmpConstants;
+import org.snmp4j.smi.*;
+
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class EventLoopTcpTransportMappingTest extends TestCase {
+
+    private static final int NUM_CLIENTS = 20;
+    private static final int MESSAGES_PER_CLIENT = 10;
+
+    private static byte[] encode(PDU pdu) throws Exception {
+        BEROutputStream berOutputStream = new BEROutputStream(ByteBuffer.allocate(pdu.getBERLength()));
+        pdu.encodeBER(berOutputStream);
+        return berOutputStream.getBuffer().array();
+    }
+
+    private static byte[] createMessage(String text) throws Exception {
+        PDU v2cPDU = new PDU();
+        v2cPDU.add(new VariableBinding(new OID(SnmpConstants.sysDescr), new OctetString(text)));
+        return encode(v2cPDU);
+    }
+
+    public void testSendMessage() throws Exception {
+        EventLoopTcpTransportMapping serverTransportMapping =
+                new EventLoopTcpTransportMapping(new TcpAddress(InetAddress.getLoopbackAddress(), 0), true, 2);
+        final List<OctetString> bytesReceivedList = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch received = new CountDownLatch(2);
+        serverTransportMapping.addTransportListener(new TransportListener() {
+            public <A extends Address> void processMessage(TransportMapping<? super A> sourceTransport,
+                                                           A incomingAddress, ByteBuffer wholeMessage,
+                                                           TransportStateReference tmStateReference) {
+                bytesReceivedList.add(new OctetString(wholeMessage.array()));
+                received.countDown();
+            }
+        });
+        serverTransportMapping.listen();
+        TcpAddress serverAddress = serverTransportMapping.getListenAddress();
+        EventLoopTcpTransportMapping clientTransportMapping = new EventLoopTcpTransportMapping();
+        clientTransportMapping.listen();
+        TransportStateReference transportStateReference =
+                new TransportStateReference(clientTransportMapping, null, null,
+                        null, null, false, new Object());
+        byte[] bytes2Send = createMessage("hello World");
+        // larger than the socket buffers to test partial reads and writes
+        byte[] largeBytes2Send = createMessage(new String(new char[60000]).replace('\0', 'x'));
+        clientTransportMapping.sendMessage(serverAddress, bytes2Send, transportStateReference, 1000, 0);
+        clientTransportMapping.sendMessage(serverAddress, largeBytes2Send, transportStateReference, 1000, 0);
+        assertTrue(received.await(5, TimeUnit.SECONDS));
+        assertEquals(new OctetString(bytes2Send), bytesReceivedList.get(0));
+        assertEquals(new OctetString(largeBytes2Send), bytesReceivedList.get(1));
+        assertEquals(1, clientTransportMapping.sockets.size());
+        clientTransportMapping.close();
+        serverTransportMapping.close();
+        assertNull(serverTransportMapping.server);
+        assertEquals(0, serverTransportMapping.sockets.size());
+    }
+
+    public void testSendMessageAfterDisconnect() throws Exception {
+        EventLoopTcpTransportMapping serverTransportMapping =
+                new EventLoopTcpTransportMapping(new TcpAddress(InetAddress.getLoopbackAddress(), 0), true, 2);
+        final List<OctetString> bytesReceivedList = Collections.synchronizedList(new ArrayList<>());
+        serverTransportMapping.addTransportListener(new TransportListener() {
+            public <A extends Address> void processMessage(TransportMapping<? super A> sourceTransport,
+                                                           A incomingAddress, ByteBuffer wholeMessage,
+                                                           TransportStateReference tmStateReference) {
+                bytesReceivedList.add(new OctetString(wholeMessage.array()));
+                synchronized (bytesReceivedList) {
+                    bytesReceivedList.notify();
+                }
+            }
+        });
+        serverTransportMapping.listen();
+        TcpAddress serverAddress = serverTransportMapping.getListenAddress();
+        EventLoopTcpTransportMapping clientTransportMapping = new EventLoopTcpTransportMapping();
+        TransportStateReference transportStateReference =
+                new TransportStateReference(clientTransportMapping, null, null,
+                        null, null, false, new Object());
+        byte[] bytes2Send = createMessage("hello World");
+        synchronized (bytesReceivedList) {
+            // opens the socket on sending
+            clientTransportMapping.sendMessage(serverAddress, bytes2Send, transportStateReference, 1000, 0);
+            bytesReceivedList.wait(2000);
+        }
+        assertEquals(1, bytesReceivedList.size());
+        assertTrue(clientTransportMapping.isListening());
+        clientTransportMapping.close(serverAddress);
+        assertEquals(0, clientTransportMapping.sockets.size());
+
+        bytesReceivedList.clear();
+        bytes2Send = createMessage("hello again");
+        synchronized (bytesReceivedList) {
+            clientTransportMapping.sendMessage(serverAddress, bytes2Send, transportStateReference, 1000, 0);
+            bytesReceivedList.wait(2000);
+        }
+        assertEquals(1, bytesReceivedList.size());
+        assertEquals(new OctetString(bytes2Send), bytesReceivedList.get(0));
+        clientTransportMapping.close();
+        serverTransportMapping.close();
+    }
+
+    public void testConnectionsDistributedOverSelectorLoops() throws Exception {
+        EventLoopTcpTransportMapping serverTransportMapping =
+                new EventLoopTcpTransportMapping(new TcpAddress(InetAddress.getLoopbackAddress(), 0), true, 4);
+        final CountDownLatch received = new CountDownLatch(NUM_CLIENTS * MESSAGES_PER_CLIENT);
+        final Set<String> threadNames = Collections.synchronizedSet(new HashSet<>());
+        serverTransportMapping.addTransportListener(new TransportListener() {
+            public <A extends Address> void processMessage(TransportMapping<? super A> sourceTransport,
+                                                           A incomingAddress, ByteBuffer wholeMessage,
+                                                           TransportStateReference tmStateReference) {
+                threadNames.add(Thread.currentThread().getName());
+                received.countDown();
+            }
+        });
+        serverTransportMapping.listen();
+        TcpAddress serverAddress = serverTransportMapping.getListenAddress();
+        List<EventLoopTcpTransportMapping> clients = new ArrayList<>();
+        for (int i = 0; i < NUM_CLIENTS; i++) {
+            EventLoopTcpTransportMapping clientTransportMapping =
+                    new EventLoopTcpTransportMapping(new TcpAddress(InetAddress.getLoopbackAddress(), 0), false, 1);
+            clientTransportMapping.listen();
+            clients.add(clientTransportMapping);
+        }
+        for (int m = 0; m < MESSAGES_PER_CLIENT; m++) {
+            for (EventLoopTcpTransportMapping client : clients) {
+                client.sendMessage(serverAddress, createMessage("message " + m), null, 1000, 0);
+            }
+        }
+        assertTrue(received.await(10, TimeUnit.SECONDS));
+        assertEquals(NUM_CLIENTS, serverTransportMapping.sockets.size());
+        assertEquals(4, threadNames.size());
+        for (EventLoopTcpTransportMapping client : clients) {
+            client.close();
+        }
+        serverTransportMapping.close();
+    }
+}
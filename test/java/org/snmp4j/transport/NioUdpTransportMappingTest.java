@@ -0,0 +1,163 @@
+/*_############################################################################
+  _##
+  _##  SNMP4J - NioUdpTransportMappingTest.java
+  _##
+  _##  Copyright (C) 2003-2021  Frank Fock (SNMP4J.org)
+  _##
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##
+  _##########################################################################*/
+package org.snmp4j.transport;
+
+import junit.framework.TestCase;
+import org.snmp4j.MessageDispatcherImpl;
+import org.snmp4j.TransportMapping;
+import org.snmp4j.TransportStateReference;
+import org.snmp4j.smi.Address;
+import org.snmp4j.smi.OctetString;
+import org.snmp4j.smi.UdpAddress;
+import org.snmp4j.util.MultiThreadedMessageDispatcher;
+import org.snmp4j.util.ThreadPool;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class NioUdpTransportMappingTest extends TestCase {
+
+    private static final OctetString FIRST = new OctetString("first datagram");
+    private static final OctetString SECOND = new OctetString("second message");
+
+    public void testThreadedDispatcherWithAsyncMsgProcessing() throws Exception {
+        assertBothPayloadsReceived(true);
+    }
+
+    public void testThreadedDispatcherWithoutAsyncMsgProcessing() throws Exception {
+        assertBothPayloadsReceived(false);
+    }
+
+    public void testSynchronousDispatcherReusesBuffer() throws Exception {
+        NioUdpTransportMapping transportMapping =
+                new NioUdpTransportMapping(new UdpAddress(InetAddress.getLoopbackAddress(), 0));
+        transportMapping.setAsyncMsgProcessingSupported(false);
+        final List<OctetString> payloads = Collections.synchronizedList(new ArrayList<>());
+        final List<Boolean> direct = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch received = new CountDownLatch(2);
+        transportMapping.addTransportListener(new TransportListener() {
+            public <A extends Address> void processMessage(TransportMapping<? super A> sourceTransport,
+                                                           A incomingAddress, ByteBuffer wholeMessage,
+                                                           TransportStateReference tmStateReference) {
+                payloads.add(toOctetString(wholeMessage));
+                direct.add(wholeMessage.isDirect());
+                received.countDown();
+            }
+        });
+        assertTrue(transportMapping.isReceiveBufferReused());
+        transportMapping.listen();
+        try {
+            send(transportMapping.getListenAddress(), FIRST, SECOND);
+            assertTrue(received.await(5, TimeUnit.SECONDS));
+            assertEquals(FIRST, payloads.get(0));
+            assertEquals(SECOND, payloads.get(1));
+            // the reused slab is a direct buffer
+            assertTrue(direct.get(0));
+        }
+        finally {
+            transportMapping.close();
+        }
+    }
+
+    /**
+     * Receives two datagrams with a {@link MultiThreadedMessageDispatcher} whose workers only read the first
+     * message after the second has been received by the transport mapping.
+     *
+     * @param asyncMsgProcessingSupported
+     *         the async message processing flag of the transport mapping.
+     *
+     * @throws Exception
+     *         on failure.
+     */
+    private void assertBothPayloadsReceived(boolean asyncMsgProcessingSupported) throws Exception {
+        NioUdpTransportMapping transportMapping =
+                new NioUdpTransportMapping(new UdpAddress(InetAddress.getLoopbackAddress(), 0));
+        transportMapping.setAsyncMsgProcessingSupported(asyncMsgProcessingSupported);
+        final CountDownLatch dispatched = new CountDownLatch(2);
+        final CountDownLatch processed = new CountDownLatch(2);
+        final List<OctetString> payloads = Collections.synchronizedList(new ArrayList<>());
+        final List<Boolean> direct = Collections.synchronizedList(new ArrayList<>());
+        MessageDispatcherImpl decorated = new MessageDispatcherImpl() {
+            @Override
+            public <A extends Address> void processMessage(TransportMapping<? super A> sourceTransport,
+                                                           A incomingAddress, ByteBuffer wholeMessage,
+                                                           TransportStateReference tmStateReference) {
+                try {
+                    dispatched.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                payloads.add(toOctetString(wholeMessage));
+                direct.add(wholeMessage.isDirect());
+                processed.countDown();
+            }
+        };
+        ThreadPool threadPool = ThreadPool.create("NioUdpTransportMappingTest", 2);
+        MultiThreadedMessageDispatcher dispatcher = new MultiThreadedMessageDispatcher(threadPool, decorated) {
+            @Override
+            public <A extends Address> void processMessage(TransportMapping<? super A> sourceTransport,
+                                                           A incomingAddress, ByteBuffer wholeMessage,
+                                                           TransportStateReference tmStateReference) {
+                super.processMessage(sourceTransport, incomingAddress, wholeMessage, tmStateReference);
+                dispatched.countDown();
+            }
+        };
+        transportMapping.addTransportListener(dispatcher);
+        assertFalse(transportMapping.isReceiveBufferReused());
+        transportMapping.listen();
+        try {
+            send(transportMapping.getListenAddress(), FIRST, SECOND);
+            assertTrue(processed.await(10, TimeUnit.SECONDS));
+            assertEquals(2, payloads.size());
+            assertTrue(payloads.contains(FIRST));
+            assertTrue(payloads.contains(SECOND));
+            // slabs that are not reused are heap buffers, thus they cannot exhaust the direct memory
+            assertFalse(direct.contains(Boolean.TRUE));
+        }
+        finally {
+            transportMapping.close();
+            threadPool.cancel();
+        }
+        transportMapping.removeTransportListener(dispatcher);
+        assertEquals(asyncMsgProcessingSupported, !transportMapping.isReceiveBufferReused());
+    }
+
+    private static OctetString toOctetString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return new OctetString(bytes);
+    }
+
+    private static void send(UdpAddress address, OctetString... payloads) throws Exception {
+        try (DatagramSocket socket = new DatagramSocket()) {
+            for (OctetString payload : payloads) {
+                socket.send(new DatagramPacket(payload.getValue(), payload.length(),
+                        address.getInetAddress(), address.getPort()));
+            }
+        }
+    }
+}
@@ -34,17 +34,32 @@ import org.snmp4j.security.SecurityLevel;
 import org.snmp4j.security.SecurityModels;
 import org.snmp4j.security.TSM;
 import org.snmp4j.smi.*;
+import org.snmp4j.transport.tls.DefaultSSLEngineConfiguration;
 import org.snmp4j.transport.tls.DefaultTlsTmSecurityCallback;
 import org.snmp4j.transport.tls.SecurityNameMapping;
 
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLSession;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
 import java.net.URL;
 import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.*;
 
@@ -421,6 +436,178 @@ public class TLSTMTest {
         snmp.close();
     }
 
+    @Test
+    public void sendMessageWithHandshakeTaskExecutor() throws Exception {
+        final AtomicInteger handshakeTasks = new AtomicInteger();
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        Executor handshakeTaskExecutor = command -> {
+            handshakeTasks.incrementAndGet();
+            executorService.execute(command);
+        };
+        tlstmCR.setHandshakeTaskExecutor(handshakeTaskExecutor);
+        tlstmCS.setHandshakeTaskExecutor(handshakeTaskExecutor);
+        MessageCounter messageCounter = new MessageCounter();
+        tlstmCR.addTransportListener(messageCounter);
+        tlstmCR.listen();
+        tlstmCS.listen();
+        try {
+            sendMessage(messageCounter, 1);
+            sendMessage(messageCounter, 2);
+            assertTrue(handshakeTasks.get() > 0);
+        }
+        finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void reconnectResumesSession() throws Exception {
+        final List<SSLEngine> sslEngines = Collections.synchronizedList(new ArrayList<>());
+        DefaultSSLEngineConfiguration sslEngineConfiguration =
+                new DefaultSSLEngineConfiguration(tlstmCS, tlstmCS.getTrustManagerFactory(),
+                        TLSTM.DEFAULT_TLSTM_PROTOCOLS) {
+                    @Override
+                    public void configure(SSLEngine sslEngine) {
+                        super.configure(sslEngine);
+                        sslEngines.add(sslEngine);
+                    }
+                };
+        tlstmCS.setSslEngineConfigurator(sslEngineConfiguration);
+        MessageCounter messageCounter = new MessageCounter();
+        tlstmCR.addTransportListener(messageCounter);
+        tlstmCR.listen();
+        tlstmCS.listen();
+        // the relay makes the server read the client's finished message together with the first message, which
+        // remains in the inbound buffer after the (abbreviated) handshake has been finished
+        try (CoalescingRelay relay = new CoalescingRelay(tlstmCR.getListenAddress())) {
+            TlsAddress relayAddress = relay.getAddress();
+            sendMessage(relayAddress, messageCounter, 1);
+            byte[] sessionID = sslEngines.get(0).getSession().getId();
+            assertTrue(sessionID.length > 0);
+            for (int i = 2; i <= 3; i++) {
+                assertTrue(tlstmCS.close(relayAddress));
+                sendMessage(relayAddress, messageCounter, i);
+                assertEquals(i, sslEngines.size());
+                assertArrayEquals(sessionID, sslEngines.get(i - 1).getSession().getId());
+            }
+        }
+        assertEquals(1, sslEngineConfiguration.getCachedSSLContextCount());
+    }
+
+    @Test
+    public void replacedSecurityCallbackPreventsResumption() throws Exception {
+        final List<SSLEngine> sslEngines = Collections.synchronizedList(new ArrayList<>());
+        DefaultSSLEngineConfiguration sslEngineConfiguration =
+                new DefaultSSLEngineConfiguration(tlstmCR, tlstmCR.getTrustManagerFactory(),
+                        TLSTM.DEFAULT_TLSTM_PROTOCOLS) {
+                    @Override
+                    public void configure(SSLEngine sslEngine) {
+                        super.configure(sslEngine);
+                        sslEngines.add(sslEngine);
+                    }
+                };
+        tlstmCR.setSslEngineConfigurator(sslEngineConfiguration);
+        MessageCounter messageCounter = new MessageCounter();
+        tlstmCR.addTransportListener(messageCounter);
+        tlstmCR.listen();
+        tlstmCS.listen();
+        try (CoalescingRelay relay = new CoalescingRelay(tlstmCR.getListenAddress())) {
+            TlsAddress relayAddress = relay.getAddress();
+            sendMessage(relayAddress, messageCounter, 1);
+            SSLSession session = sslEngines.get(0).getSession();
+            assertEquals(DefaultSSLEngineConfiguration.DEFAULT_SERVER_SESSION_TIMEOUT,
+                    session.getSessionContext().getSessionTimeout());
+            assertTrue(tlstmCS.close(relayAddress));
+            sendMessage(relayAddress, messageCounter, 2);
+            assertArrayEquals(session.getId(), sslEngines.get(1).getSession().getId());
+            // the acceptance of the client could have been revoked by the new callback
+            tlstmCR.setSecurityCallback(tlstmCR.getSecurityCallback());
+            assertEquals(0, sslEngineConfiguration.getCachedSSLContextCount());
+            assertTrue(tlstmCS.close(relayAddress));
+            sendMessage(relayAddress, messageCounter, 3);
+            assertFalse(Arrays.equals(session.getId(), sslEngines.get(2).getSession().getId()));
+        }
+    }
+
+    @Test
+    public void bufferPoolBounds() {
+        TLSTM.BufferPool bufferPool = new TLSTM.BufferPool(2);
+        ByteBuffer first = bufferPool.acquire(100);
+        ByteBuffer second = bufferPool.acquire(100);
+        ByteBuffer third = bufferPool.acquire(100);
+        assertEquals(100, first.capacity());
+        assertEquals(0, bufferPool.size());
+        first.put((byte) 1).flip();
+        bufferPool.release(first);
+        bufferPool.release(second);
+        bufferPool.release(third);
+        assertEquals(2, bufferPool.size());
+        // pooled buffers are returned cleared
+        ByteBuffer reused = bufferPool.acquire(50);
+        assertTrue(reused == first || reused == second);
+        assertTrue(TLSTM.BufferPool.isEmpty(reused));
+        assertEquals(1, bufferPool.size());
+        // a pooled buffer too small for the requested capacity is discarded
+        ByteBuffer larger = bufferPool.acquire(200);
+        assertEquals(200, larger.capacity());
+        assertEquals(0, bufferPool.size());
+        bufferPool.setMaxSize(0);
+        bufferPool.release(larger);
+        assertEquals(0, bufferPool.size());
+        assertFalse(TLSTM.BufferPool.isEmpty(null));
+        try {
+            bufferPool.setMaxSize(-1);
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException iaex) {
+            // expected
+        }
+    }
+
+    private void sendMessage(MessageCounter messageCounter, int expectedMessages) throws Exception {
+        sendMessage(tlstmCR.getListenAddress(), messageCounter, expectedMessages);
+    }
+
+    private void sendMessage(TcpAddress address, MessageCounter messageCounter, int expectedMessages)
+            throws Exception {
+        CertifiedTarget<TlsAddress> certifiedTarget = new CertifiedTarget<>(new TlsAddress(address),
+                new OctetString(SEC_NAME), SERVER_FINGER_PRINT, CLIENT_FINGER_PRINT);
+        TransportStateReference tmStateReference =
+                new TransportStateReference(tlstmCS,
+                        address,
+                        new OctetString(SEC_NAME),
+                        SecurityLevel.authPriv,
+                        SecurityLevel.undefined,
+                        false, null, certifiedTarget);
+        tlstmCS.sendMessage(address, MESSAGE, tmStateReference, 3000, 0);
+        assertTrue("Message " + expectedMessages + " not received", messageCounter.await(expectedMessages, TIMEOUT));
+    }
+
+    private static class MessageCounter implements TransportListener {
+        private int messages;
+
+        public synchronized <A extends Address> void processMessage(TransportMapping<? super A> sourceTransport,
+                                                                    A incomingAddress, ByteBuffer wholeMessage,
+                                                                    TransportStateReference tmStateReference) {
+            byte[] message = new byte[wholeMessage.limit()];
+            System.arraycopy(wholeMessage.array(), 0, message, 0, message.length);
+            assertArrayEquals(MESSAGE, message);
+            messages++;
+            notifyAll();
+        }
+
+        synchronized boolean await(int expectedMessages, long timeoutMillis) throws InterruptedException {
+            long end = System.currentTimeMillis() + timeoutMillis;
+            while (messages < expectedMessages) {
+                long remaining = end - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                wait(remaining);
+            }
+            return true;
+        }
+    }
+
     private <A extends Address> void unconfirmedTest(Snmp snmpCommandResponder, Snmp snmpCommandGenerator,
                                                      TransportMapping<? super A> transportMappingCG, Target<A> target,
                                                      PDU pdu) throws IOException {
@@ -442,4 +629,85 @@ public class TLSTMTest {
         assertTrue(queue.isEmpty());
     }
 
+    /**
+     * Forwards a TCP connection to a server and delays the data sent by the client, so that data written by
+     * the client in short succession is received by the server at once.
+     */
+    private static class CoalescingRelay implements Closeable {
+        private final ServerSocket serverSocket;
+        private final InetSocketAddress serverAddress;
+        private final List<Socket> sockets = Collections.synchronizedList(new ArrayList<>());
+
+        CoalescingRelay(TcpAddress server) throws IOException {
+            this.serverAddress = new InetSocketAddress(server.getInetAddress(), server.getPort());
+            this.serverSocket = new ServerSocket(0, 5, server.getInetAddress());
+            Thread acceptor = new Thread(() -> {
+                try {
+                    while (!serverSocket.isClosed()) {
+                        Socket client = serverSocket.accept();
+                        Socket upstream = new Socket(serverAddress.getAddress(), serverAddress.getPort());
+                        sockets.add(client);
+                        sockets.add(upstream);
+                        forward(client, upstream, 100);
+                        forward(upstream, client, 0);
+                    }
+                } catch (IOException iox) {
+                    // relay closed
+                }
+            }, "CoalescingRelay");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        TlsAddress getAddress() {
+            return new TlsAddress(serverSocket.getInetAddress(), serverSocket.getLocalPort());
+        }
+
+        private void forward(Socket from, Socket to, long delayMillis) {
+            Thread forwarder = new Thread(() -> {
+                byte[] buffer = new byte[65536];
+                try {
+                    InputStream in = from.getInputStream();
+                    OutputStream out = to.getOutputStream();
+                    int length;
+                    while ((length = in.read(buffer)) >= 0) {
+                        if (delayMillis > 0) {
+                            Thread.sleep(delayMillis);
+                            while ((in.available() > 0) && (length < buffer.length)) {
+                                length += in.read(buffer, length, Math.min(in.available(), buffer.length - length));
+                            }
+                        }
+                        out.write(buffer, 0, length);
+                        out.flush();
+                    }
+                } catch (IOException | InterruptedException ex) {
+                    // connection closed
+                } finally {
+                    closeQuietly(from);
+                    closeQuietly(to);
+                }
+            }, "CoalescingRelay-" + from.getPort());
+            forwarder.setDaemon(true);
+            forwarder.start();
+        }
+
+        private static void closeQuietly(Socket socket) {
+            try {
+                socket.close();
+            } catch (IOException iox) {
+                // ignore
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            serverSocket.close();
+            synchronized (sockets) {
+                for (Socket socket : sockets) {
+                    closeQuietly(socket);
+                }
+            }
+        }
+    }
+
 }
@@ -0,0 +1,134 @@
+/*_############################################################################
+  _## 
+  _##  SNMP4J - HashedWheelTimerTest.java  
+  _## 
+  _##  Copyright (C) 2003-2021  Frank Fock (SNMP4J.org)
+  _##  
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##  
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##  
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##  
+  _##########################################################################*/
+package org.snmp4j.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.TimerTask;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class HashedWheelTimerTest {
+
+    private HashedWheelTimer timer;
+
+    @Before
+    public void setUp() {
+        timer = new HashedWheelTimer("HashedWheelTimerTest", 5, 16);
+    }
+
+    @After
+    public void tearDown() {
+        timer.cancel();
+    }
+
+    @Test
+    public void testScheduleExpires() throws Exception {
+        CountDownLatch latch = new CountDownLatch(3);
+        long start = System.nanoTime();
+        // delay of more than one round of the wheel
+        for (long delay : new long[] { 0, 50, 200 }) {
+            timer.schedule(new CancellableTimerTask() {
+                @Override
+                public void run() {
+                    latch.countDown();
+                }
+            }, delay);
+        }
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+        assertEquals(0, timer.getPendingTimeouts());
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        CancellableTimerTask task = new CancellableTimerTask() {
+            @Override
+            public void run() {
+                executions.incrementAndGet();
+            }
+        };
+        timer.schedule(task, 30);
+        assertEquals(1, timer.getPendingTimeouts());
+        assertTrue(task.cancel());
+        assertTrue(task.isCancelled());
+        assertFalse(task.cancel());
+        assertEquals(0, timer.getPendingTimeouts());
+        Thread.sleep(100);
+        assertEquals(0, executions.get());
+        try {
+            timer.schedule(task, 10);
+            fail("Cancelled task must not be scheduled again");
+        }
+        catch (IllegalStateException isex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testPlainTimerTask() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        TimerTask cancelled = new TimerTask() {
+            @Override
+            public void run() {
+                fail("Cancelled task must not run");
+            }
+        };
+        timer.schedule(cancelled, 20);
+        cancelled.cancel();
+        timer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        }, 40);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testFailingTaskDoesNotStopTimer() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        timer.schedule(new CancellableTimerTask() {
+            @Override
+            public void run() {
+                throw new AssertionError("task failure");
+            }
+        }, 0);
+        timer.schedule(new CancellableTimerTask() {
+            @Override
+            public void run() {
+                throw new IllegalStateException("task failure");
+            }
+        }, 0);
+        timer.schedule(new CancellableTimerTask() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        }, 50);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+}
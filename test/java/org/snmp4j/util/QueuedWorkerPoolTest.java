@@ -0,0 +1,214 @@
+/*_############################################################################
+  _## 
+  _##  SNMP4J - QueuedWorkerPoolTest.java   
+  _## 
+  _##  Copyright (C) 2003-2021  Frank Fock (SNMP4J.org)
+  _##  
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##  
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##  
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##  
+  _##########################################################################*/
+package org.snmp4j.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class QueuedWorkerPoolTest {
+
+    private QueuedWorkerPool pool;
+
+    @Before
+    public void setUp() {
+        pool = new QueuedWorkerPool("QueuedWorkerPoolTest", 2, 4);
+    }
+
+    @After
+    public void tearDown() {
+        pool.cancel();
+    }
+
+    @Test
+    public void testExecuteAll() throws Exception {
+        CountDownLatch latch = new CountDownLatch(100);
+        pool.setRejectionHandler(QueuedWorkerPool.block(5000));
+        for (int i = 0; i < 100; i++) {
+            pool.execute(new LatchTask(latch, null));
+        }
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testSlowTaskDoesNotBlockSubmitter() throws Exception {
+        CountDownLatch blocker = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(3);
+        pool.execute(new LatchTask(done, blocker));
+        long start = System.nanoTime();
+        pool.execute(new LatchTask(done, null));
+        pool.execute(new LatchTask(done, null));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+        // the other worker executes or steals both fast tasks while the first one is blocked
+        for (int i = 0; i < 100 && done.getCount() > 1; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, done.getCount());
+        blocker.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testRejectWhenSaturated() throws Exception {
+        CountDownLatch blocker = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(Integer.MAX_VALUE);
+        AtomicInteger rejected = new AtomicInteger();
+        pool.setRejectionHandler((task, workerPool) -> rejected.incrementAndGet());
+        pool.execute(new LatchTask(done, blocker));
+        pool.execute(new LatchTask(done, blocker));
+        for (int i = 0; i < 100 && pool.getActiveCount() < 2; i++) {
+            Thread.sleep(10);
+        }
+        for (int i = 0; i < 18; i++) {
+            pool.execute(new LatchTask(done, blocker));
+        }
+        // two running tasks and two full queues with four tasks each
+        assertEquals(10, rejected.get());
+        assertEquals(10, pool.getRejectedTaskCount());
+        assertFalse(pool.tryToExecute(new LatchTask(done, null)));
+        blocker.countDown();
+    }
+
+    @Test
+    public void testWorkerSurvivesError() throws Exception {
+        QueuedWorkerPool single = new QueuedWorkerPool("QueuedWorkerPoolTest.single", 1, 4);
+        try {
+            single.execute(new LatchTask(new CountDownLatch(1), null) {
+                @Override
+                public void run() {
+                    throw new AssertionError("task failure");
+                }
+            });
+            CountDownLatch done = new CountDownLatch(1);
+            single.execute(new LatchTask(done, null));
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 100 && single.getExecutedTaskCount() < 2; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(2, single.getExecutedTaskCount());
+        } finally {
+            single.cancel();
+        }
+    }
+
+    private static List<Thread> getWorkerThreads() {
+        List<Thread> workers = new ArrayList<>();
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("QueuedWorkerPoolTest.") &&
+                    (thread.getName().length() == "QueuedWorkerPoolTest.".length() + 1)) {
+                workers.add(thread);
+            }
+        }
+        return workers;
+    }
+
+    private static void awaitParked(Thread worker) throws InterruptedException {
+        for (int i = 0; i < 100 && worker.getState() != Thread.State.WAITING; i++) {
+            Thread.sleep(10);
+        }
+        // a timed poll would leave the worker in TIMED_WAITING state
+        assertEquals(Thread.State.WAITING, worker.getState());
+    }
+
+    @Test
+    public void testIdleWorkersPark() throws Exception {
+        List<Thread> workers = getWorkerThreads();
+        assertEquals(2, workers.size());
+        for (Thread worker : workers) {
+            awaitParked(worker);
+        }
+        CountDownLatch done = new CountDownLatch(1);
+        pool.execute(new LatchTask(done, null));
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testParkedWorkerStealsTaskQueuedBehindBusyWorker() throws Exception {
+        CountDownLatch blocker = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        List<Thread> workers = getWorkerThreads();
+        pool.execute(new LatchTask(new CountDownLatch(1), null) {
+            @Override
+            public void run() {
+                try {
+                    for (Thread worker : workers) {
+                        if (worker != Thread.currentThread()) {
+                            awaitParked(worker);
+                        }
+                    }
+                    // queued to the queue of this worker, which stays busy until the task has been stolen
+                    pool.execute(new LatchTask(done, null));
+                    blocker.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+            }
+        });
+        try {
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertTrue(pool.getStolenTaskCount() >= 1);
+        } finally {
+            blocker.countDown();
+        }
+    }
+
+    private static class LatchTask implements WorkerTask {
+
+        private final CountDownLatch done;
+        private final CountDownLatch blocker;
+
+        LatchTask(CountDownLatch done, CountDownLatch blocker) {
+            this.done = done;
+            this.blocker = blocker;
+        }
+
+        @Override
+        public void run() {
+            if (blocker != null) {
+                try {
+                    blocker.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            done.countDown();
+        }
+
+        @Override
+        public void terminate() {
+        }
+
+        @Override
+        public void join() {
+        }
+
+        @Override
+        public void interrupt() {
+        }
+    }
+}
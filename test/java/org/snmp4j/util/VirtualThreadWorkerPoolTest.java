@@ -0,0 +1,185 @@
+/*_############################################################################
+  _## 
+  _##  SNMP4J - VirtualThreadWorkerPoolTest.java   
+  _## 
+  _##  Copyright (C) 2003-2021  Frank Fock (SNMP4J.org)
+  _##  
+  _##  Licensed under the Apache License, Version 2.0 (the "License");
+  _##  you may not use this file except in compliance with the License.
+  _##  You may obtain a copy of the License at
+  _##  
+  _##      http://www.apache.org/licenses/LICENSE-2.0
+  _##  
+  _##  Unless required by applicable law or agreed to in writing, software
+  _##  distributed under the License is distributed on an "AS IS" BASIS,
+  _##  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  _##  See the License for the specific language governing permissions and
+  _##  limitations under the License.
+  _##  
+  _##########################################################################*/
+package org.snmp4j.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class VirtualThreadWorkerPoolTest {
+
+    private VirtualThreadWorkerPool pool;
+
+    @Before
+    public void setUp() {
+        pool = new VirtualThreadWorkerPool("VirtualThreadWorkerPoolTest", 4, 2, 100, null);
+        pool.setTaskClassifier(task -> ((KeyedTask) task).key);
+    }
+
+    @After
+    public void tearDown() {
+        pool.cancel();
+    }
+
+    @Test
+    public void testSlowKeyDoesNotStarveOtherKeys() throws Exception {
+        CountDownLatch blocker = new CountDownLatch(1);
+        CountDownLatch slowDone = new CountDownLatch(50);
+        for (int i = 0; i < 50; i++) {
+            pool.execute(new KeyedTask("slow", slowDone, blocker));
+        }
+        assertEquals(2, pool.getRunningCount("slow"));
+        CountDownLatch fastDone = new CountDownLatch(20);
+        for (int i = 0; i < 20; i++) {
+            pool.execute(new KeyedTask("fast", fastDone, null));
+        }
+        assertTrue(fastDone.await(5, TimeUnit.SECONDS));
+        assertEquals(50, slowDone.getCount());
+        blocker.countDown();
+        assertTrue(slowDone.await(5, TimeUnit.SECONDS));
+        pool.stop();
+        assertTrue(pool.isIdle());
+        assertEquals(70, pool.getExecutedTaskCount());
+    }
+
+    @Test
+    public void testRejectWhenPendingLimitReached() throws Exception {
+        CountDownLatch blocker = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(Integer.MAX_VALUE);
+        for (int i = 0; i < 102; i++) {
+            assertTrue(pool.tryToExecute(new KeyedTask("slow", done, blocker)));
+        }
+        assertFalse(pool.tryToExecute(new KeyedTask("slow", done, blocker)));
+        // a task that can start immediately is accepted even if the pending queue is full
+        assertTrue(pool.tryToExecute(new KeyedTask("other", done, blocker)));
+        pool.execute(new KeyedTask("slow", done, blocker));
+        assertEquals(1, pool.getRejectedTaskCount());
+        blocker.countDown();
+    }
+
+    @Test
+    public void testRejectedByPlatformPool() throws Exception {
+        if (VirtualThreadWorkerPool.isVirtualThreadSupported()) {
+            return;
+        }
+        pool.cancel();
+        RejectingPool platformPool = new RejectingPool();
+        pool = new VirtualThreadWorkerPool("VirtualThreadWorkerPoolTest", 4, 2, 100, platformPool);
+        pool.setTaskClassifier(task -> ((KeyedTask) task).key);
+        AtomicInteger rejected = new AtomicInteger();
+        pool.setRejectionHandler((task, workerPool) -> rejected.incrementAndGet());
+        CountDownLatch done = new CountDownLatch(10);
+        platformPool.reject = true;
+        for (int i = 0; i < 10; i++) {
+            pool.execute(new KeyedTask("key", done, null));
+        }
+        assertEquals(10, rejected.get());
+        assertEquals(10, pool.getRejectedTaskCount());
+        assertEquals(0, pool.getRunningCount("key"));
+        assertTrue(pool.isIdle());
+        platformPool.reject = false;
+        for (int i = 0; i < 10; i++) {
+            pool.execute(new KeyedTask("key", done, null));
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        pool.stop();
+        assertEquals(10, pool.getExecutedTaskCount());
+        platformPool.delegate.stop();
+    }
+
+    /**
+     * A platform pool that rejects all tasks while {@code reject} is set.
+     */
+    private static class RejectingPool implements WorkerPool {
+
+        private final QueuedWorkerPool delegate = new QueuedWorkerPool("RejectingPool", 2, 100);
+        private volatile boolean reject;
+
+        @Override
+        public void execute(WorkerTask task) {
+            if (!tryToExecute(task)) {
+                throw new IllegalStateException("Task rejected");
+            }
+        }
+
+        @Override
+        public boolean tryToExecute(WorkerTask task) {
+            return !reject && delegate.tryToExecute(task);
+        }
+
+        @Override
+        public void stop() {
+            delegate.stop();
+        }
+
+        @Override
+        public void cancel() {
+            delegate.cancel();
+        }
+
+        @Override
+        public boolean isIdle() {
+            return delegate.isIdle();
+        }
+    }
+
+    private static class KeyedTask implements WorkerTask {
+
+        private final String key;
+        private final CountDownLatch done;
+        private final CountDownLatch blocker;
+
+        KeyedTask(String key, CountDownLatch done, CountDownLatch blocker) {
+            this.key = key;
+            this.done = done;
+            this.blocker = blocker;
+        }
+
+        @Override
+        public void run() {
+            if (blocker != null) {
+                try {
+                    blocker.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            done.countDown();
+        }
+
+        @Override
+        public void terminate() {
+        }
+
+        @Override
+        public void join() {
+        }
+
+        @Override
+        public void interrupt() {
+        }
+    }
+}